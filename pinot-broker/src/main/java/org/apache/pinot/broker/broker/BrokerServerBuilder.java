@@ -32,6 +32,7 @@ import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.metrics.MetricsHelper;
 import org.apache.pinot.common.utils.CommonConstants.Broker;
 import org.apache.pinot.common.utils.CommonConstants.Helix;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +55,7 @@ public class BrokerServerBuilder {
   private final AccessControlFactory _accessControlFactory;
   private final MetricsRegistry _metricsRegistry;
   private final BrokerMetrics _brokerMetrics;
+  private final ServerRoutingStats _serverRoutingStats;
   private final BrokerRequestHandler _brokerRequestHandler;
   private final BrokerAdminApiApplication _brokerAdminApplication;
 
@@ -73,10 +75,33 @@ public class BrokerServerBuilder {
         new BrokerMetrics(config.getString(Broker.CONFIG_OF_METRICS_NAME_PREFIX, Broker.DEFAULT_METRICS_NAME_PREFIX), _metricsRegistry,
             !_config.getBoolean(Broker.CONFIG_OF_ENABLE_TABLE_LEVEL_METRICS, !Broker.DEFAULT_METRICS_GLOBAL_ENABLED));
     _brokerMetrics.initializeGlobalMeters();
+    _serverRoutingStats = buildServerRoutingStats();
     _brokerRequestHandler = buildRequestHandler();
     _brokerAdminApplication = new BrokerAdminApiApplication(this);
   }
 
+  private ServerRoutingStats buildServerRoutingStats() {
+    // The statistics are used by both adaptive server selection and hedged requests
+    if (!isAdaptiveServerSelectionEnabled() && !_config
+        .getBoolean(Broker.CONFIG_OF_ENABLE_HEDGED_REQUESTS, Broker.DEFAULT_ENABLE_HEDGED_REQUESTS)) {
+      return null;
+    }
+    String requestHandlerType =
+        _config.getString(Broker.CONFIG_OF_REQUEST_HANDLER_TYPE, Broker.DEFAULT_REQUEST_HANDLER_TYPE);
+    if (requestHandlerType.equalsIgnoreCase(Broker.CONNECTION_POOL_REQUEST_HANDLER_TYPE)) {
+      LOGGER.warn("Adaptive server selection and hedged requests are not supported by "
+          + "ConnectionPoolBrokerRequestHandler, disabling them");
+      return null;
+    }
+    LOGGER.info("Tracking server statistics for adaptive server selection or hedged requests");
+    return new ServerRoutingStats();
+  }
+
+  public boolean isAdaptiveServerSelectionEnabled() {
+    return _config.getBoolean(Broker.CONFIG_OF_ENABLE_ADAPTIVE_SERVER_SELECTION,
+        Broker.DEFAULT_ENABLE_ADAPTIVE_SERVER_SELECTION);
+  }
+
   private BrokerRequestHandler buildRequestHandler() {
     String requestHandlerType =
         _config.getString(Broker.CONFIG_OF_REQUEST_HANDLER_TYPE, Broker.DEFAULT_REQUEST_HANDLER_TYPE);
@@ -87,7 +112,7 @@ public class BrokerServerBuilder {
     } else {
       LOGGER.info("Using SingleConnectionBrokerRequestHandler");
       return new SingleConnectionBrokerRequestHandler(_config, _routingTable, _timeBoundaryService,
-          _accessControlFactory, _queryQuotaManager, _brokerMetrics);
+          _accessControlFactory, _queryQuotaManager, _brokerMetrics, _serverRoutingStats);
     }
   }
 
@@ -148,6 +173,14 @@ public class BrokerServerBuilder {
     return _brokerMetrics;
   }
 
+  /**
+   * Returns the statistics of the servers if adaptive server selection or hedged requests are enabled, or {@code null}
+   * if not.
+   */
+  public ServerRoutingStats getServerRoutingStats() {
+    return _serverRoutingStats;
+  }
+
   public BrokerRequestHandler getBrokerRequestHandler() {
     return _brokerRequestHandler;
   }
@@ -184,6 +184,9 @@ public class HelixBrokerStarter {
     }
     BrokerMetrics brokerMetrics = _brokerServerBuilder.getBrokerMetrics();
     _helixExternalViewBasedRouting.setBrokerMetrics(brokerMetrics);
+    if (_brokerServerBuilder.isAdaptiveServerSelectionEnabled()) {
+      _helixExternalViewBasedRouting.setServerRoutingStats(_brokerServerBuilder.getServerRoutingStats());
+    }
     _helixExternalViewBasedQueryQuotaManager.setBrokerMetrics(brokerMetrics);
     _brokerServerBuilder.start();
 
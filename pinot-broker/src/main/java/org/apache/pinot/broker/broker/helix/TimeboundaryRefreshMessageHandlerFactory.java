@@ -127,8 +127,8 @@ public class TimeboundaryRefreshMessageHandlerFactory implements MessageHandlerF
           Iterator<String> tableItr = tables.iterator();
           while (tableItr.hasNext()) {
             String table = tableItr.next();
-            _logger.info("Update time boundary info for table {} ", table);
-            _helixExternalViewBasedRouting.updateTimeBoundary(table);
+            _logger.info("Update time boundary info and segment pruner for table {} ", table);
+            _helixExternalViewBasedRouting.processSegmentRefresh(table);
             // Remove the table name from the underlying hashmap.
             tableItr.remove();
           }
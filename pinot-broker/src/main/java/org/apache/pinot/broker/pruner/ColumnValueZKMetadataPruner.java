@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.pruner;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.metadata.segment.ColumnStatsMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentColumnStatsMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
+import org.apache.pinot.common.utils.request.FilterQueryTree;
+import org.apache.pinot.core.common.predicate.RangePredicate;
+import org.apache.pinot.core.query.pruner.SegmentPrunerUtils;
+
+
+/**
+ * Implementation of {@link SegmentZKMetadataPruner} that prunes segment based on the column min/max values stored in
+ * the segment ZK metadata (same as the server side ColumnValueSegmentPruner, but without reaching the servers):
+ * <ul>
+ *   <li> Walks the filter query tree and compares the column min/max values against the EQUALITY, IN and RANGE
+ *   predicates.</li>
+ *   <li> Prunes segment when none of its values can satisfy the predicate(s) in the query.</li>
+ * </ul>
+ */
+public class ColumnValueZKMetadataPruner implements SegmentZKMetadataPruner {
+
+  @Override
+  public boolean prune(SegmentZKMetadata segmentZKMetadata, SegmentPrunerContext prunerContext) {
+    SegmentColumnStatsMetadata columnStatsMetadata = segmentZKMetadata.getColumnStatsMetadata();
+    if (columnStatsMetadata == null) {
+      return false;
+    }
+
+    FilterQueryTree filterQueryTree = prunerContext.getFilterQueryTree();
+    return pruneSegment(filterQueryTree, columnStatsMetadata);
+  }
+
+  /**
+   * Helper method to prune a segment based on the filter query tree and column stats metadata.
+   *
+   * @param filterQueryTree Filter tree for the predicates in the query
+   * @param columnStatsMetadata Column stats metadata of the segment
+   *
+   * @return True if the segment can be pruned, false otherwise.
+   */
+  private boolean pruneSegment(@Nullable FilterQueryTree filterQueryTree,
+      SegmentColumnStatsMetadata columnStatsMetadata) {
+    if (filterQueryTree == null) {
+      return false;
+    }
+
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+
+    // Non-leaf node
+    if (children != null && !children.isEmpty()) {
+      return SegmentPrunerUtils.pruneNonLeaf(filterQueryTree, child -> pruneSegment(child, columnStatsMetadata));
+    }
+
+    // Skip expressions
+    if (filterQueryTree.getExpression() != null && !filterQueryTree.getExpression().isColumn()) {
+      return false;
+    }
+
+    // Leaf node
+    ColumnStatsMetadata columnStats = columnStatsMetadata.getColumnStats(filterQueryTree.getColumn());
+    if (columnStats == null) {
+      return false;
+    }
+
+    DataType dataType = columnStats.getDataType();
+    Comparable minValue = getValue(columnStats.getMinValue(), dataType);
+    Comparable maxValue = getValue(columnStats.getMaxValue(), dataType);
+    if (minValue == null || maxValue == null) {
+      return false;
+    }
+
+    switch (filterQueryTree.getOperator()) {
+      case EQUALITY:
+      case IN:
+        // Prune if none of the values is in the min/max range
+        for (String valueString : filterQueryTree.getValue()) {
+          Comparable value = getValue(valueString, dataType);
+          if (value == null || (value.compareTo(minValue) >= 0 && value.compareTo(maxValue) <= 0)) {
+            return false;
+          }
+        }
+        return true;
+
+      case RANGE:
+        RangePredicate rangePredicate = new RangePredicate(null, filterQueryTree.getValue());
+        String lowerBoundary = rangePredicate.getLowerBoundary();
+        if (!lowerBoundary.equals(RangePredicate.UNBOUNDED)) {
+          Comparable lowerBoundaryValue = getValue(lowerBoundary, dataType);
+          if (lowerBoundaryValue != null) {
+            int result = lowerBoundaryValue.compareTo(maxValue);
+            if (result > 0 || (result == 0 && !rangePredicate.includeLowerBoundary())) {
+              return true;
+            }
+          }
+        }
+        String upperBoundary = rangePredicate.getUpperBoundary();
+        if (!upperBoundary.equals(RangePredicate.UNBOUNDED)) {
+          Comparable upperBoundaryValue = getValue(upperBoundary, dataType);
+          if (upperBoundaryValue != null) {
+            int result = upperBoundaryValue.compareTo(minValue);
+            if (result < 0 || (result == 0 && !rangePredicate.includeUpperBoundary())) {
+              return true;
+            }
+          }
+        }
+        return false;
+
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the value of the given data type, or {@code null} if the value cannot be converted (the query is left to
+   * the servers to handle).
+   */
+  @Nullable
+  private static Comparable getValue(String value, DataType dataType) {
+    try {
+      return (Comparable) dataType.convert(value);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
@@ -20,7 +20,6 @@ package org.apache.pinot.broker.pruner;
 
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nonnull;
 import org.apache.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
@@ -28,6 +27,7 @@ import org.apache.pinot.common.request.FilterOperator;
 import org.apache.pinot.common.utils.request.FilterQueryTree;
 import org.apache.pinot.core.data.partition.PartitionFunction;
 import org.apache.pinot.core.data.partition.PartitionFunctionFactory;
+import org.apache.pinot.core.query.pruner.SegmentPrunerUtils;
 
 
 /**
@@ -70,7 +70,7 @@ public class PartitionZKMetadataPruner implements SegmentZKMetadataPruner {
 
     // Non-leaf node
     if (children != null && !children.isEmpty()) {
-      return pruneNonLeaf(filterQueryTree, columnMetadataMap);
+      return SegmentPrunerUtils.pruneNonLeaf(filterQueryTree, child -> pruneSegment(child, columnMetadataMap));
     }
 
     // TODO: Enhance partition based pruning for RANGE operator.
@@ -91,48 +91,4 @@ public class PartitionZKMetadataPruner implements SegmentZKMetadataPruner {
     int partition = partitionFunction.getPartition(value);
     return !metadata.getPartitions().contains(partition);
   }
-
-  /**
-   * Given a non leaf filter query tree node prunes it as follows:
-   * <ul>
-   *   <li> For 'AND', node is pruned as long as at least one child can prune it. </li>
-   *   <li> For 'OR', node is pruned as long as all children can prune it. </li>
-   * </ul>
-   *
-   * @param filterQueryTree Non leaf node in the filter query tree.
-   * @param columnMetadataMap Map for column metadata.
-   *
-   * @return True to prune, false otherwise
-   */
-  @SuppressWarnings("Duplicates")
-  private boolean pruneNonLeaf(@Nonnull FilterQueryTree filterQueryTree,
-      @Nonnull Map<String, ColumnPartitionMetadata> columnMetadataMap) {
-    List<FilterQueryTree> children = filterQueryTree.getChildren();
-
-    if (children.isEmpty()) {
-      return false;
-    }
-
-    FilterOperator filterOperator = filterQueryTree.getOperator();
-    switch (filterOperator) {
-      case AND:
-        for (FilterQueryTree child : children) {
-          if (pruneSegment(child, columnMetadataMap)) {
-            return true;
-          }
-        }
-        return false;
-
-      case OR:
-        for (FilterQueryTree child : children) {
-          if (!pruneSegment(child, columnMetadataMap)) {
-            return false;
-          }
-        }
-        return true;
-
-      default:
-        throw new IllegalStateException("Unsupported filter operator: " + filterOperator);
-    }
-  }
 }
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.pruner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * Immutable interval tree over the [start, end] (both inclusive) time intervals of segments, used to look up the
+ * segments overlapping a query time range in O(log(n) + k).
+ * <p>The intervals are sorted by start, and the sorted array is used as an implicit balanced binary search tree (the
+ * middle element of each range is the root of the subtree), where each node keeps the max end of its subtree.
+ */
+@Immutable
+public class SegmentIntervalTree {
+  public static final SegmentIntervalTree EMPTY = new SegmentIntervalTree(new String[0], new long[0], new long[0]);
+
+  private final String[] _segments;
+  private final long[] _starts;
+  private final long[] _ends;
+  private final long[] _maxEnds;
+  private final Set<String> _segmentSet;
+
+  private SegmentIntervalTree(String[] segments, long[] starts, long[] ends) {
+    _segments = segments;
+    _segmentSet = new HashSet<>(Arrays.asList(segments));
+    _starts = starts;
+    _ends = ends;
+    _maxEnds = new long[segments.length];
+    computeMaxEnds(0, segments.length - 1);
+  }
+
+  /**
+   * Builds the interval tree from a map from segment name to [start, end] interval.
+   */
+  public static SegmentIntervalTree build(Map<String, long[]> segmentIntervalMap) {
+    int numSegments = segmentIntervalMap.size();
+    if (numSegments == 0) {
+      return EMPTY;
+    }
+    List<Map.Entry<String, long[]>> entries = new ArrayList<>(segmentIntervalMap.entrySet());
+    entries.sort(Comparator.comparingLong(entry -> entry.getValue()[0]));
+    String[] segments = new String[numSegments];
+    long[] starts = new long[numSegments];
+    long[] ends = new long[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      Map.Entry<String, long[]> entry = entries.get(i);
+      segments[i] = entry.getKey();
+      starts[i] = entry.getValue()[0];
+      ends[i] = entry.getValue()[1];
+    }
+    return new SegmentIntervalTree(segments, starts, ends);
+  }
+
+  public int size() {
+    return _segments.length;
+  }
+
+  /**
+   * Returns whether the given segment is in the tree.
+   */
+  public boolean contains(String segment) {
+    return _segmentSet.contains(segment);
+  }
+
+  /**
+   * Returns the segments with interval overlapping the given [start, end] (both inclusive) range.
+   */
+  public List<String> searchOverlapping(long start, long end) {
+    List<String> segments = new ArrayList<>();
+    if (start <= end) {
+      search(0, _segments.length - 1, start, end, segments);
+    }
+    return segments;
+  }
+
+  private long computeMaxEnds(int low, int high) {
+    if (low > high) {
+      return Long.MIN_VALUE;
+    }
+    int mid = (low + high) >>> 1;
+    long maxEnd = Math.max(_ends[mid], Math.max(computeMaxEnds(low, mid - 1), computeMaxEnds(mid + 1, high)));
+    _maxEnds[mid] = maxEnd;
+    return maxEnd;
+  }
+
+  private void search(int low, int high, long start, long end, List<String> segments) {
+    if (low > high) {
+      return;
+    }
+    int mid = (low + high) >>> 1;
+    // No interval in the subtree ends after the query start
+    if (_maxEnds[mid] < start) {
+      return;
+    }
+    search(low, mid - 1, start, end, segments);
+    // All intervals in the right subtree start after the query end
+    if (_starts[mid] > end) {
+      return;
+    }
+    if (_ends[mid] >= start) {
+      segments.add(_segments[mid]);
+    }
+    search(mid + 1, high, start, end, segments);
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.pruner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.pinot.common.metadata.ZKMetadataProvider;
+import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Prunes the segments of an offline table from the routing table on the broker side, so that the servers without any
+ * matching segment are not queried at all.
+ * <p>The segment ZK metadata of the segments in the external view is cached, and maintained incrementally on each
+ * external view change (only the new segments are fetched). Segments refreshed in place do not change the external
+ * view, so the controller notifies the brokers to reload the whole cache.
+ */
+@ThreadSafe
+public class TableSegmentZKMetadataPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableSegmentZKMetadataPruner.class);
+
+  private final String _offlineTableName;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final SegmentZKMetadataPrunerService _prunerService;
+  private final BrokerMetrics _brokerMetrics;
+
+  // Set variable as volatile so all threads can get the up-to-date map
+  private volatile Map<String, SegmentZKMetadata> _segmentZKMetadataMap = Collections.emptyMap();
+
+  public TableSegmentZKMetadataPruner(String offlineTableName, ZkHelixPropertyStore<ZNRecord> propertyStore,
+      SegmentZKMetadataPrunerService prunerService, BrokerMetrics brokerMetrics) {
+    _offlineTableName = offlineTableName;
+    _propertyStore = propertyStore;
+    _prunerService = prunerService;
+    _brokerMetrics = brokerMetrics;
+  }
+
+  /**
+   * Updates the cached segment ZK metadata for the segments in the external view.
+   * <p>Should be called whenever there is an external view change.
+   */
+  public synchronized void computeOnExternalViewChange(ExternalView externalView) {
+    Set<String> segments = externalView.getPartitionSet();
+    Map<String, SegmentZKMetadata> currentSegmentZKMetadataMap = _segmentZKMetadataMap;
+    if (currentSegmentZKMetadataMap.isEmpty()) {
+      // Bulk reading all segment ZK metadata is more efficient than reading one at a time
+      refresh(segments);
+      return;
+    }
+
+    Map<String, SegmentZKMetadata> segmentZKMetadataMap = new HashMap<>();
+    int numSegmentsFetched = 0;
+    for (String segment : segments) {
+      SegmentZKMetadata segmentZKMetadata = currentSegmentZKMetadataMap.get(segment);
+      if (segmentZKMetadata == null) {
+        segmentZKMetadata = ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, _offlineTableName, segment);
+        numSegmentsFetched++;
+      }
+      if (segmentZKMetadata != null) {
+        segmentZKMetadataMap.put(segment, segmentZKMetadata);
+      }
+    }
+    if (numSegmentsFetched > 0) {
+      LOGGER.info("Fetched segment ZK metadata for {} new segments of table: {}", numSegmentsFetched,
+          _offlineTableName);
+    }
+    _segmentZKMetadataMap = segmentZKMetadataMap;
+  }
+
+  /**
+   * Reloads the segment ZK metadata of all the segments in the external view (e.g. after segments got refreshed).
+   */
+  public synchronized void refresh(ExternalView externalView) {
+    refresh(externalView.getPartitionSet());
+  }
+
+  private void refresh(Set<String> segments) {
+    Map<String, SegmentZKMetadata> segmentZKMetadataMap = new HashMap<>();
+    for (OfflineSegmentZKMetadata segmentZKMetadata : ZKMetadataProvider
+        .getOfflineSegmentZKMetadataListForTable(_propertyStore, _offlineTableName)) {
+      String segment = segmentZKMetadata.getSegmentName();
+      if (segments.contains(segment)) {
+        segmentZKMetadataMap.put(segment, segmentZKMetadata);
+      }
+    }
+    LOGGER.info("Loaded segment ZK metadata for {} segments of table: {}", segmentZKMetadataMap.size(),
+        _offlineTableName);
+    _segmentZKMetadataMap = segmentZKMetadataMap;
+  }
+
+  /**
+   * Returns the routing table with the segments that cannot match the query removed, and the servers left without any
+   * segment removed. The given routing table is not modified.
+   */
+  public Map<String, List<String>> prune(Map<String, List<String>> routingTable, BrokerRequest brokerRequest) {
+    if (brokerRequest.getFilterQuery() == null) {
+      return routingTable;
+    }
+    SegmentPrunerContext prunerContext = new SegmentPrunerContext(brokerRequest);
+    if (prunerContext.getFilterQueryTree() == null) {
+      return routingTable;
+    }
+
+    // Copy the reference for the current segment ZK metadata map for snapshot
+    Map<String, SegmentZKMetadata> segmentZKMetadataMap = _segmentZKMetadataMap;
+    Map<String, List<String>> prunedRoutingTable = new HashMap<>();
+    int numSegmentsPruned = 0;
+    for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+      List<String> segments = entry.getValue();
+      List<String> selectedSegments = new ArrayList<>(segments.size());
+      for (String segment : segments) {
+        SegmentZKMetadata segmentZKMetadata = segmentZKMetadataMap.get(segment);
+        if (segmentZKMetadata != null && _prunerService.prune(segmentZKMetadata, prunerContext)) {
+          numSegmentsPruned++;
+        } else {
+          selectedSegments.add(segment);
+        }
+      }
+      if (!selectedSegments.isEmpty()) {
+        prunedRoutingTable.put(entry.getKey(), selectedSegments);
+      }
+    }
+    if (numSegmentsPruned > 0 && _brokerMetrics != null) {
+      _brokerMetrics.addMeteredTableValue(_offlineTableName, BrokerMeter.SEGMENTS_PRUNED_BY_BROKER, numSegmentsPruned);
+    }
+    return prunedRoutingTable;
+  }
+}
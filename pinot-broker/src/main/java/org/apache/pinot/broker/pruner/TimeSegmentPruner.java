@@ -0,0 +1,337 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.pruner;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.data.TimeFieldSpec;
+import org.apache.pinot.common.data.TimeGranularitySpec;
+import org.apache.pinot.common.metadata.ZKMetadataProvider;
+import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.request.FilterQueryTree;
+import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.core.common.predicate.RangePredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Prunes the segments of an offline table from the routing table on the broker side based on the time range of the
+ * query, so that queries on a small time range (e.g. {@code WHERE daysSinceEpoch BETWEEN x AND y}) are only sent to
+ * the servers hosting the segments within the range.
+ * <p>The [start, end] time interval of the segments in the external view is cached (in the table time unit), and
+ * maintained incrementally on each external view change (only the new segments are fetched). An immutable
+ * {@link SegmentIntervalTree} is rebuilt from the cached intervals after each change, and used to look up the
+ * segments overlapping the query time range. Segments without valid start/end time are never pruned, and neither are
+ * the segments not in the interval tree yet (the routing table is updated before the pruner on external view change).
+ */
+@ThreadSafe
+public class TimeSegmentPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TimeSegmentPruner.class);
+
+  // Interval for segments without valid time range, and for queries without time filter
+  private static final long[] UNBOUNDED_INTERVAL = new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+
+  private final String _offlineTableName;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final String _timeColumn;
+  private final TimeUnit _timeUnit;
+  private final BrokerMetrics _brokerMetrics;
+
+  // Segment name -> [start, end] interval in table time unit, only accessed while holding the lock on this object
+  private final Map<String, long[]> _segmentIntervalMap = new HashMap<>();
+
+  // Set variable as volatile so all threads can get the up-to-date interval tree
+  private volatile SegmentIntervalTree _intervalTree = SegmentIntervalTree.EMPTY;
+
+  public TimeSegmentPruner(String offlineTableName, ZkHelixPropertyStore<ZNRecord> propertyStore, String timeColumn,
+      TimeUnit timeUnit, BrokerMetrics brokerMetrics) {
+    _offlineTableName = offlineTableName;
+    _propertyStore = propertyStore;
+    _timeColumn = timeColumn;
+    _timeUnit = timeUnit;
+    _brokerMetrics = brokerMetrics;
+  }
+
+  /**
+   * Returns whether the time column of the schema can be used for pruning: values must be numbers since epoch (no
+   * simple date format or time unit size other than 1).
+   */
+  public static boolean isTimeColumnSupported(@Nullable Schema schema) {
+    if (schema == null) {
+      return false;
+    }
+    TimeFieldSpec timeFieldSpec = schema.getTimeFieldSpec();
+    if (timeFieldSpec == null) {
+      return false;
+    }
+    TimeGranularitySpec granularitySpec = timeFieldSpec.getOutgoingGranularitySpec();
+    DataType dataType = granularitySpec.getDataType();
+    return (dataType == DataType.INT || dataType == DataType.LONG) && granularitySpec.getTimeUnitSize() == 1
+        && TimeGranularitySpec.TimeFormat.EPOCH.toString().equals(granularitySpec.getTimeFormat());
+  }
+
+  /**
+   * Updates the cached segment intervals for the segments in the external view, and rebuilds the interval tree.
+   * <p>Should be called whenever there is an external view change.
+   */
+  public synchronized void computeOnExternalViewChange(ExternalView externalView) {
+    Set<String> segments = externalView.getPartitionSet();
+    if (_segmentIntervalMap.isEmpty()) {
+      // Bulk reading all segment ZK metadata is more efficient than reading one at a time
+      loadAll(segments);
+    } else {
+      _segmentIntervalMap.keySet().retainAll(segments);
+      int numSegmentsFetched = 0;
+      for (String segment : segments) {
+        if (!_segmentIntervalMap.containsKey(segment)) {
+          OfflineSegmentZKMetadata segmentZKMetadata =
+              ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, _offlineTableName, segment);
+          if (segmentZKMetadata != null) {
+            _segmentIntervalMap.put(segment, getSegmentInterval(segmentZKMetadata));
+          }
+          numSegmentsFetched++;
+        }
+      }
+      if (numSegmentsFetched > 0) {
+        LOGGER.info("Fetched segment ZK metadata for {} new segments of table: {}", numSegmentsFetched,
+            _offlineTableName);
+      }
+    }
+    buildIntervalTree(segments);
+  }
+
+  /**
+   * Reloads the segment intervals of all the segments in the external view (e.g. after segments got refreshed).
+   */
+  public synchronized void refresh(ExternalView externalView) {
+    Set<String> segments = externalView.getPartitionSet();
+    loadAll(segments);
+    buildIntervalTree(segments);
+  }
+
+  private void loadAll(Set<String> segments) {
+    _segmentIntervalMap.clear();
+    for (OfflineSegmentZKMetadata segmentZKMetadata : ZKMetadataProvider
+        .getOfflineSegmentZKMetadataListForTable(_propertyStore, _offlineTableName)) {
+      String segment = segmentZKMetadata.getSegmentName();
+      if (segments.contains(segment)) {
+        _segmentIntervalMap.put(segment, getSegmentInterval(segmentZKMetadata));
+      }
+    }
+    LOGGER.info("Loaded time interval for {} segments of table: {}", _segmentIntervalMap.size(), _offlineTableName);
+  }
+
+  private void buildIntervalTree(Set<String> segments) {
+    // Segments without segment ZK metadata yet cannot be pruned
+    Map<String, long[]> segmentIntervalMap = new HashMap<>(_segmentIntervalMap);
+    for (String segment : segments) {
+      segmentIntervalMap.putIfAbsent(segment, UNBOUNDED_INTERVAL);
+    }
+    _intervalTree = SegmentIntervalTree.build(segmentIntervalMap);
+  }
+
+  /**
+   * Returns the [start, end] interval of the segment in the table time unit.
+   */
+  private long[] getSegmentInterval(SegmentZKMetadata segmentZKMetadata) {
+    long startTime = segmentZKMetadata.getStartTime();
+    long endTime = segmentZKMetadata.getEndTime();
+    TimeUnit segmentTimeUnit = segmentZKMetadata.getTimeUnit();
+    if (startTime < 0 || endTime < startTime || segmentTimeUnit == null) {
+      LOGGER.warn("Invalid time interval: [{}, {}] {} for segment: {} of table: {}, skipping pruning it", startTime,
+          endTime, segmentTimeUnit, segmentZKMetadata.getSegmentName(), _offlineTableName);
+      return UNBOUNDED_INTERVAL;
+    }
+    // NOTE: for now, time unit in segment ZK metadata should always match table time unit. If the segment time unit
+    //       is finer, conversion truncates, so round the end time up to cover the last partial table time unit.
+    long start = _timeUnit.convert(startTime, segmentTimeUnit);
+    long end = _timeUnit.convert(endTime, segmentTimeUnit);
+    if (segmentTimeUnit.convert(end, _timeUnit) != endTime) {
+      end++;
+    }
+    return new long[]{start, end};
+  }
+
+  /**
+   * Returns the routing table with the segments outside of the query time range removed, and the servers left without
+   * any segment removed. The given routing table is not modified.
+   */
+  public Map<String, List<String>> prune(Map<String, List<String>> routingTable, BrokerRequest brokerRequest) {
+    if (brokerRequest.getFilterQuery() == null) {
+      return routingTable;
+    }
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    if (filterQueryTree == null) {
+      return routingTable;
+    }
+    long[] queryInterval = getQueryInterval(filterQueryTree, _timeColumn);
+    if (queryInterval == UNBOUNDED_INTERVAL) {
+      return routingTable;
+    }
+
+    // Copy the reference for the current interval tree for snapshot
+    SegmentIntervalTree intervalTree = _intervalTree;
+    Set<String> selectedSegmentSet = new HashSet<>(intervalTree.searchOverlapping(queryInterval[0], queryInterval[1]));
+    Map<String, List<String>> prunedRoutingTable = new HashMap<>();
+    int numSegmentsPruned = 0;
+    for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+      List<String> segments = entry.getValue();
+      List<String> selectedSegments = new ArrayList<>(segments.size());
+      for (String segment : segments) {
+        // Keep the segments unknown to the interval tree (e.g. new segments added to the routing table but not to the
+        // interval tree yet)
+        if (selectedSegmentSet.contains(segment) || !intervalTree.contains(segment)) {
+          selectedSegments.add(segment);
+        } else {
+          numSegmentsPruned++;
+        }
+      }
+      if (!selectedSegments.isEmpty()) {
+        prunedRoutingTable.put(entry.getKey(), selectedSegments);
+      }
+    }
+    if (numSegmentsPruned > 0 && _brokerMetrics != null) {
+      _brokerMetrics.addMeteredTableValue(_offlineTableName, BrokerMeter.SEGMENTS_PRUNED_BY_BROKER, numSegmentsPruned);
+    }
+    return prunedRoutingTable;
+  }
+
+  /**
+   * Returns the [start, end] (both inclusive) time range of the filter on the time column. The returned range is empty
+   * (start > end) if no value can match the filter.
+   * <ul>
+   *   <li>EQUALITY/IN/RANGE on the time column are converted to a range; other predicates are unbounded.</li>
+   *   <li>AND intersects the ranges of its children; OR merges them into the range covering all of them.</li>
+   *   <li>Values that cannot be parsed as long make the predicate unbounded.</li>
+   * </ul>
+   */
+  @VisibleForTesting
+  static long[] getQueryInterval(FilterQueryTree filterQueryTree, String timeColumn) {
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      switch (filterQueryTree.getOperator()) {
+        case AND: {
+          long start = Long.MIN_VALUE;
+          long end = Long.MAX_VALUE;
+          for (FilterQueryTree child : children) {
+            long[] childInterval = getQueryInterval(child, timeColumn);
+            start = Math.max(start, childInterval[0]);
+            end = Math.min(end, childInterval[1]);
+          }
+          return toInterval(start, end);
+        }
+        case OR: {
+          long start = Long.MAX_VALUE;
+          long end = Long.MIN_VALUE;
+          for (FilterQueryTree child : children) {
+            long[] childInterval = getQueryInterval(child, timeColumn);
+            if (childInterval == UNBOUNDED_INTERVAL) {
+              return UNBOUNDED_INTERVAL;
+            }
+            // Skip children that cannot match
+            if (childInterval[0] <= childInterval[1]) {
+              start = Math.min(start, childInterval[0]);
+              end = Math.max(end, childInterval[1]);
+            }
+          }
+          return toInterval(start, end);
+        }
+        default:
+          return UNBOUNDED_INTERVAL;
+      }
+    }
+
+    if (!timeColumn.equals(filterQueryTree.getColumn())) {
+      return UNBOUNDED_INTERVAL;
+    }
+    try {
+      switch (filterQueryTree.getOperator()) {
+        case EQUALITY: {
+          long value = Long.parseLong(filterQueryTree.getValue().get(0));
+          return new long[]{value, value};
+        }
+        case IN: {
+          long start = Long.MAX_VALUE;
+          long end = Long.MIN_VALUE;
+          for (String valueString : filterQueryTree.getValue()) {
+            long value = Long.parseLong(valueString);
+            start = Math.min(start, value);
+            end = Math.max(end, value);
+          }
+          return toInterval(start, end);
+        }
+        case RANGE: {
+          RangePredicate rangePredicate = new RangePredicate(null, filterQueryTree.getValue());
+          long start = Long.MIN_VALUE;
+          long end = Long.MAX_VALUE;
+          String lowerBoundary = rangePredicate.getLowerBoundary();
+          if (!lowerBoundary.equals(RangePredicate.UNBOUNDED)) {
+            start = Long.parseLong(lowerBoundary);
+            if (!rangePredicate.includeLowerBoundary()) {
+              if (start == Long.MAX_VALUE) {
+                return toInterval(Long.MAX_VALUE, Long.MIN_VALUE);
+              }
+              start++;
+            }
+          }
+          String upperBoundary = rangePredicate.getUpperBoundary();
+          if (!upperBoundary.equals(RangePredicate.UNBOUNDED)) {
+            end = Long.parseLong(upperBoundary);
+            if (!rangePredicate.includeUpperBoundary()) {
+              if (end == Long.MIN_VALUE) {
+                return toInterval(Long.MAX_VALUE, Long.MIN_VALUE);
+              }
+              end--;
+            }
+          }
+          return toInterval(start, end);
+        }
+        default:
+          return UNBOUNDED_INTERVAL;
+      }
+    } catch (NumberFormatException e) {
+      return UNBOUNDED_INTERVAL;
+    }
+  }
+
+  private static long[] toInterval(long start, long end) {
+    if (start == Long.MIN_VALUE && end == Long.MAX_VALUE) {
+      return UNBOUNDED_INTERVAL;
+    }
+    return new long[]{start, end};
+  }
+}
@@ -21,9 +21,9 @@ package org.apache.pinot.broker.queryquota;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.util.concurrent.RateLimiter;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixManager;
@@ -49,6 +49,8 @@ import static org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
 public class HelixExternalViewBasedQueryQuotaManager implements ClusterChangeHandler, QueryQuotaManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(HelixExternalViewBasedQueryQuotaManager.class);
   private static final int TIME_RANGE_IN_SECOND = 1;
+  // Sub-second buckets of the rate limiter, which also bound the burst of queries
+  private static final int RATE_LIMITER_NUM_BUCKETS = 10;
 
   private final AtomicInteger _lastKnownBrokerResourceVersion = new AtomicInteger(-1);
   private final Map<String, QueryQuotaConfig> _rateLimiterMap = new ConcurrentHashMap<>();
@@ -182,13 +184,18 @@ public class HelixExternalViewBasedQueryQuotaManager implements ClusterChangeHan
 
     double perBrokerRate = overallRate / onlineCount;
     QueryQuotaConfig queryQuotaConfig =
-        new QueryQuotaConfig(RateLimiter.create(perBrokerRate), new HitCounter(TIME_RANGE_IN_SECOND));
+        new QueryQuotaConfig(newRateLimiter(perBrokerRate), new HitCounter(TIME_RANGE_IN_SECOND));
     _rateLimiterMap.put(tableNameWithType, queryQuotaConfig);
     LOGGER.info(
         "Rate limiter for table: {} has been initialized. Overall rate: {}. Per-broker rate: {}. Number of online broker instances: {}",
         tableNameWithType, overallRate, perBrokerRate, onlineCount);
   }
 
+  private static SlidingWindowRateLimiter newRateLimiter(double permitsPerSecond) {
+    return new SlidingWindowRateLimiter(permitsPerSecond, TimeUnit.SECONDS.toMillis(TIME_RANGE_IN_SECOND),
+        RATE_LIMITER_NUM_BUCKETS);
+  }
+
   /**
    * {@inheritDoc}
    * <p>Acquires a token from rate limiter based on the table name.
@@ -235,7 +242,7 @@ public class HelixExternalViewBasedQueryQuotaManager implements ClusterChangeHan
     // Use hit counter to count the number of hits.
     queryQuotaConfig.getHitCounter().hit();
 
-    RateLimiter rateLimiter = queryQuotaConfig.getRateLimiter();
+    SlidingWindowRateLimiter rateLimiter = queryQuotaConfig.getRateLimiter();
     double perBrokerRate = rateLimiter.getRate();
 
     // Emit the qps capacity utilization rate.
@@ -19,26 +19,50 @@
 package org.apache.pinot.broker.queryquota;
 
 import com.google.common.annotations.VisibleForTesting;
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import com.google.common.base.Preconditions;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 
 /**
- * This hit counter is for counting the number of hits within a range of time. Right now the granularity we use is second.
- * In order to save the space and time, we store the number of hits over the last 100 time buckets. When the method hit
- * gets called, we put the timestamp to the specified bucket. When the method getHitCount gets called, we sum all the number
- * of hits within the last 100 time buckets.
+ * This hit counter is for counting the number of hits within a sliding time range. The time range is split into a
+ * fixed number of time buckets (100 by default, i.e. 10ms resolution for a 1 second range). When the method hit gets
+ * called, we count the hit in the bucket of the timestamp. When the method getHitCount gets called, we sum all the
+ * number of hits within the buckets of the time range.
+ * <p>The counter is lock-free: each bucket packs the round of the bucket (number of whole time ranges since epoch) in
+ * the upper 32 bits and the hit count in the lower 32 bits of a long, so that a stale bucket can be reset and counted
+ * with a single CAS. To reduce the contention under high concurrency, the buckets are striped by thread.
  */
 public class HitCounter {
-  private static int BUCKET_COUNT = 100;
-  private final int _timeBucketWidthMs;
-  private final AtomicLongArray _bucketStartTime;
-  private final AtomicIntegerArray _bucketHitCount;
+  private static final int DEFAULT_BUCKET_COUNT = 100;
+  private static final int MAX_NUM_STRIPES = 16;
+  private static final long HIT_COUNT_MASK = 0xFFFFFFFFL;
+
+  private final int _bucketCount;
+  private final long _timeBucketWidthMs;
+  private final int _stripeMask;
+  // Stripe-major layout so that different stripes do not share cache lines
+  private final AtomicLongArray _buckets;
 
   public HitCounter(int timeRangeInSeconds) {
-    _timeBucketWidthMs = timeRangeInSeconds * 1000 / BUCKET_COUNT;
-    _bucketStartTime = new AtomicLongArray(BUCKET_COUNT);
-    _bucketHitCount = new AtomicIntegerArray(BUCKET_COUNT);
+    this(timeRangeInSeconds * 1000L, DEFAULT_BUCKET_COUNT);
+  }
+
+  /**
+   * @param timeRangeMs Time range to count the hits within
+   * @param bucketCount Number of time buckets, which determines the resolution of the sliding time range
+   */
+  public HitCounter(long timeRangeMs, int bucketCount) {
+    Preconditions.checkArgument(bucketCount > 0 && timeRangeMs >= bucketCount,
+        "Invalid time range: %s ms with bucket count: %s", timeRangeMs, bucketCount);
+    _bucketCount = bucketCount;
+    _timeBucketWidthMs = timeRangeMs / bucketCount;
+    int numStripes = 1;
+    int maxNumStripes = Math.min(Runtime.getRuntime().availableProcessors(), MAX_NUM_STRIPES);
+    while (numStripes < maxNumStripes) {
+      numStripes <<= 1;
+    }
+    _stripeMask = numStripes - 1;
+    _buckets = new AtomicLongArray(numStripes * bucketCount);
   }
 
   /**
@@ -51,17 +75,19 @@ public class HitCounter {
   @VisibleForTesting
   void hit(long timestamp) {
     long numTimeUnits = timestamp / _timeBucketWidthMs;
-    int index = (int) (numTimeUnits % BUCKET_COUNT);
-    if (_bucketStartTime.get(index) == numTimeUnits) {
-      _bucketHitCount.incrementAndGet(index);
-    } else {
-      synchronized (_bucketStartTime) {
-        if (_bucketStartTime.get(index) != numTimeUnits) {
-          _bucketHitCount.set(index, 1);
-          _bucketStartTime.set(index, numTimeUnits);
-        } else {
-          _bucketHitCount.incrementAndGet(index);
-        }
+    int round = (int) (numTimeUnits / _bucketCount);
+    int stripe = (int) Thread.currentThread().getId() & _stripeMask;
+    int index = stripe * _bucketCount + (int) (numTimeUnits % _bucketCount);
+    while (true) {
+      long value = _buckets.get(index);
+      long newValue;
+      if ((int) (value >>> 32) == round) {
+        newValue = value + 1;
+      } else {
+        newValue = ((long) round << 32) | 1L;
+      }
+      if (_buckets.compareAndSet(index, value, newValue)) {
+        return;
       }
     }
   }
@@ -76,12 +102,20 @@ public class HitCounter {
   @VisibleForTesting
   int getHitCount(long timestamp) {
     long numTimeUnits = timestamp / _timeBucketWidthMs;
-    int count = 0;
-    for (int i = 0; i < BUCKET_COUNT; i++) {
-      if (numTimeUnits - _bucketStartTime.get(i) < BUCKET_COUNT) {
-        count += _bucketHitCount.get(i);
+    int currentRound = (int) (numTimeUnits / _bucketCount);
+    int currentBucket = (int) (numTimeUnits % _bucketCount);
+    long count = 0;
+    int numSlots = _buckets.length();
+    for (int i = 0; i < numSlots; i++) {
+      long value = _buckets.get(i);
+      int bucket = i % _bucketCount;
+      // Count the buckets of the current round up to the current bucket, and the buckets of the previous round after
+      // the current bucket
+      int roundDiff = currentRound - (int) (value >>> 32);
+      if ((roundDiff == 0 && bucket <= currentBucket) || (roundDiff == 1 && bucket > currentBucket)) {
+        count += value & HIT_COUNT_MASK;
       }
     }
-    return count;
+    return (int) Math.min(count, Integer.MAX_VALUE);
   }
 }
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.queryquota;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.BrokerGauge;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.metrics.BrokerTimer;
+
+
+/**
+ * Broker side admission control that bounds the total cost of the queries in flight, globally and per table, so that
+ * expensive queries cannot pile up and overload the servers even under the QPS quota.
+ * <p>The cost of a query is estimated from hints available before sending it to the servers: 1 unit per query, plus
+ * 1 unit per {@code numSegmentsPerCostUnit} segments routed, doubled for group-by queries.
+ * <p>Queries over the limits wait in a bounded FIFO queue (a waiting query can be admitted before the ones ahead of it
+ * if they are blocked on their table limit). A query is rejected right away when the queue is full, or when it cannot
+ * be admitted within its max wait time, so that the client gets a fast rejection instead of a timeout.
+ */
+@ThreadSafe
+public class QueryAdmissionController {
+  private static final int GROUP_BY_COST_MULTIPLIER = 2;
+
+  private final int _maxInFlightCost;
+  private final int _maxInFlightCostPerTable;
+  private final int _maxQueueSize;
+  private final long _maxWaitMs;
+  private final int _numSegmentsPerCostUnit;
+  private final BrokerMetrics _brokerMetrics;
+  private final boolean _enabled;
+
+  // All the following fields are guarded by the lock on this object
+  private final Deque<Waiter> _waiters = new ArrayDeque<>();
+  private final Map<String, Integer> _tableInFlightCostMap = new HashMap<>();
+  private int _inFlightCost = 0;
+
+  /**
+   * @param maxInFlightCost Max total cost of the queries in flight, non-positive for no limit
+   * @param maxInFlightCostPerTable Max total cost of the queries in flight per table, non-positive for no limit
+   * @param maxQueueSize Max number of queries waiting to be admitted
+   * @param maxWaitMs Max time for a query to wait to be admitted
+   * @param numSegmentsPerCostUnit Number of segments routed per cost unit
+   * @param brokerMetrics Broker metrics
+   */
+  public QueryAdmissionController(int maxInFlightCost, int maxInFlightCostPerTable, int maxQueueSize, long maxWaitMs,
+      int numSegmentsPerCostUnit, @Nullable BrokerMetrics brokerMetrics) {
+    _maxInFlightCost = maxInFlightCost > 0 ? maxInFlightCost : Integer.MAX_VALUE;
+    _maxInFlightCostPerTable = maxInFlightCostPerTable > 0 ? maxInFlightCostPerTable : Integer.MAX_VALUE;
+    _maxQueueSize = maxQueueSize;
+    _maxWaitMs = maxWaitMs;
+    _numSegmentsPerCostUnit = Math.max(numSegmentsPerCostUnit, 1);
+    _brokerMetrics = brokerMetrics;
+    _enabled = maxInFlightCost > 0 || maxInFlightCostPerTable > 0;
+  }
+
+  public boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * Returns the estimated cost of a query. The cost is capped by the limits so that any query can be admitted when
+   * nothing else is in flight.
+   */
+  public int computeCost(int numSegmentsRouted, boolean isGroupBy) {
+    long cost = 1 + numSegmentsRouted / _numSegmentsPerCostUnit;
+    if (isGroupBy) {
+      cost *= GROUP_BY_COST_MULTIPLIER;
+    }
+    return (int) Math.min(cost, Math.min(_maxInFlightCost, _maxInFlightCostPerTable));
+  }
+
+  /**
+   * Tries to admit a query, waiting up to the max wait time (bounded by the given timeout) if the limits are reached.
+   * Each admitted query must call {@link #release(String, int)} with the same arguments once done.
+   *
+   * @param tableName Table name to account the cost against
+   * @param cost Cost of the query returned by {@link #computeCost(int, boolean)}
+   * @param timeoutMs Remaining time for the query
+   * @return Whether the query is admitted
+   */
+  public boolean acquire(String tableName, int cost, long timeoutMs)
+      throws InterruptedException {
+    if (!_enabled) {
+      return true;
+    }
+    long startTimeNs = System.nanoTime();
+    boolean admitted = acquireInternal(tableName, cost, Math.min(_maxWaitMs, timeoutMs));
+    if (_brokerMetrics != null) {
+      _brokerMetrics.addTimedTableValue(tableName, BrokerTimer.ADMISSION_WAIT_TIME, System.nanoTime() - startTimeNs,
+          TimeUnit.NANOSECONDS);
+      if (!admitted) {
+        _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.QUERY_ADMISSION_REJECTED, 1);
+      }
+    }
+    return admitted;
+  }
+
+  private synchronized boolean acquireInternal(String tableName, int cost, long maxWaitMs)
+      throws InterruptedException {
+    if (fits(tableName, cost) && getFirstAdmissibleWaiter() == null) {
+      admit(tableName, cost);
+      return true;
+    }
+    if (_waiters.size() >= _maxQueueSize || maxWaitMs <= 0) {
+      return false;
+    }
+
+    Waiter waiter = new Waiter(tableName, cost);
+    _waiters.add(waiter);
+    updateGauges();
+    long deadlineMs = System.currentTimeMillis() + maxWaitMs;
+    try {
+      while (getFirstAdmissibleWaiter() != waiter) {
+        long remainingMs = deadlineMs - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+          return false;
+        }
+        wait(remainingMs);
+      }
+      _waiters.remove(waiter);
+      admit(tableName, cost);
+      // Let the other waiters check whether they can be admitted as well
+      notifyAll();
+      return true;
+    } finally {
+      // Remove the waiter on timeout or interruption (no-op if admitted), and let the other waiters check again
+      if (_waiters.remove(waiter)) {
+        notifyAll();
+      }
+      updateGauges();
+    }
+  }
+
+  /**
+   * Releases the cost of an admitted query.
+   */
+  public void release(String tableName, int cost) {
+    if (!_enabled) {
+      return;
+    }
+    synchronized (this) {
+      _inFlightCost -= cost;
+      _tableInFlightCostMap.computeIfPresent(tableName, (k, tableInFlightCost) -> {
+        int newTableInFlightCost = tableInFlightCost - cost;
+        return newTableInFlightCost > 0 ? newTableInFlightCost : null;
+      });
+      updateGauges();
+      notifyAll();
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getInFlightCost() {
+    return _inFlightCost;
+  }
+
+  @VisibleForTesting
+  synchronized int getQueueDepth() {
+    return _waiters.size();
+  }
+
+  private boolean fits(String tableName, int cost) {
+    return _inFlightCost + cost <= _maxInFlightCost
+        && _tableInFlightCostMap.getOrDefault(tableName, 0) + cost <= _maxInFlightCostPerTable;
+  }
+
+  @Nullable
+  private Waiter getFirstAdmissibleWaiter() {
+    for (Waiter waiter : _waiters) {
+      if (fits(waiter._tableName, waiter._cost)) {
+        return waiter;
+      }
+    }
+    return null;
+  }
+
+  private void admit(String tableName, int cost) {
+    _inFlightCost += cost;
+    _tableInFlightCostMap.merge(tableName, cost, Integer::sum);
+    updateGauges();
+  }
+
+  private void updateGauges() {
+    if (_brokerMetrics != null) {
+      _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.ADMISSION_QUEUE_DEPTH, _waiters.size());
+      _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.ADMISSION_IN_FLIGHT_COST, _inFlightCost);
+    }
+  }
+
+  private static class Waiter {
+    final String _tableName;
+    final int _cost;
+
+    Waiter(String tableName, int cost) {
+      _tableName = tableName;
+      _cost = cost;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.queryquota;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * Lock-free rate limiter that combines token bucket smoothing with a sliding window limit.
+ * <ul>
+ *   <li>
+ *     The token bucket (implemented as the generic cell rate algorithm, with a single CAS on the theoretical arrival
+ *     time of the next permit) spreads the permits over time, and only allows a burst of one time bucket worth of
+ *     permits after idle time. Unlike a whole-second budget, a short burst cannot consume the permits of the whole
+ *     second and then get everything after it rejected.
+ *   </li>
+ *   <li>
+ *     The sliding window (a striped {@link HitCounter} with sub-second buckets) bounds the number of permits granted
+ *     within any time window to the rate, which the burst of the token bucket alone could exceed.
+ *   </li>
+ * </ul>
+ */
+@ThreadSafe
+public class SlidingWindowRateLimiter {
+  private final long _windowMs;
+  private final int _numBuckets;
+  private final HitCounter _permitCounter;
+  // Theoretical arrival time of the next permit in nanoseconds, initialized to let the first permit through
+  private final AtomicLong _theoreticalArrivalTimeNs = new AtomicLong(Long.MIN_VALUE);
+
+  private volatile double _permitsPerSecond;
+  private volatile long _permitIntervalNs;
+  private volatile long _burstToleranceNs;
+  private volatile int _maxPermitsPerWindow;
+
+  /**
+   * @param permitsPerSecond Rate of the permits
+   * @param windowMs Length of the sliding window
+   * @param numBuckets Number of time buckets of the sliding window, where the length of a bucket is also the max burst
+   */
+  public SlidingWindowRateLimiter(double permitsPerSecond, long windowMs, int numBuckets) {
+    _windowMs = windowMs;
+    _numBuckets = numBuckets;
+    _permitCounter = new HitCounter(windowMs, numBuckets);
+    setRate(permitsPerSecond);
+  }
+
+  public double getRate() {
+    return _permitsPerSecond;
+  }
+
+  /**
+   * Updates the rate of the permits. The permits already granted within the sliding window are still counted.
+   */
+  public void setRate(double permitsPerSecond) {
+    Preconditions.checkArgument(permitsPerSecond > 0, "Illegal rate: %s", permitsPerSecond);
+    long permitIntervalNs = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), 1L);
+    double maxPermitsPerWindow = permitsPerSecond * _windowMs / 1000;
+    double maxBurstPermits = Math.max(maxPermitsPerWindow / _numBuckets, 1);
+    _permitsPerSecond = permitsPerSecond;
+    _permitIntervalNs = permitIntervalNs;
+    _burstToleranceNs = (long) ((maxBurstPermits - 1) * permitIntervalNs);
+    _maxPermitsPerWindow = (int) Math.max(Math.ceil(maxPermitsPerWindow), 1);
+  }
+
+  /**
+   * Acquires a permit if it can be granted immediately.
+   *
+   * @return Whether the permit is acquired
+   */
+  public boolean tryAcquire() {
+    return tryAcquire(System.nanoTime(), System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  boolean tryAcquire(long nowNs, long nowMs) {
+    if (_permitCounter.getHitCount(nowMs) >= _maxPermitsPerWindow) {
+      return false;
+    }
+    long permitIntervalNs = _permitIntervalNs;
+    long burstToleranceNs = _burstToleranceNs;
+    while (true) {
+      long theoreticalArrivalTimeNs = _theoreticalArrivalTimeNs.get();
+      long permitTimeNs = Math.max(theoreticalArrivalTimeNs, nowNs);
+      if (permitTimeNs - nowNs > burstToleranceNs) {
+        return false;
+      }
+      if (_theoreticalArrivalTimeNs.compareAndSet(theoreticalArrivalTimeNs, permitTimeNs + permitIntervalNs)) {
+        break;
+      }
+    }
+    _permitCounter.hit(nowMs);
+    return true;
+  }
+}
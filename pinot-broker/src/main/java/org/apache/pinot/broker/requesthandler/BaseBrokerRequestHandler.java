@@ -22,11 +22,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -37,6 +40,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.pinot.broker.api.RequestStatistics;
 import org.apache.pinot.broker.api.RequesterIdentity;
 import org.apache.pinot.broker.broker.AccessControlFactory;
+import org.apache.pinot.broker.queryquota.QueryAdmissionController;
 import org.apache.pinot.broker.queryquota.QueryQuotaManager;
 import org.apache.pinot.broker.routing.RoutingTable;
 import org.apache.pinot.broker.routing.RoutingTableLookupRequest;
@@ -74,7 +78,9 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
 
   protected final AtomicLong _requestIdGenerator = new AtomicLong();
   protected final BrokerRequestOptimizer _brokerRequestOptimizer = new BrokerRequestOptimizer();
-  protected final BrokerReduceService _brokerReduceService = new BrokerReduceService();
+  protected final ExecutorService _reduceExecutor;
+  protected final BrokerReduceService _brokerReduceService;
+  protected final QueryAdmissionController _queryAdmissionController;
 
   protected final String _brokerId;
   protected final long _brokerTimeoutMs;
@@ -106,11 +112,43 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     _numDroppedLog = new AtomicInteger(0);
     _numDroppedLogRateLimiter = RateLimiter.create(1.0);
 
+    int reduceMaxParallelism =
+        config.getInt(Broker.CONFIG_OF_BROKER_REDUCE_MAX_PARALLELISM, Broker.DEFAULT_BROKER_REDUCE_MAX_PARALLELISM);
+    if (reduceMaxParallelism > 1) {
+      int reduceNumThreads =
+          config.getInt(Broker.CONFIG_OF_BROKER_REDUCE_NUM_THREADS, Broker.DEFAULT_BROKER_REDUCE_NUM_THREADS);
+      _reduceExecutor = Executors.newFixedThreadPool(Math.max(reduceNumThreads, 1),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("broker-reduce-%d").build());
+      _brokerReduceService = new BrokerReduceService(_reduceExecutor, reduceMaxParallelism);
+    } else {
+      _reduceExecutor = null;
+      _brokerReduceService = new BrokerReduceService();
+    }
+
+    _queryAdmissionController = new QueryAdmissionController(
+        config.getInt(Broker.CONFIG_OF_ADMISSION_MAX_IN_FLIGHT_COST, Broker.DEFAULT_ADMISSION_MAX_IN_FLIGHT_COST),
+        config.getInt(Broker.CONFIG_OF_ADMISSION_MAX_IN_FLIGHT_COST_PER_TABLE,
+            Broker.DEFAULT_ADMISSION_MAX_IN_FLIGHT_COST_PER_TABLE),
+        config.getInt(Broker.CONFIG_OF_ADMISSION_MAX_QUEUE_SIZE, Broker.DEFAULT_ADMISSION_MAX_QUEUE_SIZE),
+        config.getLong(Broker.CONFIG_OF_ADMISSION_MAX_WAIT_MS, Broker.DEFAULT_ADMISSION_MAX_WAIT_MS),
+        config.getInt(Broker.CONFIG_OF_ADMISSION_NUM_SEGMENTS_PER_COST_UNIT,
+            Broker.DEFAULT_ADMISSION_NUM_SEGMENTS_PER_COST_UNIT), brokerMetrics);
+
     LOGGER
         .info("Broker Id: {}, timeout: {}ms, query response limit: {}, query log length: {}, query log max rate: {}qps",
             _brokerId, _brokerTimeoutMs, _queryResponseLimit, _queryLogLength, _queryLogRateLimiter.getRate());
   }
 
+  /**
+   * Shuts down the executor used to reduce the server responses (if any). Should be called when the request handler
+   * is shut down.
+   */
+  protected void shutDownReduceExecutor() {
+    if (_reduceExecutor != null) {
+      _reduceExecutor.shutdownNow();
+    }
+  }
+
   private String getDefaultBrokerId() {
     try {
       return InetAddress.getLocalHost().getHostName();
@@ -287,12 +325,32 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     long routingEndTimeNs = System.nanoTime();
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.QUERY_ROUTING, routingEndTimeNs - routingStartTimeNs);
 
+    // Admit the query based on its estimated cost
+    int queryCost = _queryAdmissionController
+        .computeCost(getNumSegments(offlineRoutingTable) + getNumSegments(realtimeRoutingTable),
+            brokerRequest.isSetGroupBy());
+    if (!_queryAdmissionController.acquire(rawTableName, queryCost,
+        _brokerTimeoutMs - TimeUnit.NANOSECONDS.toMillis(routingEndTimeNs - compilationStartTimeNs))) {
+      String errorMessage =
+          String.format("Request %d rejected by admission control for table:%s, query:%s", requestId, tableName, query);
+      LOGGER.info(errorMessage);
+      requestStatistics.setErrorCode(QueryException.ADMISSION_REJECTED_ERROR_CODE);
+      return new BrokerResponseNative(
+          QueryException.getException(QueryException.ADMISSION_REJECTED_ERROR, errorMessage));
+    }
+
     // Execute the query
-    long remainingTimeMs = _brokerTimeoutMs - TimeUnit.NANOSECONDS.toMillis(routingEndTimeNs - compilationStartTimeNs);
+    BrokerResponse brokerResponse;
     ServerStats serverStats = new ServerStats();
-    BrokerResponse brokerResponse =
-        processBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
-            realtimeRoutingTable, remainingTimeMs, serverStats, requestStatistics);
+    try {
+      long remainingTimeMs =
+          _brokerTimeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - compilationStartTimeNs);
+      brokerResponse =
+          processBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable,
+              realtimeBrokerRequest, realtimeRoutingTable, remainingTimeMs, serverStats, requestStatistics);
+    } finally {
+      _queryAdmissionController.release(rawTableName, queryCost);
+    }
     long executionEndTimeNs = System.nanoTime();
     _brokerMetrics
         .addPhaseTiming(rawTableName, BrokerQueryPhase.QUERY_EXECUTION, executionEndTimeNs - routingEndTimeNs);
@@ -342,6 +400,17 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     return brokerResponse;
   }
 
+  private static int getNumSegments(@Nullable Map<String, List<String>> routingTable) {
+    if (routingTable == null) {
+      return 0;
+    }
+    int numSegments = 0;
+    for (List<String> segments : routingTable.values()) {
+      numSegments += segments.size();
+    }
+    return numSegments;
+  }
+
   private Map<String, String> getOptionsFromRequest(JsonNode request, String optionsKey) {
     return Splitter.on(';')
         .omitEmptyStrings()
@@ -31,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.configuration.Configuration;
@@ -127,6 +128,7 @@ public class ConnectionPoolBrokerRequestHandler extends BaseBrokerRequestHandler
     _requestSenderPool.shutdown();
     _poolTimeoutExecutor.shutdown();
     _eventLoopGroup.shutdownGracefully();
+    shutDownReduceExecutor();
   }
 
   @Override
@@ -135,6 +137,7 @@ public class ConnectionPoolBrokerRequestHandler extends BaseBrokerRequestHandler
       @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<String, List<String>> realtimeRoutingTable,
       long timeoutMs, ServerStats serverStats, RequestStatistics requestStatistics)
       throws Exception {
+    long scatterStartTimeNs = System.nanoTime();
     ScatterGatherStats scatterGatherStats = new ScatterGatherStats();
     PhaseTimes phaseTimes = new PhaseTimes();
 
@@ -206,8 +209,9 @@ public class ConnectionPoolBrokerRequestHandler extends BaseBrokerRequestHandler
     phaseTimes.addToDeserializationTime(deserializationEndTimeNs - gatherEndTimeNs);
 
     // Step 4: reduce (merge) the server responses and create a broker response to be returned
+    long reduceTimeoutMs = timeoutMs - TimeUnit.NANOSECONDS.toMillis(deserializationEndTimeNs - scatterStartTimeNs);
     BrokerResponse brokerResponse =
-        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
+        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, reduceTimeoutMs, _brokerMetrics);
     final long reduceTimeNanos = System.nanoTime() - deserializationEndTimeNs;
     phaseTimes.addToReduceTime(reduceTimeNanos);
     requestStatistics.setReduceTimeNanos(reduceTimeNanos);
@@ -18,9 +18,12 @@
  */
 package org.apache.pinot.broker.requesthandler;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.configuration.Configuration;
@@ -37,12 +40,15 @@ import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.response.BrokerResponse;
 import org.apache.pinot.common.response.ServerInstance;
 import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.CommonConstants.Broker;
 import org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
 import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.core.transport.AsyncQueryResponse;
+import org.apache.pinot.core.transport.HedgeServerSelector;
 import org.apache.pinot.core.transport.QueryRouter;
 import org.apache.pinot.core.transport.Server;
 import org.apache.pinot.core.transport.ServerResponse;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 
 
 /**
@@ -52,12 +58,28 @@ import org.apache.pinot.core.transport.ServerResponse;
 @ThreadSafe
 public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandler {
   private final QueryRouter _queryRouter;
+  private final boolean _enableHedgedRequests;
 
   public SingleConnectionBrokerRequestHandler(Configuration config, RoutingTable routingTable,
       TimeBoundaryService timeBoundaryService, AccessControlFactory accessControlFactory,
-      QueryQuotaManager queryQuotaManager, BrokerMetrics brokerMetrics) {
+      QueryQuotaManager queryQuotaManager, BrokerMetrics brokerMetrics,
+      @Nullable ServerRoutingStats serverRoutingStats) {
     super(config, routingTable, timeBoundaryService, accessControlFactory, queryQuotaManager, brokerMetrics);
-    _queryRouter = new QueryRouter(_brokerId, brokerMetrics);
+    _enableHedgedRequests = serverRoutingStats != null && config
+        .getBoolean(Broker.CONFIG_OF_ENABLE_HEDGED_REQUESTS, Broker.DEFAULT_ENABLE_HEDGED_REQUESTS);
+    boolean enableQueryCancellation =
+        config.getBoolean(Broker.CONFIG_OF_ENABLE_QUERY_CANCELLATION, Broker.DEFAULT_ENABLE_QUERY_CANCELLATION);
+    boolean enableRequestTemplates =
+        config.getBoolean(Broker.CONFIG_OF_ENABLE_REQUEST_TEMPLATES, Broker.DEFAULT_ENABLE_REQUEST_TEMPLATES);
+    if (_enableHedgedRequests) {
+      _queryRouter = new QueryRouter(_brokerId, brokerMetrics, serverRoutingStats,
+          config.getDouble(Broker.CONFIG_OF_HEDGE_BUDGET_RATIO, Broker.DEFAULT_HEDGE_BUDGET_RATIO),
+          config.getLong(Broker.CONFIG_OF_MIN_HEDGE_DELAY_MS, Broker.DEFAULT_MIN_HEDGE_DELAY_MS),
+          enableQueryCancellation, enableRequestTemplates);
+    } else {
+      _queryRouter = new QueryRouter(_brokerId, brokerMetrics, serverRoutingStats, 0, 0, enableQueryCancellation,
+          enableRequestTemplates);
+    }
   }
 
   @Override
@@ -67,6 +89,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
   @Override
   public synchronized void shutDown() {
     _queryRouter.shutDown();
+    shutDownReduceExecutor();
   }
 
   @Override
@@ -79,12 +102,19 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
 
     String rawTableName = TableNameBuilder.extractRawTableName(originalBrokerRequest.getQuerySource().getTableName());
     long scatterGatherStartTimeNs = System.nanoTime();
+    HedgeServerSelector hedgeServerSelector = _enableHedgedRequests ? getHedgeServerSelector(rawTableName) : null;
     AsyncQueryResponse asyncQueryResponse = _queryRouter
         .submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
-            realtimeRoutingTable, timeoutMs);
+            realtimeRoutingTable, timeoutMs, hedgeServerSelector);
     Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
     _brokerMetrics
         .addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER, System.nanoTime() - scatterGatherStartTimeNs);
+    int numHedgedRequests = asyncQueryResponse.getNumHedgedRequests();
+    if (numHedgedRequests > 0) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS, numHedgedRequests);
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_RESPONSES_USED,
+          asyncQueryResponse.getNumHedgedResponsesUsed());
+    }
     // TODO Use scatterGatherStats as serverStats
     serverStats.setServerStats(asyncQueryResponse.getStats());
 
@@ -108,8 +138,9 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
     int numServersResponded = dataTableMap.size();
 
     long reduceStartTimeNs = System.nanoTime();
+    long reduceTimeoutMs = timeoutMs - TimeUnit.NANOSECONDS.toMillis(reduceStartTimeNs - scatterGatherStartTimeNs);
     BrokerResponseNative brokerResponse =
-        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
+        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, reduceTimeoutMs, _brokerMetrics);
     final long reduceTimeNanos = System.nanoTime() - reduceStartTimeNs;
     requestStatistics.setReduceTimeNanos(reduceTimeNanos);
     _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REDUCE, reduceTimeNanos);
@@ -127,4 +158,35 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
 
     return brokerResponse;
   }
+
+  /**
+   * Returns the selector that picks the servers (other than the one queried) hosting all the segments of a request
+   * from the current segment to servers mapping of the table.
+   */
+  private HedgeServerSelector getHedgeServerSelector(String rawTableName) {
+    return (instanceName, tableType, segments) -> {
+      Map<String, List<String>> segmentToServersMap =
+          _routingTable.getSegmentToServersMap(TableNameBuilder.forType(tableType).tableNameWithType(rawTableName));
+      if (segmentToServersMap == null || segments.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<String> hedgeServers = null;
+      for (String segment : segments) {
+        List<String> servers = segmentToServersMap.get(segment);
+        if (servers == null) {
+          return Collections.emptyList();
+        }
+        if (hedgeServers == null) {
+          hedgeServers = new ArrayList<>(servers);
+          hedgeServers.remove(instanceName);
+        } else {
+          hedgeServers.retainAll(servers);
+        }
+        if (hedgeServers.isEmpty()) {
+          break;
+        }
+      }
+      return hedgeServers;
+    };
+  }
 }
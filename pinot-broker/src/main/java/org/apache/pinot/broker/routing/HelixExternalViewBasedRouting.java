@@ -20,9 +20,11 @@ package org.apache.pinot.broker.routing;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -42,11 +44,16 @@ import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.pinot.broker.broker.helix.ClusterChangeHandler;
+import org.apache.pinot.broker.pruner.SegmentZKMetadataPrunerService;
+import org.apache.pinot.broker.pruner.TableSegmentZKMetadataPruner;
+import org.apache.pinot.broker.pruner.TimeSegmentPruner;
 import org.apache.pinot.broker.routing.builder.RoutingTableBuilder;
 import org.apache.pinot.broker.routing.selector.SegmentSelector;
 import org.apache.pinot.broker.routing.selector.SegmentSelectorProvider;
 import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.config.TableNameBuilder;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.metadata.ZKMetadataProvider;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.metrics.BrokerTimer;
@@ -55,6 +62,7 @@ import org.apache.pinot.common.utils.EqualityUtils;
 import org.apache.pinot.common.utils.JsonUtils;
 import org.apache.pinot.common.utils.NetUtil;
 import org.apache.pinot.common.utils.helix.HelixHelper;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +78,11 @@ import org.slf4j.LoggerFactory;
 public class HelixExternalViewBasedRouting implements ClusterChangeHandler, RoutingTable {
   private static final Logger LOGGER = LoggerFactory.getLogger(HelixExternalViewBasedRouting.class);
   private static final int INVALID_EXTERNAL_VIEW_VERSION = Integer.MIN_VALUE;
+  private static final String COLUMN_VALUE_METADATA_PRUNER = "ColumnValueZKMetadataPruner";
+  // Whether to prune the segments of offline tables based on the time range of the query (under the routing table
+  // config prefix), disabled by default
+  private static final String ENABLE_TIME_SEGMENT_PRUNING = "timeSegmentPruning.enabled";
+  private static final boolean DEFAULT_ENABLE_TIME_SEGMENT_PRUNING = false;
 
   private final Map<String, RoutingTableBuilder> _routingTableBuilderMap = new ConcurrentHashMap<>();
   private final Map<String, Integer> _lastKnownExternalViewVersionMap = new ConcurrentHashMap<>();
@@ -77,14 +90,18 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
   private final Map<String, InstanceConfig> _lastKnownInstanceConfigs = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> _tablesForInstance = new ConcurrentHashMap<>();
   private final Map<String, SegmentSelector> _segmentSelectorMap = new ConcurrentHashMap<>();
+  private final Map<String, TableSegmentZKMetadataPruner> _segmentPrunerMap = new ConcurrentHashMap<>();
+  private final Map<String, TimeSegmentPruner> _timeSegmentPrunerMap = new ConcurrentHashMap<>();
 
   private final Configuration _configuration;
 
   private HelixManager _helixManager;
+  private ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
   private RoutingTableBuilderFactory _routingTableBuilderFactory;
   private SegmentSelectorProvider _segmentSelectorProvider;
   private BrokerMetrics _brokerMetrics;
+  private ServerRoutingStats _serverRoutingStats;
 
   public HelixExternalViewBasedRouting(Configuration configuration) {
     _configuration = configuration;
@@ -95,6 +112,7 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
     Preconditions.checkState(_helixManager == null, "HelixExternalViewBasedRouting is already initialized");
     _helixManager = helixManager;
     ZkHelixPropertyStore<ZNRecord> propertyStore = _helixManager.getHelixPropertyStore();
+    _propertyStore = propertyStore;
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
     _routingTableBuilderFactory = new RoutingTableBuilderFactory(_configuration, propertyStore);
     _segmentSelectorProvider = new SegmentSelectorProvider(propertyStore);
@@ -115,7 +133,38 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
   public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request) {
     String tableName = request.getTableName();
     RoutingTableBuilder routingTableBuilder = _routingTableBuilderMap.get(tableName);
-    return routingTableBuilder.getRoutingTable(request, _segmentSelectorMap.get(tableName));
+    Map<String, List<String>> unprunedRoutingTable =
+        routingTableBuilder.getRoutingTable(request, _segmentSelectorMap.get(tableName));
+    Map<String, List<String>> routingTable = unprunedRoutingTable;
+    TimeSegmentPruner timeSegmentPruner = _timeSegmentPrunerMap.get(tableName);
+    if (timeSegmentPruner != null) {
+      routingTable = timeSegmentPruner.prune(routingTable, request.getBrokerRequest());
+    }
+    TableSegmentZKMetadataPruner segmentPruner = _segmentPrunerMap.get(tableName);
+    if (segmentPruner != null) {
+      routingTable = segmentPruner.prune(routingTable, request.getBrokerRequest());
+    }
+    if (routingTable.isEmpty() && !unprunedRoutingTable.isEmpty()) {
+      routingTable = keepOneSegment(unprunedRoutingTable);
+    }
+    return routingTable;
+  }
+
+  /**
+   * Returns a routing table with only one segment of the given routing table.
+   * <p>Used when all the segments are pruned by the broker: the server still gets the query and returns a correctly
+   * shaped empty result (e.g. a count of 0 instead of no aggregation row), and the empty routing table is not mistaken
+   * for no server being available.
+   */
+  @VisibleForTesting
+  static Map<String, List<String>> keepOneSegment(Map<String, List<String>> routingTable) {
+    for (Map.Entry<String, List<String>> entry : routingTable.entrySet()) {
+      List<String> segments = entry.getValue();
+      if (!segments.isEmpty()) {
+        return Collections.singletonMap(entry.getKey(), Collections.singletonList(segments.get(0)));
+      }
+    }
+    return routingTable;
   }
 
   @Override
@@ -123,16 +172,32 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
     return _routingTableBuilderMap.containsKey(tableName);
   }
 
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap(String tableName) {
+    RoutingTableBuilder routingTableBuilder = _routingTableBuilderMap.get(tableName);
+    return routingTableBuilder != null ? routingTableBuilder.getSegmentToServersMap() : null;
+  }
+
   public void setBrokerMetrics(BrokerMetrics brokerMetrics) {
     _brokerMetrics = brokerMetrics;
   }
 
+  /**
+   * Sets the statistics of the servers to enable adaptive server selection for the tables brought online afterwards.
+   */
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    _serverRoutingStats = serverRoutingStats;
+  }
+
   public void markDataResourceOnline(TableConfig tableConfig, ExternalView externalView,
       List<InstanceConfig> instanceConfigList) {
     String tableName = tableConfig.getTableName();
 
     RoutingTableBuilder routingTableBuilder =
         _routingTableBuilderFactory.createRoutingTableBuilder(tableConfig, _brokerMetrics);
+    if (_serverRoutingStats != null) {
+      routingTableBuilder.setServerRoutingStats(_serverRoutingStats);
+    }
     LOGGER
         .info("Initialized routingTableBuilder: {} for table {}", routingTableBuilder.getClass().getName(), tableName);
     _routingTableBuilderMap.put(tableName, routingTableBuilder);
@@ -144,6 +209,30 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
       _segmentSelectorMap.put(tableName, segmentSelector);
     }
 
+    // Initialize segment pruner for offline table with broker pruning columns
+    List<String> brokerPruningColumns = tableConfig.getIndexingConfig().getBrokerPruningColumns();
+    if (_propertyStore != null && tableConfig.getTableType() == CommonConstants.Helix.TableType.OFFLINE
+        && brokerPruningColumns != null && !brokerPruningColumns.isEmpty()) {
+      LOGGER.info("Initialized segment pruner on columns: {} for table {}", brokerPruningColumns, tableName);
+      _segmentPrunerMap.put(tableName, new TableSegmentZKMetadataPruner(tableName, _propertyStore,
+          new SegmentZKMetadataPrunerService(new String[]{COLUMN_VALUE_METADATA_PRUNER}), _brokerMetrics));
+    } else {
+      _segmentPrunerMap.remove(tableName);
+    }
+
+    // Initialize time segment pruner for offline table with time column
+    _timeSegmentPrunerMap.remove(tableName);
+    if (_propertyStore != null && tableConfig.getTableType() == CommonConstants.Helix.TableType.OFFLINE && _configuration
+        .getBoolean(ENABLE_TIME_SEGMENT_PRUNING, DEFAULT_ENABLE_TIME_SEGMENT_PRUNING)) {
+      Schema schema = ZKMetadataProvider.getTableSchema(_propertyStore, tableName);
+      if (TimeSegmentPruner.isTimeColumnSupported(schema)) {
+        String timeColumn = schema.getTimeColumnName();
+        LOGGER.info("Initialized time segment pruner on column: {} for table {}", timeColumn, tableName);
+        _timeSegmentPrunerMap.put(tableName,
+            new TimeSegmentPruner(tableName, _propertyStore, timeColumn, schema.getOutgoingTimeUnit(), _brokerMetrics));
+      }
+    }
+
     // Build the routing table
     if (externalView == null) {
       // It is possible for us to get a request to serve a table for which there is no external view. In this case, just
@@ -273,6 +362,16 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
         segmentSelector.computeOnExternalViewChange();
       }
 
+      // Update segment pruners
+      TimeSegmentPruner timeSegmentPruner = _timeSegmentPrunerMap.get(tableNameWithType);
+      if (timeSegmentPruner != null) {
+        timeSegmentPruner.computeOnExternalViewChange(externalView);
+      }
+      TableSegmentZKMetadataPruner segmentPruner = _segmentPrunerMap.get(tableNameWithType);
+      if (segmentPruner != null) {
+        segmentPruner.computeOnExternalViewChange(externalView);
+      }
+
       // Keep track of the instance configs that are used in that routing table
       updateInstanceConfigsMapFromExternalView(relevantInstanceConfigs, instanceConfigs, externalView);
 
@@ -363,6 +462,23 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
     updateTimeBoundary(tableName, fetchExternalView(tableName));
   }
 
+  /**
+   * Handles the segments of the table being refreshed in place (which does not change the external view), by updating
+   * the time boundary and reloading the segment ZK metadata used for pruning.
+   */
+  public void processSegmentRefresh(String tableName) {
+    ExternalView externalView = fetchExternalView(tableName);
+    updateTimeBoundary(tableName, externalView);
+    TimeSegmentPruner timeSegmentPruner = _timeSegmentPrunerMap.get(tableName);
+    if (timeSegmentPruner != null) {
+      timeSegmentPruner.refresh(externalView);
+    }
+    TableSegmentZKMetadataPruner segmentPruner = _segmentPrunerMap.get(tableName);
+    if (segmentPruner != null) {
+      segmentPruner.refresh(externalView);
+    }
+  }
+
   protected void updateTimeBoundary(String tableName, ExternalView externalView) {
     LOGGER.info("Trying to compute time boundary service for table {}", tableName);
     long timeBoundaryUpdateStart = System.currentTimeMillis();
@@ -397,6 +513,8 @@ public class HelixExternalViewBasedRouting implements ClusterChangeHandler, Rout
   public void markDataResourceOffline(String tableName) {
     LOGGER.info("Trying to remove data table from broker for {}", tableName);
     _routingTableBuilderMap.remove(tableName);
+    _segmentPrunerMap.remove(tableName);
+    _timeSegmentPrunerMap.remove(tableName);
     _lastKnownExternalViewVersionMap.remove(tableName);
     _lastKnownInstanceConfigsForTable.remove(tableName);
     _timeBoundaryService.remove(tableName);
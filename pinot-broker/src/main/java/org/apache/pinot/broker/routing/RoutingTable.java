@@ -20,6 +20,7 @@ package org.apache.pinot.broker.routing;
 
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 
 /**
@@ -43,6 +44,16 @@ public interface RoutingTable {
    */
   boolean routingTableExists(String tableName);
 
+  /**
+   * Get the mapping from segment to the servers serving it for the given table, which is used to pick the replicas for
+   * hedged requests.
+   *
+   * @param tableName Table name with type
+   * @return Map from segment to servers, or null if not available for the table
+   */
+  @Nullable
+  Map<String, List<String>> getSegmentToServersMap(String tableName);
+
   /**
    * Dump a snapshot of all the routing tables for the given table.
    *
@@ -37,6 +37,7 @@ import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,6 +87,11 @@ public abstract class BasePartitionAwareRoutingTableBuilder implements RoutingTa
     _pruner = new SegmentZKMetadataPrunerService(new String[]{PARTITION_METADATA_PRUNER});
   }
 
+  @Override
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    // Not supported because segments are routed based on the replica groups
+  }
+
   @Override
   public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request, SegmentSelector segmentSelector) {
     // Copy the reference for the current segment to replica to server mapping for snapshot
@@ -149,6 +155,12 @@ public abstract class BasePartitionAwareRoutingTableBuilder implements RoutingTa
     throw new UnsupportedOperationException("Partition aware routing table cannot be pre-computed");
   }
 
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap() {
+    // Segments are routed based on the replica groups
+    return null;
+  }
+
   protected void handleNoServingHost(String segmentName) {
     LOGGER.error("Found no server hosting segment {} for table {}", segmentName, _tableName);
     if (_brokerMetrics != null) {
@@ -37,6 +37,7 @@ import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.utils.CommonConstants;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,12 +52,14 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
   private BrokerMetrics _brokerMetrics;
   private String _tableName;
   private boolean _enableDynamicComputing;
+  private ServerRoutingStats _serverRoutingStats;
 
   // Set variable as volatile so all threads can get the up-to-date routing tables
   // Routing tables are used for storing pre-computed routing table
   protected volatile List<Map<String, List<String>>> _routingTables;
 
-  // A mapping of segments to servers is used for dynamic routing table building process
+  // A mapping of segments to servers is used for dynamic routing table building process and picking replicas for hedged
+  // requests
   protected volatile Map<String, List<String>> _segmentToServersMap;
 
   @Override
@@ -76,6 +79,12 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
     }
   }
 
+  @Override
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    _serverRoutingStats = serverRoutingStats;
+    LOGGER.info("Adaptive server selection is enabled for table {}", _tableName);
+  }
+
   protected static String getServerWithLeastSegmentsAssigned(List<String> servers,
       Map<String, List<String>> routingTable) {
     Collections.shuffle(servers);
@@ -117,10 +126,8 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
     Map<String, List<String>> segmentToServersMap =
         computeSegmentToServersMapFromExternalView(externalView, instanceConfigs);
 
-    if (_enableDynamicComputing) {
-      // When dynamic computing is enabled, cache the mapping
-      _segmentToServersMap = segmentToServersMap;
-    } else {
+    _segmentToServersMap = segmentToServersMap;
+    if (!_enableDynamicComputing) {
       // Otherwise, we cache the pre-computed routing tables
       List<Map<String, List<String>>> routingTables = computeRoutingTablesFromSegmentToServersMap(segmentToServersMap);
       _routingTables = routingTables;
@@ -128,7 +135,7 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
   }
 
   public Map<String, List<String>> getRoutingTable(RoutingTableLookupRequest request, SegmentSelector segmentSelector) {
-    if (_enableDynamicComputing) {
+    if (_enableDynamicComputing || _serverRoutingStats != null) {
       // Copy the pointer for snapshot since the pointer for segment to servers map can change at anytime
       Map<String, List<String>> segmentToServersMap = _segmentToServersMap;
 
@@ -139,7 +146,11 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
       }
 
       // Compute the final routing table
-      return computeDynamicRoutingTable(segmentToServersMap, segmentsToQuery);
+      if (_serverRoutingStats != null) {
+        return computeAdaptiveRoutingTable(segmentToServersMap, segmentsToQuery, _serverRoutingStats);
+      } else {
+        return computeDynamicRoutingTable(segmentToServersMap, segmentsToQuery);
+      }
     }
 
     // Return a pre-computed routing table if we don't use dynamic computing
@@ -151,6 +162,11 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
     return _routingTables;
   }
 
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap() {
+    return _segmentToServersMap;
+  }
+
   /**
    * Computes a routing table on-the-fly using a mapping of segment to servers. Because of the performance concern,
    * the default behavior is to randomly pick a server among available servers for each segment.
@@ -170,6 +186,30 @@ public abstract class BaseRoutingTableBuilder implements RoutingTableBuilder {
     return routingTable;
   }
 
+  /**
+   * Computes a routing table on-the-fly using a mapping of segment to servers and the statistics of the servers. For
+   * each segment, picks two random servers among available servers and selects the one with the better score (power
+   * of two choices), so that slow or overloaded servers get less traffic without herding all queries to the same
+   * server.
+   *
+   * @param segmentsToQuery a list of segments that need to be processed for a particular query
+   * @param serverRoutingStats statistics of the servers
+   * @return a routing table
+   */
+  public Map<String, List<String>> computeAdaptiveRoutingTable(Map<String, List<String>> segmentToServersMap,
+      Set<String> segmentsToQuery, ServerRoutingStats serverRoutingStats) {
+    Map<String, List<String>> routingTable = new HashMap<>();
+    // Score each server only once per query
+    Map<String, Double> scoreCache = new HashMap<>();
+    for (String segmentName : segmentsToQuery) {
+      List<String> servers = segmentToServersMap.get(segmentName);
+      String selectedServer = serverRoutingStats.selectServer(servers, scoreCache);
+      List<String> segments = routingTable.computeIfAbsent(selectedServer, k -> new ArrayList<>());
+      segments.add(segmentName);
+    }
+    return routingTable;
+  }
+
   /**
    * Given an external view and a list of instance configs, computes the mapping of segment to servers. The mapping
    * will be cached if we use dynamic routing. By default, this will check ONLINE segments and active servers.
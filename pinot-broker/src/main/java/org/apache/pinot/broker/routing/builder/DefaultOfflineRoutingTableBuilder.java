@@ -31,6 +31,7 @@ import org.apache.pinot.broker.routing.RoutingTableLookupRequest;
 import org.apache.pinot.broker.routing.selector.SegmentSelector;
 import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +88,12 @@ public class DefaultOfflineRoutingTableBuilder implements RoutingTableBuilder {
     _smallClusterRoutingTableBuilder.init(configuration, tableConfig, propertyStore, brokerMetrics);
   }
 
+  @Override
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    _largeClusterRoutingTableBuilder.setServerRoutingStats(serverRoutingStats);
+    _smallClusterRoutingTableBuilder.setServerRoutingStats(serverRoutingStats);
+  }
+
   @Override
   public void computeOnExternalViewChange(String tableName, ExternalView externalView,
       List<InstanceConfig> instanceConfigs) {
@@ -134,4 +141,9 @@ public class DefaultOfflineRoutingTableBuilder implements RoutingTableBuilder {
   public List<Map<String, List<String>>> getRoutingTables() {
     return _routingTableBuilder.getRoutingTables();
   }
+
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap() {
+    return _routingTableBuilder.getSegmentToServersMap();
+  }
 }
@@ -32,6 +32,7 @@ import org.apache.pinot.broker.routing.selector.SegmentSelector;
 import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.utils.SegmentName;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 
 
 /**
@@ -52,6 +53,12 @@ public class DefaultRealtimeRoutingTableBuilder implements RoutingTableBuilder {
     _realtimeLLCRoutingTableBuilder.init(configuration, tableConfig, propertyStore, brokerMetrics);
   }
 
+  @Override
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    _realtimeHLCRoutingTableBuilder.setServerRoutingStats(serverRoutingStats);
+    _realtimeLLCRoutingTableBuilder.setServerRoutingStats(serverRoutingStats);
+  }
+
   @Override
   public void computeOnExternalViewChange(String tableName, ExternalView externalView,
       List<InstanceConfig> instanceConfigs) {
@@ -114,4 +121,15 @@ public class DefaultRealtimeRoutingTableBuilder implements RoutingTableBuilder {
       return Collections.emptyList();
     }
   }
+
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap() {
+    if (_hasLLC) {
+      return _realtimeLLCRoutingTableBuilder.getSegmentToServersMap();
+    } else if (_hasHLC) {
+      return _realtimeHLCRoutingTableBuilder.getSegmentToServersMap();
+    } else {
+      return null;
+    }
+  }
 }
@@ -28,10 +28,22 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.pinot.common.utils.CommonConstants;
 import org.apache.pinot.common.utils.HLCSegmentName;
 import org.apache.pinot.common.utils.SegmentName;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 
 
 public class HighLevelConsumerBasedRoutingTableBuilder extends BaseRoutingTableBuilder {
 
+  @Override
+  public void setServerRoutingStats(ServerRoutingStats serverRoutingStats) {
+    // Not supported because all segments of a query must be served by the same consumer group
+  }
+
+  @Override
+  public Map<String, List<String>> getSegmentToServersMap() {
+    // Segments from different consumer groups cannot be mixed in a query
+    return null;
+  }
+
   @Override
   protected Map<String, List<String>> computeSegmentToServersMapFromExternalView(ExternalView externalView,
       List<InstanceConfig> instanceConfigs) {
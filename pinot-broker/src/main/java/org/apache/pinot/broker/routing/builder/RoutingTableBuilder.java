@@ -20,6 +20,7 @@ package org.apache.pinot.broker.routing.builder;
 
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.ExternalView;
@@ -29,6 +30,7 @@ import org.apache.pinot.broker.routing.RoutingTableLookupRequest;
 import org.apache.pinot.broker.routing.selector.SegmentSelector;
 import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.core.transport.ServerRoutingStats;
 
 
 /**
@@ -42,6 +44,14 @@ public interface RoutingTableBuilder {
   void init(Configuration configuration, TableConfig tableConfig, ZkHelixPropertyStore<ZNRecord> propertyStore,
       BrokerMetrics brokerMetrics);
 
+  /**
+   * Set the statistics of the servers to enable adaptive server selection, where each segment is routed to the best
+   * replica for each query instead of using a randomly picked routing table.
+   * <p>Should be called before the first ExternalView change. Builders that need to keep the replica assignment (e.g.
+   * replica group based routing) can ignore it.
+   */
+  void setServerRoutingStats(ServerRoutingStats serverRoutingStats);
+
   /**
    * Compute routing tables (map from server to list of segments) that are used for query routing from ExternalView.
    * <p>Should be called whenever there is an ExternalView change.
@@ -60,4 +70,11 @@ public interface RoutingTableBuilder {
    * Get all pre-computed routing tables.
    */
   List<Map<String, List<String>>> getRoutingTables();
+
+  /**
+   * Get the mapping from segment to the servers serving it, which is used to pick the replicas for hedged requests.
+   * Returns {@code null} if the segments cannot be served by any of the replicas (e.g. replica group based routing).
+   */
+  @Nullable
+  Map<String, List<String>> getSegmentToServersMap();
 }
@@ -22,8 +22,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import junit.framework.Assert;
+import org.apache.pinot.common.data.FieldSpec;
 import org.apache.pinot.common.metadata.segment.ColumnPartitionMetadata;
+import org.apache.pinot.common.metadata.segment.ColumnStatsMetadata;
 import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentColumnStatsMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
 import org.apache.pinot.common.request.BrokerRequest;
@@ -61,4 +64,38 @@ public class SegmentZKMetadataPrunerTest {
       Assert.assertEquals(prunerService.prune(metadata, prunerContext), (actualPartition != expectedPartition));
     }
   }
+
+  @Test
+  public void testColumnValuePruner() {
+    SegmentZKMetadata metadata = new OfflineSegmentZKMetadata();
+    Map<String, ColumnStatsMetadata> columnStatsMap = new HashMap<>();
+    columnStatsMap.put("intColumn", new ColumnStatsMetadata(FieldSpec.DataType.INT, "10", "20"));
+    columnStatsMap.put("stringColumn", new ColumnStatsMetadata(FieldSpec.DataType.STRING, "bar", "foo"));
+    metadata.setColumnStatsMetadata(new SegmentColumnStatsMetadata(columnStatsMap));
+
+    SegmentZKMetadataPrunerService prunerService =
+        new SegmentZKMetadataPrunerService(new String[]{"ColumnValueZKMetadataPruner"});
+    Pql2Compiler compiler = new Pql2Compiler();
+    Map<String, Boolean> queryToPruned = new HashMap<>();
+    queryToPruned.put("intColumn = 15", false);
+    queryToPruned.put("intColumn = 5", true);
+    queryToPruned.put("intColumn IN (1, 2, 30)", true);
+    queryToPruned.put("intColumn IN (1, 20)", false);
+    queryToPruned.put("intColumn BETWEEN 21 AND 30", true);
+    queryToPruned.put("intColumn > 20", true);
+    queryToPruned.put("intColumn >= 20", false);
+    queryToPruned.put("intColumn < 10", true);
+    queryToPruned.put("stringColumn = 'baz'", false);
+    queryToPruned.put("stringColumn = 'zoo'", true);
+    queryToPruned.put("intColumn = 5 OR stringColumn = 'baz'", false);
+    queryToPruned.put("intColumn = 15 AND stringColumn = 'zoo'", true);
+    // No stats for the column
+    queryToPruned.put("otherColumn = 5", false);
+    for (Map.Entry<String, Boolean> entry : queryToPruned.entrySet()) {
+      String query = "select count(*) from myTable where " + entry.getKey();
+      BrokerRequest brokerRequest = compiler.compileToBrokerRequest(query);
+      SegmentPrunerContext prunerContext = new SegmentPrunerContext(brokerRequest);
+      Assert.assertEquals(query, entry.getValue().booleanValue(), prunerService.prune(metadata, prunerContext));
+    }
+  }
 }
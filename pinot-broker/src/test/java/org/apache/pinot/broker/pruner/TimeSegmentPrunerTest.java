@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.pruner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.helix.model.ExternalView;
+import org.apache.pinot.broker.util.FakePropertyStore;
+import org.apache.pinot.common.metadata.ZKMetadataProvider;
+import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link TimeSegmentPruner} and {@link SegmentIntervalTree}
+ */
+public class TimeSegmentPrunerTest {
+  private static final String TIME_COLUMN = "daysSinceEpoch";
+  private static final int NUM_SEGMENTS = 1000;
+  private static final int NUM_QUERIES = 100;
+
+  @Test
+  public void testIntervalTree() {
+    Random random = new Random();
+    Map<String, long[]> segmentIntervalMap = new HashMap<>();
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      long start = random.nextInt(10_000);
+      long end = start + random.nextInt(100);
+      segmentIntervalMap.put("segment_" + i, new long[]{start, end});
+    }
+    segmentIntervalMap.put("unbounded", new long[]{Long.MIN_VALUE, Long.MAX_VALUE});
+    SegmentIntervalTree intervalTree = SegmentIntervalTree.build(segmentIntervalMap);
+    Assert.assertEquals(intervalTree.size(), NUM_SEGMENTS + 1);
+
+    for (int i = 0; i < NUM_QUERIES; i++) {
+      long queryStart = random.nextInt(10_000);
+      long queryEnd = queryStart + random.nextInt(1_000);
+      List<String> expectedSegments = new ArrayList<>();
+      for (Map.Entry<String, long[]> entry : segmentIntervalMap.entrySet()) {
+        long[] interval = entry.getValue();
+        if (interval[0] <= queryEnd && interval[1] >= queryStart) {
+          expectedSegments.add(entry.getKey());
+        }
+      }
+      List<String> actualSegments = intervalTree.searchOverlapping(queryStart, queryEnd);
+      Collections.sort(expectedSegments);
+      Collections.sort(actualSegments);
+      Assert.assertEquals(actualSegments, expectedSegments);
+    }
+
+    // Empty query range
+    Assert.assertTrue(intervalTree.searchOverlapping(10, 9).isEmpty());
+    Assert.assertTrue(SegmentIntervalTree.EMPTY.searchOverlapping(0, 10).isEmpty());
+  }
+
+  @Test
+  public void testQueryInterval() {
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " = 10"), new long[]{10, 10});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " IN (15, 10, 20)"), new long[]{10, 20});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " BETWEEN 10 AND 20"), new long[]{10, 20});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " > 10 AND " + TIME_COLUMN + " < 20"), new long[]{11, 19});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " >= 10"), new long[]{10, Long.MAX_VALUE});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " <= 20"), new long[]{Long.MIN_VALUE, 20});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " BETWEEN 10 AND 20 AND foo = 'bar'"), new long[]{10, 20});
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " = 10 OR " + TIME_COLUMN + " = 20"), new long[]{10, 20});
+
+    // Empty range
+    long[] emptyInterval = getQueryInterval(TIME_COLUMN + " = 10 AND " + TIME_COLUMN + " = 20");
+    Assert.assertTrue(emptyInterval[0] > emptyInterval[1]);
+
+    // Unbounded range
+    long[] unboundedInterval = new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+    Assert.assertEquals(getQueryInterval("foo = 'bar'"), unboundedInterval);
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " = 10 OR foo = 'bar'"), unboundedInterval);
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " <> 10"), unboundedInterval);
+    Assert.assertEquals(getQueryInterval(TIME_COLUMN + " = 'abc'"), unboundedInterval);
+  }
+
+  @Test
+  public void testPrune()
+      throws Exception {
+    String offlineTableName = "myTable_OFFLINE";
+    FakePropertyStore propertyStore = new FakePropertyStore();
+    setSegmentZKMetadata(propertyStore, offlineTableName, "segment0", 0, 9);
+    setSegmentZKMetadata(propertyStore, offlineTableName, "segment1", 10, 19);
+    TimeSegmentPruner pruner =
+        new TimeSegmentPruner(offlineTableName, propertyStore, TIME_COLUMN, TimeUnit.DAYS, null);
+    ExternalView externalView = new ExternalView(offlineTableName);
+    externalView.setState("segment0", "server0", "ONLINE");
+    externalView.setState("segment1", "server1", "ONLINE");
+    pruner.computeOnExternalViewChange(externalView);
+
+    BrokerRequest brokerRequest =
+        new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE " + TIME_COLUMN + " = 5");
+    Map<String, List<String>> routingTable = new HashMap<>();
+    routingTable.put("server0", Collections.singletonList("segment0"));
+    routingTable.put("server1", Collections.singletonList("segment1"));
+    Assert.assertEquals(pruner.prune(routingTable, brokerRequest),
+        Collections.singletonMap("server0", Collections.singletonList("segment0")));
+
+    // A new segment in the routing table that the pruner has not seen yet should not be pruned
+    setSegmentZKMetadata(propertyStore, offlineTableName, "segment2", 20, 29);
+    routingTable.put("server1", Arrays.asList("segment1", "segment2"));
+    Map<String, List<String>> expectedRoutingTable = new HashMap<>();
+    expectedRoutingTable.put("server0", Collections.singletonList("segment0"));
+    expectedRoutingTable.put("server1", Collections.singletonList("segment2"));
+    Assert.assertEquals(pruner.prune(routingTable, brokerRequest), expectedRoutingTable);
+
+    // Once the pruner has seen the new segment, it should be pruned
+    externalView.setState("segment2", "server1", "ONLINE");
+    pruner.computeOnExternalViewChange(externalView);
+    Assert.assertEquals(pruner.prune(routingTable, brokerRequest),
+        Collections.singletonMap("server0", Collections.singletonList("segment0")));
+  }
+
+  private static void setSegmentZKMetadata(FakePropertyStore propertyStore, String offlineTableName, String segment,
+      long startTime, long endTime)
+      throws Exception {
+    OfflineSegmentZKMetadata segmentZKMetadata = new OfflineSegmentZKMetadata();
+    segmentZKMetadata.setSegmentName(segment);
+    segmentZKMetadata.setTableName(offlineTableName);
+    segmentZKMetadata.setStartTime(startTime);
+    segmentZKMetadata.setEndTime(endTime);
+    segmentZKMetadata.setTimeUnit(TimeUnit.DAYS);
+    propertyStore.setContents(ZKMetadataProvider.constructPropertyStorePathForSegment(offlineTableName, segment),
+        segmentZKMetadata.toZNRecord());
+  }
+
+  private static long[] getQueryInterval(String filter) {
+    return TimeSegmentPruner.getQueryInterval(RequestUtils.generateFilterQueryTree(
+        new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE " + filter)), TIME_COLUMN);
+  }
+}
@@ -79,6 +79,24 @@ public class HitCounterTest {
     Assert.assertEquals(hitCounter.getHitCount(currentTimestamp), 7);
   }
 
+  @Test
+  public void testHitCounterWithSubSecondRange() {
+    // 100ms range with 10ms buckets
+    HitCounter hitCounter = new HitCounter(100L, 10);
+    long currentTimestamp = System.currentTimeMillis() / 100L * 100L;
+    for (int i = 0; i < 5; i++) {
+      hitCounter.hit(currentTimestamp);
+      currentTimestamp += 10L;
+    }
+    Assert.assertEquals(hitCounter.getHitCount(currentTimestamp - 10L), 5);
+    // First bucket is out of the range
+    currentTimestamp += 50L;
+    Assert.assertEquals(hitCounter.getHitCount(currentTimestamp), 4);
+    // All buckets are out of the range
+    currentTimestamp += 100L;
+    Assert.assertEquals(hitCounter.getHitCount(currentTimestamp), 0);
+  }
+
   @Test
   public void testConcurrency() {
     Random random = new Random();
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.queryquota;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.metrics.BrokerGauge;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.util.TestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryAdmissionControllerTest {
+  private static final String TABLE_1 = "table1";
+  private static final String TABLE_2 = "table2";
+  private static final long TIMEOUT_MS = 10_000L;
+
+  @Test
+  public void testComputeCost() {
+    QueryAdmissionController admissionController = new QueryAdmissionController(10, 0, 10, 100L, 100, null);
+    Assert.assertTrue(admissionController.isEnabled());
+    Assert.assertEquals(admissionController.computeCost(10, false), 1);
+    Assert.assertEquals(admissionController.computeCost(250, false), 3);
+    Assert.assertEquals(admissionController.computeCost(250, true), 6);
+    // Capped by the limit
+    Assert.assertEquals(admissionController.computeCost(10_000, true), 10);
+
+    Assert.assertFalse(new QueryAdmissionController(0, 0, 10, 100L, 100, null).isEnabled());
+  }
+
+  @Test
+  public void testAdmission()
+      throws Exception {
+    BrokerMetrics brokerMetrics = new BrokerMetrics(new MetricsRegistry());
+    QueryAdmissionController admissionController =
+        new QueryAdmissionController(4, 2, 1, TIMEOUT_MS, 100, brokerMetrics);
+
+    // Table 1 reaches its limit
+    Assert.assertTrue(admissionController.acquire(TABLE_1, 2, TIMEOUT_MS));
+    Assert.assertEquals(admissionController.getInFlightCost(), 2);
+
+    // Another query on table 1 should be rejected right away without waiting time
+    Assert.assertFalse(admissionController.acquire(TABLE_1, 1, 0L));
+    Assert.assertEquals(admissionController.getQueueDepth(), 0);
+
+    // Query on table 2 should not be blocked by table 1
+    Assert.assertTrue(admissionController.acquire(TABLE_2, 2, TIMEOUT_MS));
+    Assert.assertEquals(admissionController.getInFlightCost(), 4);
+
+    // Query on table 1 should wait in the queue
+    CompletableFuture<Boolean> waitingQuery = CompletableFuture.supplyAsync(() -> {
+      try {
+        return admissionController.acquire(TABLE_1, 1, TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    TestUtils.waitForCondition(aVoid -> admissionController.getQueueDepth() == 1, TIMEOUT_MS,
+        "Query should be waiting");
+    Assert.assertEquals(brokerMetrics.getValueOfGlobalGauge(BrokerGauge.ADMISSION_QUEUE_DEPTH), 1L);
+
+    // Queue is full, query should be rejected right away
+    Assert.assertFalse(admissionController.acquire(TABLE_2, 1, TIMEOUT_MS));
+
+    // Releasing table 2 does not unblock table 1
+    admissionController.release(TABLE_2, 2);
+    Assert.assertEquals(admissionController.getQueueDepth(), 1);
+    Assert.assertFalse(waitingQuery.isDone());
+
+    // Releasing table 1 admits the waiting query
+    admissionController.release(TABLE_1, 2);
+    Assert.assertTrue(waitingQuery.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(admissionController.getQueueDepth(), 0);
+    Assert.assertEquals(admissionController.getInFlightCost(), 1);
+    admissionController.release(TABLE_1, 1);
+    Assert.assertEquals(admissionController.getInFlightCost(), 0);
+    Assert.assertEquals(brokerMetrics.getValueOfGlobalGauge(BrokerGauge.ADMISSION_IN_FLIGHT_COST), 0L);
+  }
+
+  @Test
+  public void testMaxWaitTime()
+      throws Exception {
+    QueryAdmissionController admissionController = new QueryAdmissionController(1, 0, 10, 100L, 100, null);
+    Assert.assertTrue(admissionController.acquire(TABLE_1, 1, TIMEOUT_MS));
+    long startTimeMs = System.currentTimeMillis();
+    Assert.assertFalse(admissionController.acquire(TABLE_2, 1, TIMEOUT_MS));
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs < TIMEOUT_MS);
+    Assert.assertEquals(admissionController.getQueueDepth(), 0);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.queryquota;
+
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class SlidingWindowRateLimiterTest {
+  private static final long WINDOW_MS = 1000L;
+  private static final int NUM_BUCKETS = 10;
+
+  @Test
+  public void testBurst() {
+    // 100 permits per second, burst of 10 permits
+    SlidingWindowRateLimiter rateLimiter = new SlidingWindowRateLimiter(100, WINDOW_MS, NUM_BUCKETS);
+    long startTimeMs = getStartTimeMs();
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(tryAcquire(rateLimiter, startTimeMs, 0));
+    }
+    Assert.assertFalse(tryAcquire(rateLimiter, startTimeMs, 0));
+
+    // One more permit every 10ms
+    Assert.assertFalse(tryAcquire(rateLimiter, startTimeMs, 5));
+    Assert.assertTrue(tryAcquire(rateLimiter, startTimeMs, 10));
+    Assert.assertFalse(tryAcquire(rateLimiter, startTimeMs, 10));
+  }
+
+  @Test
+  public void testSteadyRate() {
+    SlidingWindowRateLimiter rateLimiter = new SlidingWindowRateLimiter(100, WINDOW_MS, NUM_BUCKETS);
+    long startTimeMs = getStartTimeMs();
+    for (int i = 0; i < 300; i++) {
+      Assert.assertTrue(tryAcquire(rateLimiter, startTimeMs, i * 10));
+    }
+  }
+
+  @Test
+  public void testSlidingWindow() {
+    SlidingWindowRateLimiter rateLimiter = new SlidingWindowRateLimiter(100, WINDOW_MS, NUM_BUCKETS);
+    long startTimeMs = getStartTimeMs();
+    // Twice the rate, the permits granted within the window should not exceed the rate (including the burst)
+    int numPermits = 0;
+    for (int i = 0; i < 200; i++) {
+      if (tryAcquire(rateLimiter, startTimeMs, i * 5)) {
+        numPermits++;
+      }
+    }
+    Assert.assertTrue(numPermits <= 100 && numPermits >= 90, "Permits granted: " + numPermits);
+
+    // Lower the rate
+    rateLimiter.setRate(10);
+    Assert.assertEquals(rateLimiter.getRate(), 10.0);
+    numPermits = 0;
+    for (int i = 0; i < 200; i++) {
+      if (tryAcquire(rateLimiter, startTimeMs, 2000 + i * 5)) {
+        numPermits++;
+      }
+    }
+    Assert.assertTrue(numPermits <= 10 && numPermits >= 9, "Permits granted: " + numPermits);
+  }
+
+  /**
+   * Returns the current time aligned to the window, so that the window of the last permit covers all the permits.
+   */
+  private static long getStartTimeMs() {
+    return System.currentTimeMillis() / WINDOW_MS * WINDOW_MS;
+  }
+
+  private static boolean tryAcquire(SlidingWindowRateLimiter rateLimiter, long startTimeMs, long elapsedMs) {
+    return rateLimiter.tryAcquire(TimeUnit.MILLISECONDS.toNanos(elapsedMs), startTimeMs + elapsedMs);
+  }
+}
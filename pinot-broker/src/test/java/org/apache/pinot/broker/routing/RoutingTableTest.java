@@ -22,6 +22,8 @@ import com.yammer.metrics.core.MetricsRegistry;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -148,6 +150,19 @@ public class RoutingTableTest {
     Assert.assertTrue(timeBoundaryUpdated.booleanValue());
   }
 
+  @Test
+  public void testKeepOneSegment() {
+    Map<String, List<String>> routingTable = new HashMap<>();
+    routingTable.put("server0", Collections.emptyList());
+    routingTable.put("server1", Arrays.asList("segment0", "segment1"));
+    Map<String, List<String>> prunedRoutingTable = HelixExternalViewBasedRouting.keepOneSegment(routingTable);
+    Assert.assertEquals(prunedRoutingTable.size(), 1);
+    Assert.assertEquals(prunedRoutingTable.get("server1"), Collections.singletonList("segment0"));
+
+    // Routing table without segment should be kept as is
+    Assert.assertTrue(HelixExternalViewBasedRouting.keepOneSegment(Collections.emptyMap()).isEmpty());
+  }
+
   private void assertResourceRequest(HelixExternalViewBasedRouting routing, String resource, String expectedSegmentList,
       int expectedNumSegment) {
     Map<String, List<String>> routingTable = routing.getRoutingTable(new RoutingTableLookupRequest(resource));
@@ -18,7 +18,9 @@
  */
 package org.apache.pinot.broker.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.I0Itec.zkclient.IZkDataListener;
 import org.apache.helix.ZNRecord;
@@ -40,6 +42,19 @@ public class FakePropertyStore extends ZkHelixPropertyStore<ZNRecord> {
     return _contents.get(path);
   }
 
+  @Override
+  public List<ZNRecord> getChildren(String parentPath, List<Stat> stats, int options) {
+    List<ZNRecord> children = new ArrayList<>();
+    String prefix = parentPath + "/";
+    for (Map.Entry<String, ZNRecord> entry : _contents.entrySet()) {
+      String path = entry.getKey();
+      if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0) {
+        children.add(entry.getValue());
+      }
+    }
+    return children;
+  }
+
   @Override
   public void subscribeDataChanges(String path, IZkDataListener listener) {
     _listener = listener;
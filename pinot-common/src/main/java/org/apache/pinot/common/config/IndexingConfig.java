@@ -95,6 +95,28 @@ public class IndexingConfig {
   @ConfigKey("varLengthDictionaryColumns")
   private List<String> _varLengthDictionaryColumns;
 
+  /**
+   * The list of columns forming the primary key of the records in a LLC realtime table. When set, only the latest
+   * record (in stream order) of each primary key is queryable (upsert).
+   */
+  @ConfigKey("primaryKeyColumns")
+  private List<String> _primaryKeyColumns;
+
+  /**
+   * The list of columns whose min/max values are stored in the segment ZK metadata, so that the broker can prune the
+   * segments without sending the query to the servers.
+   */
+  @ConfigKey("brokerPruningColumns")
+  private List<String> _brokerPruningColumns;
+
+  /**
+   * The number of documents a LLC consuming segment indexes before building star-trees (with the star-tree index
+   * configs) on them, so that queries on the consuming segment only need to scan the documents indexed after the last
+   * build. Star-tree is not built on consuming segments if it is not positive.
+   */
+  @ConfigKey("realtimeStarTreeNumDocsPerTree")
+  private int _realtimeStarTreeNumDocsPerTree;
+
   public List<String> getInvertedIndexColumns() {
     return _invertedIndexColumns;
   }
@@ -239,6 +261,30 @@ public class IndexingConfig {
     _varLengthDictionaryColumns = varLengthDictionaryColumns;
   }
 
+  public List<String> getPrimaryKeyColumns() {
+    return _primaryKeyColumns;
+  }
+
+  public void setPrimaryKeyColumns(List<String> primaryKeyColumns) {
+    _primaryKeyColumns = primaryKeyColumns;
+  }
+
+  public List<String> getBrokerPruningColumns() {
+    return _brokerPruningColumns;
+  }
+
+  public void setBrokerPruningColumns(List<String> brokerPruningColumns) {
+    _brokerPruningColumns = brokerPruningColumns;
+  }
+
+  public int getRealtimeStarTreeNumDocsPerTree() {
+    return _realtimeStarTreeNumDocsPerTree;
+  }
+
+  public void setRealtimeStarTreeNumDocsPerTree(int realtimeStarTreeNumDocsPerTree) {
+    _realtimeStarTreeNumDocsPerTree = realtimeStarTreeNumDocsPerTree;
+  }
+
   @Override
   public String toString() {
     final StringBuilder result = new StringBuilder();
@@ -296,7 +342,10 @@ public class IndexingConfig {
         .isEqual(_starTreeIndexSpec, that._starTreeIndexSpec) && EqualityUtils
         .isEqual(_segmentPartitionConfig, that._segmentPartitionConfig) && EqualityUtils
         .isEqual(_bloomFilterColumns, that._bloomFilterColumns) && EqualityUtils
-        .isEqual(_varLengthDictionaryColumns, that._varLengthDictionaryColumns);
+        .isEqual(_varLengthDictionaryColumns, that._varLengthDictionaryColumns) && EqualityUtils
+        .isEqual(_primaryKeyColumns, that._primaryKeyColumns) && EqualityUtils
+        .isEqual(_brokerPruningColumns, that._brokerPruningColumns) && EqualityUtils
+        .isEqual(_realtimeStarTreeNumDocsPerTree, that._realtimeStarTreeNumDocsPerTree);
   }
 
   @Override
@@ -316,6 +365,9 @@ public class IndexingConfig {
     result = EqualityUtils.hashCodeOf(result, _segmentPartitionConfig);
     result = EqualityUtils.hashCodeOf(result, _bloomFilterColumns);
     result = EqualityUtils.hashCodeOf(result, _varLengthDictionaryColumns);
+    result = EqualityUtils.hashCodeOf(result, _primaryKeyColumns);
+    result = EqualityUtils.hashCodeOf(result, _brokerPruningColumns);
+    result = EqualityUtils.hashCodeOf(result, _realtimeStarTreeNumDocsPerTree);
     return result;
   }
 }
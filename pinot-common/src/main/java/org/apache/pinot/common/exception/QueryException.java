@@ -47,6 +47,8 @@ public class QueryException {
   public static final int SERVER_OUT_OF_CAPACITY_ERROR_CODE = 211;
   public static final int QUERY_SCHEDULING_TIMEOUT_ERROR_CODE = 240;
   public static final int EXECUTION_TIMEOUT_ERROR_CODE = 250;
+  public static final int QUERY_CANCELLATION_ERROR_CODE = 260;
+  public static final int UNKNOWN_REQUEST_TEMPLATE_ERROR_CODE = 270;
   public static final int BROKER_GATHER_ERROR_CODE = 300;
   public static final int DATA_TABLE_DESERIALIZATION_ERROR_CODE = 310;
   public static final int FUTURE_CALL_ERROR_CODE = 350;
@@ -54,6 +56,7 @@ public class QueryException {
   public static final int BROKER_RESOURCE_MISSING_ERROR_CODE = 410;
   public static final int BROKER_INSTANCE_MISSING_ERROR_CODE = 420;
   public static final int TOO_MANY_REQUESTS_ERROR_CODE = 429;
+  public static final int ADMISSION_REJECTED_ERROR_CODE = 430;
   public static final int INTERNAL_ERROR_CODE = 450;
   public static final int MERGE_RESPONSE_ERROR_CODE = 500;
   public static final int FEDERATED_BROKER_UNAVAILABLE_ERROR_CODE = 550;
@@ -79,6 +82,10 @@ public class QueryException {
       new ProcessingException(QUERY_SCHEDULING_TIMEOUT_ERROR_CODE);
   public static final ProcessingException EXECUTION_TIMEOUT_ERROR =
       new ProcessingException(EXECUTION_TIMEOUT_ERROR_CODE);
+  public static final ProcessingException QUERY_CANCELLATION_ERROR =
+      new ProcessingException(QUERY_CANCELLATION_ERROR_CODE);
+  public static final ProcessingException UNKNOWN_REQUEST_TEMPLATE_ERROR =
+      new ProcessingException(UNKNOWN_REQUEST_TEMPLATE_ERROR_CODE);
   public static final ProcessingException BROKER_GATHER_ERROR = new ProcessingException(BROKER_GATHER_ERROR_CODE);
   public static final ProcessingException DATA_TABLE_DESERIALIZATION_ERROR =
       new ProcessingException(DATA_TABLE_DESERIALIZATION_ERROR_CODE);
@@ -97,6 +104,8 @@ public class QueryException {
   public static final ProcessingException QUERY_VALIDATION_ERROR = new ProcessingException(QUERY_VALIDATION_ERROR_CODE);
   public static final ProcessingException UNKNOWN_ERROR = new ProcessingException(UNKNOWN_ERROR_CODE);
   public static final ProcessingException QUOTA_EXCEEDED_ERROR = new ProcessingException(TOO_MANY_REQUESTS_ERROR_CODE);
+  public static final ProcessingException ADMISSION_REJECTED_ERROR =
+      new ProcessingException(ADMISSION_REJECTED_ERROR_CODE);
 
   static {
     JSON_PARSING_ERROR.setMessage("JsonParsingError");
@@ -109,6 +118,8 @@ public class QueryException {
     SERVER_OUT_OF_CAPACITY_ERROR.setMessage("ServerOutOfCapacity");
     QUERY_SCHEDULING_TIMEOUT_ERROR.setMessage("QuerySchedulingTimeoutError");
     EXECUTION_TIMEOUT_ERROR.setMessage("ExecutionTimeoutError");
+    QUERY_CANCELLATION_ERROR.setMessage("QueryCancellationError");
+    UNKNOWN_REQUEST_TEMPLATE_ERROR.setMessage("UnknownRequestTemplateError");
     BROKER_GATHER_ERROR.setMessage("BrokerGatherError");
     DATA_TABLE_DESERIALIZATION_ERROR.setMessage("DataTableDeserializationError");
     FUTURE_CALL_ERROR.setMessage("FutureCallError");
@@ -122,6 +133,7 @@ public class QueryException {
     QUERY_VALIDATION_ERROR.setMessage("QueryValidationError");
     UNKNOWN_ERROR.setMessage("UnknownError");
     QUOTA_EXCEEDED_ERROR.setMessage("QuotaExceededError");
+    ADMISSION_REJECTED_ERROR.setMessage("AdmissionRejectedError");
   }
 
   public static ProcessingException getException(ProcessingException processingException, Exception exception) {
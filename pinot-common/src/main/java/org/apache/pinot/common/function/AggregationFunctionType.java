@@ -27,12 +27,16 @@ public enum AggregationFunctionType {
   AVG("avg"),
   MINMAXRANGE("minMaxRange"),
   DISTINCTCOUNT("distinctCount"),
+  DISTINCTCOUNTEXACT("distinctCountExact"),
   DISTINCTCOUNTHLL("distinctCountHLL"),
   DISTINCTCOUNTRAWHLL("distinctCountRawHLL"),
   FASTHLL("fastHLL"),
+  DISTINCTCOUNTTHETASKETCH("distinctCountThetaSketch"),
+  DISTINCTCOUNTHLLSKETCH("distinctCountHLLSketch"),
   PERCENTILE("percentile"),
   PERCENTILEEST("percentileEst"),
   PERCENTILETDIGEST("percentileTDigest"),
+  PERCENTILEKLL("percentileKLL"),
   // Aggregation functions for multi-valued columns
   COUNTMV("countMV"),
   MINMV("minMV"),
@@ -46,6 +50,7 @@ public enum AggregationFunctionType {
   PERCENTILEMV("percentileMV"),
   PERCENTILEESTMV("percentileEstMV"),
   PERCENTILETDIGESTMV("percentileTDigestMV"),
+  PERCENTILEKLLMV("percentileKLLMV"),
   DISTINCT("distinct");
 
   private final String _name;
@@ -80,12 +85,16 @@ public enum AggregationFunctionType {
         return PERCENTILEEST;
       } else if (remainingFunctionName.matches("TDIGEST\\d+")) {
         return PERCENTILETDIGEST;
+      } else if (remainingFunctionName.matches("KLL\\d+")) {
+        return PERCENTILEKLL;
       } else if (remainingFunctionName.matches("\\d+MV")) {
         return PERCENTILEMV;
       } else if (remainingFunctionName.matches("EST\\d+MV")) {
         return PERCENTILEESTMV;
       } else if (remainingFunctionName.matches("TDIGEST\\d+MV")) {
         return PERCENTILETDIGESTMV;
+      } else if (remainingFunctionName.matches("KLL\\d+MV")) {
+        return PERCENTILEKLLMV;
       } else {
         throw new IllegalArgumentException("Invalid aggregation function name: " + functionName);
       }
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.metadata.segment;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.utils.EqualityUtils;
+
+
+/**
+ * Class for the value statistics of a column in a segment, which can be used to prune the segment without reaching the
+ * servers:
+ * <ul>
+ *   <li>Data type of the column</li>
+ *   <li>Min value of the column (as a string)</li>
+ *   <li>Max value of the column (as a string)</li>
+ * </ul>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ColumnStatsMetadata {
+  private final DataType _dataType;
+  private final String _minValue;
+  private final String _maxValue;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param dataType Data type of the column
+   * @param minValue Min value of the column
+   * @param maxValue Max value of the column
+   */
+  @JsonCreator
+  public ColumnStatsMetadata(@JsonProperty("dataType") DataType dataType, @JsonProperty("minValue") String minValue,
+      @JsonProperty("maxValue") String maxValue) {
+    _dataType = dataType;
+    _minValue = minValue;
+    _maxValue = maxValue;
+  }
+
+  public DataType getDataType() {
+    return _dataType;
+  }
+
+  public String getMinValue() {
+    return _minValue;
+  }
+
+  public String getMaxValue() {
+    return _maxValue;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj instanceof ColumnStatsMetadata) {
+      ColumnStatsMetadata that = (ColumnStatsMetadata) obj;
+      return _dataType == that._dataType && EqualityUtils.isEqual(_minValue, that._minValue) && EqualityUtils
+          .isEqual(_maxValue, that._maxValue);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = EqualityUtils.hashCodeOf(_dataType);
+    result = EqualityUtils.hashCodeOf(result, _minValue);
+    result = EqualityUtils.hashCodeOf(result, _maxValue);
+    return result;
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.metadata.segment;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.utils.JsonUtils;
+
+
+/**
+ * Class for the column value statistics of a segment, stored in the segment ZK metadata for the columns configured as
+ * broker pruning columns in the table config.
+ */
+@SuppressWarnings("unused") // Suppress incorrect warning, as methods are used for json ser/de.
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SegmentColumnStatsMetadata {
+  private final Map<String, ColumnStatsMetadata> _columnStatsMap;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param columnStatsMap Column name to ColumnStatsMetadata map.
+   */
+  public SegmentColumnStatsMetadata(
+      @Nonnull @JsonProperty("columnStatsMap") Map<String, ColumnStatsMetadata> columnStatsMap) {
+    Preconditions.checkNotNull(columnStatsMap);
+    _columnStatsMap = columnStatsMap;
+  }
+
+  /**
+   * Returns the map from column name to column's value statistics.
+   *
+   * @return Map from column name to its value statistics.
+   */
+  public Map<String, ColumnStatsMetadata> getColumnStatsMap() {
+    return _columnStatsMap;
+  }
+
+  /**
+   * Returns the value statistics for the given column, null if there isn't one.
+   *
+   * @param column Column for which to return the value statistics.
+   * @return Value statistics for the column.
+   */
+  @Nullable
+  public ColumnStatsMetadata getColumnStats(@Nonnull String column) {
+    return _columnStatsMap.get(column);
+  }
+
+  /**
+   * Given a JSON string, de-serialize and return an instance of {@link SegmentColumnStatsMetadata}
+   *
+   * @param jsonString Input JSON string
+   * @return Instance of {@link SegmentColumnStatsMetadata} built from the input string.
+   */
+  public static SegmentColumnStatsMetadata fromJsonString(String jsonString)
+      throws IOException {
+    return JsonUtils.stringToObject(jsonString, SegmentColumnStatsMetadata.class);
+  }
+
+  /**
+   * Returns the JSON equivalent of the object.
+   *
+   * @return JSON string equivalent of the object.
+   */
+  public String toJsonString()
+      throws IOException {
+    return JsonUtils.objectToString(this);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    SegmentColumnStatsMetadata that = (SegmentColumnStatsMetadata) o;
+    return _columnStatsMap.equals(that._columnStatsMap);
+  }
+
+  @Override
+  public int hashCode() {
+    return _columnStatsMap.hashCode();
+  }
+}
@@ -57,6 +57,7 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
   private long _crc = -1;
   private long _creationTime = -1;
   private SegmentPartitionMetadata _partitionMetadata;
+  private SegmentColumnStatsMetadata _columnStatsMetadata;
   private long _segmentUploadStartTime = -1;
   private Map<String, String> _customMap;
   private String _crypterName;
@@ -93,6 +94,16 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
           "Exception caught while reading partition info from zk metadata for segment '{}', partition info dropped.",
           _segmentName, e);
     }
+    try {
+      String columnStatsMetadataJson = znRecord.getSimpleField(CommonConstants.Segment.COLUMN_STATS_METADATA);
+      if (columnStatsMetadataJson != null) {
+        _columnStatsMetadata = SegmentColumnStatsMetadata.fromJsonString(columnStatsMetadataJson);
+      }
+    } catch (IOException e) {
+      LOGGER.error(
+          "Exception caught while reading column stats from zk metadata for segment '{}', column stats dropped.",
+          _segmentName, e);
+    }
     _segmentUploadStartTime = znRecord.getLongField(CommonConstants.Segment.SEGMENT_UPLOAD_START_TIME, -1);
     _customMap = znRecord.getMapField(CommonConstants.Segment.CUSTOM_MAP);
   }
@@ -211,6 +222,14 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     return _partitionMetadata;
   }
 
+  public void setColumnStatsMetadata(SegmentColumnStatsMetadata columnStatsMetadata) {
+    _columnStatsMetadata = columnStatsMetadata;
+  }
+
+  public SegmentColumnStatsMetadata getColumnStatsMetadata() {
+    return _columnStatsMetadata;
+  }
+
   public long getSegmentUploadStartTime() {
     return _segmentUploadStartTime;
   }
@@ -243,8 +262,8 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
         metadata._timeUnit) && isEqual(_startTime, metadata._startTime) && isEqual(_endTime, metadata._endTime)
         && isEqual(_segmentType, metadata._segmentType) && isEqual(_totalRawDocs, metadata._totalRawDocs) && isEqual(
         _crc, metadata._crc) && isEqual(_creationTime, metadata._creationTime) && isEqual(_partitionMetadata,
-        metadata._partitionMetadata) && isEqual(_segmentUploadStartTime, metadata._segmentUploadStartTime) && isEqual(
-        _customMap, metadata._customMap);
+        metadata._partitionMetadata) && isEqual(_columnStatsMetadata, metadata._columnStatsMetadata) && isEqual(
+        _segmentUploadStartTime, metadata._segmentUploadStartTime) && isEqual(_customMap, metadata._customMap);
   }
 
   @Override
@@ -261,6 +280,7 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     result = hashCodeOf(result, _crc);
     result = hashCodeOf(result, _creationTime);
     result = hashCodeOf(result, _partitionMetadata);
+    result = hashCodeOf(result, _columnStatsMetadata);
     result = hashCodeOf(result, _segmentUploadStartTime);
     result = hashCodeOf(result, _customMap);
     return result;
@@ -303,6 +323,15 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
                 _segmentName, e);
       }
     }
+    if (_columnStatsMetadata != null) {
+      try {
+        String columnStatsMetadataJson = _columnStatsMetadata.toJsonString();
+        znRecord.setSimpleField(CommonConstants.Segment.COLUMN_STATS_METADATA, columnStatsMetadataJson);
+      } catch (IOException e) {
+        LOGGER.error("Exception caught while writing column stats into ZNRecord for segment '{}', will be dropped",
+            _segmentName, e);
+      }
+    }
     if (_segmentUploadStartTime > 0) {
       znRecord.setLongField(CommonConstants.Segment.SEGMENT_UPLOAD_START_TIME, _segmentUploadStartTime);
     }
@@ -343,6 +372,17 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
       }
     }
 
+    if (_columnStatsMetadata != null) {
+      try {
+        String columnStatsMetadataJson = _columnStatsMetadata.toJsonString();
+        configMap.put(CommonConstants.Segment.COLUMN_STATS_METADATA, columnStatsMetadataJson);
+      } catch (IOException e) {
+        LOGGER.error(
+            "Exception caught while converting column stats into JSON string for segment '{}', will be dropped",
+            _segmentName, e);
+      }
+    }
+
     if (_segmentUploadStartTime > 0) {
       configMap.put(CommonConstants.Segment.SEGMENT_UPLOAD_START_TIME, Long.toString(_segmentUploadStartTime));
     }
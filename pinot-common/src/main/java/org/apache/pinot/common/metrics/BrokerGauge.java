@@ -26,7 +26,10 @@ import org.apache.pinot.common.Utils;
  *
  */
 public enum BrokerGauge implements AbstractMetrics.Gauge {
-  QUERY_QUOTA_CAPACITY_UTILIZATION_RATE("tables", false), NETTY_CONNECTION_CONNECT_TIME_MS("nettyConnection", true);
+  QUERY_QUOTA_CAPACITY_UTILIZATION_RATE("tables", false), NETTY_CONNECTION_CONNECT_TIME_MS("nettyConnection", true),
+
+  // Queries waiting to be admitted, and total cost of the queries being executed
+  ADMISSION_QUEUE_DEPTH("queries", true), ADMISSION_IN_FLIGHT_COST("costUnits", true);
 
   private final String brokerGaugeName;
   private final String unit;
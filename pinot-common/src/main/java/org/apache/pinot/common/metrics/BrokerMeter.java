@@ -62,6 +62,8 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   DOCUMENTS_SCANNED("documents", false),
   ENTRIES_SCANNED_IN_FILTER("documents", false),
   ENTRIES_SCANNED_POST_FILTER("documents", false),
+  // Segments pruned on the broker side (never sent to the servers) based on the segment ZK metadata.
+  SEGMENTS_PRUNED_BY_BROKER("segments", false),
 
   REQUEST_CONNECTION_TIMEOUTS("timeouts", false),
   HELIX_ZOOKEEPER_RECONNECTS("reconnects", true),
@@ -89,14 +91,29 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   TOTAL_SERVER_RESPONSE_SIZE("queries", false),
 
   QUERY_QUOTA_EXCEEDED("exceptions", false),
+  // Queries rejected because too many (expensive) queries are in flight
+  QUERY_ADMISSION_REJECTED("exceptions", false),
 
   // tracks a case a segment is not hosted by any server
   // this is different from NO_SERVER_FOUND_EXCEPTIONS which tracks unavailability across all segments
   NO_SERVING_HOST_FOR_SEGMENT("badResponses", false),
 
+  // Hedged requests sent to another replica for slow servers, and the ones that responded first
+  HEDGED_REQUESTS("requests", false),
+  HEDGED_RESPONSES_USED("requests", false),
+
+  // Requests cancelled on the servers that have not responded when the query is done
+  CANCELLED_SERVER_REQUESTS("requests", true),
+
   // Netty connection metrics
   NETTY_CONNECTION_REQUESTS_SENT("nettyConnection", true),
   NETTY_CONNECTION_BYTES_SENT("nettyConnection", true),
+  // Requests rejected because too many bytes are pending to be written to the server
+  NETTY_CONNECTION_REQUESTS_REJECTED("nettyConnection", true),
+  // Request templates registered on the server connections
+  NETTY_CONNECTION_TEMPLATES_REGISTERED("nettyConnection", true),
+  // Requests sent again with the full query because the server did not know the request template
+  NETTY_CONNECTION_TEMPLATES_UNKNOWN("nettyConnection", true),
   NETTY_CONNECTION_BYTES_RECEIVED("nettyConnection", true),
 
   PROACTIVE_CLUSTER_CHANGE_CHECK("proactiveClusterChangeCheck", true);
@@ -29,7 +29,9 @@ public enum BrokerTimer implements AbstractMetrics.Timer {
   ROUTING_TABLE_UPDATE_TIME(true),
   CLUSTER_CHANGE_QUEUE_TIME(true),
   // metric tracking the freshness lag for consuming segments
-  FRESHNESS_LAG_MS(false);
+  FRESHNESS_LAG_MS(false),
+  // Time spent by the queries waiting to be admitted
+  ADMISSION_WAIT_TIME(false);
 
   private final String timerName;
   private final boolean global;
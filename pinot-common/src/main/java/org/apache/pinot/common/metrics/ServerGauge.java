@@ -45,7 +45,12 @@ public enum ServerGauge implements AbstractMetrics.Gauge {
   REALTIME_OFFHEAP_MEMORY_USED("bytes", false),
   RUNNING_QUERIES("runningQueries", false),
   REALTIME_SEGMENT_NUM_PARTITIONS("realtimeSegmentNumPartitions", false),
-  LLC_SIMULTANEOUS_SEGMENT_BUILDS("llcSimultaneousSegmentBuilds", true);
+  LLC_SIMULTANEOUS_SEGMENT_BUILDS("llcSimultaneousSegmentBuilds", true),
+  // Number of LLC partitions indexing / waiting for an indexing thread, and how long the latest batch waited for one,
+  // when consumption is bounded
+  LLC_ACTIVE_CONSUMERS("consumers", true),
+  LLC_WAITING_CONSUMERS("consumers", true),
+  LLC_PARTITION_CONSUMER_WAIT_TIME_MS("milliseconds", true);
 
   private final String gaugeName;
   private final String unit;
@@ -33,7 +33,9 @@ public enum ServerQueryPhase implements AbstractMetrics.QueryPhase {
   QUERY_PLAN_EXECUTION,
   RESPONSE_SERIALIZATION,
   QUERY_PROCESSING,
-  SCHEDULER_WAIT;
+  SCHEDULER_WAIT,
+  // CPU time used by all the threads processing the query (not a wall clock phase)
+  QUERY_CPU_TIME;
 
   // NOTE: update query.context.TimerContext toString() method if you
   // time more phases of query execution
@@ -30,7 +30,9 @@ public enum ServerTimer implements AbstractMetrics.Timer {
   @Deprecated
   CURRENT_MSG_EVENT_TIMESTAMP_LAG("currentMsgEventTimestampLag", false),
   // metric tracking the freshness lag for consuming segments
-  FRESHNESS_LAG_MS("freshnessLagMs", false);
+  FRESHNESS_LAG_MS("freshnessLagMs", false),
+  // time the consuming thread is stalled building the star-trees on the sealed documents of a consuming segment
+  REALTIME_STAR_TREE_BUILD_TIME_MS("milliseconds", false);
 
   private final String timerName;
   private final boolean global;
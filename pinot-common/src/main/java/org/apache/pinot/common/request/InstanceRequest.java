@@ -39,6 +39,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   private static final org.apache.thrift.protocol.TField SEARCH_SEGMENTS_FIELD_DESC = new org.apache.thrift.protocol.TField("searchSegments", org.apache.thrift.protocol.TType.LIST, (short)3);
   private static final org.apache.thrift.protocol.TField ENABLE_TRACE_FIELD_DESC = new org.apache.thrift.protocol.TField("enableTrace", org.apache.thrift.protocol.TType.BOOL, (short)4);
   private static final org.apache.thrift.protocol.TField BROKER_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("brokerId", org.apache.thrift.protocol.TType.STRING, (short)5);
+  private static final org.apache.thrift.protocol.TField CANCEL_FIELD_DESC = new org.apache.thrift.protocol.TField("cancel", org.apache.thrift.protocol.TType.BOOL, (short)6);
+  private static final org.apache.thrift.protocol.TField TEMPLATE_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("templateId", org.apache.thrift.protocol.TType.I64, (short)7);
+  private static final org.apache.thrift.protocol.TField TEMPLATE_FILTER_VALUES_FIELD_DESC = new org.apache.thrift.protocol.TField("templateFilterValues", org.apache.thrift.protocol.TType.LIST, (short)8);
 
   private static final org.apache.thrift.scheme.SchemeFactory STANDARD_SCHEME_FACTORY = new InstanceRequestStandardSchemeFactory();
   private static final org.apache.thrift.scheme.SchemeFactory TUPLE_SCHEME_FACTORY = new InstanceRequestTupleSchemeFactory();
@@ -48,6 +51,9 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   public @org.apache.thrift.annotation.Nullable java.util.List<java.lang.String> searchSegments; // optional
   public boolean enableTrace; // optional
   public @org.apache.thrift.annotation.Nullable java.lang.String brokerId; // optional
+  public boolean cancel; // optional
+  public long templateId; // optional
+  public @org.apache.thrift.annotation.Nullable java.util.List<java.util.List<java.lang.String>> templateFilterValues; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -55,7 +61,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     QUERY((short)2, "query"),
     SEARCH_SEGMENTS((short)3, "searchSegments"),
     ENABLE_TRACE((short)4, "enableTrace"),
-    BROKER_ID((short)5, "brokerId");
+    BROKER_ID((short)5, "brokerId"),
+    CANCEL((short)6, "cancel"),
+    TEMPLATE_ID((short)7, "templateId"),
+    TEMPLATE_FILTER_VALUES((short)8, "templateFilterValues");
 
     private static final java.util.Map<java.lang.String, _Fields> byName = new java.util.HashMap<java.lang.String, _Fields>();
 
@@ -81,6 +90,12 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           return ENABLE_TRACE;
         case 5: // BROKER_ID
           return BROKER_ID;
+        case 6: // CANCEL
+          return CANCEL;
+        case 7: // TEMPLATE_ID
+          return TEMPLATE_ID;
+        case 8: // TEMPLATE_FILTER_VALUES
+          return TEMPLATE_FILTER_VALUES;
         default:
           return null;
       }
@@ -124,8 +139,10 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
   // isset id assignments
   private static final int __REQUESTID_ISSET_ID = 0;
   private static final int __ENABLETRACE_ISSET_ID = 1;
+  private static final int __CANCEL_ISSET_ID = 2;
+  private static final int __TEMPLATEID_ISSET_ID = 3;
   private byte __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE,_Fields.BROKER_ID};
+  private static final _Fields optionals[] = {_Fields.SEARCH_SEGMENTS,_Fields.ENABLE_TRACE,_Fields.BROKER_ID,_Fields.CANCEL,_Fields.TEMPLATE_ID,_Fields.TEMPLATE_FILTER_VALUES};
   public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -140,6 +157,14 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
     tmpMap.put(_Fields.BROKER_ID, new org.apache.thrift.meta_data.FieldMetaData("brokerId", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.CANCEL, new org.apache.thrift.meta_data.FieldMetaData("cancel", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
+    tmpMap.put(_Fields.TEMPLATE_ID, new org.apache.thrift.meta_data.FieldMetaData("templateId", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.TEMPLATE_FILTER_VALUES, new org.apache.thrift.meta_data.FieldMetaData("templateFilterValues", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+                new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)))));
     metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(InstanceRequest.class, metaDataMap);
   }
@@ -174,6 +199,16 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (other.isSetBrokerId()) {
       this.brokerId = other.brokerId;
     }
+    this.cancel = other.cancel;
+    this.templateId = other.templateId;
+    if (other.isSetTemplateFilterValues()) {
+      java.util.List<java.util.List<java.lang.String>> __this__templateFilterValues = new java.util.ArrayList<java.util.List<java.lang.String>>(other.templateFilterValues.size());
+      for (java.util.List<java.lang.String> other_element : other.templateFilterValues) {
+        java.util.List<java.lang.String> __this__templateFilterValues_copy = new java.util.ArrayList<java.lang.String>(other_element);
+        __this__templateFilterValues.add(__this__templateFilterValues_copy);
+      }
+      this.templateFilterValues = __this__templateFilterValues;
+    }
   }
 
   public InstanceRequest deepCopy() {
@@ -189,6 +224,11 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     setEnableTraceIsSet(false);
     this.enableTrace = false;
     this.brokerId = null;
+    setCancelIsSet(false);
+    this.cancel = false;
+    setTemplateIdIsSet(false);
+    this.templateId = 0;
+    this.templateFilterValues = null;
   }
 
   public long getRequestId() {
@@ -328,6 +368,93 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     }
   }
 
+  public boolean isCancel() {
+    return this.cancel;
+  }
+
+  public InstanceRequest setCancel(boolean cancel) {
+    this.cancel = cancel;
+    setCancelIsSet(true);
+    return this;
+  }
+
+  public void unsetCancel() {
+    __isset_bitfield = org.apache.thrift.EncodingUtils.clearBit(__isset_bitfield, __CANCEL_ISSET_ID);
+  }
+
+  /** Returns true if field cancel is set (has been assigned a value) and false otherwise */
+  public boolean isSetCancel() {
+    return org.apache.thrift.EncodingUtils.testBit(__isset_bitfield, __CANCEL_ISSET_ID);
+  }
+
+  public void setCancelIsSet(boolean value) {
+    __isset_bitfield = org.apache.thrift.EncodingUtils.setBit(__isset_bitfield, __CANCEL_ISSET_ID, value);
+  }
+
+  public long getTemplateId() {
+    return this.templateId;
+  }
+
+  public InstanceRequest setTemplateId(long templateId) {
+    this.templateId = templateId;
+    setTemplateIdIsSet(true);
+    return this;
+  }
+
+  public void unsetTemplateId() {
+    __isset_bitfield = org.apache.thrift.EncodingUtils.clearBit(__isset_bitfield, __TEMPLATEID_ISSET_ID);
+  }
+
+  /** Returns true if field templateId is set (has been assigned a value) and false otherwise */
+  public boolean isSetTemplateId() {
+    return org.apache.thrift.EncodingUtils.testBit(__isset_bitfield, __TEMPLATEID_ISSET_ID);
+  }
+
+  public void setTemplateIdIsSet(boolean value) {
+    __isset_bitfield = org.apache.thrift.EncodingUtils.setBit(__isset_bitfield, __TEMPLATEID_ISSET_ID, value);
+  }
+
+  public int getTemplateFilterValuesSize() {
+    return (this.templateFilterValues == null) ? 0 : this.templateFilterValues.size();
+  }
+
+  @org.apache.thrift.annotation.Nullable
+  public java.util.Iterator<java.util.List<java.lang.String>> getTemplateFilterValuesIterator() {
+    return (this.templateFilterValues == null) ? null : this.templateFilterValues.iterator();
+  }
+
+  public void addToTemplateFilterValues(java.util.List<java.lang.String> elem) {
+    if (this.templateFilterValues == null) {
+      this.templateFilterValues = new java.util.ArrayList<java.util.List<java.lang.String>>();
+    }
+    this.templateFilterValues.add(elem);
+  }
+
+  @org.apache.thrift.annotation.Nullable
+  public java.util.List<java.util.List<java.lang.String>> getTemplateFilterValues() {
+    return this.templateFilterValues;
+  }
+
+  public InstanceRequest setTemplateFilterValues(@org.apache.thrift.annotation.Nullable java.util.List<java.util.List<java.lang.String>> templateFilterValues) {
+    this.templateFilterValues = templateFilterValues;
+    return this;
+  }
+
+  public void unsetTemplateFilterValues() {
+    this.templateFilterValues = null;
+  }
+
+  /** Returns true if field templateFilterValues is set (has been assigned a value) and false otherwise */
+  public boolean isSetTemplateFilterValues() {
+    return this.templateFilterValues != null;
+  }
+
+  public void setTemplateFilterValuesIsSet(boolean value) {
+    if (!value) {
+      this.templateFilterValues = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, @org.apache.thrift.annotation.Nullable java.lang.Object value) {
     switch (field) {
     case REQUEST_ID:
@@ -370,6 +497,30 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       }
       break;
 
+    case CANCEL:
+      if (value == null) {
+        unsetCancel();
+      } else {
+        setCancel((java.lang.Boolean)value);
+      }
+      break;
+
+    case TEMPLATE_ID:
+      if (value == null) {
+        unsetTemplateId();
+      } else {
+        setTemplateId((java.lang.Long)value);
+      }
+      break;
+
+    case TEMPLATE_FILTER_VALUES:
+      if (value == null) {
+        unsetTemplateFilterValues();
+      } else {
+        setTemplateFilterValues((java.util.List<java.util.List<java.lang.String>>)value);
+      }
+      break;
+
     }
   }
 
@@ -391,6 +542,15 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     case BROKER_ID:
       return getBrokerId();
 
+    case CANCEL:
+      return isCancel();
+
+    case TEMPLATE_ID:
+      return getTemplateId();
+
+    case TEMPLATE_FILTER_VALUES:
+      return getTemplateFilterValues();
+
     }
     throw new java.lang.IllegalStateException();
   }
@@ -412,6 +572,12 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       return isSetEnableTrace();
     case BROKER_ID:
       return isSetBrokerId();
+    case CANCEL:
+      return isSetCancel();
+    case TEMPLATE_ID:
+      return isSetTemplateId();
+    case TEMPLATE_FILTER_VALUES:
+      return isSetTemplateFilterValues();
     }
     throw new java.lang.IllegalStateException();
   }
@@ -476,6 +642,33 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return false;
     }
 
+    boolean this_present_cancel = true && this.isSetCancel();
+    boolean that_present_cancel = true && that.isSetCancel();
+    if (this_present_cancel || that_present_cancel) {
+      if (!(this_present_cancel && that_present_cancel))
+        return false;
+      if (this.cancel != that.cancel)
+        return false;
+    }
+
+    boolean this_present_templateId = true && this.isSetTemplateId();
+    boolean that_present_templateId = true && that.isSetTemplateId();
+    if (this_present_templateId || that_present_templateId) {
+      if (!(this_present_templateId && that_present_templateId))
+        return false;
+      if (this.templateId != that.templateId)
+        return false;
+    }
+
+    boolean this_present_templateFilterValues = true && this.isSetTemplateFilterValues();
+    boolean that_present_templateFilterValues = true && that.isSetTemplateFilterValues();
+    if (this_present_templateFilterValues || that_present_templateFilterValues) {
+      if (!(this_present_templateFilterValues && that_present_templateFilterValues))
+        return false;
+      if (!this.templateFilterValues.equals(that.templateFilterValues))
+        return false;
+    }
+
     return true;
   }
 
@@ -501,6 +694,18 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
     if (isSetBrokerId())
       hashCode = hashCode * 8191 + brokerId.hashCode();
 
+    hashCode = hashCode * 8191 + ((isSetCancel()) ? 131071 : 524287);
+    if (isSetCancel())
+      hashCode = hashCode * 8191 + ((cancel) ? 131071 : 524287);
+
+    hashCode = hashCode * 8191 + ((isSetTemplateId()) ? 131071 : 524287);
+    if (isSetTemplateId())
+      hashCode = hashCode * 8191 + org.apache.thrift.TBaseHelper.hashCode(templateId);
+
+    hashCode = hashCode * 8191 + ((isSetTemplateFilterValues()) ? 131071 : 524287);
+    if (isSetTemplateFilterValues())
+      hashCode = hashCode * 8191 + templateFilterValues.hashCode();
+
     return hashCode;
   }
 
@@ -562,6 +767,36 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         return lastComparison;
       }
     }
+    lastComparison = java.lang.Boolean.valueOf(isSetCancel()).compareTo(other.isSetCancel());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetCancel()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.cancel, other.cancel);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = java.lang.Boolean.valueOf(isSetTemplateId()).compareTo(other.isSetTemplateId());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetTemplateId()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.templateId, other.templateId);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = java.lang.Boolean.valueOf(isSetTemplateFilterValues()).compareTo(other.isSetTemplateFilterValues());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetTemplateFilterValues()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.templateFilterValues, other.templateFilterValues);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -620,6 +855,28 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       }
       first = false;
     }
+    if (isSetCancel()) {
+      if (!first) sb.append(", ");
+      sb.append("cancel:");
+      sb.append(this.cancel);
+      first = false;
+    }
+    if (isSetTemplateId()) {
+      if (!first) sb.append(", ");
+      sb.append("templateId:");
+      sb.append(this.templateId);
+      first = false;
+    }
+    if (isSetTemplateFilterValues()) {
+      if (!first) sb.append(", ");
+      sb.append("templateFilterValues:");
+      if (this.templateFilterValues == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.templateFilterValues);
+      }
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -723,6 +980,50 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 6: // CANCEL
+            if (schemeField.type == org.apache.thrift.protocol.TType.BOOL) {
+              struct.cancel = iprot.readBool();
+              struct.setCancelIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 7: // TEMPLATE_ID
+            if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+              struct.templateId = iprot.readI64();
+              struct.setTemplateIdIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 8: // TEMPLATE_FILTER_VALUES
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list138 = iprot.readListBegin();
+                struct.templateFilterValues = new java.util.ArrayList<java.util.List<java.lang.String>>(_list138.size);
+                @org.apache.thrift.annotation.Nullable java.util.List<java.lang.String> _elem139;
+                for (int _i140 = 0; _i140 < _list138.size; ++_i140)
+                {
+                  {
+                    org.apache.thrift.protocol.TList _list141 = iprot.readListBegin();
+                    _elem139 = new java.util.ArrayList<java.lang.String>(_list141.size);
+                    @org.apache.thrift.annotation.Nullable java.lang.String _elem142;
+                    for (int _i143 = 0; _i143 < _list141.size; ++_i143)
+                    {
+                      _elem142 = iprot.readString();
+                      _elem139.add(_elem142);
+                    }
+                    iprot.readListEnd();
+                  }
+                  struct.templateFilterValues.add(_elem139);
+                }
+                iprot.readListEnd();
+              }
+              struct.setTemplateFilterValuesIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -775,6 +1076,37 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
           oprot.writeFieldEnd();
         }
       }
+      if (struct.isSetCancel()) {
+        oprot.writeFieldBegin(CANCEL_FIELD_DESC);
+        oprot.writeBool(struct.cancel);
+        oprot.writeFieldEnd();
+      }
+      if (struct.isSetTemplateId()) {
+        oprot.writeFieldBegin(TEMPLATE_ID_FIELD_DESC);
+        oprot.writeI64(struct.templateId);
+        oprot.writeFieldEnd();
+      }
+      if (struct.templateFilterValues != null) {
+        if (struct.isSetTemplateFilterValues()) {
+          oprot.writeFieldBegin(TEMPLATE_FILTER_VALUES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.LIST, struct.templateFilterValues.size()));
+            for (java.util.List<java.lang.String> _iter144 : struct.templateFilterValues)
+            {
+              {
+                oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, _iter144.size()));
+                for (java.lang.String _iter145 : _iter144)
+                {
+                  oprot.writeString(_iter145);
+                }
+                oprot.writeListEnd();
+              }
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -804,7 +1136,16 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetBrokerId()) {
         optionals.set(2);
       }
-      oprot.writeBitSet(optionals, 3);
+      if (struct.isSetCancel()) {
+        optionals.set(3);
+      }
+      if (struct.isSetTemplateId()) {
+        optionals.set(4);
+      }
+      if (struct.isSetTemplateFilterValues()) {
+        optionals.set(5);
+      }
+      oprot.writeBitSet(optionals, 6);
       if (struct.isSetSearchSegments()) {
         {
           oprot.writeI32(struct.searchSegments.size());
@@ -820,6 +1161,27 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       if (struct.isSetBrokerId()) {
         oprot.writeString(struct.brokerId);
       }
+      if (struct.isSetCancel()) {
+        oprot.writeBool(struct.cancel);
+      }
+      if (struct.isSetTemplateId()) {
+        oprot.writeI64(struct.templateId);
+      }
+      if (struct.isSetTemplateFilterValues()) {
+        {
+          oprot.writeI32(struct.templateFilterValues.size());
+          for (java.util.List<java.lang.String> _iter146 : struct.templateFilterValues)
+          {
+            {
+              oprot.writeI32(_iter146.size());
+              for (java.lang.String _iter147 : _iter146)
+              {
+                oprot.writeString(_iter147);
+              }
+            }
+          }
+        }
+      }
     }
 
     @Override
@@ -830,7 +1192,7 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
       struct.query = new BrokerRequest();
       struct.query.read(iprot);
       struct.setQueryIsSet(true);
-      java.util.BitSet incoming = iprot.readBitSet(3);
+      java.util.BitSet incoming = iprot.readBitSet(6);
       if (incoming.get(0)) {
         {
           org.apache.thrift.protocol.TList _list135 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
@@ -852,6 +1214,36 @@ public class InstanceRequest implements org.apache.thrift.TBase<InstanceRequest,
         struct.brokerId = iprot.readString();
         struct.setBrokerIdIsSet(true);
       }
+      if (incoming.get(3)) {
+        struct.cancel = iprot.readBool();
+        struct.setCancelIsSet(true);
+      }
+      if (incoming.get(4)) {
+        struct.templateId = iprot.readI64();
+        struct.setTemplateIdIsSet(true);
+      }
+      if (incoming.get(5)) {
+        {
+          org.apache.thrift.protocol.TList _list148 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.LIST, iprot.readI32());
+          struct.templateFilterValues = new java.util.ArrayList<java.util.List<java.lang.String>>(_list148.size);
+          @org.apache.thrift.annotation.Nullable java.util.List<java.lang.String> _elem149;
+          for (int _i150 = 0; _i150 < _list148.size; ++_i150)
+          {
+            {
+              org.apache.thrift.protocol.TList _list151 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+              _elem149 = new java.util.ArrayList<java.lang.String>(_list151.size);
+              @org.apache.thrift.annotation.Nullable java.lang.String _elem152;
+              for (int _i153 = 0; _i153 < _list151.size; ++_i153)
+              {
+                _elem152 = iprot.readString();
+                _elem149.add(_elem152);
+              }
+            }
+            struct.templateFilterValues.add(_elem149);
+          }
+        }
+        struct.setTemplateFilterValuesIsSet(true);
+      }
     }
   }
 
@@ -141,6 +141,52 @@ public class CommonConstants {
     public static final String SINGLE_CONNECTION_REQUEST_HANDLER_TYPE = "singleConnection";
     public static final String CONNECTION_POOL_REQUEST_HANDLER_TYPE = "connectionPool";
     public static final String DEFAULT_REQUEST_HANDLER_TYPE = SINGLE_CONNECTION_REQUEST_HANDLER_TYPE;
+    // Route each segment to the best replica based on the latency, in-flight requests and errors of the servers (only
+    // supported by the single connection request handler)
+    public static final String CONFIG_OF_ENABLE_ADAPTIVE_SERVER_SELECTION =
+        "pinot.broker.adaptiveServerSelection.enabled";
+    public static final boolean DEFAULT_ENABLE_ADAPTIVE_SERVER_SELECTION = false;
+    // Send the request again to another replica when a server has not responded after its 95th percentile latency (only
+    // supported by the single connection request handler)
+    public static final String CONFIG_OF_ENABLE_HEDGED_REQUESTS = "pinot.broker.hedgedRequests.enabled";
+    public static final boolean DEFAULT_ENABLE_HEDGED_REQUESTS = false;
+    // Max ratio of hedged requests over the requests sent for each table
+    public static final String CONFIG_OF_HEDGE_BUDGET_RATIO = "pinot.broker.hedgedRequests.budgetRatio";
+    public static final double DEFAULT_HEDGE_BUDGET_RATIO = 0.05;
+    public static final String CONFIG_OF_MIN_HEDGE_DELAY_MS = "pinot.broker.hedgedRequests.minDelayMs";
+    public static final long DEFAULT_MIN_HEDGE_DELAY_MS = 10L;
+    // Whether to cancel the query on the servers that have not responded when the query is done on the broker side
+    // (e.g. timed out, or hedged request lost). Should only be enabled when all the servers support query cancellation
+    public static final String CONFIG_OF_ENABLE_QUERY_CANCELLATION = "pinot.broker.queryCancellation.enabled";
+    public static final boolean DEFAULT_ENABLE_QUERY_CANCELLATION = false;
+    // Whether to send the queries as request templates registered once per server connection. Should only be enabled
+    // when all the servers support request templates
+    public static final String CONFIG_OF_ENABLE_REQUEST_TEMPLATES = "pinot.broker.requestTemplates.enabled";
+    public static final boolean DEFAULT_ENABLE_REQUEST_TEMPLATES = false;
+    // Admission control on the total cost of the queries in flight (globally and per table). A query costs 1 unit, plus
+    // 1 unit per configured number of segments routed, and is doubled for group-by. Queries over the limits wait in a
+    // bounded queue, and are rejected when the queue is full or the max wait time is reached. Disabled when both
+    // limits are non-positive
+    public static final String CONFIG_OF_ADMISSION_MAX_IN_FLIGHT_COST = "pinot.broker.admission.maxInFlightCost";
+    public static final int DEFAULT_ADMISSION_MAX_IN_FLIGHT_COST = 0;
+    public static final String CONFIG_OF_ADMISSION_MAX_IN_FLIGHT_COST_PER_TABLE =
+        "pinot.broker.admission.maxInFlightCostPerTable";
+    public static final int DEFAULT_ADMISSION_MAX_IN_FLIGHT_COST_PER_TABLE = 0;
+    public static final String CONFIG_OF_ADMISSION_MAX_QUEUE_SIZE = "pinot.broker.admission.maxQueueSize";
+    public static final int DEFAULT_ADMISSION_MAX_QUEUE_SIZE = 100;
+    public static final String CONFIG_OF_ADMISSION_MAX_WAIT_MS = "pinot.broker.admission.maxWaitMs";
+    public static final long DEFAULT_ADMISSION_MAX_WAIT_MS = 1000L;
+    public static final String CONFIG_OF_ADMISSION_NUM_SEGMENTS_PER_COST_UNIT =
+        "pinot.broker.admission.numSegmentsPerCostUnit";
+    public static final int DEFAULT_ADMISSION_NUM_SEGMENTS_PER_COST_UNIT = 100;
+    // Max number of threads used to reduce the group-by results of one query. The actual parallelism is chosen from the
+    // number of rows in the server responses. Reduce is done on the request thread when set to 1
+    public static final String CONFIG_OF_BROKER_REDUCE_MAX_PARALLELISM = "pinot.broker.reduce.maxParallelism";
+    public static final int DEFAULT_BROKER_REDUCE_MAX_PARALLELISM = 1;
+    // Number of threads shared by all the queries to reduce the group-by results in parallel. Only used when the max
+    // reduce parallelism is greater than 1
+    public static final String CONFIG_OF_BROKER_REDUCE_NUM_THREADS = "pinot.broker.reduce.numThreads";
+    public static final int DEFAULT_BROKER_REDUCE_NUM_THREADS = Runtime.getRuntime().availableProcessors();
 
     public static final String CONFIG_OF_BROKER_QUERY_RESPONSE_LIMIT = "pinot.broker.query.response.limit";
     public static final int DEFAULT_BROKER_QUERY_RESPONSE_LIMIT = Integer.MAX_VALUE;
@@ -177,6 +223,7 @@ public class CommonConstants {
         public static final String PRESERVE_TYPE = "preserveType";
         public static final String RESPONSE_FORMAT = "responseFormat";
         public static final String GROUP_BY_MODE = "groupByMode";
+        public static final String PERCENTILE_MAX_EXACT_VALUES = "percentileMaxExactValues";
       }
     }
   }
@@ -362,6 +409,7 @@ public class CommonConstants {
     public static final String FLUSH_THRESHOLD_SIZE = "segment.flush.threshold.size";
     public static final String FLUSH_THRESHOLD_TIME = "segment.flush.threshold.time";
     public static final String PARTITION_METADATA = "segment.partition.metadata";
+    public static final String COLUMN_STATS_METADATA = "segment.column.stats.metadata";
     /**
      * This field is used for parallel push protection to lock the segment globally.
      * We put the segment upload start timestamp so that if the previous push failed without unlock the segment, the
@@ -39,6 +39,8 @@ public interface DataTable {
   String TOTAL_DOCS_METADATA_KEY = "totalDocs";
   String NUM_GROUPS_LIMIT_REACHED_KEY = "numGroupsLimitReached";
   String TIME_USED_MS_METADATA_KEY = "timeUsedMs";
+  String THREAD_CPU_TIME_NS_METADATA_KEY = "threadCpuTimeNs";
+  String THREAD_ALLOCATED_BYTES_METADATA_KEY = "threadAllocatedBytes";
   String TRACE_INFO_METADATA_KEY = "traceInfo";
   String REQUEST_ID_METADATA_KEY = "requestId";
 
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.utils.request;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.FilterQuery;
+import org.apache.pinot.common.request.FilterQueryMap;
+
+
+/**
+ * The {@code BrokerRequestTemplate} class splits a {@link BrokerRequest} into a template (the request with the filter
+ * values stripped) and the filter values, so that near-identical queries (e.g. the same dashboard query over different
+ * time ranges) share the same template.
+ * <p>The broker registers each template once per server connection, then only sends the template id along with the
+ * filter values. Both sides keep an LRU of {@link #MAX_NUM_TEMPLATES_PER_CONNECTION} templates per connection, updated
+ * in the order the requests are sent on the connection, so that they always evict the same templates.
+ * <p>The filter values are ordered with the root filter first, then the other sub-filters ordered by id (the root
+ * filter is also in the sub-filter map, but its values are only sent once). In the template,
+ * filters with values have their values replaced with an empty list, filters without values are left untouched.
+ */
+public class BrokerRequestTemplate {
+  public static final int MAX_NUM_TEMPLATES_PER_CONNECTION = 1000;
+
+  private final BrokerRequest _template;
+  private final List<List<String>> _filterValues;
+
+  private BrokerRequestTemplate(BrokerRequest template, List<List<String>> filterValues) {
+    _template = template;
+    _filterValues = filterValues;
+  }
+
+  public static BrokerRequestTemplate fromBrokerRequest(BrokerRequest brokerRequest) {
+    BrokerRequest template = brokerRequest.deepCopy();
+    List<List<String>> filterValues = new ArrayList<>();
+    for (FilterQuery filterQuery : getFilterQueries(template)) {
+      List<String> values = filterQuery.getValue();
+      if (values != null) {
+        filterValues.add(values);
+        filterQuery.setValue(Collections.emptyList());
+      }
+    }
+    return new BrokerRequestTemplate(template, filterValues);
+  }
+
+  /**
+   * Rebuilds the broker request from the template and the filter values.
+   */
+  public static BrokerRequest toBrokerRequest(BrokerRequest template, List<List<String>> filterValues) {
+    BrokerRequest brokerRequest = template.deepCopy();
+    Iterator<List<String>> valuesIterator = filterValues.iterator();
+    for (FilterQuery filterQuery : getFilterQueries(brokerRequest)) {
+      if (filterQuery.getValue() != null) {
+        Preconditions.checkState(valuesIterator.hasNext(), "Missing filter values for the request template");
+        filterQuery.setValue(new ArrayList<>(valuesIterator.next()));
+      }
+    }
+    Preconditions.checkState(!valuesIterator.hasNext(), "Too many filter values for the request template");
+    return brokerRequest;
+  }
+
+  /**
+   * Returns the template, which can be used as the key to look up the template id.
+   */
+  public BrokerRequest getTemplate() {
+    return _template;
+  }
+
+  public List<List<String>> getFilterValues() {
+    return _filterValues;
+  }
+
+  /**
+   * Returns the filters in the order of the filter values.
+   * <p>NOTE: only called on copies of the broker request, because the root filter in the sub-filter map gets replaced.
+   */
+  private static List<FilterQuery> getFilterQueries(BrokerRequest brokerRequest) {
+    List<FilterQuery> filterQueries = new ArrayList<>();
+    FilterQuery rootFilterQuery = brokerRequest.getFilterQuery();
+    if (rootFilterQuery != null) {
+      filterQueries.add(rootFilterQuery);
+    }
+    FilterQueryMap filterSubQueryMap = brokerRequest.getFilterSubQueryMap();
+    if (filterSubQueryMap != null) {
+      Map<Integer, FilterQuery> filterQueryMap = filterSubQueryMap.getFilterQueryMap();
+      if (filterQueryMap != null) {
+        for (FilterQuery filterQuery : new TreeMap<>(filterQueryMap).values()) {
+          if (rootFilterQuery != null && filterQuery.getId() == rootFilterQuery.getId()) {
+            // Share the root filter object so that the values of both are updated together
+            filterQueryMap.put(rootFilterQuery.getId(), rootFilterQuery);
+          } else {
+            filterQueries.add(filterQuery);
+          }
+        }
+      }
+    }
+    return filterQueries;
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.utils.request;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+/**
+ * Tests for {@link BrokerRequestTemplate} class.
+ */
+public class BrokerRequestTemplateTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+
+  @Test
+  public void testRoundTrip() {
+    String[] queries = new String[]{
+        "SELECT COUNT(*) FROM myTable",
+        "SELECT * FROM myTable WHERE foo = 'bar' LIMIT 5",
+        "SELECT SUM(a) FROM myTable WHERE foo IN ('x', 'y', 'z') AND t BETWEEN 10 AND 20 GROUP BY b TOP 10",
+        "SELECT MAX(a) FROM myTable WHERE (foo = 'x' OR bar <> 'y') AND t > 100",
+        "SELECT a, b FROM myTable WHERE REGEXP_LIKE(foo, 'b.*r') AND bar NOT IN ('u', 'v')"
+    };
+    for (String query : queries) {
+      BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+      BrokerRequestTemplate requestTemplate = BrokerRequestTemplate.fromBrokerRequest(brokerRequest);
+      BrokerRequest template = requestTemplate.getTemplate();
+      assertEquals(BrokerRequestTemplate.toBrokerRequest(template, requestTemplate.getFilterValues()), brokerRequest,
+          query);
+
+      // Neither the broker request nor the template should be modified
+      assertEquals(brokerRequest, COMPILER.compileToBrokerRequest(query), query);
+      assertEquals(BrokerRequestTemplate.fromBrokerRequest(brokerRequest).getTemplate(), template, query);
+      if (brokerRequest.isSetFilterQuery()) {
+        assertNotEquals(template, brokerRequest, query);
+      } else {
+        assertEquals(template, brokerRequest, query);
+        assertTrue(requestTemplate.getFilterValues().isEmpty(), query);
+      }
+    }
+  }
+
+  @Test
+  public void testSameShapeSharesTemplate() {
+    BrokerRequestTemplate requestTemplate1 = BrokerRequestTemplate.fromBrokerRequest(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo = 'a' AND t BETWEEN 1 AND 2"));
+    BrokerRequestTemplate requestTemplate2 = BrokerRequestTemplate.fromBrokerRequest(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo = 'b' AND t BETWEEN 3 AND 4"));
+    assertEquals(requestTemplate1.getTemplate(), requestTemplate2.getTemplate());
+    assertEquals(requestTemplate1.getTemplate().hashCode(), requestTemplate2.getTemplate().hashCode());
+    assertNotEquals(requestTemplate1.getFilterValues(), requestTemplate2.getFilterValues());
+
+    // Values of one query applied to the template of the other query
+    assertEquals(
+        BrokerRequestTemplate.toBrokerRequest(requestTemplate1.getTemplate(), requestTemplate2.getFilterValues()),
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo = 'b' AND t BETWEEN 3 AND 4"));
+
+    // Different filter columns or operators should not share the template
+    BrokerRequestTemplate requestTemplate3 = BrokerRequestTemplate.fromBrokerRequest(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE bar = 'a' AND t BETWEEN 1 AND 2"));
+    assertNotEquals(requestTemplate3.getTemplate(), requestTemplate1.getTemplate());
+    BrokerRequestTemplate requestTemplate4 = BrokerRequestTemplate.fromBrokerRequest(
+        COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo <> 'a' AND t BETWEEN 1 AND 2"));
+    assertNotEquals(requestTemplate4.getTemplate(), requestTemplate1.getTemplate());
+  }
+
+  @Test
+  public void testRootFilterValuesSentOnce() {
+    // The root filter is also in the sub-filter map
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT * FROM myTable WHERE foo = 'a'");
+    BrokerRequestTemplate requestTemplate = BrokerRequestTemplate.fromBrokerRequest(brokerRequest);
+    assertEquals(requestTemplate.getFilterValues(), Collections.singletonList(Collections.singletonList("a")));
+    BrokerRequest template = requestTemplate.getTemplate();
+    assertTrue(template.getFilterQuery().getValue().isEmpty());
+    assertTrue(template.getFilterSubQueryMap().getFilterQueryMap().get(template.getFilterQuery().getId()).getValue()
+        .isEmpty());
+    assertEquals(BrokerRequestTemplate.toBrokerRequest(template, requestTemplate.getFilterValues()), brokerRequest);
+  }
+
+  @Test
+  public void testMismatchedFilterValues() {
+    BrokerRequestTemplate requestTemplate = BrokerRequestTemplate
+        .fromBrokerRequest(COMPILER.compileToBrokerRequest("SELECT * FROM myTable WHERE foo = 'a' AND bar = 'b'"));
+    BrokerRequest template = requestTemplate.getTemplate();
+    List<List<String>> filterValues = requestTemplate.getFilterValues();
+    assertEquals(filterValues.size(), 2);
+
+    try {
+      BrokerRequestTemplate.toBrokerRequest(template, filterValues.subList(0, 1));
+      fail();
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    try {
+      BrokerRequestTemplate.toBrokerRequest(template,
+          Arrays.asList(filterValues.get(0), filterValues.get(1), Collections.singletonList("c")));
+      fail();
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testNoFilter() {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT * FROM myTable");
+    BrokerRequestTemplate requestTemplate = BrokerRequestTemplate.fromBrokerRequest(brokerRequest);
+    assertNull(requestTemplate.getTemplate().getFilterQuery());
+    assertEquals(BrokerRequestTemplate.toBrokerRequest(requestTemplate.getTemplate(), Collections.emptyList()),
+        brokerRequest);
+  }
+}
@@ -168,4 +168,11 @@ struct InstanceRequest {
   3: optional list<string> searchSegments;
   4: optional bool enableTrace;
   5: optional string brokerId;
+  // Cancels the query with the same request id and table previously sent by the same broker
+  6: optional bool cancel;
+  // Id of the request template (registered on the connection) to build the query from. The template is registered
+  // when the query is set, otherwise the query is an empty placeholder
+  7: optional i64 templateId;
+  // Filter values to fill into the request template, root filter first then the sub-filters ordered by id
+  8: optional list<list<string>> templateFilterValues;
 }
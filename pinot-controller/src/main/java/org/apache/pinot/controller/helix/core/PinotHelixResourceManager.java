@@ -1498,8 +1498,10 @@ public class PinotHelixResourceManager {
 
     // NOTE: must first set the segment ZK metadata before assigning segment to instances because segment assignment
     // might need them to determine the partition of the segment, and server will need them to download the segment
+    TableConfig offlineTableConfig = getTableConfig(offlineTableName);
     OfflineSegmentZKMetadata offlineSegmentZKMetadata = new OfflineSegmentZKMetadata();
-    ZKMetadataUtils.updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata);
+    ZKMetadataUtils
+        .updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata, getBrokerPruningColumns(offlineTableConfig));
     offlineSegmentZKMetadata.setDownloadUrl(downloadUrl);
     offlineSegmentZKMetadata.setCrypterName(crypter);
     offlineSegmentZKMetadata.setPushTime(System.currentTimeMillis());
@@ -1512,7 +1514,6 @@ public class PinotHelixResourceManager {
 
     // Assign instances for the segment and add it into IdealState
     try {
-      TableConfig offlineTableConfig = getTableConfig(offlineTableName);
       Preconditions
           .checkState(offlineTableConfig != null, "Failed to find table config for table: " + offlineTableName);
       SegmentAssignment segmentAssignment =
@@ -1573,7 +1574,15 @@ public class PinotHelixResourceManager {
     // NOTE: must first set the segment ZK metadata before trying to refresh because server will pick up the
     // latest segment ZK metadata and compare with local segment metadata to decide whether to download the new
     // segment or load from local
-    ZKMetadataUtils.updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata);
+    final String rawTableName = TableNameBuilder.extractRawTableName(offlineTableName);
+    TableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, rawTableName);
+    Preconditions.checkNotNull(tableConfig);
+    List<String> brokerPruningColumns = getBrokerPruningColumns(tableConfig);
+    long previousStartTime = offlineSegmentZKMetadata.getStartTime();
+    long previousEndTime = offlineSegmentZKMetadata.getEndTime();
+    ZKMetadataUtils.updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata, brokerPruningColumns);
+    boolean timeIntervalChanged = offlineSegmentZKMetadata.getStartTime() != previousStartTime
+        || offlineSegmentZKMetadata.getEndTime() != previousEndTime;
     offlineSegmentZKMetadata.setRefreshTime(System.currentTimeMillis());
     offlineSegmentZKMetadata.setDownloadUrl(downloadUrl);
     offlineSegmentZKMetadata.setCrypterName(crypter);
@@ -1582,17 +1591,17 @@ public class PinotHelixResourceManager {
           "Failed to update ZK metadata for segment: " + segmentName + " of table: " + offlineTableName);
     }
     LOGGER.info("Updated segment: {} of table: {} to property store", segmentName, offlineTableName);
-    final String rawTableName = TableNameBuilder.extractRawTableName(offlineTableName);
-    TableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, rawTableName);
-    Preconditions.checkNotNull(tableConfig);
 
     if (shouldSendMessage(tableConfig)) {
       // Send a message to the servers to update the segment.
       // We return success even if we are not able to send messages (which can happen if no servers are alive).
       // For segment validation errors we would have returned earlier.
       sendSegmentRefreshMessage(offlineTableName, offlineSegmentZKMetadata);
-      // Send a message to the brokers to update the table's time boundary info if the segment push type is APPEND.
-      if (shouldSendTimeboundaryRefreshMsg(rawTableName, tableConfig)) {
+      // Send a message to the brokers to update the table's time boundary info if the segment push type is APPEND, the
+      // segment time interval used for pruning if it changed, or the column stats used for pruning if the broker
+      // pruning columns are configured.
+      if (shouldSendTimeboundaryRefreshMsg(rawTableName, tableConfig) || timeIntervalChanged
+          || brokerPruningColumns != null) {
         sendTimeboundaryRefreshMessageToBrokers(offlineTableName, offlineSegmentZKMetadata);
       }
     } else {
@@ -1700,6 +1709,17 @@ public class PinotHelixResourceManager {
     return true;
   }
 
+  // Return the columns whose min/max values are stored in the segment ZK metadata for broker side pruning, or null if
+  // the table does not configure any.
+  @Nullable
+  private static List<String> getBrokerPruningColumns(@Nullable TableConfig tableConfig) {
+    if (tableConfig == null) {
+      return null;
+    }
+    List<String> brokerPruningColumns = tableConfig.getIndexingConfig().getBrokerPruningColumns();
+    return brokerPruningColumns != null && !brokerPruningColumns.isEmpty() ? brokerPruningColumns : null;
+  }
+
   // Return true iff the table has both realtime and offline sub-tables AND the segment push type is APPEND (i.e.,
   // there is time column info the segments).
   private boolean shouldSendTimeboundaryRefreshMsg(String rawTableName, TableConfig tableConfig) {
@@ -19,9 +19,14 @@
 package org.apache.pinot.controller.helix.core.util;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.data.FieldSpec;
 import org.apache.pinot.common.metadata.segment.ColumnPartitionMetadata;
+import org.apache.pinot.common.metadata.segment.ColumnStatsMetadata;
 import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import org.apache.pinot.common.metadata.segment.SegmentColumnStatsMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import org.apache.pinot.common.segment.SegmentMetadata;
 import org.apache.pinot.common.utils.CommonConstants.Segment.SegmentType;
@@ -34,8 +39,21 @@ public class ZKMetadataUtils {
   private ZKMetadataUtils() {
   }
 
+  // Skip the long values (e.g. long strings) to keep the segment ZK metadata small
+  private static final int MAX_COLUMN_STATS_VALUE_LENGTH = 64;
+
   public static void updateSegmentMetadata(OfflineSegmentZKMetadata offlineSegmentZKMetadata,
       SegmentMetadata segmentMetadata) {
+    updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata, null);
+  }
+
+  /**
+   * Updates the segment ZK metadata from the segment metadata.
+   *
+   * @param brokerPruningColumns Columns to store the min/max values for, so that the broker can prune the segment
+   */
+  public static void updateSegmentMetadata(OfflineSegmentZKMetadata offlineSegmentZKMetadata,
+      SegmentMetadata segmentMetadata, @Nullable List<String> brokerPruningColumns) {
     offlineSegmentZKMetadata.setSegmentName(segmentMetadata.getName());
     offlineSegmentZKMetadata.setTableName(segmentMetadata.getTableName());
     offlineSegmentZKMetadata.setIndexVersion(segmentMetadata.getVersion());
@@ -70,5 +88,32 @@ public class ZKMetadataUtils {
     if (!columnPartitionMap.isEmpty()) {
       offlineSegmentZKMetadata.setPartitionMetadata(new SegmentPartitionMetadata(columnPartitionMap));
     }
+
+    // Extract column min/max values for the broker pruning columns (if any), and set it into segment ZK metadata.
+    // NOTE: always reset the column stats so that stale values are not kept when refreshing the segment
+    Map<String, ColumnStatsMetadata> columnStatsMap = new HashMap<>();
+    if (brokerPruningColumns != null && segmentMetadata instanceof SegmentMetadataImpl) {
+      SegmentMetadataImpl metadata = (SegmentMetadataImpl) segmentMetadata;
+      for (String column : brokerPruningColumns) {
+        ColumnMetadata columnMetadata = metadata.getColumnMetadataFor(column);
+        if (columnMetadata == null || columnMetadata.getDataType() == FieldSpec.DataType.BYTES) {
+          continue;
+        }
+        Comparable minValue = columnMetadata.getMinValue();
+        Comparable maxValue = columnMetadata.getMaxValue();
+        if (minValue == null || maxValue == null) {
+          continue;
+        }
+        String minValueString = minValue.toString();
+        String maxValueString = maxValue.toString();
+        if (minValueString.length() <= MAX_COLUMN_STATS_VALUE_LENGTH
+            && maxValueString.length() <= MAX_COLUMN_STATS_VALUE_LENGTH) {
+          columnStatsMap.put(column,
+              new ColumnStatsMetadata(columnMetadata.getDataType(), minValueString, maxValueString));
+        }
+      }
+    }
+    offlineSegmentZKMetadata
+        .setColumnStatsMetadata(columnStatsMap.isEmpty() ? null : new SegmentColumnStatsMetadata(columnStatsMap));
   }
 }
@@ -18,7 +18,9 @@
  */
 package org.apache.pinot.core.common;
 
+import javax.annotation.Nullable;
 import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
 public interface BlockValSet {
@@ -29,6 +31,13 @@ public interface BlockValSet {
 
   boolean isSingleValue();
 
+  /**
+   * Returns the dictionary for the dictionary Ids returned by this block value set, or <code>null</code> if the values
+   * are not dictionary-encoded.
+   */
+  @Nullable
+  Dictionary getDictionary();
+
   /**
    * DOCUMENT ID BASED APIs
    */
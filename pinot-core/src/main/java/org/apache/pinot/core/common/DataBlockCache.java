@@ -26,6 +26,7 @@ import javax.annotation.Nonnull;
 import org.apache.pinot.common.data.FieldSpec;
 import org.apache.pinot.common.utils.EqualityUtils;
 import org.apache.pinot.core.plan.DocIdSetPlanNode;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -70,6 +71,16 @@ public class DataBlockCache {
     _columnNumValuesLoaded.clear();
   }
 
+  /**
+   * Returns the dictionary for a column, or <code>null</code> if the column is not dictionary-encoded.
+   *
+   * @param column Column name
+   * @return Dictionary for the column
+   */
+  public Dictionary getDictionary(String column) {
+    return _dataFetcher.getDictionary(column);
+  }
+
   /**
    * SINGLE-VALUED COLUMN API
    */
@@ -77,6 +77,16 @@ public class DataFetcher {
     _reusableMVDictIds = new int[maxNumMultiValues];
   }
 
+  /**
+   * Returns the dictionary for a column, or <code>null</code> if the column is not dictionary-encoded.
+   *
+   * @param column Column name
+   * @return Dictionary for the column
+   */
+  public Dictionary getDictionary(String column) {
+    return _dictionaryMap.get(column);
+  }
+
   /**
    * SINGLE-VALUED COLUMN API
    */
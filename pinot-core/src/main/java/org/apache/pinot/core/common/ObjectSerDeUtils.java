@@ -22,6 +22,11 @@ import com.clearspring.analytics.stream.cardinality.HyperLogLog;
 import com.google.common.primitives.Longs;
 import com.tdunning.math.stats.MergingDigest;
 import com.tdunning.math.stats.TDigest;
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.kll.KllFloatsSketch;
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.theta.Sketch;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
@@ -38,6 +43,7 @@ import org.apache.pinot.core.query.aggregation.DistinctTable;
 import org.apache.pinot.core.query.aggregation.function.customobject.AvgPair;
 import org.apache.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
 import org.apache.pinot.core.query.aggregation.function.customobject.QuantileDigest;
+import org.apache.pinot.core.query.aggregation.function.customobject.SortedDistinctValues;
 
 
 /**
@@ -60,7 +66,12 @@ public class ObjectSerDeUtils {
     Map(8),
     IntSet(9),
     TDigest(10),
-    DistinctTable(11);
+    DistinctTable(11),
+    SortedDistinctValues(12),
+    ThetaSketchArray(13),
+    HllSketch(14),
+    KllFloatsSketch(15),
+    DoublesSketch(16);
 
     private int _value;
 
@@ -97,6 +108,16 @@ public class ObjectSerDeUtils {
         return ObjectType.TDigest;
       } else if (value instanceof DistinctTable) {
         return ObjectType.DistinctTable;
+      } else if (value instanceof SortedDistinctValues) {
+        return ObjectType.SortedDistinctValues;
+      } else if (value instanceof Sketch[]) {
+        return ObjectType.ThetaSketchArray;
+      } else if (value instanceof HllSketch) {
+        return ObjectType.HllSketch;
+      } else if (value instanceof KllFloatsSketch) {
+        return ObjectType.KllFloatsSketch;
+      } else if (value instanceof DoublesSketch) {
+        return ObjectType.DoublesSketch;
       } else {
         throw new IllegalArgumentException("Unsupported type of value: " + value.getClass().getSimpleName());
       }
@@ -458,6 +479,125 @@ public class ObjectSerDeUtils {
     }
   };
 
+  public static final ObjectSerDe<SortedDistinctValues> SORTED_DISTINCT_VALUES_SER_DE =
+      new ObjectSerDe<SortedDistinctValues>() {
+
+        @Override
+        public byte[] serialize(SortedDistinctValues sortedDistinctValues) {
+          return sortedDistinctValues.toBytes();
+        }
+
+        @Override
+        public SortedDistinctValues deserialize(byte[] bytes) {
+          return SortedDistinctValues.fromBytes(bytes);
+        }
+
+        @Override
+        public SortedDistinctValues deserialize(ByteBuffer byteBuffer) {
+          return SortedDistinctValues.fromByteBuffer(byteBuffer);
+        }
+      };
+
+  public static final ObjectSerDe<Sketch[]> THETA_SKETCH_ARRAY_SER_DE = new ObjectSerDe<Sketch[]>() {
+
+    @Override
+    public byte[] serialize(Sketch[] sketches) {
+      int numSketches = sketches.length;
+      byte[][] sketchBytesArray = new byte[numSketches][];
+      int size = Integer.BYTES + numSketches * Integer.BYTES;
+      for (int i = 0; i < numSketches; i++) {
+        byte[] sketchBytes = sketches[i].toByteArray();
+        sketchBytesArray[i] = sketchBytes;
+        size += sketchBytes.length;
+      }
+      byte[] bytes = new byte[size];
+      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+      byteBuffer.putInt(numSketches);
+      for (byte[] sketchBytes : sketchBytesArray) {
+        byteBuffer.putInt(sketchBytes.length);
+        byteBuffer.put(sketchBytes);
+      }
+      return bytes;
+    }
+
+    @Override
+    public Sketch[] deserialize(byte[] bytes) {
+      return deserialize(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public Sketch[] deserialize(ByteBuffer byteBuffer) {
+      int numSketches = byteBuffer.getInt();
+      Sketch[] sketches = new Sketch[numSketches];
+      for (int i = 0; i < numSketches; i++) {
+        byte[] sketchBytes = new byte[byteBuffer.getInt()];
+        byteBuffer.get(sketchBytes);
+        sketches[i] = Sketch.heapify(Memory.wrap(sketchBytes));
+      }
+      return sketches;
+    }
+  };
+
+  public static final ObjectSerDe<HllSketch> HLL_SKETCH_SER_DE = new ObjectSerDe<HllSketch>() {
+
+    @Override
+    public byte[] serialize(HllSketch hllSketch) {
+      return hllSketch.toCompactByteArray();
+    }
+
+    @Override
+    public HllSketch deserialize(byte[] bytes) {
+      return HllSketch.heapify(bytes);
+    }
+
+    @Override
+    public HllSketch deserialize(ByteBuffer byteBuffer) {
+      byte[] bytes = new byte[byteBuffer.remaining()];
+      byteBuffer.get(bytes);
+      return HllSketch.heapify(bytes);
+    }
+  };
+
+  public static final ObjectSerDe<KllFloatsSketch> KLL_FLOATS_SKETCH_SER_DE = new ObjectSerDe<KllFloatsSketch>() {
+
+    @Override
+    public byte[] serialize(KllFloatsSketch kllFloatsSketch) {
+      return kllFloatsSketch.toByteArray();
+    }
+
+    @Override
+    public KllFloatsSketch deserialize(byte[] bytes) {
+      return KllFloatsSketch.heapify(Memory.wrap(bytes));
+    }
+
+    @Override
+    public KllFloatsSketch deserialize(ByteBuffer byteBuffer) {
+      byte[] bytes = new byte[byteBuffer.remaining()];
+      byteBuffer.get(bytes);
+      return KllFloatsSketch.heapify(Memory.wrap(bytes));
+    }
+  };
+
+  public static final ObjectSerDe<DoublesSketch> DOUBLES_SKETCH_SER_DE = new ObjectSerDe<DoublesSketch>() {
+
+    @Override
+    public byte[] serialize(DoublesSketch doublesSketch) {
+      return doublesSketch.toByteArray(true);
+    }
+
+    @Override
+    public DoublesSketch deserialize(byte[] bytes) {
+      return DoublesSketch.heapify(Memory.wrap(bytes));
+    }
+
+    @Override
+    public DoublesSketch deserialize(ByteBuffer byteBuffer) {
+      byte[] bytes = new byte[byteBuffer.remaining()];
+      byteBuffer.get(bytes);
+      return DoublesSketch.heapify(Memory.wrap(bytes));
+    }
+  };
+
   // NOTE: DO NOT change the order, it has to be the same order as the ObjectType
   //@formatter:off
   private static final ObjectSerDe[] SER_DES = {
@@ -472,7 +612,12 @@ public class ObjectSerDeUtils {
       MAP_SER_DE,
       INT_SET_SER_DE,
       TDIGEST_SER_DE,
-      DISTINCT_TABLE_SER_DE
+      DISTINCT_TABLE_SER_DE,
+      SORTED_DISTINCT_VALUES_SER_DE,
+      THETA_SKETCH_ARRAY_SER_DE,
+      HLL_SKETCH_SER_DE,
+      KLL_FLOATS_SKETCH_SER_DE,
+      DOUBLES_SKETCH_SER_DE
   };
   //@formatter:on
 
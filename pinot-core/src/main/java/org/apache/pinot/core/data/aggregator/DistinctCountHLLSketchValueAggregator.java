@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.aggregator;
+
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.hll.Union;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.core.query.aggregation.function.DistinctCountHLLSketchAggregationFunction;
+
+
+public class DistinctCountHLLSketchValueAggregator implements ValueAggregator<Object, Union> {
+  public static final DataType AGGREGATED_VALUE_TYPE = DataType.BYTES;
+  private static final int MAX_BYTE_SIZE =
+      HllSketch.getMaxUpdatableSerializationBytes(DistinctCountHLLSketchAggregationFunction.DEFAULT_LG_K,
+          DistinctCountHLLSketchAggregationFunction.DEFAULT_TGT_HLL_TYPE);
+
+  @Override
+  public AggregationFunctionType getAggregationType() {
+    return AggregationFunctionType.DISTINCTCOUNTHLLSKETCH;
+  }
+
+  @Override
+  public DataType getAggregatedValueType() {
+    return AGGREGATED_VALUE_TYPE;
+  }
+
+  @Override
+  public Union getInitialAggregatedValue(Object rawValue) {
+    return applyRawValue(new Union(DistinctCountHLLSketchAggregationFunction.DEFAULT_LG_K), rawValue);
+  }
+
+  @Override
+  public Union applyRawValue(Union value, Object rawValue) {
+    if (rawValue instanceof byte[]) {
+      value.update(HllSketch.heapify((byte[]) rawValue));
+    } else if (rawValue instanceof Integer || rawValue instanceof Long) {
+      value.update(((Number) rawValue).longValue());
+    } else if (rawValue instanceof Number) {
+      value.update(((Number) rawValue).doubleValue());
+    } else {
+      value.update(rawValue.toString());
+    }
+    return value;
+  }
+
+  @Override
+  public Union applyAggregatedValue(Union value, Union aggregatedValue) {
+    value.update(aggregatedValue.getResult(DistinctCountHLLSketchAggregationFunction.DEFAULT_TGT_HLL_TYPE));
+    return value;
+  }
+
+  @Override
+  public Union cloneAggregatedValue(Union value) {
+    return deserializeAggregatedValue(serializeAggregatedValue(value));
+  }
+
+  @Override
+  public int getMaxAggregatedValueByteSize() {
+    return MAX_BYTE_SIZE;
+  }
+
+  @Override
+  public byte[] serializeAggregatedValue(Union value) {
+    return value.getResult(DistinctCountHLLSketchAggregationFunction.DEFAULT_TGT_HLL_TYPE).toCompactByteArray();
+  }
+
+  @Override
+  public Union deserializeAggregatedValue(byte[] bytes) {
+    Union union = new Union(DistinctCountHLLSketchAggregationFunction.DEFAULT_LG_K);
+    union.update(HllSketch.heapify(bytes));
+    return union;
+  }
+}
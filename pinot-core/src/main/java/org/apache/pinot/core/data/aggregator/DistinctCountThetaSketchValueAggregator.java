@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.aggregator;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Union;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.core.query.aggregation.function.DistinctCountThetaSketchAggregationFunction;
+
+
+public class DistinctCountThetaSketchValueAggregator implements ValueAggregator<Object, Union> {
+  public static final DataType AGGREGATED_VALUE_TYPE = DataType.BYTES;
+  // The result of the union never retains more than the nominal entries
+  private static final int MAX_BYTE_SIZE =
+      Sketch.getMaxCompactSketchBytes(DistinctCountThetaSketchAggregationFunction.DEFAULT_NOMINAL_ENTRIES);
+
+  @Override
+  public AggregationFunctionType getAggregationType() {
+    return AggregationFunctionType.DISTINCTCOUNTTHETASKETCH;
+  }
+
+  @Override
+  public DataType getAggregatedValueType() {
+    return AGGREGATED_VALUE_TYPE;
+  }
+
+  @Override
+  public Union getInitialAggregatedValue(Object rawValue) {
+    Union initialValue =
+        SetOperation.builder().setNominalEntries(DistinctCountThetaSketchAggregationFunction.DEFAULT_NOMINAL_ENTRIES)
+            .buildUnion();
+    return applyRawValue(initialValue, rawValue);
+  }
+
+  @Override
+  public Union applyRawValue(Union value, Object rawValue) {
+    if (rawValue instanceof byte[]) {
+      value.update(Memory.wrap((byte[]) rawValue));
+    } else if (rawValue instanceof Integer || rawValue instanceof Long) {
+      value.update(((Number) rawValue).longValue());
+    } else if (rawValue instanceof Number) {
+      value.update(((Number) rawValue).doubleValue());
+    } else {
+      value.update(rawValue.toString());
+    }
+    return value;
+  }
+
+  @Override
+  public Union applyAggregatedValue(Union value, Union aggregatedValue) {
+    value.update(aggregatedValue.getResult());
+    return value;
+  }
+
+  @Override
+  public Union cloneAggregatedValue(Union value) {
+    return deserializeAggregatedValue(serializeAggregatedValue(value));
+  }
+
+  @Override
+  public int getMaxAggregatedValueByteSize() {
+    return MAX_BYTE_SIZE;
+  }
+
+  @Override
+  public byte[] serializeAggregatedValue(Union value) {
+    return value.getResult().toByteArray();
+  }
+
+  @Override
+  public Union deserializeAggregatedValue(byte[] bytes) {
+    Union union =
+        SetOperation.builder().setNominalEntries(DistinctCountThetaSketchAggregationFunction.DEFAULT_NOMINAL_ENTRIES)
+            .buildUnion();
+    union.update(Memory.wrap(bytes));
+    return union;
+  }
+}
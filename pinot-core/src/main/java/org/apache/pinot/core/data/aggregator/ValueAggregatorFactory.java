@@ -52,6 +52,10 @@ public class ValueAggregatorFactory {
       case DISTINCTCOUNTHLL:
       case DISTINCTCOUNTRAWHLL:
         return new DistinctCountHLLValueAggregator();
+      case DISTINCTCOUNTTHETASKETCH:
+        return new DistinctCountThetaSketchValueAggregator();
+      case DISTINCTCOUNTHLLSKETCH:
+        return new DistinctCountHLLSketchValueAggregator();
       case PERCENTILEEST:
         return new PercentileEstValueAggregator();
       case PERCENTILETDIGEST:
@@ -84,6 +88,10 @@ public class ValueAggregatorFactory {
       case DISTINCTCOUNTHLL:
       case DISTINCTCOUNTRAWHLL:
         return DistinctCountHLLValueAggregator.AGGREGATED_VALUE_TYPE;
+      case DISTINCTCOUNTTHETASKETCH:
+        return DistinctCountThetaSketchValueAggregator.AGGREGATED_VALUE_TYPE;
+      case DISTINCTCOUNTHLLSKETCH:
+        return DistinctCountHLLSketchValueAggregator.AGGREGATED_VALUE_TYPE;
       case PERCENTILEEST:
         return PercentileEstValueAggregator.AGGREGATED_VALUE_TYPE;
       case PERCENTILETDIGEST:
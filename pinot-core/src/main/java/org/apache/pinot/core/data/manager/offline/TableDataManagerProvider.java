@@ -27,6 +27,8 @@ import org.apache.pinot.common.utils.CommonConstants;
 import org.apache.pinot.core.data.manager.TableDataManager;
 import org.apache.pinot.core.data.manager.config.InstanceDataManagerConfig;
 import org.apache.pinot.core.data.manager.config.TableDataManagerConfig;
+import org.apache.pinot.core.data.manager.realtime.AdaptiveFlushThresholdController;
+import org.apache.pinot.core.data.manager.realtime.RealtimeConsumptionScheduler;
 import org.apache.pinot.core.data.manager.realtime.RealtimeTableDataManager;
 
 
@@ -35,15 +37,29 @@ import org.apache.pinot.core.data.manager.realtime.RealtimeTableDataManager;
  */
 public class TableDataManagerProvider {
   private static Semaphore _segmentBuildSemaphore;
+  private static AdaptiveFlushThresholdController _flushThresholdController;
+  private static RealtimeConsumptionScheduler _consumptionScheduler;
+
+  private static final long CONSUMPTION_PRIORITY_BOOST_MILLIS = 100L;
 
   private TableDataManagerProvider() {
   }
 
-  public static void init(InstanceDataManagerConfig instanceDataManagerConfig) {
+  public static void init(InstanceDataManagerConfig instanceDataManagerConfig, ServerMetrics serverMetrics) {
     int maxParallelBuilds = instanceDataManagerConfig.getMaxParallelSegmentBuilds();
     if (maxParallelBuilds > 0) {
       _segmentBuildSemaphore = new Semaphore(maxParallelBuilds, true);
     }
+    long targetSegmentSizeBytes = instanceDataManagerConfig.getRealtimeSegmentTargetSizeBytes();
+    long memoryBudgetBytes = instanceDataManagerConfig.getRealtimeConsumingMemoryBudgetBytes();
+    if (targetSegmentSizeBytes > 0 || memoryBudgetBytes > 0) {
+      _flushThresholdController = new AdaptiveFlushThresholdController(targetSegmentSizeBytes, memoryBudgetBytes);
+    }
+    int maxConcurrentConsumers = instanceDataManagerConfig.getMaxConcurrentConsumers();
+    if (maxConcurrentConsumers > 0) {
+      _consumptionScheduler =
+          new RealtimeConsumptionScheduler(maxConcurrentConsumers, CONSUMPTION_PRIORITY_BOOST_MILLIS, serverMetrics);
+    }
   }
 
   public static TableDataManager getTableDataManager(@Nonnull TableDataManagerConfig tableDataManagerConfig,
@@ -55,7 +71,8 @@ public class TableDataManagerProvider {
         tableDataManager = new OfflineTableDataManager();
         break;
       case REALTIME:
-        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore);
+        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, _flushThresholdController,
+            _consumptionScheduler);
         break;
       default:
         throw new IllegalStateException();
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Server-wide controller that adjusts the number of rows that a LLC consuming segment may index before it is flushed.
+ *
+ * The controller targets two limits:
+ * <ul>
+ *   <li>
+ *     A desired on-disk size for completed segments. The on-disk bytes per row are learnt per partition from the
+ *     segments built on this server (falling back to the average over all partitions of the table), so that
+ *     partitions with wider rows get fewer rows per segment.
+ *   </li>
+ *   <li>
+ *     A budget for the memory used by all consuming segments on the server. The memory used per row is taken from
+ *     the {@link RealtimeSegmentStatsHistory} of the table, which records what the memory manager
+ *     ({@link org.apache.pinot.core.io.writer.impl.MmapMemoryManager} or
+ *     {@link org.apache.pinot.core.io.writer.impl.DirectMemoryManager}) allocated for past segments. Each consuming
+ *     segment gets a fair share of the budget, further reduced if the other consuming segments have already allocated
+ *     most of it.
+ *   </li>
+ * </ul>
+ * Either limit can be disabled by configuring a non-positive value. If there are no statistics to derive a limit
+ * from, the row threshold configured for the segment is used as is.
+ */
+@ThreadSafe
+public class AdaptiveFlushThresholdController {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveFlushThresholdController.class);
+
+  // Same weights as used by the controller side SegmentSizeBasedFlushThresholdUpdater, so that we do not react too
+  // much to one outlier segment.
+  private static final double CURRENT_SEGMENT_RATIO_WEIGHT = 0.1;
+  private static final double PREVIOUS_SEGMENT_RATIO_WEIGHT = 0.9;
+  private static final int MINIMUM_NUM_ROWS_THRESHOLD = 10_000;
+
+  private final long _targetSegmentSizeBytes;
+  private final long _memoryBudgetBytes;
+
+  // Table name with type -> partition id -> learnt on-disk bytes per row
+  private final Map<String, Map<Integer, Double>> _diskBytesPerRowMap = new ConcurrentHashMap<>();
+  private final Set<PinotDataBufferMemoryManager> _consumingMemoryManagers = ConcurrentHashMap.newKeySet();
+
+  public AdaptiveFlushThresholdController(long targetSegmentSizeBytes, long memoryBudgetBytes) {
+    _targetSegmentSizeBytes = targetSegmentSizeBytes;
+    _memoryBudgetBytes = memoryBudgetBytes;
+  }
+
+  /**
+   * Registers the memory manager of a consuming segment, so that its allocation is accounted against the memory
+   * budget of the server.
+   */
+  public void registerConsumingSegment(PinotDataBufferMemoryManager memoryManager) {
+    _consumingMemoryManagers.add(memoryManager);
+  }
+
+  public void unregisterConsumingSegment(PinotDataBufferMemoryManager memoryManager) {
+    _consumingMemoryManagers.remove(memoryManager);
+  }
+
+  /**
+   * Records the on-disk size of a segment built from a consuming segment of the given partition.
+   */
+  public void segmentBuilt(String tableNameWithType, int partitionId, int numRowsIndexed, long segmentSizeBytes) {
+    if (numRowsIndexed <= 0 || segmentSizeBytes <= 0) {
+      return;
+    }
+    double currentRatio = (double) segmentSizeBytes / numRowsIndexed;
+    _diskBytesPerRowMap.computeIfAbsent(tableNameWithType, k -> new ConcurrentHashMap<>())
+        .merge(partitionId, currentRatio, (previousRatio, ratio) -> CURRENT_SEGMENT_RATIO_WEIGHT * ratio
+            + PREVIOUS_SEGMENT_RATIO_WEIGHT * previousRatio);
+  }
+
+  /**
+   * Computes the max number of rows to index in a new consuming segment.
+   *
+   * @param tableNameWithType Table name with type
+   * @param partitionId Stream partition id of the consuming segment
+   * @param statsHistory Statistics of the past consuming segments of the table
+   * @param memoryManager Memory manager of the consuming segment (its allocation is not counted as used by others)
+   * @param configuredMaxRowCount Row threshold from the segment metadata or the stream config
+   * @return max number of rows to index
+   */
+  public int computeSegmentMaxRowCount(String tableNameWithType, int partitionId,
+      @Nullable RealtimeSegmentStatsHistory statsHistory, @Nullable PinotDataBufferMemoryManager memoryManager,
+      int configuredMaxRowCount) {
+    long maxRowCount = configuredMaxRowCount;
+
+    if (_targetSegmentSizeBytes > 0) {
+      double diskBytesPerRow = getDiskBytesPerRow(tableNameWithType, partitionId);
+      if (diskBytesPerRow > 0) {
+        maxRowCount = (long) (_targetSegmentSizeBytes / diskBytesPerRow);
+      }
+    }
+
+    if (_memoryBudgetBytes > 0 && statsHistory != null) {
+      long memBytesPerRow = statsHistory.getEstimatedMemUsedBytesPerRow();
+      if (memBytesPerRow > 0) {
+        int numConsumingSegments = Math.max(_consumingMemoryManagers.size(), 1);
+        long memoryAllowanceBytes = _memoryBudgetBytes / numConsumingSegments;
+        long headroomBytes = _memoryBudgetBytes - getAllocatedBytesByOthers(memoryManager);
+        memoryAllowanceBytes = Math.max(Math.min(memoryAllowanceBytes, headroomBytes), 0);
+        maxRowCount = Math.min(maxRowCount, memoryAllowanceBytes / memBytesPerRow);
+      }
+    }
+
+    // The floor never exceeds the configured row threshold, so that small configured thresholds are honored
+    long minRowCount = Math.min(configuredMaxRowCount, MINIMUM_NUM_ROWS_THRESHOLD);
+    maxRowCount = Math.max(Math.min(maxRowCount, Integer.MAX_VALUE), minRowCount);
+    if (maxRowCount != configuredMaxRowCount) {
+      LOGGER.info("Adjusted max row count for table: {}, partition: {} from {} to {}", tableNameWithType, partitionId,
+          configuredMaxRowCount, maxRowCount);
+    }
+    return (int) maxRowCount;
+  }
+
+  @VisibleForTesting
+  double getDiskBytesPerRow(String tableNameWithType, int partitionId) {
+    Map<Integer, Double> partitionToRatio = _diskBytesPerRowMap.get(tableNameWithType);
+    if (partitionToRatio == null || partitionToRatio.isEmpty()) {
+      return 0;
+    }
+    Double ratio = partitionToRatio.get(partitionId);
+    if (ratio != null) {
+      return ratio;
+    }
+    // No segment built yet for this partition, use the average over the other partitions of the table
+    double totalRatio = 0;
+    int numRatios = 0;
+    for (double partitionRatio : partitionToRatio.values()) {
+      totalRatio += partitionRatio;
+      numRatios++;
+    }
+    return numRatios > 0 ? totalRatio / numRatios : 0;
+  }
+
+  private long getAllocatedBytesByOthers(@Nullable PinotDataBufferMemoryManager memoryManager) {
+    long allocatedBytes = 0;
+    for (PinotDataBufferMemoryManager consumingMemoryManager : _consumingMemoryManagers) {
+      if (consumingMemoryManager != memoryManager) {
+        allocatedBytes += consumingMemoryManager.getTotalAllocatedBytes();
+      }
+    }
+    return allocatedBytes;
+  }
+}
@@ -31,13 +31,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.Utils;
 import org.apache.pinot.common.config.CompletionConfig;
 import org.apache.pinot.common.config.IndexingConfig;
 import org.apache.pinot.common.config.SegmentPartitionConfig;
+import org.apache.pinot.common.config.StarTreeIndexConfig;
 import org.apache.pinot.common.config.TableConfig;
 import org.apache.pinot.common.data.Schema;
 import org.apache.pinot.common.data.StarTreeIndexSpec;
@@ -71,9 +71,9 @@ import org.apache.pinot.core.realtime.stream.StreamConsumerFactoryProvider;
 import org.apache.pinot.core.realtime.stream.StreamDecoderProvider;
 import org.apache.pinot.core.realtime.stream.StreamMessageDecoder;
 import org.apache.pinot.core.realtime.stream.StreamMetadataProvider;
-import org.apache.pinot.core.realtime.stream.TransientConsumerException;
 import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
 import org.apache.pinot.server.realtime.ServerSegmentCompletionProtocolHandler;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -247,6 +247,8 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private Logger segmentLogger;
   private final String _tableStreamName;
   private final PinotDataBufferMemoryManager _memoryManager;
+  private final AdaptiveFlushThresholdController _flushThresholdController;
+  private final RealtimeConsumptionScheduler.ConsumptionSlot _consumptionSlot;
   private AtomicLong _lastUpdatedRowsIndexed = new AtomicLong(0);
   private final String _instanceId;
   private final ServerSegmentCompletionProtocolHandler _protocolHandler;
@@ -357,31 +359,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     final long _endOffset = Long.MAX_VALUE; // No upper limit on stream offset
     segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
     while (!_shouldStop && !endCriteriaReached()) {
-      // Consume for the next readTime ms, or we get to final offset, whichever happens earlier,
-      // Update _currentOffset upon return from this method
-      MessageBatch messageBatch;
-      try {
-        messageBatch = _partitionLevelConsumer
-            .fetchMessages(_currentOffset, _endOffset, _partitionLevelStreamConfig.getFetchTimeoutMillis());
-        consecutiveErrorCount = 0;
-      } catch (TimeoutException e) {
-        handleTransientStreamErrors(e);
-        continue;
-      } catch (TransientConsumerException e) {
-        handleTransientStreamErrors(e);
-        continue;
-      } catch (PermanentConsumerException e) {
-        segmentLogger.warn("Permanent exception from stream when fetching messages, stopping consumption", e);
-        throw e;
-      } catch (Exception e) {
-        // Unknown exception from stream. Treat as a transient exception.
-        // One such exception seen so far is java.net.SocketTimeoutException
-        handleTransientStreamErrors(e);
-        continue;
-      }
-
-      processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
-
+      consumeBatch(_endOffset, idlePipeSleepTimeMillis);
       if (_currentOffset != lastUpdatedOffset) {
         consecutiveIdleCount = 0;
         // We consumed something. Update the highest stream offset as well as partition-consuming metric.
@@ -407,6 +385,39 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     return true;
   }
 
+  /**
+   * Fetches one batch of messages from the stream and indexes it. If consumption is bounded on this server, a non-empty
+   * batch is indexed on the shared indexing executor while this thread waits for it, and the fetch never holds an
+   * indexing thread.
+   */
+  private void consumeBatch(long endOffset, long idlePipeSleepTimeMillis)
+      throws Exception {
+    // Consume for the next readTime ms, or we get to final offset, whichever happens earlier,
+    // Update _currentOffset upon return from this method
+    MessageBatch messageBatch;
+    try {
+      messageBatch = _partitionLevelConsumer
+          .fetchMessages(_currentOffset, endOffset, _partitionLevelStreamConfig.getFetchTimeoutMillis());
+      consecutiveErrorCount = 0;
+    } catch (PermanentConsumerException e) {
+      segmentLogger.warn("Permanent exception from stream when fetching messages, stopping consumption", e);
+      throw e;
+    } catch (Exception e) {
+      // TimeoutException and TransientConsumerException are transient by definition. Unknown exceptions from stream
+      // are treated as transient as well. One such exception seen so far is java.net.SocketTimeoutException
+      handleTransientStreamErrors(e);
+      return;
+    }
+
+    if (_consumptionSlot == null) {
+      processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
+    } else {
+      boolean catchingUp = _state != State.INITIAL_CONSUMING;
+      _consumptionSlot.index(messageBatch.getMessageCount(), catchingUp,
+          () -> processStreamEvents(messageBatch, idlePipeSleepTimeMillis));
+    }
+  }
+
   private void processStreamEvents(MessageBatch messagesAndOffsets, long idlePipeSleepTimeMillis) {
     Meter realtimeRowsConsumedMeter = null;
     Meter realtimeRowsDroppedMeter = null;
@@ -714,6 +725,10 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
       }
       final long segmentSizeBytes = FileUtils.sizeOfDirectory(destDir);
       FileUtils.deleteQuietly(tempSegmentFolder);
+      if (_flushThresholdController != null) {
+        _flushThresholdController
+            .segmentBuilt(_tableNameWithType, _streamPartitionId, _numRowsIndexed, segmentSizeBytes);
+      }
 
       _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LAST_REALTIME_SEGMENT_CREATION_DURATION_SECONDS,
           TimeUnit.MILLISECONDS.toSeconds(buildTimeMillis));
@@ -1022,6 +1037,9 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
       segmentLogger.error("Could not stop consumer thread");
     }
     _realtimeSegment.destroy();
+    if (_flushThresholdController != null) {
+      _flushThresholdController.unregisterConsumingSegment(_memoryManager);
+    }
     try {
       _partitionLevelConsumer.close();
     } catch (Exception e) {
@@ -1092,9 +1110,23 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     _memoryManager = getMemoryManager(realtimeTableDataManager.getConsumerDir(), _segmentNameStr,
         indexLoadingConfig.isRealtimeOffheapAllocation(), indexLoadingConfig.isDirectRealtimeOffheapAllocation(),
         serverMetrics);
+    _flushThresholdController = realtimeTableDataManager.getFlushThresholdController();
+    if (_flushThresholdController != null) {
+      _flushThresholdController.registerConsumingSegment(_memoryManager);
+    }
+    RealtimeConsumptionScheduler consumptionScheduler = realtimeTableDataManager.getConsumptionScheduler();
+    _consumptionSlot = consumptionScheduler != null ? consumptionScheduler.newSlot() : null;
 
+    // For upsert tables, the records are kept in the stream order (no sorted column) so that the committed segment has
+    // the same document ids as the consuming segment, and the primary keys can be bootstrapped from it in the order
+    // they were consumed
+    List<String> primaryKeyColumns = realtimeTableDataManager.getPrimaryKeyColumns();
     List<String> sortedColumns = indexLoadingConfig.getSortedColumns();
-    if (sortedColumns.isEmpty()) {
+    if (primaryKeyColumns != null) {
+      segmentLogger.info("Upsert is enabled with primary key columns: {}, not using sorted column for segment {}",
+          primaryKeyColumns, _segmentName);
+      _sortedColumn = null;
+    } else if (sortedColumns.isEmpty()) {
       segmentLogger.info("RealtimeDataResourceZKMetadata contains no information about sorted column for segment {}",
           _segmentName);
       _sortedColumn = null;
@@ -1127,18 +1159,28 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
 
     _varLengthDictionaryColumns = new ArrayList<>(indexLoadingConfig.getVarLengthDictionaryColumns());
 
-    // Read the star tree config
-    _starTreeIndexSpec = indexingConfig.getStarTreeIndexSpec();
+    // Read the star tree config (star tree pre-aggregates the invalid documents, so it is not supported with upsert)
+    _starTreeIndexSpec = primaryKeyColumns == null ? indexingConfig.getStarTreeIndexSpec() : null;
 
     // Read the max number of rows
     int segmentMaxRowCount = _partitionLevelStreamConfig.getFlushThresholdRows();
     if (0 < segmentZKMetadata.getSizeThresholdToFlushSegment()) {
       segmentMaxRowCount = segmentZKMetadata.getSizeThresholdToFlushSegment();
     }
+    if (_flushThresholdController != null) {
+      segmentMaxRowCount = _flushThresholdController
+          .computeSegmentMaxRowCount(_tableNameWithType, _streamPartitionId, realtimeTableDataManager.getStatsHistory(),
+              _memoryManager, segmentMaxRowCount);
+    }
     _segmentMaxRowCount = segmentMaxRowCount;
 
     _isOffHeap = indexLoadingConfig.isRealtimeOffheapAllocation();
 
+    _resourceTmpDir = new File(resourceDataDir, "_tmp");
+    if (!_resourceTmpDir.exists()) {
+      _resourceTmpDir.mkdirs();
+    }
+
     // Start new realtime segment
     RealtimeSegmentConfig.Builder realtimeSegmentConfigBuilder =
         new RealtimeSegmentConfig.Builder().setSegmentName(_segmentNameStr).setStreamName(_streamTopic)
@@ -1146,10 +1188,29 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
             .setAvgNumMultiValues(indexLoadingConfig.getRealtimeAvgMultiValueCount())
             .setNoDictionaryColumns(indexLoadingConfig.getNoDictionaryColumns())
             .setVarLengthDictionaryColumns(indexLoadingConfig.getVarLengthDictionaryColumns())
-            .setInvertedIndexColumns(invertedIndexColumns).setRealtimeSegmentZKMetadata(segmentZKMetadata)
-            .setOffHeap(_isOffHeap).setMemoryManager(_memoryManager)
+            .setInvertedIndexColumns(invertedIndexColumns).setSortedColumn(_sortedColumn)
+            .setRealtimeSegmentZKMetadata(segmentZKMetadata)
+            .setOffHeap(_isOffHeap).setMemoryManager(_memoryManager).setServerMetrics(_serverMetrics)
             .setStatsHistory(realtimeTableDataManager.getStatsHistory())
-            .setAggregateMetrics(indexingConfig.isAggregateMetrics());
+            .setAggregateMetrics(primaryKeyColumns == null && indexingConfig.isAggregateMetrics());
+    if (primaryKeyColumns != null) {
+      realtimeSegmentConfigBuilder.setPrimaryKeyColumns(primaryKeyColumns).setPartitionUpsertMetadataManager(
+          realtimeTableDataManager.getPartitionUpsertMetadataManager(_streamPartitionId));
+    }
+
+    // Build star-trees on the sealed documents of the consuming segment if configured (star tree pre-aggregates the
+    // invalid documents, so it is not supported with upsert)
+    List<StarTreeIndexConfig> starTreeIndexConfigs = indexingConfig.getStarTreeIndexConfigs();
+    int realtimeStarTreeNumDocsPerTree = indexingConfig.getRealtimeStarTreeNumDocsPerTree();
+    if (primaryKeyColumns == null && starTreeIndexConfigs != null && !starTreeIndexConfigs.isEmpty()
+        && realtimeStarTreeNumDocsPerTree > 0) {
+      List<StarTreeV2BuilderConfig> starTreeV2BuilderConfigs = new ArrayList<>(starTreeIndexConfigs.size());
+      for (StarTreeIndexConfig starTreeIndexConfig : starTreeIndexConfigs) {
+        starTreeV2BuilderConfigs.add(StarTreeV2BuilderConfig.fromIndexConfig(starTreeIndexConfig));
+      }
+      realtimeSegmentConfigBuilder.setStarTreeV2BuilderConfigs(starTreeV2BuilderConfigs)
+          .setStarTreeNumDocsPerTree(realtimeStarTreeNumDocsPerTree).setStarTreeTempDir(_resourceTmpDir);
+    }
 
     // Create message decoder
     _messageDecoder = StreamDecoderProvider.create(_partitionLevelStreamConfig, _schema);
@@ -1175,10 +1236,6 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     _realtimeSegment = new MutableSegmentImpl(realtimeSegmentConfigBuilder.build());
     _startOffset = _segmentZKMetadata.getStartOffset();
     _currentOffset = _startOffset;
-    _resourceTmpDir = new File(resourceDataDir, "_tmp");
-    if (!_resourceTmpDir.exists()) {
-      _resourceTmpDir.mkdirs();
-    }
     _state = State.INITIAL_CONSUMING;
 
     long now = now();
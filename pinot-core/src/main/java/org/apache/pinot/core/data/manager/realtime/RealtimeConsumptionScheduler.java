@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMetrics;
+
+
+/**
+ * Server-wide scheduler that indexes (decodes and indexes fetched messages) the batches of all the LLC partitions on a
+ * shared bounded executor, so that the number of partitions indexing at the same time never exceeds the number of
+ * indexing threads regardless of the number of partitions hosted.
+ *
+ * Each partition consumer thread only fetches from the stream and hands the fetched batch over to the executor,
+ * waiting for it to be indexed before fetching the next one (so the per-partition ordering of events is untouched). A
+ * partition blocked on an idle stream never holds an indexing thread. When all the indexing threads are busy, the
+ * pending batches are indexed in priority order:
+ * <ul>
+ *   <li>Partitions catching up to a final offset (which blocks segment completion) have the highest priority.</li>
+ *   <li>Partitions whose previous fetch also returned messages (i.e. lagging behind the stream) come next.</li>
+ *   <li>Partitions coming back from an idle stream (previous fetch returned no message) come last.</li>
+ * </ul>
+ * The priority is expressed as a boost on the wait time, so that low priority partitions are never starved.
+ */
+@ThreadSafe
+public class RealtimeConsumptionScheduler {
+  private static final int CATCHING_UP_PRIORITY_BOOST_MULTIPLIER = 10;
+  private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+  private final long _priorityBoostMillis;
+  private final ServerMetrics _serverMetrics;
+  private final ThreadPoolExecutor _indexingExecutor;
+  private final AtomicInteger _numActiveConsumers = new AtomicInteger();
+  private final AtomicLong _nextSequenceId = new AtomicLong();
+
+  /**
+   * @param maxConcurrentConsumers Max number of partitions indexing at the same time (number of indexing threads)
+   * @param priorityBoostMillis Wait time boost of the lagging partitions over the ones coming back from an idle stream
+   *                            (catching up partitions get a larger boost)
+   * @param serverMetrics Server metrics
+   */
+  public RealtimeConsumptionScheduler(int maxConcurrentConsumers, long priorityBoostMillis,
+      ServerMetrics serverMetrics) {
+    _priorityBoostMillis = priorityBoostMillis;
+    _serverMetrics = serverMetrics;
+    // Only IndexingTask are submitted to the executor
+    Comparator<Runnable> comparator =
+        Comparator.comparingLong((Runnable task) -> ((IndexingTask) task)._effectiveEnqueueTimeMillis)
+            .thenComparingLong(task -> ((IndexingTask) task)._sequenceId);
+    _indexingExecutor = new ThreadPoolExecutor(maxConcurrentConsumers, maxConcurrentConsumers,
+        IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<>(maxConcurrentConsumers, comparator),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("realtime-indexing-%d").build());
+    // The executor lives as long as the server, let its threads go away while all the streams are idle
+    _indexingExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns a new consumption slot for a partition consumer. The slot must only be used by the consumer thread.
+   */
+  public ConsumptionSlot newSlot() {
+    return new ConsumptionSlot();
+  }
+
+  @VisibleForTesting
+  int getNumActiveConsumers() {
+    return _numActiveConsumers.get();
+  }
+
+  @VisibleForTesting
+  int getNumWaitingConsumers() {
+    return _indexingExecutor.getQueue().size();
+  }
+
+  private void updateGauges() {
+    _serverMetrics.setValueOfGlobalGauge(ServerGauge.LLC_ACTIVE_CONSUMERS, getNumActiveConsumers());
+    _serverMetrics.setValueOfGlobalGauge(ServerGauge.LLC_WAITING_CONSUMERS, getNumWaitingConsumers());
+  }
+
+  private class IndexingTask implements Runnable {
+    final long _enqueueTimeMillis;
+    final long _effectiveEnqueueTimeMillis;
+    final long _sequenceId;
+    final FutureTask<Void> _future;
+    volatile long _waitTimeMillis;
+
+    IndexingTask(Runnable indexer, long priorityBoostMillis) {
+      _enqueueTimeMillis = System.currentTimeMillis();
+      _effectiveEnqueueTimeMillis = _enqueueTimeMillis - priorityBoostMillis;
+      _sequenceId = _nextSequenceId.getAndIncrement();
+      // Not run if cancelled while waiting
+      _future = new FutureTask<>(() -> index(indexer), null);
+    }
+
+    @Override
+    public void run() {
+      _future.run();
+    }
+
+    private void index(Runnable indexer) {
+      _waitTimeMillis = System.currentTimeMillis() - _enqueueTimeMillis;
+      _serverMetrics.setValueOfGlobalGauge(ServerGauge.LLC_PARTITION_CONSUMER_WAIT_TIME_MS, _waitTimeMillis);
+      _numActiveConsumers.incrementAndGet();
+      updateGauges();
+      try {
+        indexer.run();
+      } finally {
+        // Done before the future completes so that the consumer thread never sees itself as active
+        _numActiveConsumers.decrementAndGet();
+        updateGauges();
+      }
+    }
+  }
+
+  /**
+   * Consumption slot of a single partition consumer.
+   */
+  public class ConsumptionSlot {
+    private boolean _idle = false;
+    private long _lastWaitTimeMillis;
+
+    /**
+     * Indexes a batch fetched from the stream. Must be called by the consumer thread after each fetch.
+     * <p>A non-empty batch is handed over to the shared indexing executor, and the call blocks until it is indexed. An
+     * empty batch is handled (e.g. backing off on the idle stream) on the consumer thread without an indexing thread.
+     * <p>If the consumer thread is interrupted while waiting, the batch is not indexed if it has not started yet,
+     * otherwise the call still waits for it to be indexed, so that the consumer never runs concurrently with its
+     * indexer.
+     *
+     * @param numMessagesFetched Number of messages returned by the fetch
+     * @param catchingUp Whether the partition is catching up to a final offset
+     * @param indexer Indexes the fetched batch
+     */
+    public void index(int numMessagesFetched, boolean catchingUp, Runnable indexer)
+        throws InterruptedException {
+      if (numMessagesFetched == 0) {
+        _idle = true;
+        _lastWaitTimeMillis = 0;
+        indexer.run();
+        return;
+      }
+      long priorityBoostMillis;
+      if (catchingUp) {
+        priorityBoostMillis = CATCHING_UP_PRIORITY_BOOST_MULTIPLIER * _priorityBoostMillis;
+      } else if (_idle) {
+        priorityBoostMillis = 0;
+      } else {
+        priorityBoostMillis = _priorityBoostMillis;
+      }
+      _idle = false;
+      IndexingTask task = new IndexingTask(indexer, priorityBoostMillis);
+      _indexingExecutor.execute(task);
+      updateGauges();
+      try {
+        task._future.get();
+      } catch (InterruptedException e) {
+        if (task._future.cancel(false)) {
+          _indexingExecutor.remove(task);
+          updateGauges();
+        } else {
+          try {
+            Uninterruptibles.getUninterruptibly(task._future);
+          } catch (ExecutionException executionException) {
+            // Ignored, the interrupt takes precedence
+          }
+        }
+        throw e;
+      } catch (ExecutionException e) {
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new RuntimeException(e.getCause());
+      } finally {
+        _lastWaitTimeMillis = task._waitTimeMillis;
+      }
+    }
+
+    public long getLastWaitTimeMillis() {
+      return _lastWaitTimeMillis;
+    }
+  }
+}
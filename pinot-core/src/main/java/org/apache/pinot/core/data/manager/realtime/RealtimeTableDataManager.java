@@ -18,17 +18,21 @@
  */
 package org.apache.pinot.core.data.manager.realtime;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.Utils;
@@ -42,15 +46,23 @@ import org.apache.pinot.common.metadata.segment.LLCRealtimeSegmentZKMetadata;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import org.apache.pinot.common.segment.fetcher.SegmentFetcherFactory;
 import org.apache.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import org.apache.pinot.common.utils.LLCSegmentName;
 import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.common.utils.SegmentName;
 import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.core.data.manager.BaseTableDataManager;
 import org.apache.pinot.core.data.manager.SegmentDataManager;
+import org.apache.pinot.core.indexsegment.IndexSegmentUtils;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.io.reader.DataFileReader;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
+import org.apache.pinot.core.realtime.impl.upsert.PartitionUpsertMetadataManager;
+import org.apache.pinot.core.realtime.impl.upsert.PrimaryKey;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.index.loader.LoaderUtils;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProviderFactory;
 
 
@@ -61,6 +73,13 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   private SegmentBuildTimeLeaseExtender _leaseExtender;
   private RealtimeSegmentStatsHistory _statsHistory;
   private final Semaphore _segmentBuildSemaphore;
+  private final AdaptiveFlushThresholdController _flushThresholdController;
+  private final RealtimeConsumptionScheduler _consumptionScheduler;
+
+  // Upsert related, primary key columns are null if upsert is not enabled
+  private volatile List<String> _primaryKeyColumns;
+  private final Map<Integer, PartitionUpsertMetadataManager> _partitionUpsertMetadataManagerMap =
+      new ConcurrentHashMap<>();
 
   // The old name of the stats file used to be stats.ser which we changed when we moved all packages
   // from com.linkedin to org.apache because of not being able to deserialize the old files using the newer classes
@@ -81,7 +100,15 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   private static final int MIN_INTERVAL_BETWEEN_STATS_UPDATES_MINUTES = 30;
 
   public RealtimeTableDataManager(Semaphore segmentBuildSemaphore) {
+    this(segmentBuildSemaphore, null, null);
+  }
+
+  public RealtimeTableDataManager(Semaphore segmentBuildSemaphore,
+      @Nullable AdaptiveFlushThresholdController flushThresholdController,
+      @Nullable RealtimeConsumptionScheduler consumptionScheduler) {
     _segmentBuildSemaphore = segmentBuildSemaphore;
+    _flushThresholdController = flushThresholdController;
+    _consumptionScheduler = consumptionScheduler;
   }
 
   @Override
@@ -156,6 +183,29 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
     return _segmentBuildSemaphore;
   }
 
+  @Nullable
+  public AdaptiveFlushThresholdController getFlushThresholdController() {
+    return _flushThresholdController;
+  }
+
+  @Nullable
+  public RealtimeConsumptionScheduler getConsumptionScheduler() {
+    return _consumptionScheduler;
+  }
+
+  /**
+   * Returns the primary key columns of the table, or null if upsert is not enabled.
+   */
+  @Nullable
+  public List<String> getPrimaryKeyColumns() {
+    return _primaryKeyColumns;
+  }
+
+  public PartitionUpsertMetadataManager getPartitionUpsertMetadataManager(int partitionId) {
+    return _partitionUpsertMetadataManagerMap.computeIfAbsent(partitionId,
+        k -> new PartitionUpsertMetadataManager(_tableNameWithType, partitionId));
+  }
+
   public String getConsumerDir() {
     String consumerDirPath = _tableDataManagerConfig.getConsumerDir();
     File consumerDir;
@@ -196,6 +246,9 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   public void addSegment(@Nonnull String segmentName, @Nonnull TableConfig tableConfig,
       @Nonnull IndexLoadingConfig indexLoadingConfig)
       throws Exception {
+    List<String> primaryKeyColumns = tableConfig.getIndexingConfig().getPrimaryKeyColumns();
+    _primaryKeyColumns = primaryKeyColumns != null && !primaryKeyColumns.isEmpty() ? primaryKeyColumns : null;
+
     SegmentDataManager segmentDataManager = _segmentDataManagerMap.get(segmentName);
     if (segmentDataManager != null) {
       _logger.warn("Skipping adding existing segment: {} for table: {} with data manager class: {}", segmentName,
@@ -298,6 +351,83 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>For upsert tables, bootstraps the primary keys of the LLC segment before making it queryable.
+   */
+  @Override
+  public void addSegment(@Nonnull ImmutableSegment immutableSegment) {
+    List<String> primaryKeyColumns = _primaryKeyColumns;
+    if (primaryKeyColumns != null && SegmentName.isLowLevelConsumerSegmentName(immutableSegment.getSegmentName())) {
+      addUpsertMetadata(immutableSegment, primaryKeyColumns);
+    }
+    super.addSegment(immutableSegment);
+  }
+
+  /**
+   * Adds the records of the segment into the upsert metadata of its partition in the document id order (which is the
+   * order in which they were consumed, because upsert tables have no sorted column).
+   * <p>NOTE: if the committed segment replacing a consuming segment has less records than what was consumed locally
+   * (e.g. segment downloaded from another replica), the primary keys only present in the dropped records remain
+   * invalid until they are consumed again in the next segment.
+   */
+  private void addUpsertMetadata(ImmutableSegment immutableSegment, List<String> primaryKeyColumns) {
+    String segmentName = immutableSegment.getSegmentName();
+    LLCSegmentName llcSegmentName = new LLCSegmentName(segmentName);
+    int sequenceNumber = llcSegmentName.getSequenceNumber();
+    PartitionUpsertMetadataManager partitionUpsertMetadataManager =
+        getPartitionUpsertMetadataManager(llcSegmentName.getPartitionId());
+
+    // Read the primary keys before taking the lock of the upsert metadata
+    PrimaryKey[] primaryKeys = getPrimaryKeys(immutableSegment, primaryKeyColumns);
+    ValidDocIds validDocIds = new ValidDocIds();
+    immutableSegment.setValidDocIds(validDocIds);
+    partitionUpsertMetadataManager.addSegment(sequenceNumber, validDocIds, primaryKeys);
+    _logger.info("Added {} records of segment: {} into upsert metadata of partition: {}", primaryKeys.length,
+        segmentName, llcSegmentName.getPartitionId());
+  }
+
+  /**
+   * Returns the primary keys of the records of the segment in the document id order.
+   */
+  @VisibleForTesting
+  static PrimaryKey[] getPrimaryKeys(ImmutableSegment immutableSegment, List<String> primaryKeyColumns) {
+    Schema schema = immutableSegment.getSegmentMetadata().getSchema();
+    int numPrimaryKeyColumns = primaryKeyColumns.size();
+    FieldSpec[] fieldSpecs = new FieldSpec[numPrimaryKeyColumns];
+    DataFileReader[] forwardIndexes = new DataFileReader[numPrimaryKeyColumns];
+    Dictionary[] dictionaries = new Dictionary[numPrimaryKeyColumns];
+    for (int i = 0; i < numPrimaryKeyColumns; i++) {
+      String column = primaryKeyColumns.get(i);
+      fieldSpecs[i] = schema.getFieldSpecFor(column);
+      forwardIndexes[i] = immutableSegment.getForwardIndex(column);
+      dictionaries[i] = immutableSegment.getDictionary(column);
+    }
+    int numDocs = immutableSegment.getSegmentMetadata().getTotalRawDocs();
+    PrimaryKey[] primaryKeys = new PrimaryKey[numDocs];
+    for (int docId = 0; docId < numDocs; docId++) {
+      Object[] values = new Object[numPrimaryKeyColumns];
+      for (int i = 0; i < numPrimaryKeyColumns; i++) {
+        values[i] = IndexSegmentUtils.getValue(docId, fieldSpecs[i], forwardIndexes[i], dictionaries[i], 0);
+      }
+      primaryKeys[docId] = new PrimaryKey(values);
+    }
+    return primaryKeys;
+  }
+
+  @Override
+  public void removeSegment(@Nonnull String segmentName) {
+    super.removeSegment(segmentName);
+    if (_primaryKeyColumns != null && SegmentName.isLowLevelConsumerSegmentName(segmentName)) {
+      LLCSegmentName llcSegmentName = new LLCSegmentName(segmentName);
+      PartitionUpsertMetadataManager partitionUpsertMetadataManager =
+          _partitionUpsertMetadataManagerMap.get(llcSegmentName.getPartitionId());
+      if (partitionUpsertMetadataManager != null) {
+        partitionUpsertMetadataManager.removeSegment(llcSegmentName.getSequenceNumber());
+      }
+    }
+  }
+
   public String getServerInstance() {
     return _instanceId;
   }
@@ -311,6 +441,7 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
    * As of now, the following validations are done:
    * 1. Make sure that the sorted column, if specified, is not multi-valued.
    * 2. Validate the schema itself
+   * 3. Make sure that the primary key columns, if specified, exist and are single-valued.
    *
    * We allow the user to specify multiple sorted columns, but only consider the first one for now.
    * (secondary sort is not yet implemented).
@@ -337,6 +468,17 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
         isValid = false;
       }
     }
+    // 3. Make sure that the primary key columns are single-value fields.
+    List<String> primaryKeyColumns = indexingConfig.getPrimaryKeyColumns();
+    if (primaryKeyColumns != null) {
+      for (String primaryKeyColumn : primaryKeyColumns) {
+        FieldSpec fieldSpec = schema.getFieldSpecFor(primaryKeyColumn);
+        if (fieldSpec == null || !fieldSpec.isSingleValueField()) {
+          _logger.error("Primary key column {} must be a single-valued column in the schema", primaryKeyColumn);
+          isValid = false;
+        }
+      }
+    }
     // 2. We want to get the schema errors, if any, even if isValid is false;
     if (!schema.validate(_logger)) {
       isValid = false;
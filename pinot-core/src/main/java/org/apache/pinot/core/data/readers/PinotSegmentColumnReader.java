@@ -19,6 +19,8 @@
 package org.apache.pinot.core.data.readers;
 
 import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.core.common.DataSourceMetadata;
+import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 import org.apache.pinot.core.io.reader.DataFileReader;
 import org.apache.pinot.core.io.reader.ReaderContext;
@@ -26,6 +28,7 @@ import org.apache.pinot.core.io.reader.SingleColumnMultiValueReader;
 import org.apache.pinot.core.io.reader.SingleColumnSingleValueReader;
 import org.apache.pinot.core.segment.index.ColumnMetadata;
 import org.apache.pinot.core.segment.index.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.index.data.source.ColumnDataSource;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
@@ -49,6 +52,22 @@ public class PinotSegmentColumnReader {
     }
   }
 
+  /**
+   * Constructor for both immutable and mutable segments, where the column is read through its data source.
+   */
+  public PinotSegmentColumnReader(IndexSegment indexSegment, String column) {
+    ColumnDataSource dataSource = (ColumnDataSource) indexSegment.getDataSource(column);
+    _dictionary = dataSource.getDictionary();
+    _reader = dataSource.getForwardIndex();
+    _readerContext = _reader.createContext();
+    DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
+    if (dataSourceMetadata.isSingleValue()) {
+      _mvBuffer = null;
+    } else {
+      _mvBuffer = new int[dataSourceMetadata.getMaxNumMultiValues()];
+    }
+  }
+
   public Object readInt(int docId) {
     SingleColumnSingleValueReader svReader = (SingleColumnSingleValueReader) _reader;
     if (_dictionary != null) {
@@ -20,10 +20,12 @@ package org.apache.pinot.core.indexsegment;
 
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.pinot.annotations.InterfaceAudience;
 import org.apache.pinot.common.segment.SegmentMetadata;
 import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.data.GenericRow;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.startree.v2.StarTreeV2;
 
 @InterfaceAudience.Private
@@ -80,6 +82,13 @@ public interface IndexSegment {
    */
   GenericRow getRecord(int docId, GenericRow reuse);
 
+  /**
+   * Returns the valid document ids of the segment for upsert tables, or null if upsert is not enabled (all documents
+   * are valid).
+   */
+  @Nullable
+  ValidDocIds getValidDocIds();
+
   /**
    * Destroys segment in memory and closes file handlers if in MMAP mode.
    */
@@ -103,6 +103,8 @@ public class SegmentGeneratorConfig {
   private boolean _enableStarTreeIndex = false;
   private StarTreeIndexSpec _starTreeIndexSpec = null;
   private List<StarTreeV2BuilderConfig> _starTreeV2BuilderConfigs = null;
+  // Max number of star-trees v2 to build in parallel
+  private int _starTreeV2NumBuildThreads = 1;
   private String _creatorVersion = null;
   private HllConfig _hllConfig = null;
   private SegmentNameGenerator _segmentNameGenerator = null;
@@ -152,6 +154,7 @@ public class SegmentGeneratorConfig {
     _enableStarTreeIndex = config._enableStarTreeIndex;
     _starTreeIndexSpec = config._starTreeIndexSpec;
     _starTreeV2BuilderConfigs = config._starTreeV2BuilderConfigs;
+    _starTreeV2NumBuildThreads = config._starTreeV2NumBuildThreads;
     _creatorVersion = config._creatorVersion;
     _hllConfig = config._hllConfig;
     _segmentNameGenerator = config._segmentNameGenerator;
@@ -565,6 +568,14 @@ public class SegmentGeneratorConfig {
     _starTreeV2BuilderConfigs = starTreeV2BuilderConfigs;
   }
 
+  public int getStarTreeV2NumBuildThreads() {
+    return _starTreeV2NumBuildThreads;
+  }
+
+  public void setStarTreeV2NumBuildThreads(int starTreeV2NumBuildThreads) {
+    _starTreeV2NumBuildThreads = starTreeV2NumBuildThreads;
+  }
+
   public HllConfig getHllConfig() {
     return _hllConfig;
   }
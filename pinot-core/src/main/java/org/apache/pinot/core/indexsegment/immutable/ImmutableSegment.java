@@ -20,6 +20,7 @@ package org.apache.pinot.core.indexsegment.immutable;
 
 import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.io.reader.DataFileReader;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
 import org.apache.pinot.core.segment.index.readers.InvertedIndexReader;
 
@@ -56,4 +57,11 @@ public interface ImmutableSegment extends IndexSegment {
    * @return Size of the segment in bytes
    */
   long getSegmentSizeBytes();
+
+  /**
+   * Sets the valid document ids of the segment for upsert tables.
+   *
+   * @param validDocIds Valid document ids
+   */
+  void setValidDocIds(ValidDocIds validDocIds);
 }
@@ -28,6 +28,7 @@ import org.apache.pinot.common.data.Schema;
 import org.apache.pinot.core.data.GenericRow;
 import org.apache.pinot.core.indexsegment.IndexSegmentUtils;
 import org.apache.pinot.core.io.reader.DataFileReader;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.segment.index.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.index.column.ColumnIndexContainer;
 import org.apache.pinot.core.segment.index.data.source.ColumnDataSource;
@@ -48,6 +49,9 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
   private final Map<String, ColumnIndexContainer> _indexContainerMap;
   private final StarTreeIndexContainer _starTreeIndexContainer;
 
+  // Set by the table data manager for upsert tables before the segment is queryable
+  private volatile ValidDocIds _validDocIds;
+
   public ImmutableSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
       Map<String, ColumnIndexContainer> columnIndexContainerMap,
       @Nullable StarTreeIndexContainer starTreeIndexContainer) {
@@ -146,6 +150,17 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
     }
   }
 
+  @Nullable
+  @Override
+  public ValidDocIds getValidDocIds() {
+    return _validDocIds;
+  }
+
+  @Override
+  public void setValidDocIds(ValidDocIds validDocIds) {
+    _validDocIds = validDocIds;
+  }
+
   @Override
   public List<StarTreeV2> getStarTrees() {
     return _starTreeIndexContainer != null ? _starTreeIndexContainer.getStarTrees() : null;
@@ -22,6 +22,7 @@ import javax.annotation.Nullable;
 import org.apache.pinot.common.metadata.RowMetadata;
 import org.apache.pinot.core.data.GenericRow;
 import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.realtime.impl.startree.RealtimeStarTreeIndex;
 
 
 public interface MutableSegment extends IndexSegment {
@@ -41,4 +42,12 @@ public interface MutableSegment extends IndexSegment {
    * @return The number of records indexed
    */
   int getNumDocsIndexed();
+
+  /**
+   * Returns a snapshot of the star-trees built on the sealed documents of the segment.
+   *
+   * @return Snapshot of the star-trees, null if star-tree is not enabled for the segment
+   */
+  @Nullable
+  RealtimeStarTreeIndex.Snapshot getStarTreeSnapshot();
 }
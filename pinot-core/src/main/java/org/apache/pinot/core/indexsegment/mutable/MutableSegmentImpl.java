@@ -35,8 +35,10 @@ import org.apache.pinot.common.data.DimensionFieldSpec;
 import org.apache.pinot.common.data.FieldSpec;
 import org.apache.pinot.common.data.MetricFieldSpec;
 import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.common.metadata.RowMetadata;
 import org.apache.pinot.common.segment.SegmentMetadata;
+import org.apache.pinot.common.utils.LLCSegmentName;
 import org.apache.pinot.common.utils.NetUtil;
 import org.apache.pinot.core.data.GenericRow;
 import org.apache.pinot.core.indexsegment.IndexSegmentUtils;
@@ -50,6 +52,11 @@ import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.MutableDictionaryFactory;
 import org.apache.pinot.core.realtime.impl.invertedindex.RealtimeInvertedIndexReader;
+import org.apache.pinot.core.realtime.impl.sortedindex.RealtimeSortedIndex;
+import org.apache.pinot.core.realtime.impl.startree.RealtimeStarTreeIndex;
+import org.apache.pinot.core.realtime.impl.upsert.PartitionUpsertMetadataManager;
+import org.apache.pinot.core.realtime.impl.upsert.PrimaryKey;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.index.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.index.data.source.ColumnDataSource;
@@ -57,7 +64,9 @@ import org.apache.pinot.core.segment.index.readers.BloomFilterReader;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnContext;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProvider;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProviderFactory;
+import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
 import org.apache.pinot.core.startree.v2.StarTreeV2;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
 import org.apache.pinot.core.util.FixedIntArray;
 import org.apache.pinot.core.util.FixedIntArrayOffHeapIdMap;
 import org.apache.pinot.core.util.IdMap;
@@ -73,7 +82,6 @@ public class MutableSegmentImpl implements MutableSegment {
   private static final String RECORD_ID_MAP = "__recordIdMap__";
   private static final int EXPECTED_COMPRESSION = 1000;
   private static final int MIN_ROWS_TO_INDEX = 1000_000; // Min size of recordIdMap for updatable metrics.
-  private static final int MIN_RECORD_ID_MAP_CACHE_SIZE = 10000; // Min overflow map size for updatable metrics.
 
   private final Logger _logger;
   private final long _startTimeMillis = System.currentTimeMillis();
@@ -87,6 +95,12 @@ public class MutableSegmentImpl implements MutableSegment {
   private final RealtimeSegmentStatsHistory _statsHistory;
   private final SegmentPartitionConfig _segmentPartitionConfig;
 
+  // Upsert related, null if upsert is not enabled
+  private final PartitionUpsertMetadataManager _partitionUpsertMetadataManager;
+  private final List<String> _primaryKeyColumns;
+  private final ValidDocIds _validDocIds;
+  private final int _sequenceNumber;
+
   private final Map<String, BaseMutableDictionary> _dictionaryMap = new HashMap<>();
   private final Map<String, DataFileReader> _indexReaderWriterMap = new HashMap<>();
   private final Map<String, Integer> _maxNumValuesMap = new HashMap<>();
@@ -95,6 +109,9 @@ public class MutableSegmentImpl implements MutableSegment {
   private final IdMap<FixedIntArray> _recordIdMap;
   private boolean _aggregateMetrics;
 
+  // Star-trees on the sealed documents, null if star-tree is not enabled
+  private final RealtimeStarTreeIndex _starTreeIndex;
+
   private volatile int _numDocsIndexed = 0;
 
   // to compute the rolling interval
@@ -143,6 +160,18 @@ public class MutableSegmentImpl implements MutableSegment {
     _statsHistory = config.getStatsHistory();
     _segmentPartitionConfig = config.getSegmentPartitionConfig();
 
+    _partitionUpsertMetadataManager = config.getPartitionUpsertMetadataManager();
+    if (_partitionUpsertMetadataManager != null) {
+      _primaryKeyColumns = config.getPrimaryKeyColumns();
+      _validDocIds = new ValidDocIds();
+      _sequenceNumber = new LLCSegmentName(_segmentName).getSequenceNumber();
+      _partitionUpsertMetadataManager.addSegment(_sequenceNumber, _validDocIds);
+    } else {
+      _primaryKeyColumns = null;
+      _validDocIds = null;
+      _sequenceNumber = -1;
+    }
+
     Collection<FieldSpec> allFieldSpecs = _schema.getAllFieldSpecs();
     List<FieldSpec> physicalFieldSpecs = new ArrayList<>(allFieldSpecs.size());
     List<DimensionFieldSpec> physicalDimensionFieldSpecs = new ArrayList<>(_schema.getDimensionNames().size());
@@ -171,6 +200,7 @@ public class MutableSegmentImpl implements MutableSegment {
     Set<String> noDictionaryColumns = config.getNoDictionaryColumns();
 
     Set<String> invertedIndexColumns = config.getInvertedIndexColumns();
+    String sortedColumn = config.getSortedColumn();
     int avgNumMultiValues = config.getAvgNumMultiValues();
 
     // Initialize for each column
@@ -202,6 +232,12 @@ public class MutableSegmentImpl implements MutableSegment {
                 Math.min(estimatedCardinality, _capacity), allocationContext);
         _dictionaryMap.put(column, dictionary);
 
+        // Maintain sorted index for the sorted column so that range predicates on it do not need to scan the whole
+        // dictionary and forward index
+        if (column.equals(sortedColumn) && fieldSpec.isSingleValueField() && invertedIndexColumns.contains(column)) {
+          dictionary.setSortedIndex(new RealtimeSortedIndex(dictionary, dataType));
+        }
+
         // Even though the column is defined as 'no-dictionary' in the config, we did create dictionary for consuming segment.
         noDictionaryColumns.remove(column);
       }
@@ -230,6 +266,10 @@ public class MutableSegmentImpl implements MutableSegment {
     // Metric aggregation can be enabled only if config is specified, and all dimensions have dictionary,
     // and no metrics have dictionary. If not enabled, the map returned is null.
     _recordIdMap = enableMetricsAggregationIfPossible(config, noDictionaryColumns);
+
+    // Star-tree can be enabled only if config is specified, and neither upsert nor metrics aggregation is enabled. If
+    // not enabled, the index returned is null.
+    _starTreeIndex = enableStarTreeIfPossible(config);
   }
 
   public SegmentPartitionConfig getSegmentPartitionConfig() {
@@ -263,8 +303,20 @@ public class MutableSegmentImpl implements MutableSegment {
       addForwardIndex(row, docId, dictIdMap);
       addInvertedIndex(docId, dictIdMap);
 
+      // Update the upsert metadata before the document becomes queryable. The new document is not visible to queries
+      // until the number of documents indexed is updated, so the primary key might be missing for a short period
+      // instead of being returned twice.
+      if (_partitionUpsertMetadataManager != null) {
+        _partitionUpsertMetadataManager.updateRecord(getPrimaryKey(row), _sequenceNumber, docId);
+      }
+
       // Update number of document indexed at last to make the latest record queryable
       canTakeMore = _numDocsIndexed++ < _capacity;
+
+      // Build star-trees on the documents indexed since the last build if there are enough of them
+      if (_starTreeIndex != null) {
+        _starTreeIndex.onDocIndexed(_numDocsIndexed);
+      }
     } else {
       Preconditions
           .checkState(_aggregateMetrics, "Invalid document-id during indexing: " + docId + " expected: " + numDocs);
@@ -289,7 +341,12 @@ public class MutableSegmentImpl implements MutableSegment {
       BaseMutableDictionary dictionary = _dictionaryMap.get(column);
       if (dictionary != null) {
         if (fieldSpec.isSingleValueField()) {
-          dictIdMap.put(column, dictionary.index(value));
+          int dictId = dictionary.index(value);
+          dictIdMap.put(column, dictId);
+          RealtimeSortedIndex sortedIndex = dictionary.getSortedIndex();
+          if (sortedIndex != null) {
+            sortedIndex.add(dictId);
+          }
         } else {
           int[] dictIds = dictionary.index((Object[]) value);
           dictIdMap.put(column, dictIds);
@@ -462,6 +519,27 @@ public class MutableSegmentImpl implements MutableSegment {
     return null;
   }
 
+  @Nullable
+  @Override
+  public ValidDocIds getValidDocIds() {
+    return _validDocIds;
+  }
+
+  @Nullable
+  @Override
+  public RealtimeStarTreeIndex.Snapshot getStarTreeSnapshot() {
+    return _starTreeIndex != null ? _starTreeIndex.getSnapshot() : null;
+  }
+
+  private PrimaryKey getPrimaryKey(GenericRow row) {
+    int numPrimaryKeyColumns = _primaryKeyColumns.size();
+    Object[] values = new Object[numPrimaryKeyColumns];
+    for (int i = 0; i < numPrimaryKeyColumns; i++) {
+      values[i] = row.getValue(_primaryKeyColumns.get(i));
+    }
+    return new PrimaryKey(values);
+  }
+
   /**
    * Returns a record that contains only physical columns
    * @param docId document ID
@@ -553,14 +631,19 @@ public class MutableSegmentImpl implements MutableSegment {
    */
   public int[] getSortedDocIdIterationOrderWithSortedColumn(String column) {
     BaseMutableDictionary dictionary = _dictionaryMap.get(column);
-    int numValues = dictionary.length();
-
-    int[] dictIds = new int[numValues];
-    for (int i = 0; i < numValues; i++) {
-      dictIds[i] = i;
+    int[] dictIds;
+    RealtimeSortedIndex sortedIndex = dictionary.getSortedIndex();
+    if (sortedIndex != null) {
+      // Dictionary ids are already sorted by the sorted index
+      dictIds = sortedIndex.getSortedDictIds();
+    } else {
+      int numValues = dictionary.length();
+      dictIds = new int[numValues];
+      for (int i = 0; i < numValues; i++) {
+        dictIds[i] = i;
+      }
+      IntArrays.quickSort(dictIds, (dictId1, dictId2) -> dictionary.compare(dictId1, dictId2));
     }
-
-    IntArrays.quickSort(dictIds, (dictId1, dictId2) -> dictionary.compare(dictId1, dictId2));
     RealtimeInvertedIndexReader invertedIndex = _invertedIndexMap.get(column);
     int[] docIds = new int[_numDocsIndexed];
     int docIdIndex = 0;
@@ -611,6 +694,58 @@ public class MutableSegmentImpl implements MutableSegment {
     return _recordIdMap.put(new FixedIntArray(dictIds));
   }
 
+  /**
+   * Helper method to enable/initialize star-tree on the sealed documents, based on following conditions:
+   * <ul>
+   *   <li> Star-tree configs and number of documents per tree are specified. </li>
+   *   <li> Neither upsert nor metrics aggregation is enabled. This is because documents already covered by the
+   *        star-trees cannot be invalidated or updated. </li>
+   *   <li> All star-tree dimensions are single-valued and dictionary encoded. </li>
+   *   <li> All star-tree metrics are single-valued. </li>
+   * </ul>
+   *
+   * @param config Segment config.
+   *
+   * @return Star-tree index, null if star-tree cannot be enabled.
+   */
+  private RealtimeStarTreeIndex enableStarTreeIfPossible(RealtimeSegmentConfig config) {
+    List<StarTreeV2BuilderConfig> builderConfigs = config.getStarTreeV2BuilderConfigs();
+    int numDocsPerTree = config.getStarTreeNumDocsPerTree();
+    if (builderConfigs == null || builderConfigs.isEmpty() || numDocsPerTree <= 0) {
+      return null;
+    }
+    if (_validDocIds != null || _recordIdMap != null) {
+      _logger.warn("Star-tree cannot be turned ON with upsert or metrics aggregation");
+      return null;
+    }
+
+    for (StarTreeV2BuilderConfig builderConfig : builderConfigs) {
+      for (String dimension : builderConfig.getDimensionsSplitOrder()) {
+        FieldSpec fieldSpec = _schema.getFieldSpecFor(dimension);
+        if (fieldSpec == null || !fieldSpec.isSingleValueField() || !_dictionaryMap.containsKey(dimension)) {
+          _logger.warn("Star-tree cannot be turned ON in presence of non single-value dictionary encoded dimension: {}",
+              dimension);
+          return null;
+        }
+      }
+      for (AggregationFunctionColumnPair functionColumnPair : builderConfig.getFunctionColumnPairs()) {
+        if (functionColumnPair.getFunctionType() == AggregationFunctionType.COUNT) {
+          continue;
+        }
+        String metric = functionColumnPair.getColumn();
+        FieldSpec fieldSpec = _schema.getFieldSpecFor(metric);
+        if (fieldSpec == null || !fieldSpec.isSingleValueField()) {
+          _logger.warn("Star-tree cannot be turned ON in presence of non single-value metric: {}", metric);
+          return null;
+        }
+      }
+    }
+
+    _logger.info("Star-tree is enabled with {} documents per tree", numDocsPerTree);
+    return new RealtimeStarTreeIndex(this, builderConfigs, numDocsPerTree, config.getStarTreeTempDir(), _memoryManager,
+        config.getServerMetrics());
+  }
+
   /**
    * Helper method to enable/initialize aggregation of metrics, based on following conditions:
    * <ul>
@@ -695,12 +830,7 @@ public class MutableSegmentImpl implements MutableSegment {
       estimatedRowsToIndex = Math.max(_statsHistory.getEstimatedRowsToIndex(), MIN_ROWS_TO_INDEX);
     }
 
-    // Compute size of overflow map.
-    int maxOverFlowHashSize = Math.max(estimatedRowsToIndex / 1000, MIN_RECORD_ID_MAP_CACHE_SIZE);
-
-    _logger.info("Initializing metrics update: estimatedRowsToIndex:{}, cacheSize:{}", estimatedRowsToIndex,
-        maxOverFlowHashSize);
-    return new FixedIntArrayOffHeapIdMap(estimatedRowsToIndex, maxOverFlowHashSize, _numKeyColumns, _memoryManager,
-        RECORD_ID_MAP);
+    _logger.info("Initializing metrics update: estimatedRowsToIndex:{}", estimatedRowsToIndex);
+    return new FixedIntArrayOffHeapIdMap(estimatedRowsToIndex, _numKeyColumns, _memoryManager, RECORD_ID_MAP);
   }
 }
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
+import org.apache.pinot.common.utils.StringUtil;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.segment.memory.PinotDataBuffer;
 import org.slf4j.Logger;
@@ -138,6 +139,31 @@ public class MutableOffHeapByteArrayStore implements Closeable {
       return true;
     }
 
+    private boolean equalsStringAt(String value, int index) {
+      int startOffset = _byteBuffer.getInt(index * Integer.BYTES);
+      int endOffset = _byteBuffer.capacity();
+      if (index > 0) {
+        endOffset = _byteBuffer.getInt((index - 1) * Integer.BYTES);
+      }
+      int numBytes = endOffset - startOffset;
+      int numChars = value.length();
+      // Each character takes at least one byte in UTF-8
+      if (numChars > numBytes) {
+        return false;
+      }
+      for (int i = 0, j = startOffset; i < numChars; i++, j++) {
+        char c = value.charAt(i);
+        if (c >= 0x80) {
+          // Non-ASCII character, fall back to comparing the UTF-8 encoded bytes
+          return equalsValueAt(StringUtil.encodeUtf8(value), index);
+        }
+        if ((byte) c != _byteBuffer.get(j)) {
+          return false;
+        }
+      }
+      return numChars == numBytes;
+    }
+
     private byte[] get(final int index) {
       int startOffset = _byteBuffer.getInt(index * Integer.BYTES);
       int endOffset = _byteBuffer.capacity();
@@ -249,6 +275,21 @@ public class MutableOffHeapByteArrayStore implements Closeable {
     throw new RuntimeException("dictionary ID '" + index + "' too low");
   }
 
+  /**
+   * Compares the value at the given index with the UTF-8 encoded bytes of the given string. For ASCII strings, the
+   * comparison is done in place without encoding the string.
+   */
+  public boolean equalsValueAt(String value, int index) {
+    List<Buffer> bufList = _buffers;
+    for (int x = bufList.size() - 1; x >= 0; x--) {
+      Buffer buffer = bufList.get(x);
+      if (index >= buffer.getStartIndex()) {
+        return buffer.equalsStringAt(value, index - buffer.getStartIndex());
+      }
+    }
+    throw new RuntimeException("dictionary ID '" + index + "' too low");
+  }
+
   @Override
   public void close()
       throws IOException {
@@ -20,6 +20,7 @@ package org.apache.pinot.core.operator;
 
 import org.apache.pinot.core.common.Block;
 import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.query.exception.QueryCancelledException;
 import org.apache.pinot.core.util.trace.TraceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,11 @@ public abstract class BaseOperator<T extends Block> implements Operator<T> {
 
   @Override
   public final T nextBlock() {
+    // Check for query cancellation between blocks (the thread processing the query gets interrupted when the query is
+    // cancelled)
+    if (Thread.currentThread().isInterrupted()) {
+      throw new QueryCancelledException("Cancelled while processing: " + getOperatorName());
+    }
     if (TraceContext.traceEnabled()) {
       long start = System.currentTimeMillis();
       T nextBlock = getNextBlock();
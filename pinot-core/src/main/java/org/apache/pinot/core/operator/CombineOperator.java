@@ -18,8 +18,14 @@
  */
 package org.apache.pinot.core.operator;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
@@ -27,12 +33,26 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.request.AggregationInfo;
 import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.Selection;
+import org.apache.pinot.common.request.SelectionSort;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
 import org.apache.pinot.core.common.Block;
 import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 import org.apache.pinot.core.operator.blocks.IntermediateResultsBlock;
+import org.apache.pinot.core.operator.query.SelectionOrderByOperator;
+import org.apache.pinot.core.query.aggregation.DistinctTable;
 import org.apache.pinot.core.query.reduce.CombineService;
+import org.apache.pinot.core.segment.index.ColumnMetadata;
+import org.apache.pinot.core.segment.index.SegmentMetadataImpl;
 import org.apache.pinot.core.util.trace.TraceCallable;
 import org.apache.pinot.core.util.trace.TraceRunnable;
 import org.slf4j.Logger;
@@ -41,6 +61,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The <code>CombineOperator</code> class is the operator to combine selection results and aggregation only results.
+ * <p>For selection only and DISTINCT queries, the rows collected by all the segment groups are tracked with a shared
+ * row budget, and the remaining segments are skipped (never executed) once enough rows are collected.
+ * <p>For selection order-by queries on a column, the segments are ordered by the min/max value of the first order-by
+ * column from the segment metadata (most promising segments first). Once a segment group has collected enough rows,
+ * the worst value kept is shared as a threshold, and the segments whose min/max value cannot beat the threshold are
+ * skipped.
  */
 public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CombineOperator.class);
@@ -50,6 +76,13 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private final long _timeOutMs;
+  // Number of rows after which the remaining segments can be skipped, or -1 if all segments need to be processed
+  private final int _numRowsToCollect;
+  private final boolean _isDistinct;
+  // First order-by column for selection order-by queries, or null if not ordered by a column
+  private final String _orderByColumn;
+  private final boolean _orderByAsc;
+  private final int _numOrderByRowsToKeep;
   //Make this configurable
   //These two control the parallelism on a per query basis, depending on the number of segments to process
   private static final int MIN_THREADS_PER_QUERY;
@@ -69,6 +102,140 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
     _executorService = executorService;
     _brokerRequest = brokerRequest;
     _timeOutMs = timeOutMs;
+    _isDistinct = isDistinct(brokerRequest);
+    _numRowsToCollect = getNumRowsToCollect(brokerRequest, _isDistinct);
+
+    Selection selection = brokerRequest.getSelections();
+    String orderByColumn = null;
+    boolean orderByAsc = false;
+    int numOrderByRowsToKeep = 0;
+    if (selection != null && selection.isSetSelectionSortSequence()) {
+      SelectionSort firstSelectionSort = selection.getSelectionSortSequence().get(0);
+      TransformExpressionTree orderByExpression =
+          TransformExpressionTree.compileToExpressionTree(firstSelectionSort.getColumn());
+      if (orderByExpression.isColumn()) {
+        orderByColumn = orderByExpression.getValue();
+        orderByAsc = firstSelectionSort.isIsAsc();
+        numOrderByRowsToKeep = selection.getOffset() + selection.getSize();
+      }
+    }
+    _orderByColumn = orderByColumn;
+    _orderByAsc = orderByAsc;
+    _numOrderByRowsToKeep = numOrderByRowsToKeep;
+  }
+
+  private static boolean isDistinct(BrokerRequest brokerRequest) {
+    List<AggregationInfo> aggregationsInfo = brokerRequest.getAggregationsInfo();
+    return aggregationsInfo != null && aggregationsInfo.size() == 1 && brokerRequest.getGroupBy() == null
+        && aggregationsInfo.get(0).getAggregationType().equalsIgnoreCase(AggregationFunctionType.DISTINCT.getName());
+  }
+
+  private static int getNumRowsToCollect(BrokerRequest brokerRequest, boolean isDistinct) {
+    if (isDistinct) {
+      return brokerRequest.getLimit();
+    }
+    Selection selection = brokerRequest.getSelections();
+    if (selection != null && !selection.isSetSelectionSortSequence()) {
+      return selection.getSize();
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of rows collected in the given merged block of a segment group.
+   */
+  private int getNumRows(IntermediateResultsBlock mergedBlock) {
+    if (_isDistinct) {
+      List<Object> aggregationResult = mergedBlock.getAggregationResult();
+      return aggregationResult != null ? ((DistinctTable) aggregationResult.get(0)).size() : 0;
+    } else {
+      Collection<Serializable[]> selectionResult = mergedBlock.getSelectionResult();
+      return selectionResult != null ? selectionResult.size() : 0;
+    }
+  }
+
+  /**
+   * Returns the best value of the first order-by column that the segment of the given operator can provide (max value
+   * for descending order, min value for ascending order), or null if not available from the segment metadata.
+   */
+  private Comparable getOrderByBound(Operator operator) {
+    if (!(operator instanceof SelectionOrderByOperator)) {
+      return null;
+    }
+    IndexSegment indexSegment = ((SelectionOrderByOperator) operator).getIndexSegment();
+    // Column metadata is only available for immutable segments
+    if (!(indexSegment instanceof ImmutableSegment)
+        || !(indexSegment.getSegmentMetadata() instanceof SegmentMetadataImpl)) {
+      return null;
+    }
+    ColumnMetadata columnMetadata =
+        ((SegmentMetadataImpl) indexSegment.getSegmentMetadata()).getColumnMetadataFor(_orderByColumn);
+    if (columnMetadata == null || !columnMetadata.isSingleValue()) {
+      return null;
+    }
+    return _orderByAsc ? columnMetadata.getMinValue() : columnMetadata.getMaxValue();
+  }
+
+  /**
+   * Returns whether the segment with the given bound cannot provide any row better than the threshold. Rows equal to
+   * the threshold are kept because they might win on the following order-by expressions.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean canSkip(Comparable bound, Comparable threshold) {
+    if (bound.getClass() != threshold.getClass()) {
+      return false;
+    }
+    int result = bound.compareTo(threshold);
+    return _orderByAsc ? result > 0 : result < 0;
+  }
+
+  /**
+   * Returns the worst value of the first order-by column kept in the given merged block, or null if the block has not
+   * collected enough rows yet.
+   */
+  @SuppressWarnings("unchecked")
+  private Comparable getOrderByThreshold(IntermediateResultsBlock mergedBlock) {
+    Collection<Serializable[]> selectionResult = mergedBlock.getSelectionResult();
+    if (!(selectionResult instanceof PriorityQueue) || selectionResult.size() < _numOrderByRowsToKeep) {
+      return null;
+    }
+    // The order-by expressions come first in the row, and the worst row is at the head of the priority queue
+    Serializable value = ((PriorityQueue<Serializable[]>) selectionResult).peek()[0];
+    return value instanceof Comparable ? (Comparable) value : null;
+  }
+
+  private Map<Operator, Comparable> getOrderByBounds(List<Operator> operators) {
+    Map<Operator, Comparable> orderByBounds = new IdentityHashMap<>();
+    for (Operator operator : operators) {
+      Comparable bound = getOrderByBound(operator);
+      if (bound != null) {
+        orderByBounds.put(operator, bound);
+      }
+    }
+    return orderByBounds;
+  }
+
+  /**
+   * Orders the operators so that the segments without bound come first (they cannot be skipped), followed by the
+   * segments with the best bounds, which are the most likely to fill the result.
+   */
+  @SuppressWarnings("unchecked")
+  private List<Operator> sortByOrderByBounds(List<Operator> operators, Map<Operator, Comparable> orderByBounds) {
+    Class boundClass = null;
+    for (Comparable bound : orderByBounds.values()) {
+      if (boundClass == null) {
+        boundClass = bound.getClass();
+      } else if (bound.getClass() != boundClass) {
+        return operators;
+      }
+    }
+    if (boundClass == null) {
+      return operators;
+    }
+    Comparator<Comparable> boundComparator = (b1, b2) -> _orderByAsc ? b1.compareTo(b2) : b2.compareTo(b1);
+    List<Operator> sortedOperators = new ArrayList<>(operators);
+    sortedOperators.sort(Comparator.comparing(orderByBounds::get, Comparator.nullsFirst(boundComparator)));
+    return sortedOperators;
   }
 
   @Override
@@ -80,23 +247,57 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
     final int numGroups = Math.min(numOperators, Math.max(MIN_THREADS_PER_QUERY,
         Math.min(MAX_THREADS_PER_QUERY, (numOperators + MIN_SEGMENTS_PER_THREAD - 1) / MIN_SEGMENTS_PER_THREAD)));
 
+    final Map<Operator, Comparable> orderByBounds;
+    final List<Operator> operators;
+    if (_orderByColumn != null) {
+      orderByBounds = getOrderByBounds(_operators);
+      operators = sortByOrderByBounds(_operators, orderByBounds);
+    } else {
+      orderByBounds = null;
+      operators = _operators;
+    }
+
     final List<List<Operator>> operatorGroups = new ArrayList<>(numGroups);
     for (int i = 0; i < numGroups; i++) {
       operatorGroups.add(new ArrayList<Operator>());
     }
     for (int i = 0; i < numOperators; i++) {
-      operatorGroups.get(i % numGroups).add(_operators.get(i));
+      operatorGroups.get(i % numGroups).add(operators.get(i));
     }
 
     final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<>(numGroups);
+    // Rows collected by all the segment groups. Selection rows from different groups add up, but DISTINCT rows might
+    // overlap, so the max of the groups is used for DISTINCT.
+    final AtomicLong numRowsCollected = new AtomicLong();
+    final AtomicInteger numOperatorsSkipped = new AtomicInteger();
+    // Worst value of the first order-by column kept by the segment groups that have collected enough rows
+    final AtomicReference<Comparable> orderByThreshold = new AtomicReference<>();
     // Submit operators.
+    final List<Future> futures = new ArrayList<>(numGroups);
     for (final List<Operator> operatorGroup : operatorGroups) {
-      _executorService.submit(new TraceRunnable() {
+      futures.add(_executorService.submit(new TraceRunnable() {
         @Override
         public void runJob() {
           IntermediateResultsBlock mergedBlock = null;
+          int numRowsInGroup = 0;
+          int numOperatorsProcessed = 0;
           try {
             for (Operator operator : operatorGroup) {
+              // Skip the remaining segments once enough rows are collected (process at least one segment per group so
+              // that the group always has a result block)
+              if (mergedBlock != null && _numRowsToCollect >= 0 && numRowsCollected.get() >= _numRowsToCollect) {
+                numOperatorsSkipped.addAndGet(operatorGroup.size() - numOperatorsProcessed);
+                break;
+              }
+              if (mergedBlock != null && orderByBounds != null) {
+                Comparable bound = orderByBounds.get(operator);
+                Comparable threshold = orderByThreshold.get();
+                if (bound != null && threshold != null && canSkip(bound, threshold)) {
+                  numOperatorsSkipped.incrementAndGet();
+                  continue;
+                }
+              }
+              numOperatorsProcessed++;
               IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
               if (mergedBlock == null) {
                 mergedBlock = blockToMerge;
@@ -109,6 +310,22 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
                       .addToProcessingExceptions(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
                 }
               }
+              if (_numRowsToCollect >= 0) {
+                int numRows = getNumRows(mergedBlock);
+                if (_isDistinct) {
+                  numRowsCollected.accumulateAndGet(numRows, Math::max);
+                } else {
+                  numRowsCollected.addAndGet(numRows - numRowsInGroup);
+                }
+                numRowsInGroup = numRows;
+              }
+              if (orderByBounds != null) {
+                Comparable groupThreshold = getOrderByThreshold(mergedBlock);
+                if (groupThreshold != null) {
+                  orderByThreshold.accumulateAndGet(groupThreshold,
+                      (current, update) -> current == null || canSkip(current, update) ? update : current);
+                }
+              }
             }
           } catch (Exception e) {
             LOGGER.error("Caught exception while executing query.", e);
@@ -117,7 +334,7 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
           assert mergedBlock != null;
           blockingQueue.offer(mergedBlock);
         }
-      });
+      }));
     }
     LOGGER.debug("Submitting operators to be run in parallel and it took:" + (System.currentTimeMillis() - startTime));
 
@@ -165,16 +382,26 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
     try {
       mergedBlock = mergedBlockFuture.get(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
-      LOGGER.error("Caught InterruptedException.", e);
-      mergedBlock = new IntermediateResultsBlock(QueryException.getException(QueryException.FUTURE_CALL_ERROR, e));
+      LOGGER.info("Interrupted while waiting for the merged results, query got cancelled");
+      mergedBlock =
+          new IntermediateResultsBlock(QueryException.getException(QueryException.QUERY_CANCELLATION_ERROR, e));
     } catch (ExecutionException e) {
       LOGGER.error("Caught ExecutionException.", e);
       mergedBlock = new IntermediateResultsBlock(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
     } catch (TimeoutException e) {
       LOGGER.error("Caught TimeoutException", e);
-      mergedBlockFuture.cancel(true);
       mergedBlock =
           new IntermediateResultsBlock(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
+    } finally {
+      // Cancel all ongoing jobs
+      if (!mergedBlockFuture.isDone()) {
+        mergedBlockFuture.cancel(true);
+      }
+      for (Future future : futures) {
+        if (!future.isDone()) {
+          future.cancel(true);
+        }
+      }
     }
 
     // Update execution statistics.
@@ -191,6 +418,10 @@ public class CombineOperator extends BaseOperator<IntermediateResultsBlock> {
     mergedBlock.setNumTotalRawDocs(executionStatistics.getNumTotalRawDocs());
     mergedBlock.setNumSegmentsProcessed(executionStatistics.getNumSegmentsProcessed());
     mergedBlock.setNumSegmentsMatched(executionStatistics.getNumSegmentsMatched());
+    if (numOperatorsSkipped.get() > 0) {
+      LOGGER.debug("Skipped {} segments out of {} after collecting {} rows (order-by threshold: {})",
+          numOperatorsSkipped.get(), numOperators, numRowsCollected.get(), orderByThreshold.get());
+    }
 
     return mergedBlock;
   }
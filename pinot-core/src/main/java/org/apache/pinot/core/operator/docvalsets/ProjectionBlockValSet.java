@@ -22,6 +22,7 @@ import org.apache.pinot.common.data.FieldSpec.DataType;
 import org.apache.pinot.core.common.BaseBlockValSet;
 import org.apache.pinot.core.common.DataBlockCache;
 import org.apache.pinot.core.operator.ProjectionOperator;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -60,6 +61,11 @@ public class ProjectionBlockValSet extends BaseBlockValSet {
     return _singleValue;
   }
 
+  @Override
+  public Dictionary getDictionary() {
+    return _dataBlockCache.getDictionary(_column);
+  }
+
   @Override
   public int[] getDictionaryIdsSV() {
     return _dataBlockCache.getDictIdsForSVColumn(_column);
@@ -24,6 +24,7 @@ import org.apache.pinot.core.operator.blocks.ProjectionBlock;
 import org.apache.pinot.core.operator.transform.TransformResultMetadata;
 import org.apache.pinot.core.operator.transform.function.TransformFunction;
 import org.apache.pinot.core.plan.DocIdSetPlanNode;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -52,6 +53,11 @@ public class TransformBlockValSet extends BaseBlockValSet {
     return _transformFunction.getResultMetadata().isSingleValue();
   }
 
+  @Override
+  public Dictionary getDictionary() {
+    return _transformFunction.getDictionary();
+  }
+
   @Override
   public int[] getDictionaryIdsSV() {
     return _transformFunction.transformToDictIdsSV(_projectionBlock);
@@ -59,15 +59,23 @@ public class ExpressionFilterOperator extends BaseFilterOperator {
   private final PredicateEvaluator _predicateEvaluator;
 
   public ExpressionFilterOperator(IndexSegment segment, TransformExpressionTree expression, Predicate predicate) {
-    _numDocs = segment.getSegmentMetadata().getTotalRawDocs();
-    _expression = expression;
+    this(getDataSourceMap(segment, expression), segment.getSegmentMetadata().getTotalRawDocs(), expression,
+        predicate);
+  }
 
-    _dataSourceMap = new HashMap<>();
-    Set<String> columns = new HashSet<>();
-    expression.getColumns(columns);
-    for (String column : columns) {
-      _dataSourceMap.put(column, segment.getDataSource(column));
-    }
+  /**
+   * Constructor for the expression filter operator on the given data sources (e.g. the data sources of a star-tree).
+   *
+   * @param dataSourceMap Map from column to data source for all columns in the expression
+   * @param numDocs Number of documents in the data sources
+   * @param expression Expression to apply the predicate on
+   * @param predicate Predicate to apply
+   */
+  public ExpressionFilterOperator(Map<String, DataSource> dataSourceMap, int numDocs,
+      TransformExpressionTree expression, Predicate predicate) {
+    _numDocs = numDocs;
+    _expression = expression;
+    _dataSourceMap = dataSourceMap;
 
     TransformFunction transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
     _expressionMetadata = transformFunction.getResultMetadata();
@@ -75,6 +83,16 @@ public class ExpressionFilterOperator extends BaseFilterOperator {
         .getPredicateEvaluator(predicate, transformFunction.getDictionary(), _expressionMetadata.getDataType());
   }
 
+  private static Map<String, DataSource> getDataSourceMap(IndexSegment segment, TransformExpressionTree expression) {
+    Map<String, DataSource> dataSourceMap = new HashMap<>();
+    Set<String> columns = new HashSet<>();
+    expression.getColumns(columns);
+    for (String column : columns) {
+      dataSourceMap.put(column, segment.getDataSource(column));
+    }
+    return dataSourceMap;
+  }
+
   @Override
   protected FilterBlock getNextBlock() {
     return new FilterBlock(new ExpressionFilterBlockDocIdSet(this));
@@ -28,6 +28,8 @@ import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.common.DataSourceMetadata;
 import org.apache.pinot.core.common.Predicate;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 
 
 public class FilterOperatorUtils {
@@ -54,10 +56,12 @@ public class FilterOperatorUtils {
     int endDocId = numDocs - 1;
 
     // Use inverted index if the predicate type is not RANGE or REGEXP_LIKE for efficiency
+    // NOTE: for the sorted column of the consuming segment, also use inverted index for RANGE predicate because the
+    // matching dictionary ids are looked up from the sorted index
     DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
     Predicate.Type predicateType = predicateEvaluator.getPredicateType();
-    if (dataSourceMetadata.hasInvertedIndex() && (predicateType != Predicate.Type.RANGE) && (predicateType
-        != Predicate.Type.REGEXP_LIKE)) {
+    if (dataSourceMetadata.hasInvertedIndex() && (predicateType != Predicate.Type.REGEXP_LIKE) && (
+        predicateType != Predicate.Type.RANGE || hasRealtimeSortedIndex(dataSource))) {
       if (dataSourceMetadata.isSorted()) {
         return new SortedInvertedIndexBasedFilterOperator(predicateEvaluator, dataSource, startDocId, endDocId);
       } else {
@@ -68,6 +72,12 @@ public class FilterOperatorUtils {
     }
   }
 
+  private static boolean hasRealtimeSortedIndex(DataSource dataSource) {
+    Dictionary dictionary = dataSource.getDictionary();
+    return dictionary instanceof BaseMutableDictionary
+        && ((BaseMutableDictionary) dictionary).getSortedIndex() != null;
+  }
+
   /**
    * Returns the AND filter operator or equivalent filter operator.
    */
@@ -25,6 +25,7 @@ import org.apache.pinot.common.utils.primitive.ByteArray;
 import org.apache.pinot.core.common.Predicate;
 import org.apache.pinot.core.common.predicate.RangePredicate;
 import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
+import org.apache.pinot.core.realtime.impl.sortedindex.RealtimeSortedIndex;
 import org.apache.pinot.core.segment.index.readers.BaseImmutableDictionary;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
 
@@ -166,9 +167,17 @@ public class RangePredicateEvaluatorFactory {
     int[] _matchingDictIds;
 
     RealtimeDictionaryBasedRangePredicateEvaluator(RangePredicate rangePredicate, BaseMutableDictionary dictionary) {
-      _matchingDictIdSet = dictionary
-          .getDictIdsInRange(rangePredicate.getLowerBoundary(), rangePredicate.getUpperBoundary(),
-              rangePredicate.includeLowerBoundary(), rangePredicate.includeUpperBoundary());
+      // Use the sorted index if exists to avoid scanning the whole dictionary
+      RealtimeSortedIndex sortedIndex = dictionary.getSortedIndex();
+      if (sortedIndex != null) {
+        _matchingDictIdSet = sortedIndex
+            .getDictIdsInRange(rangePredicate.getLowerBoundary(), rangePredicate.getUpperBoundary(),
+                rangePredicate.includeLowerBoundary(), rangePredicate.includeUpperBoundary());
+      } else {
+        _matchingDictIdSet = dictionary
+            .getDictIdsInRange(rangePredicate.getLowerBoundary(), rangePredicate.getUpperBoundary(),
+                rangePredicate.includeLowerBoundary(), rangePredicate.includeUpperBoundary());
+      }
       _numMatchingDictIds = _matchingDictIdSet.size();
       if (_numMatchingDictIds == 0) {
         _alwaysFalse = true;
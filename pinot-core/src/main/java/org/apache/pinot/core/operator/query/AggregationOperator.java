@@ -28,6 +28,9 @@ import org.apache.pinot.core.operator.transform.TransformOperator;
 import org.apache.pinot.core.query.aggregation.AggregationExecutor;
 import org.apache.pinot.core.query.aggregation.AggregationFunctionContext;
 import org.apache.pinot.core.query.aggregation.DefaultAggregationExecutor;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import org.apache.pinot.core.query.aggregation.function.DistinctAggregationFunction;
 import org.apache.pinot.core.startree.executor.StarTreeAggregationExecutor;
 
 
@@ -39,23 +42,42 @@ public class AggregationOperator extends BaseOperator<IntermediateResultsBlock>
 
   private final AggregationFunctionContext[] _functionContexts;
   private final TransformOperator _transformOperator;
+  private final List<TransformOperator> _starTreeTransformOperators;
   private final long _numTotalRawDocs;
   private final boolean _useStarTree;
 
+  private long _numDocsScanned;
+  private long _numEntriesScannedInFilter;
+  private long _numEntriesScannedPostFilter;
   private ExecutionStatistics _executionStatistics;
 
   public AggregationOperator(@Nonnull AggregationFunctionContext[] functionContexts,
       @Nonnull TransformOperator transformOperator, long numTotalRawDocs, boolean useStarTree) {
     _functionContexts = functionContexts;
     _transformOperator = transformOperator;
+    _starTreeTransformOperators = null;
     _numTotalRawDocs = numTotalRawDocs;
     _useStarTree = useStarTree;
   }
 
+  /**
+   * Constructor for the aggregation operator on a consuming segment, where the sealed documents are solved with the
+   * star-trees (one star-tree transform operator for each sealed document range), and the rest of the documents are
+   * scanned with the given transform operator.
+   */
+  public AggregationOperator(@Nonnull AggregationFunctionContext[] functionContexts,
+      @Nonnull TransformOperator transformOperator, @Nonnull List<TransformOperator> starTreeTransformOperators,
+      long numTotalRawDocs) {
+    _functionContexts = functionContexts;
+    _transformOperator = transformOperator;
+    _starTreeTransformOperators = starTreeTransformOperators;
+    _numTotalRawDocs = numTotalRawDocs;
+    _useStarTree = false;
+  }
+
+  @SuppressWarnings("unchecked")
   @Override
   protected IntermediateResultsBlock getNextBlock() {
-    int numDocsScanned = 0;
-
     // Perform aggregation on all the transform blocks
     AggregationExecutor aggregationExecutor;
     if (_useStarTree) {
@@ -63,24 +85,58 @@ public class AggregationOperator extends BaseOperator<IntermediateResultsBlock>
     } else {
       aggregationExecutor = new DefaultAggregationExecutor(_functionContexts);
     }
-    TransformBlock transformBlock;
-    while ((transformBlock = _transformOperator.nextBlock()) != null) {
-      numDocsScanned += transformBlock.getNumDocs();
-      aggregationExecutor.aggregate(transformBlock);
+    List<Object> aggregationResult = aggregate(_transformOperator, aggregationExecutor);
+
+    // Merge the aggregation results from the star-trees
+    if (_starTreeTransformOperators != null) {
+      int numFunctions = _functionContexts.length;
+      for (TransformOperator starTreeTransformOperator : _starTreeTransformOperators) {
+        List<Object> starTreeAggregationResult =
+            aggregate(starTreeTransformOperator, new StarTreeAggregationExecutor(_functionContexts));
+        for (int i = 0; i < numFunctions; i++) {
+          AggregationFunction function = _functionContexts[i].getAggregationFunction();
+          aggregationResult.set(i, function.merge(aggregationResult.get(i), starTreeAggregationResult.get(i)));
+        }
+      }
     }
-    List<Object> aggregationResult = aggregationExecutor.getResult();
 
     // Create execution statistics
-    long numEntriesScannedInFilter = _transformOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
-    long numEntriesScannedPostFilter = numDocsScanned * _transformOperator.getNumColumnsProjected();
     _executionStatistics =
-        new ExecutionStatistics(numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
+        new ExecutionStatistics(_numDocsScanned, _numEntriesScannedInFilter, _numEntriesScannedPostFilter,
             _numTotalRawDocs);
 
     // Build intermediate result block based on aggregation result from the executor
     return new IntermediateResultsBlock(_functionContexts, aggregationResult, false);
   }
 
+  /**
+   * Helper method to perform aggregation on all the transform blocks of the given transform operator, and accumulate
+   * the execution statistics.
+   */
+  private List<Object> aggregate(TransformOperator transformOperator, AggregationExecutor aggregationExecutor) {
+    // For DISTINCT, stop scanning once enough distinct rows are collected
+    DistinctAggregationFunction distinctFunction = null;
+    if (AggregationFunctionUtils.isDistinct(_functionContexts)) {
+      distinctFunction = (DistinctAggregationFunction) _functionContexts[0].getAggregationFunction();
+    }
+
+    int numDocsScanned = 0;
+    TransformBlock transformBlock;
+    while ((transformBlock = transformOperator.nextBlock()) != null) {
+      numDocsScanned += transformBlock.getNumDocs();
+      aggregationExecutor.aggregate(transformBlock);
+      if (distinctFunction != null && distinctFunction.isLimitReached()) {
+        break;
+      }
+    }
+
+    _numDocsScanned += numDocsScanned;
+    _numEntriesScannedInFilter += transformOperator.getExecutionStatistics().getNumEntriesScannedInFilter();
+    _numEntriesScannedPostFilter += (long) numDocsScanned * transformOperator.getNumColumnsProjected();
+
+    return aggregationExecutor.getResult();
+  }
+
   @Override
   public String getOperatorName() {
     return OPERATOR_NAME;
@@ -127,6 +127,10 @@ public class SelectionOrderByOperator extends BaseOperator<IntermediateResultsBl
     };
   }
 
+  public IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
   @Override
   protected IntermediateResultsBlock getNextBlock() {
     int numDocsScanned = 0;
@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.core.plan;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,8 +29,10 @@ import org.apache.pinot.common.utils.request.FilterQueryTree;
 import org.apache.pinot.common.utils.request.RequestUtils;
 import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.operator.transform.TransformOperator;
 import org.apache.pinot.core.query.aggregation.AggregationFunctionContext;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import org.apache.pinot.core.realtime.impl.startree.RealtimeStarTreeIndex;
 import org.apache.pinot.core.startree.StarTreeUtils;
 import org.apache.pinot.core.startree.plan.StarTreeTransformPlanNode;
 import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
@@ -50,6 +53,8 @@ public class AggregationPlanNode implements PlanNode {
   private final AggregationFunctionContext[] _functionContexts;
   private final TransformPlanNode _transformPlanNode;
   private final StarTreeTransformPlanNode _starTreeTransformPlanNode;
+  // For consuming segment with star-trees on the sealed documents
+  private final List<StarTreeTransformPlanNode> _realtimeStarTreeTransformPlanNodes;
 
   public AggregationPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
     _indexSegment = indexSegment;
@@ -58,13 +63,14 @@ public class AggregationPlanNode implements PlanNode {
         AggregationFunctionUtils.getAggregationFunctionContexts(brokerRequest, indexSegment.getSegmentMetadata());
 
     List<StarTreeV2> starTrees = indexSegment.getStarTrees();
-    if (starTrees != null) {
-      if (!StarTreeUtils.isStarTreeDisabled(brokerRequest)) {
-        Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs = new HashSet<>();
-        for (AggregationInfo aggregationInfo : _aggregationInfos) {
-          aggregationFunctionColumnPairs.add(AggregationFunctionUtils.getFunctionColumnPair(aggregationInfo));
-        }
-        FilterQueryTree rootFilterNode = RequestUtils.generateFilterQueryTree(brokerRequest);
+    RealtimeStarTreeIndex.Snapshot realtimeStarTreeSnapshot = StarTreeUtils.getRealtimeStarTreeSnapshot(indexSegment);
+    if ((starTrees != null || realtimeStarTreeSnapshot != null) && !StarTreeUtils.isStarTreeDisabled(brokerRequest)) {
+      Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs = new HashSet<>();
+      for (AggregationInfo aggregationInfo : _aggregationInfos) {
+        aggregationFunctionColumnPairs.add(AggregationFunctionUtils.getFunctionColumnPair(aggregationInfo));
+      }
+      FilterQueryTree rootFilterNode = RequestUtils.generateFilterQueryTree(brokerRequest);
+      if (starTrees != null) {
         for (StarTreeV2 starTreeV2 : starTrees) {
           if (StarTreeUtils
               .isFitForStarTree(starTreeV2.getMetadata(), aggregationFunctionColumnPairs, null, rootFilterNode)) {
@@ -72,20 +78,46 @@ public class AggregationPlanNode implements PlanNode {
             _starTreeTransformPlanNode =
                 new StarTreeTransformPlanNode(starTreeV2, aggregationFunctionColumnPairs, null, rootFilterNode,
                     brokerRequest.getDebugOptions());
+            _realtimeStarTreeTransformPlanNodes = null;
             return;
           }
         }
+      } else {
+        // Solve the sealed documents with the star-trees, and scan the rest of the documents
+        List<StarTreeV2> realtimeStarTrees = StarTreeUtils
+            .getFitRealtimeStarTrees(realtimeStarTreeSnapshot, aggregationFunctionColumnPairs, null, rootFilterNode);
+        if (realtimeStarTrees != null) {
+          _transformPlanNode =
+              new TransformPlanNode(_indexSegment, brokerRequest, realtimeStarTreeSnapshot.getNumSealedDocs());
+          _starTreeTransformPlanNode = null;
+          _realtimeStarTreeTransformPlanNodes = new ArrayList<>(realtimeStarTrees.size());
+          for (StarTreeV2 starTreeV2 : realtimeStarTrees) {
+            _realtimeStarTreeTransformPlanNodes.add(
+                new StarTreeTransformPlanNode(starTreeV2, aggregationFunctionColumnPairs, null, rootFilterNode,
+                    brokerRequest.getDebugOptions()));
+          }
+          return;
+        }
       }
     }
 
     _transformPlanNode = new TransformPlanNode(_indexSegment, brokerRequest);
     _starTreeTransformPlanNode = null;
+    _realtimeStarTreeTransformPlanNodes = null;
   }
 
   @Override
   public AggregationOperator run() {
     int numTotalRawDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
-    if (_transformPlanNode != null) {
+    if (_realtimeStarTreeTransformPlanNodes != null) {
+      // Use star-trees on the sealed documents of the consuming segment
+      List<TransformOperator> starTreeTransformOperators = new ArrayList<>(_realtimeStarTreeTransformPlanNodes.size());
+      for (StarTreeTransformPlanNode starTreeTransformPlanNode : _realtimeStarTreeTransformPlanNodes) {
+        starTreeTransformOperators.add(starTreeTransformPlanNode.run());
+      }
+      return new AggregationOperator(_functionContexts, _transformPlanNode.run(), starTreeTransformOperators,
+          numTotalRawDocs);
+    } else if (_transformPlanNode != null) {
       // Do not use star-tree
       return new AggregationOperator(_functionContexts, _transformPlanNode.run(), numTotalRawDocs, false);
     } else {
@@ -103,6 +135,12 @@ public class AggregationPlanNode implements PlanNode {
     if (_transformPlanNode != null) {
       LOGGER.debug(prefix + "Argument 2: TransformPlanNode -");
       _transformPlanNode.showTree(prefix + "    ");
+      if (_realtimeStarTreeTransformPlanNodes != null) {
+        for (int i = 0; i < _realtimeStarTreeTransformPlanNodes.size(); i++) {
+          LOGGER.debug(prefix + "Argument " + (i + 3) + ": StarTreeTransformPlanNode -");
+          _realtimeStarTreeTransformPlanNodes.get(i).showTree(prefix + "    ");
+        }
+      }
     } else {
       LOGGER.debug(prefix + "Argument 2: StarTreeTransformPlanNode -");
       _starTreeTransformPlanNode.showTree(prefix + "    ");
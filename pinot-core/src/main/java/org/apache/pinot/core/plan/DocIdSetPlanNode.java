@@ -37,9 +37,14 @@ public class DocIdSetPlanNode implements PlanNode {
   private final int _maxDocPerCall;
 
   public DocIdSetPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest, int maxDocPerCall) {
+    this(indexSegment, brokerRequest, maxDocPerCall, 0);
+  }
+
+  public DocIdSetPlanNode(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest, int maxDocPerCall,
+      int startDocId) {
     Preconditions.checkState(maxDocPerCall > 0 && maxDocPerCall <= MAX_DOC_PER_CALL);
     _indexSegment = indexSegment;
-    _filterPlanNode = new FilterPlanNode(_indexSegment, brokerRequest);
+    _filterPlanNode = new FilterPlanNode(_indexSegment, brokerRequest, startDocId);
     _maxDocPerCall = maxDocPerCall;
   }
 
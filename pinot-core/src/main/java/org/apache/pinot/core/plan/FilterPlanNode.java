@@ -19,6 +19,7 @@
 package org.apache.pinot.core.plan;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +35,7 @@ import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.common.Predicate;
 import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.core.operator.filter.BitmapBasedFilterOperator;
 import org.apache.pinot.core.operator.filter.EmptyFilterOperator;
 import org.apache.pinot.core.operator.filter.ExpressionFilterOperator;
 import org.apache.pinot.core.operator.filter.FilterOperatorUtils;
@@ -43,7 +45,9 @@ import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorProvide
 import org.apache.pinot.core.operator.transform.TransformResultMetadata;
 import org.apache.pinot.core.operator.transform.function.TransformFunction;
 import org.apache.pinot.core.operator.transform.function.TransformFunctionFactory;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,16 +56,59 @@ public class FilterPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterPlanNode.class);
   private final BrokerRequest _brokerRequest;
   private final IndexSegment _segment;
+  private final int _startDocId;
 
   public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest) {
+    this(segment, brokerRequest, 0);
+  }
+
+  /**
+   * Constructor for the filter plan node that only matches the documents starting from the given document id, e.g.
+   * the documents of a consuming segment that are not covered by its star-trees yet.
+   */
+  public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest, int startDocId) {
     _segment = segment;
     _brokerRequest = brokerRequest;
+    _startDocId = startDocId;
   }
 
   @Override
   public BaseFilterOperator run() {
     FilterQueryTree rootFilterNode = RequestUtils.generateFilterQueryTree(_brokerRequest);
-    return constructPhysicalOperator(rootFilterNode, _segment, _brokerRequest.getDebugOptions());
+    Map<String, String> debugOptions = _brokerRequest.getDebugOptions();
+    BaseFilterOperator filterOperator = constructPhysicalOperator(rootFilterNode, _segment, debugOptions);
+    if (filterOperator.isResultEmpty()) {
+      return filterOperator;
+    }
+    int numDocs = _segment.getSegmentMetadata().getTotalRawDocs();
+
+    // Only match the documents starting from the start document id
+    if (_startDocId > 0) {
+      if (numDocs <= _startDocId) {
+        return EmptyFilterOperator.getInstance();
+      }
+      BaseFilterOperator docIdRangeFilterOperator =
+          new BitmapBasedFilterOperator(new ImmutableRoaringBitmap[0], _startDocId, numDocs - 1, true);
+      if (filterOperator.isResultMatchingAll()) {
+        filterOperator = docIdRangeFilterOperator;
+      } else {
+        filterOperator = FilterOperatorUtils
+            .getAndFilterOperator(Arrays.asList(filterOperator, docIdRangeFilterOperator), numDocs, debugOptions);
+      }
+    }
+
+    // For upsert tables, only match the valid (latest for their primary key) documents
+    ValidDocIds validDocIds = _segment.getValidDocIds();
+    if (validDocIds == null || numDocs == 0) {
+      return filterOperator;
+    }
+    BaseFilterOperator validDocIdsFilterOperator =
+        new BitmapBasedFilterOperator(new ImmutableRoaringBitmap[]{validDocIds.getSnapshot()}, 0, numDocs - 1, false);
+    if (filterOperator.isResultMatchingAll()) {
+      return validDocIdsFilterOperator;
+    }
+    return FilterOperatorUtils
+        .getAndFilterOperator(Arrays.asList(filterOperator, validDocIdsFilterOperator), numDocs, debugOptions);
   }
 
   /**
@@ -49,10 +49,17 @@ public class TransformPlanNode implements PlanNode {
   private int _maxDocPerNextCall = DocIdSetPlanNode.MAX_DOC_PER_CALL;
 
   public TransformPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    this(indexSegment, brokerRequest, 0);
+  }
+
+  /**
+   * Constructor for the transform plan node that only processes the documents starting from the given document id.
+   */
+  public TransformPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest, int startDocId) {
     _segmentName = indexSegment.getSegmentName();
     extractColumnsAndTransforms(brokerRequest, indexSegment);
     _projectionPlanNode = new ProjectionPlanNode(indexSegment, _projectionColumns,
-        new DocIdSetPlanNode(indexSegment, brokerRequest, _maxDocPerNextCall));
+        new DocIdSetPlanNode(indexSegment, brokerRequest, _maxDocPerNextCall, startDocId));
   }
 
   /**
@@ -74,10 +81,11 @@ public class TransformPlanNode implements PlanNode {
           }
         } else if (!aggregationInfo.getAggregationType().equalsIgnoreCase(AggregationFunctionType.COUNT.getName())) {
           // handle all other aggregate functions (except count(*))
-          String expression = AggregationFunctionUtils.getColumn(aggregationInfo);
-          TransformExpressionTree transformExpressionTree = TransformExpressionTree.compileToExpressionTree(expression);
-          transformExpressionTree.getColumns(_projectionColumns);
-          _expressions.add(transformExpressionTree);
+          for (TransformExpressionTree transformExpressionTree : AggregationFunctionUtils
+              .getInputExpressions(aggregationInfo)) {
+            transformExpressionTree.getColumns(_projectionColumns);
+            _expressions.add(transformExpressionTree);
+          }
         }
       }
 
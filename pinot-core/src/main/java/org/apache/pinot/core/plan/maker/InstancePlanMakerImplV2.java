@@ -155,7 +155,9 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
    * @return True if query can be served using metadata, false otherwise.
    */
   public static boolean isFitForMetadataBasedPlan(BrokerRequest brokerRequest, IndexSegment indexSegment) {
-    if (brokerRequest.getFilterQuery() != null || brokerRequest.isSetGroupBy()) {
+    // Metadata does not account for the invalid documents of upsert tables
+    if (brokerRequest.getFilterQuery() != null || brokerRequest.isSetGroupBy()
+        || indexSegment.getValidDocIds() != null) {
       return false;
     }
 
@@ -188,8 +190,9 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   public static boolean isFitForDictionaryBasedPlan(BrokerRequest brokerRequest, IndexSegment indexSegment) {
     // Skipping dictionary in case of star tree. Results from dictionary won't be correct
     // because of aggregated values in metrics, and ALL value in dimension
+    // Also skipping dictionary for upsert tables because the dictionary contains values of the invalid documents
     if ((brokerRequest.getFilterQuery() != null) || brokerRequest.isSetGroupBy() || indexSegment.getSegmentMetadata()
-        .hasStarTree()) {
+        .hasStarTree() || indexSegment.getValidDocIds() != null) {
       return false;
     }
     List<AggregationInfo> aggregationsInfo = brokerRequest.getAggregationsInfo();
@@ -27,6 +27,7 @@ import org.apache.pinot.core.operator.blocks.TransformBlock;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import org.apache.pinot.core.query.aggregation.function.DistinctAggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.DistinctCountThetaSketchAggregationFunction;
 import org.apache.pinot.pql.parsers.pql2.ast.FunctionCallAstNode;
 
 
@@ -89,6 +90,17 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
         }
         DistinctAggregationFunction distinctFunction = (DistinctAggregationFunction) function;
         distinctFunction.aggregate(length, resultHolder, blockValSets);
+      } else if (function.getType() == AggregationFunctionType.DISTINCTCOUNTTHETASKETCH) {
+        // handle distinctCountThetaSketch function, which takes one block value set per input expression of the set
+        // expression
+        List<TransformExpressionTree> inputExpressions =
+            ((DistinctCountThetaSketchAggregationFunction) function).getInputExpressions();
+        int numInputExpressions = inputExpressions.size();
+        BlockValSet[] blockValSets = new BlockValSet[numInputExpressions];
+        for (int j = 0; j < numInputExpressions; j++) {
+          blockValSets[j] = transformBlock.getBlockValueSet(inputExpressions.get(j));
+        }
+        function.aggregate(length, resultHolder, blockValSets);
       } else {
         // handle rest of the aggregate functions -- sum, min, max etc
         function.aggregate(length, resultHolder, transformBlock.getBlockValueSet(_expressions[i]));
@@ -19,18 +19,26 @@
 package org.apache.pinot.core.query.aggregation.function;
 
 import com.google.common.base.Preconditions;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.common.request.AggregationInfo;
 import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.apache.pinot.core.query.exception.BadQueryRequestException;
 import org.apache.pinot.pql.parsers.pql2.ast.SelectAstNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
  * Factory class to create instances of aggregation function of the given name.
  */
 public class AggregationFunctionFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AggregationFunctionFactory.class);
+  // No limit on the exact values of the exact percentile by default
+  private static final int DEFAULT_PERCENTILE_MAX_EXACT_VALUES = 0;
+
   private AggregationFunctionFactory() {
   }
 
@@ -49,17 +57,22 @@ public class AggregationFunctionFactory {
         String remainingFunctionName = upperCaseFunctionName.substring(10);
         if (remainingFunctionName.matches("\\d+")) {
           // Percentile
-          return new PercentileAggregationFunction(parsePercentile(remainingFunctionName));
+          return new PercentileAggregationFunction(parsePercentile(remainingFunctionName),
+              getPercentileMaxExactValues(brokerRequest));
         } else if (remainingFunctionName.matches("EST\\d+")) {
           // PercentileEst
           return new PercentileEstAggregationFunction(parsePercentile(remainingFunctionName.substring(3)));
         } else if (remainingFunctionName.matches("TDIGEST\\d+")) {
           // PercentileTDigest
           return new PercentileTDigestAggregationFunction(parsePercentile(remainingFunctionName.substring(7)));
+        } else if (remainingFunctionName.matches("KLL\\d+")) {
+          // PercentileKLL
+          return new PercentileKLLAggregationFunction(parsePercentile(remainingFunctionName.substring(3)));
         } else if (remainingFunctionName.matches("\\d+MV")) {
           // PercentileMV
           return new PercentileMVAggregationFunction(
-              parsePercentile(remainingFunctionName.substring(0, remainingFunctionName.length() - 2)));
+              parsePercentile(remainingFunctionName.substring(0, remainingFunctionName.length() - 2)),
+              getPercentileMaxExactValues(brokerRequest));
         } else if (remainingFunctionName.matches("EST\\d+MV")) {
           // PercentileEstMV
           return new PercentileEstMVAggregationFunction(
@@ -68,6 +81,10 @@ public class AggregationFunctionFactory {
           // PercentileTDigestMV
           return new PercentileTDigestMVAggregationFunction(
               parsePercentile(remainingFunctionName.substring(7, remainingFunctionName.length() - 2)));
+        } else if (remainingFunctionName.matches("KLL\\d+MV")) {
+          // PercentileKLLMV
+          return new PercentileKLLMVAggregationFunction(
+              parsePercentile(remainingFunctionName.substring(3, remainingFunctionName.length() - 2)));
         } else {
           throw new IllegalArgumentException();
         }
@@ -87,12 +104,19 @@ public class AggregationFunctionFactory {
             return new MinMaxRangeAggregationFunction();
           case DISTINCTCOUNT:
             return new DistinctCountAggregationFunction();
+          case DISTINCTCOUNTEXACT:
+            return new DistinctCountExactAggregationFunction();
           case DISTINCTCOUNTHLL:
             return new DistinctCountHLLAggregationFunction();
           case DISTINCTCOUNTRAWHLL:
             return new DistinctCountRawHLLAggregationFunction();
           case FASTHLL:
             return new FastHLLAggregationFunction();
+          case DISTINCTCOUNTTHETASKETCH:
+            return new DistinctCountThetaSketchAggregationFunction(
+                AggregationFunctionUtils.getColumn(aggregationInfo));
+          case DISTINCTCOUNTHLLSKETCH:
+            return new DistinctCountHLLSketchAggregationFunction();
           case COUNTMV:
             return new CountMVAggregationFunction();
           case MINMV:
@@ -123,6 +147,28 @@ public class AggregationFunctionFactory {
     }
   }
 
+  /**
+   * Returns the max number of exact values to keep for the exact percentile from the query options (non-positive
+   * means no limit). An invalid value falls back to the default (no limit) instead of failing the query.
+   */
+  private static int getPercentileMaxExactValues(@Nullable BrokerRequest brokerRequest) {
+    if (brokerRequest != null) {
+      Map<String, String> queryOptions = brokerRequest.getQueryOptions();
+      if (queryOptions != null) {
+        String maxExactValues = queryOptions.get(QueryOptionKey.PERCENTILE_MAX_EXACT_VALUES);
+        if (maxExactValues != null) {
+          try {
+            return Integer.parseInt(maxExactValues.trim());
+          } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value: {} for query option: {}, defaulting to {}", maxExactValues,
+                QueryOptionKey.PERCENTILE_MAX_EXACT_VALUES, DEFAULT_PERCENTILE_MAX_EXACT_VALUES);
+          }
+        }
+      }
+    }
+    return DEFAULT_PERCENTILE_MAX_EXACT_VALUES;
+  }
+
   private static int parsePercentile(String percentileString) {
     int percentile = Integer.parseInt(percentileString);
     Preconditions.checkState(percentile >= 0 && percentile <= 100);
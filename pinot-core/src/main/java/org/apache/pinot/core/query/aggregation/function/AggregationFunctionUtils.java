@@ -20,12 +20,14 @@ package org.apache.pinot.core.query.aggregation.function;
 
 import com.google.common.math.DoubleMath;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.common.request.AggregationInfo;
 import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
 import org.apache.pinot.common.segment.SegmentMetadata;
 import org.apache.pinot.core.plan.AggregationFunctionInitializer;
 import org.apache.pinot.core.query.aggregation.AggregationFunctionContext;
@@ -49,6 +51,22 @@ public class AggregationFunctionUtils {
     return aggregationInfo.getAggregationParams().get(COLUMN_KEY);
   }
 
+  /**
+   * Extracts the input expressions of the aggregation function from the {@link AggregationInfo}. The aggregation column
+   * is the only input expression, except for DISTINCTCOUNTTHETASKETCH with a set expression (e.g.
+   * <code>setIntersect(a, b)</code>), where the inputs are the arguments of the set functions.
+   */
+  public static List<TransformExpressionTree> getInputExpressions(AggregationInfo aggregationInfo) {
+    TransformExpressionTree expression = TransformExpressionTree.compileToExpressionTree(getColumn(aggregationInfo));
+    AggregationFunctionType functionType =
+        AggregationFunctionType.getAggregationFunctionType(aggregationInfo.getAggregationType());
+    if (functionType == AggregationFunctionType.DISTINCTCOUNTTHETASKETCH) {
+      return ThetaSketchSetExpression.getInputExpressions(expression);
+    } else {
+      return Collections.singletonList(expression);
+    }
+  }
+
   public static String getAggregationColumnName(AggregationInfo aggregationInfo) {
     return aggregationInfo.getAggregationType().toLowerCase() + "(" + AggregationFunctionUtils.getColumn(aggregationInfo)
         + ")";
@@ -42,6 +42,9 @@ public class AggregationFunctionVisitorBase {
   public void visit(DistinctCountAggregationFunction function) {
   }
 
+  public void visit(DistinctCountExactAggregationFunction function) {
+  }
+
   public void visit(DistinctCountMVAggregationFunction function) {
   }
 
@@ -51,6 +54,12 @@ public class AggregationFunctionVisitorBase {
   public void visit(DistinctCountHLLMVAggregationFunction function) {
   }
 
+  public void visit(DistinctCountThetaSketchAggregationFunction function) {
+  }
+
+  public void visit(DistinctCountHLLSketchAggregationFunction function) {
+  }
+
   public void visit(FastHLLAggregationFunction function) {
   }
 
@@ -90,6 +99,12 @@ public class AggregationFunctionVisitorBase {
   public void visit(PercentileTDigestMVAggregationFunction function) {
   }
 
+  public void visit(PercentileKLLAggregationFunction function) {
+  }
+
+  public void visit(PercentileKLLMVAggregationFunction function) {
+  }
+
   public void visit(SumAggregationFunction function) {
   }
 
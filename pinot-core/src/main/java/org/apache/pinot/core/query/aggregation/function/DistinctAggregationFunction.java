@@ -90,11 +90,7 @@ public class DistinctAggregationFunction implements AggregationFunction<Distinct
     RowBasedBlockValueFetcher blockValueFetcher = new RowBasedBlockValueFetcher(blockValSets);
 
     int rowIndex = 0;
-    // TODO: Do early termination in the operator itself which should
-    // not call aggregate function at all if the limit has reached
-    // that will require the interface change since this function
-    // has to communicate back that required number of records have
-    // been collected
+    // NOTE: AggregationOperator stops fetching blocks once the limit is reached (see isLimitReached())
     while (rowIndex < length && _distinctTable.size() < _limit) {
       Object[] columnData = blockValueFetcher.getRow(rowIndex);
       _distinctTable.addKey(new Key(columnData));
@@ -102,6 +98,13 @@ public class DistinctAggregationFunction implements AggregationFunction<Distinct
     }
   }
 
+  /**
+   * Returns whether the limit has been reached, in which case the remaining documents do not need to be aggregated.
+   */
+  public boolean isLimitReached() {
+    return _distinctTable.size() >= _limit;
+  }
+
   @Override
   public DistinctTable extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
     return _distinctTable;
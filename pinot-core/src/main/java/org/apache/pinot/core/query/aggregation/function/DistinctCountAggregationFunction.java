@@ -27,8 +27,16 @@ import org.apache.pinot.core.query.aggregation.AggregationResultHolder;
 import org.apache.pinot.core.query.aggregation.ObjectAggregationResultHolder;
 import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
 import org.apache.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 
 
+/**
+ * Distinct count on the hash of the values.
+ * <p>For dictionary-encoded columns, the dictionary ids are collected into a bitmap within the segment, and only
+ * converted into hashed values once when extracting the segment result.
+ */
 public class DistinctCountAggregationFunction implements AggregationFunction<IntOpenHashSet, Integer> {
 
   @Override
@@ -58,9 +66,15 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
 
   @Override
   public void aggregate(int length, AggregationResultHolder aggregationResultHolder, BlockValSet... blockValSets) {
-    IntOpenHashSet valueSet = getValueSet(aggregationResultHolder);
-
     FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      DictIdsWrapper.getDictIdBitmap(aggregationResultHolder, dictionary, valueType).addN(dictIds, 0, length);
+      return;
+    }
+
+    IntOpenHashSet valueSet = getValueSet(aggregationResultHolder);
     switch (valueType) {
       case INT:
         int[] intValues = blockValSets[0].getIntValuesSV();
@@ -101,6 +115,15 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   public void aggregateGroupBySV(int length, int[] groupKeyArray, GroupByResultHolder groupByResultHolder,
       BlockValSet... blockValSets) {
     FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      for (int i = 0; i < length; i++) {
+        DictIdsWrapper.getDictIdBitmap(groupByResultHolder, groupKeyArray[i], dictionary, valueType).add(dictIds[i]);
+      }
+      return;
+    }
+
     switch (valueType) {
       case INT:
         int[] intValues = blockValSets[0].getIntValuesSV();
@@ -141,6 +164,17 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   public void aggregateGroupByMV(int length, int[][] groupKeysArray, GroupByResultHolder groupByResultHolder,
       BlockValSet... blockValSets) {
     FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      for (int i = 0; i < length; i++) {
+        for (int groupKey : groupKeysArray[i]) {
+          DictIdsWrapper.getDictIdBitmap(groupByResultHolder, groupKey, dictionary, valueType).add(dictIds[i]);
+        }
+      }
+      return;
+    }
+
     switch (valueType) {
       case INT:
         int[] intValues = blockValSets[0].getIntValuesSV();
@@ -179,22 +213,61 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
 
   @Override
   public IntOpenHashSet extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
-    IntOpenHashSet valueSet = aggregationResultHolder.getResult();
-    if (valueSet == null) {
-      return new IntOpenHashSet();
-    } else {
-      return valueSet;
-    }
+    return toValueSet(aggregationResultHolder.getResult());
   }
 
   @Override
   public IntOpenHashSet extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
-    IntOpenHashSet valueSet = groupByResultHolder.getResult(groupKey);
-    if (valueSet == null) {
+    return toValueSet(groupByResultHolder.getResult(groupKey));
+  }
+
+  /**
+   * Helper method to convert the result stored in the result holder (value set or dictionary ids) into a value set.
+   */
+  private static IntOpenHashSet toValueSet(Object result) {
+    if (result == null) {
       return new IntOpenHashSet();
-    } else {
-      return valueSet;
     }
+    if (result instanceof IntOpenHashSet) {
+      return (IntOpenHashSet) result;
+    }
+
+    DictIdsWrapper dictIdsWrapper = (DictIdsWrapper) result;
+    Dictionary dictionary = dictIdsWrapper._dictionary;
+    RoaringBitmap dictIdBitmap = dictIdsWrapper._dictIdBitmap;
+    IntOpenHashSet valueSet = new IntOpenHashSet(dictIdBitmap.getCardinality());
+    PeekableIntIterator iterator = dictIdBitmap.getIntIterator();
+    switch (dictIdsWrapper._valueType) {
+      case INT:
+        while (iterator.hasNext()) {
+          valueSet.add(dictionary.getIntValue(iterator.next()));
+        }
+        break;
+      case LONG:
+        while (iterator.hasNext()) {
+          valueSet.add(Long.hashCode(dictionary.getLongValue(iterator.next())));
+        }
+        break;
+      case FLOAT:
+        while (iterator.hasNext()) {
+          valueSet.add(Float.hashCode(dictionary.getFloatValue(iterator.next())));
+        }
+        break;
+      case DOUBLE:
+        while (iterator.hasNext()) {
+          valueSet.add(Double.hashCode(dictionary.getDoubleValue(iterator.next())));
+        }
+        break;
+      case STRING:
+        while (iterator.hasNext()) {
+          valueSet.add(dictionary.getStringValue(iterator.next()).hashCode());
+        }
+        break;
+      default:
+        throw new IllegalStateException(
+            "Illegal data type for DISTINCT_COUNT aggregation function: " + dictIdsWrapper._valueType);
+    }
+    return valueSet;
   }
 
   @Override
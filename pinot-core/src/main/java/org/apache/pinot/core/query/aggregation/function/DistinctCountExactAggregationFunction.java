@@ -0,0 +1,352 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.function.Supplier;
+import org.apache.pinot.common.data.FieldSpec;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.BlockValSet;
+import org.apache.pinot.core.query.aggregation.AggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.function.customobject.SortedDistinctValues;
+import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.roaringbitmap.RoaringBitmap;
+
+
+/**
+ * Exact distinct count on the values (instead of their hash as in {@link DistinctCountAggregationFunction}).
+ * <p>Within a segment, dictionary ids (for dictionary-encoded columns) or values are collected, and converted into
+ * {@link SortedDistinctValues} at the end of the segment, which are merged linearly and shipped to the broker as
+ * compact sorted arrays.
+ */
+public class DistinctCountExactAggregationFunction implements AggregationFunction<SortedDistinctValues, Integer> {
+
+  @Override
+  public AggregationFunctionType getType() {
+    return AggregationFunctionType.DISTINCTCOUNTEXACT;
+  }
+
+  @Override
+  public String getColumnName(String column) {
+    return AggregationFunctionType.DISTINCTCOUNTEXACT.getName() + "_" + column;
+  }
+
+  @Override
+  public void accept(AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity);
+  }
+
+  @Override
+  public void aggregate(int length, AggregationResultHolder aggregationResultHolder, BlockValSet... blockValSets) {
+    FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      DictIdsWrapper.getDictIdBitmap(aggregationResultHolder, dictionary, valueType).addN(dictIds, 0, length);
+      return;
+    }
+
+    switch (valueType) {
+      case INT:
+        int[] intValues = blockValSets[0].getIntValuesSV();
+        IntOpenHashSet intSet = getValueSet(aggregationResultHolder, IntOpenHashSet::new);
+        for (int i = 0; i < length; i++) {
+          intSet.add(intValues[i]);
+        }
+        break;
+      case LONG:
+        long[] longValues = blockValSets[0].getLongValuesSV();
+        LongOpenHashSet longSet = getValueSet(aggregationResultHolder, LongOpenHashSet::new);
+        for (int i = 0; i < length; i++) {
+          longSet.add(longValues[i]);
+        }
+        break;
+      case FLOAT:
+        float[] floatValues = blockValSets[0].getFloatValuesSV();
+        IntOpenHashSet floatBitsSet = getValueSet(aggregationResultHolder, IntOpenHashSet::new);
+        for (int i = 0; i < length; i++) {
+          floatBitsSet.add(Float.floatToIntBits(floatValues[i]));
+        }
+        break;
+      case DOUBLE:
+        double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+        LongOpenHashSet doubleBitsSet = getValueSet(aggregationResultHolder, LongOpenHashSet::new);
+        for (int i = 0; i < length; i++) {
+          doubleBitsSet.add(Double.doubleToLongBits(doubleValues[i]));
+        }
+        break;
+      case STRING:
+        String[] stringValues = blockValSets[0].getStringValuesSV();
+        ObjectOpenHashSet<String> stringSet = getValueSet(aggregationResultHolder, ObjectOpenHashSet::new);
+        for (int i = 0; i < length; i++) {
+          stringSet.add(stringValues[i]);
+        }
+        break;
+      default:
+        throw new IllegalStateException(
+            "Illegal data type for DISTINCT_COUNT_EXACT aggregation function: " + valueType);
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, int[] groupKeyArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      for (int i = 0; i < length; i++) {
+        DictIdsWrapper.getDictIdBitmap(groupByResultHolder, groupKeyArray[i], dictionary, valueType).add(dictIds[i]);
+      }
+      return;
+    }
+
+    switch (valueType) {
+      case INT:
+        int[] intValues = blockValSets[0].getIntValuesSV();
+        for (int i = 0; i < length; i++) {
+          getValueSet(groupByResultHolder, groupKeyArray[i], IntOpenHashSet::new).add(intValues[i]);
+        }
+        break;
+      case LONG:
+        long[] longValues = blockValSets[0].getLongValuesSV();
+        for (int i = 0; i < length; i++) {
+          getValueSet(groupByResultHolder, groupKeyArray[i], LongOpenHashSet::new).add(longValues[i]);
+        }
+        break;
+      case FLOAT:
+        float[] floatValues = blockValSets[0].getFloatValuesSV();
+        for (int i = 0; i < length; i++) {
+          getValueSet(groupByResultHolder, groupKeyArray[i], IntOpenHashSet::new)
+              .add(Float.floatToIntBits(floatValues[i]));
+        }
+        break;
+      case DOUBLE:
+        double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+        for (int i = 0; i < length; i++) {
+          getValueSet(groupByResultHolder, groupKeyArray[i], LongOpenHashSet::new)
+              .add(Double.doubleToLongBits(doubleValues[i]));
+        }
+        break;
+      case STRING:
+        String[] stringValues = blockValSets[0].getStringValuesSV();
+        for (int i = 0; i < length; i++) {
+          getValueSet(groupByResultHolder, groupKeyArray[i], ObjectOpenHashSet::new).add(stringValues[i]);
+        }
+        break;
+      default:
+        throw new IllegalStateException(
+            "Illegal data type for DISTINCT_COUNT_EXACT aggregation function: " + valueType);
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, int[][] groupKeysArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    FieldSpec.DataType valueType = blockValSets[0].getValueType();
+    Dictionary dictionary = blockValSets[0].getDictionary();
+    if (dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIdsSV();
+      for (int i = 0; i < length; i++) {
+        for (int groupKey : groupKeysArray[i]) {
+          DictIdsWrapper.getDictIdBitmap(groupByResultHolder, groupKey, dictionary, valueType).add(dictIds[i]);
+        }
+      }
+      return;
+    }
+
+    switch (valueType) {
+      case INT:
+        int[] intValues = blockValSets[0].getIntValuesSV();
+        for (int i = 0; i < length; i++) {
+          for (int groupKey : groupKeysArray[i]) {
+            getValueSet(groupByResultHolder, groupKey, IntOpenHashSet::new).add(intValues[i]);
+          }
+        }
+        break;
+      case LONG:
+        long[] longValues = blockValSets[0].getLongValuesSV();
+        for (int i = 0; i < length; i++) {
+          for (int groupKey : groupKeysArray[i]) {
+            getValueSet(groupByResultHolder, groupKey, LongOpenHashSet::new).add(longValues[i]);
+          }
+        }
+        break;
+      case FLOAT:
+        float[] floatValues = blockValSets[0].getFloatValuesSV();
+        for (int i = 0; i < length; i++) {
+          for (int groupKey : groupKeysArray[i]) {
+            getValueSet(groupByResultHolder, groupKey, IntOpenHashSet::new).add(Float.floatToIntBits(floatValues[i]));
+          }
+        }
+        break;
+      case DOUBLE:
+        double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+        for (int i = 0; i < length; i++) {
+          for (int groupKey : groupKeysArray[i]) {
+            getValueSet(groupByResultHolder, groupKey, LongOpenHashSet::new)
+                .add(Double.doubleToLongBits(doubleValues[i]));
+          }
+        }
+        break;
+      case STRING:
+        String[] stringValues = blockValSets[0].getStringValuesSV();
+        for (int i = 0; i < length; i++) {
+          for (int groupKey : groupKeysArray[i]) {
+            getValueSet(groupByResultHolder, groupKey, ObjectOpenHashSet::new).add(stringValues[i]);
+          }
+        }
+        break;
+      default:
+        throw new IllegalStateException(
+            "Illegal data type for DISTINCT_COUNT_EXACT aggregation function: " + valueType);
+    }
+  }
+
+  @Override
+  public SortedDistinctValues extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
+    return toSortedDistinctValues(aggregationResultHolder.getResult());
+  }
+
+  @Override
+  public SortedDistinctValues extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
+    return toSortedDistinctValues(groupByResultHolder.getResult(groupKey));
+  }
+
+  @Override
+  public SortedDistinctValues merge(SortedDistinctValues intermediateResult1,
+      SortedDistinctValues intermediateResult2) {
+    return intermediateResult1.merge(intermediateResult2);
+  }
+
+  @Override
+  public boolean isIntermediateResultComparable() {
+    return false;
+  }
+
+  @Override
+  public ColumnDataType getIntermediateResultColumnType() {
+    return ColumnDataType.OBJECT;
+  }
+
+  @Override
+  public Integer extractFinalResult(SortedDistinctValues intermediateResult) {
+    return intermediateResult.size();
+  }
+
+  /**
+   * Helper method to convert the result stored in the result holder (value set or dictionary ids) into sorted
+   * distinct values.
+   */
+  @SuppressWarnings("unchecked")
+  private static SortedDistinctValues toSortedDistinctValues(Object result) {
+    if (result == null) {
+      return SortedDistinctValues.empty();
+    }
+    if (result instanceof IntOpenHashSet) {
+      IntOpenHashSet intSet = (IntOpenHashSet) result;
+      return SortedDistinctValues.fromInts(intSet.toIntArray(), intSet.size());
+    }
+    if (result instanceof LongOpenHashSet) {
+      LongOpenHashSet longSet = (LongOpenHashSet) result;
+      return SortedDistinctValues.fromLongs(longSet.toLongArray(), longSet.size());
+    }
+    if (result instanceof ObjectOpenHashSet) {
+      ObjectOpenHashSet<String> stringSet = (ObjectOpenHashSet<String>) result;
+      return SortedDistinctValues.fromStrings(stringSet.toArray(new String[0]), stringSet.size());
+    }
+
+    // Dictionary ids are distinct, so each value is read from the dictionary only once
+    DictIdsWrapper dictIdsWrapper = (DictIdsWrapper) result;
+    Dictionary dictionary = dictIdsWrapper._dictionary;
+    RoaringBitmap dictIdBitmap = dictIdsWrapper._dictIdBitmap;
+    int[] dictIds = dictIdBitmap.toArray();
+    int numValues = dictIds.length;
+    switch (dictIdsWrapper._valueType) {
+      case INT:
+        int[] intValues = new int[numValues];
+        dictionary.readIntValues(dictIds, numValues, intValues);
+        return SortedDistinctValues.fromInts(intValues, numValues);
+      case LONG:
+        long[] longValues = new long[numValues];
+        dictionary.readLongValues(dictIds, numValues, longValues);
+        return SortedDistinctValues.fromLongs(longValues, numValues);
+      case FLOAT:
+        int[] floatBits = new int[numValues];
+        for (int i = 0; i < numValues; i++) {
+          floatBits[i] = Float.floatToIntBits(dictionary.getFloatValue(dictIds[i]));
+        }
+        return SortedDistinctValues.fromInts(floatBits, numValues);
+      case DOUBLE:
+        long[] doubleBits = new long[numValues];
+        for (int i = 0; i < numValues; i++) {
+          doubleBits[i] = Double.doubleToLongBits(dictionary.getDoubleValue(dictIds[i]));
+        }
+        return SortedDistinctValues.fromLongs(doubleBits, numValues);
+      case STRING:
+        String[] stringValues = new String[numValues];
+        dictionary.readStringValues(dictIds, numValues, stringValues);
+        return SortedDistinctValues.fromStrings(stringValues, numValues);
+      default:
+        throw new IllegalStateException(
+            "Illegal data type for DISTINCT_COUNT_EXACT aggregation function: " + dictIdsWrapper._valueType);
+    }
+  }
+
+  /**
+   * Returns the value set from the result holder or creates a new one if it does not exist.
+   */
+  private static <T> T getValueSet(AggregationResultHolder aggregationResultHolder, Supplier<T> valueSetSupplier) {
+    T valueSet = aggregationResultHolder.getResult();
+    if (valueSet == null) {
+      valueSet = valueSetSupplier.get();
+      aggregationResultHolder.setValue(valueSet);
+    }
+    return valueSet;
+  }
+
+  /**
+   * Returns the value set for the given group key. If one does not exist, creates a new one and returns that.
+   */
+  private static <T> T getValueSet(GroupByResultHolder groupByResultHolder, int groupKey,
+      Supplier<T> valueSetSupplier) {
+    T valueSet = groupByResultHolder.getResult(groupKey);
+    if (valueSet == null) {
+      valueSet = valueSetSupplier.get();
+      groupByResultHolder.setValueForKey(groupKey, valueSet);
+    }
+    return valueSet;
+  }
+}
@@ -0,0 +1,332 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Union;
+import java.util.List;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.BlockValSet;
+import org.apache.pinot.core.query.aggregation.AggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+
+
+/**
+ * Distinct count based on the Theta sketch from Apache DataSketches.
+ * <p>The argument can either be a single expression, or a set expression (see {@link ThetaSketchSetExpression}) on
+ * top of multiple input expressions, e.g. <code>distinctCountThetaSketch(setIntersect(a, b))</code>. One sketch is
+ * aggregated per input expression, and the set expression is only evaluated on the final merged sketches.
+ * <p>BYTES input values are treated as serialized Theta sketches (pre-aggregated sketch column or star-tree).
+ */
+public class DistinctCountThetaSketchAggregationFunction implements AggregationFunction<Sketch[], Long> {
+  public static final int DEFAULT_NOMINAL_ENTRIES = 4096;
+
+  private final ThetaSketchSetExpression _setExpression;
+  private final int _numInputs;
+
+  public DistinctCountThetaSketchAggregationFunction(String column) {
+    _setExpression = new ThetaSketchSetExpression(TransformExpressionTree.compileToExpressionTree(column),
+        DEFAULT_NOMINAL_ENTRIES);
+    _numInputs = _setExpression.getInputExpressions().size();
+  }
+
+  /**
+   * Returns the input expressions, one {@link BlockValSet} is expected for each of them (in the same order).
+   */
+  public List<TransformExpressionTree> getInputExpressions() {
+    return _setExpression.getInputExpressions();
+  }
+
+  @Override
+  public AggregationFunctionType getType() {
+    return AggregationFunctionType.DISTINCTCOUNTTHETASKETCH;
+  }
+
+  @Override
+  public String getColumnName(String column) {
+    return AggregationFunctionType.DISTINCTCOUNTTHETASKETCH.getName() + "_" + column;
+  }
+
+  @Override
+  public void accept(AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity);
+  }
+
+  @Override
+  public void aggregate(int length, AggregationResultHolder aggregationResultHolder, BlockValSet... blockValSets) {
+    Union[] unions = getUnions(aggregationResultHolder);
+    for (int i = 0; i < _numInputs; i++) {
+      Union union = unions[i];
+      BlockValSet blockValSet = blockValSets[i];
+      DataType valueType = blockValSet.getValueType();
+      switch (valueType) {
+        case INT:
+          int[] intValues = blockValSet.getIntValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(intValues[j]);
+          }
+          break;
+        case LONG:
+          long[] longValues = blockValSet.getLongValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(longValues[j]);
+          }
+          break;
+        case FLOAT:
+          float[] floatValues = blockValSet.getFloatValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(floatValues[j]);
+          }
+          break;
+        case DOUBLE:
+          double[] doubleValues = blockValSet.getDoubleValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(doubleValues[j]);
+          }
+          break;
+        case STRING:
+          String[] stringValues = blockValSet.getStringValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(stringValues[j]);
+          }
+          break;
+        case BYTES:
+          // Serialized Theta sketch
+          byte[][] bytesValues = blockValSet.getBytesValuesSV();
+          for (int j = 0; j < length; j++) {
+            union.update(Memory.wrap(bytesValues[j]));
+          }
+          break;
+        default:
+          throw new IllegalStateException(
+              "Illegal data type for DISTINCT_COUNT_THETA_SKETCH aggregation function: " + valueType);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, int[] groupKeyArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    for (int i = 0; i < _numInputs; i++) {
+      BlockValSet blockValSet = blockValSets[i];
+      DataType valueType = blockValSet.getValueType();
+      switch (valueType) {
+        case INT:
+          int[] intValues = blockValSet.getIntValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(intValues[j]);
+          }
+          break;
+        case LONG:
+          long[] longValues = blockValSet.getLongValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(longValues[j]);
+          }
+          break;
+        case FLOAT:
+          float[] floatValues = blockValSet.getFloatValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(floatValues[j]);
+          }
+          break;
+        case DOUBLE:
+          double[] doubleValues = blockValSet.getDoubleValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(doubleValues[j]);
+          }
+          break;
+        case STRING:
+          String[] stringValues = blockValSet.getStringValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(stringValues[j]);
+          }
+          break;
+        case BYTES:
+          // Serialized Theta sketch
+          byte[][] bytesValues = blockValSet.getBytesValuesSV();
+          for (int j = 0; j < length; j++) {
+            getUnions(groupByResultHolder, groupKeyArray[j])[i].update(Memory.wrap(bytesValues[j]));
+          }
+          break;
+        default:
+          throw new IllegalStateException(
+              "Illegal data type for DISTINCT_COUNT_THETA_SKETCH aggregation function: " + valueType);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, int[][] groupKeysArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    for (int i = 0; i < _numInputs; i++) {
+      BlockValSet blockValSet = blockValSets[i];
+      DataType valueType = blockValSet.getValueType();
+      switch (valueType) {
+        case INT:
+          int[] intValues = blockValSet.getIntValuesSV();
+          for (int j = 0; j < length; j++) {
+            int value = intValues[j];
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        case LONG:
+          long[] longValues = blockValSet.getLongValuesSV();
+          for (int j = 0; j < length; j++) {
+            long value = longValues[j];
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        case FLOAT:
+          float[] floatValues = blockValSet.getFloatValuesSV();
+          for (int j = 0; j < length; j++) {
+            float value = floatValues[j];
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        case DOUBLE:
+          double[] doubleValues = blockValSet.getDoubleValuesSV();
+          for (int j = 0; j < length; j++) {
+            double value = doubleValues[j];
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        case STRING:
+          String[] stringValues = blockValSet.getStringValuesSV();
+          for (int j = 0; j < length; j++) {
+            String value = stringValues[j];
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        case BYTES:
+          // Serialized Theta sketch
+          byte[][] bytesValues = blockValSet.getBytesValuesSV();
+          for (int j = 0; j < length; j++) {
+            Memory value = Memory.wrap(bytesValues[j]);
+            for (int groupKey : groupKeysArray[j]) {
+              getUnions(groupByResultHolder, groupKey)[i].update(value);
+            }
+          }
+          break;
+        default:
+          throw new IllegalStateException(
+              "Illegal data type for DISTINCT_COUNT_THETA_SKETCH aggregation function: " + valueType);
+      }
+    }
+  }
+
+  @Override
+  public Sketch[] extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
+    Union[] unions = aggregationResultHolder.getResult();
+    return getSketches(unions != null ? unions : createUnions(_numInputs));
+  }
+
+  @Override
+  public Sketch[] extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
+    Union[] unions = groupByResultHolder.getResult(groupKey);
+    return getSketches(unions != null ? unions : createUnions(_numInputs));
+  }
+
+  @Override
+  public Sketch[] merge(Sketch[] intermediateResult1, Sketch[] intermediateResult2) {
+    int numSketches = intermediateResult1.length;
+    Union[] unions = createUnions(numSketches);
+    for (int i = 0; i < numSketches; i++) {
+      unions[i].update(intermediateResult1[i]);
+      unions[i].update(intermediateResult2[i]);
+    }
+    return getSketches(unions);
+  }
+
+  @Override
+  public boolean isIntermediateResultComparable() {
+    return false;
+  }
+
+  @Override
+  public ColumnDataType getIntermediateResultColumnType() {
+    return ColumnDataType.OBJECT;
+  }
+
+  @Override
+  public Long extractFinalResult(Sketch[] intermediateResult) {
+    return Math.round(_setExpression.evaluate(intermediateResult).getEstimate());
+  }
+
+  private Union[] getUnions(AggregationResultHolder aggregationResultHolder) {
+    Union[] unions = aggregationResultHolder.getResult();
+    if (unions == null) {
+      unions = createUnions(_numInputs);
+      aggregationResultHolder.setValue(unions);
+    }
+    return unions;
+  }
+
+  private Union[] getUnions(GroupByResultHolder groupByResultHolder, int groupKey) {
+    Union[] unions = groupByResultHolder.getResult(groupKey);
+    if (unions == null) {
+      unions = createUnions(_numInputs);
+      groupByResultHolder.setValueForKey(groupKey, unions);
+    }
+    return unions;
+  }
+
+  private static Union[] createUnions(int numUnions) {
+    Union[] unions = new Union[numUnions];
+    for (int i = 0; i < numUnions; i++) {
+      unions[i] = SetOperation.builder().setNominalEntries(DEFAULT_NOMINAL_ENTRIES).buildUnion();
+    }
+    return unions;
+  }
+
+  private static Sketch[] getSketches(Union[] unions) {
+    int numUnions = unions.length;
+    Sketch[] sketches = new Sketch[numUnions];
+    for (int i = 0; i < numUnions; i++) {
+      sketches[i] = unions[i].getResult();
+    }
+    return sketches;
+  }
+}
@@ -18,6 +18,9 @@
  */
 package org.apache.pinot.core.query.aggregation.function;
 
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.quantiles.DoublesUnion;
+import com.yahoo.sketches.quantiles.UpdateDoublesSketch;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import java.util.Arrays;
 import org.apache.pinot.common.function.AggregationFunctionType;
@@ -29,13 +32,30 @@ import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
 import org.apache.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
 
 
-public class PercentileAggregationFunction implements AggregationFunction<DoubleArrayList, Double> {
+/**
+ * Exact Percentile aggregation function.
+ * <p>All the values are kept in a {@link DoubleArrayList} and shipped to the broker. To bound the memory and network
+ * usage, a max number of exact values can be configured, beyond which the intermediate result is downgraded to a
+ * quantiles sketch when extracted from a segment or merged. The sketch keeps double values (unlike the KLL floats
+ * sketch of {@link PercentileKLLAggregationFunction}), so that large LONG and DOUBLE values do not lose precision. The
+ * intermediate result can therefore be either a {@link DoubleArrayList} or a {@link DoublesSketch}.
+ */
+public class PercentileAggregationFunction implements AggregationFunction<Object, Double> {
   private static final double DEFAULT_FINAL_RESULT = Double.NEGATIVE_INFINITY;
+  // About 1% normalized rank error
+  private static final int SKETCH_K = 256;
 
   protected final int _percentile;
+  // Non-positive value means no limit
+  protected final int _maxExactValues;
 
   public PercentileAggregationFunction(int percentile) {
+    this(percentile, 0);
+  }
+
+  public PercentileAggregationFunction(int percentile, int maxExactValues) {
     _percentile = percentile;
+    _maxExactValues = maxExactValues;
   }
 
   @Override
@@ -96,29 +116,36 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
   }
 
   @Override
-  public DoubleArrayList extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
+  public Object extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
     DoubleArrayList doubleArrayList = aggregationResultHolder.getResult();
     if (doubleArrayList == null) {
       return new DoubleArrayList();
     } else {
-      return doubleArrayList;
+      return downgradeIfNeeded(doubleArrayList);
     }
   }
 
   @Override
-  public DoubleArrayList extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
+  public Object extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
     DoubleArrayList doubleArrayList = groupByResultHolder.getResult(groupKey);
     if (doubleArrayList == null) {
       return new DoubleArrayList();
     } else {
-      return doubleArrayList;
+      return downgradeIfNeeded(doubleArrayList);
     }
   }
 
   @Override
-  public DoubleArrayList merge(DoubleArrayList intermediateResult1, DoubleArrayList intermediateResult2) {
-    intermediateResult1.addAll(intermediateResult2);
-    return intermediateResult1;
+  public Object merge(Object intermediateResult1, Object intermediateResult2) {
+    if (intermediateResult1 instanceof DoubleArrayList && intermediateResult2 instanceof DoubleArrayList) {
+      DoubleArrayList doubleArrayList = (DoubleArrayList) intermediateResult1;
+      doubleArrayList.addAll((DoubleArrayList) intermediateResult2);
+      return downgradeIfNeeded(doubleArrayList);
+    }
+    DoublesUnion union = DoublesUnion.builder().setMaxK(SKETCH_K).build();
+    addToUnion(union, intermediateResult1);
+    addToUnion(union, intermediateResult2);
+    return union.getResult();
   }
 
   @Override
@@ -132,12 +159,21 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
   }
 
   @Override
-  public Double extractFinalResult(DoubleArrayList intermediateResult) {
-    int size = intermediateResult.size();
+  public Double extractFinalResult(Object intermediateResult) {
+    if (intermediateResult instanceof DoublesSketch) {
+      DoublesSketch sketch = (DoublesSketch) intermediateResult;
+      if (sketch.isEmpty()) {
+        return DEFAULT_FINAL_RESULT;
+      } else {
+        return sketch.getQuantile(_percentile / 100.0);
+      }
+    }
+    DoubleArrayList doubleArrayList = (DoubleArrayList) intermediateResult;
+    int size = doubleArrayList.size();
     if (size == 0) {
       return DEFAULT_FINAL_RESULT;
     } else {
-      double[] values = intermediateResult.elements();
+      double[] values = doubleArrayList.elements();
       Arrays.sort(values, 0, size);
       if (_percentile == 100) {
         return values[size - 1];
@@ -147,6 +183,41 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
     }
   }
 
+  /**
+   * Converts the value list into a quantiles sketch if it contains more values than the configured max number of exact
+   * values.
+   */
+  private Object downgradeIfNeeded(DoubleArrayList valueList) {
+    if (_maxExactValues > 0 && valueList.size() > _maxExactValues) {
+      return toSketch(valueList);
+    } else {
+      return valueList;
+    }
+  }
+
+  private static DoublesSketch toSketch(DoubleArrayList valueList) {
+    UpdateDoublesSketch sketch = DoublesSketch.builder().setK(SKETCH_K).build();
+    int size = valueList.size();
+    double[] values = valueList.elements();
+    for (int i = 0; i < size; i++) {
+      sketch.update(values[i]);
+    }
+    return sketch;
+  }
+
+  private static void addToUnion(DoublesUnion union, Object intermediateResult) {
+    if (intermediateResult instanceof DoublesSketch) {
+      union.update((DoublesSketch) intermediateResult);
+    } else {
+      DoubleArrayList valueList = (DoubleArrayList) intermediateResult;
+      int size = valueList.size();
+      double[] values = valueList.elements();
+      for (int i = 0; i < size; i++) {
+        union.update(values[i]);
+      }
+    }
+  }
+
   /**
    * Returns the value list from the result holder or creates a new one if it does not exist.
    *
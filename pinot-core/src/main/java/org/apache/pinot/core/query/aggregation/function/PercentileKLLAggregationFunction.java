@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import com.yahoo.memory.Memory;
+import com.yahoo.sketches.kll.KllFloatsSketch;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.common.BlockValSet;
+import org.apache.pinot.core.query.aggregation.AggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+
+
+/**
+ * KLL sketch (from Apache DataSketches) based Percentile aggregation function.
+ * <p>The sketch has a fixed memory footprint (independent of the number of values), a compact serialized form and
+ * a cheap merge, with a rank error of about 1.65% for the default k. Values are stored as floats.
+ */
+public class PercentileKLLAggregationFunction implements AggregationFunction<KllFloatsSketch, Double> {
+  public static final int DEFAULT_K = 200;
+  private static final double DEFAULT_FINAL_RESULT = Double.NEGATIVE_INFINITY;
+
+  protected final int _percentile;
+
+  public PercentileKLLAggregationFunction(int percentile) {
+    _percentile = percentile;
+  }
+
+  @Override
+  public AggregationFunctionType getType() {
+    return AggregationFunctionType.PERCENTILEKLL;
+  }
+
+  @Override
+  public String getColumnName(String column) {
+    return AggregationFunctionType.PERCENTILEKLL.getName() + _percentile + "_" + column;
+  }
+
+  @Override
+  public void accept(AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity);
+  }
+
+  @Override
+  public void aggregate(int length, AggregationResultHolder aggregationResultHolder, BlockValSet... blockValSets) {
+    KllFloatsSketch sketch = getDefaultSketch(aggregationResultHolder);
+    if (blockValSets[0].getValueType() != DataType.BYTES) {
+      double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        sketch.update((float) doubleValues[i]);
+      }
+    } else {
+      // Serialized KLL sketch
+      byte[][] bytesValues = blockValSets[0].getBytesValuesSV();
+      for (int i = 0; i < length; i++) {
+        sketch.merge(KllFloatsSketch.heapify(Memory.wrap(bytesValues[i])));
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, int[] groupKeyArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    if (blockValSets[0].getValueType() != DataType.BYTES) {
+      double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        getDefaultSketch(groupByResultHolder, groupKeyArray[i]).update((float) doubleValues[i]);
+      }
+    } else {
+      // Serialized KLL sketch
+      byte[][] bytesValues = blockValSets[0].getBytesValuesSV();
+      for (int i = 0; i < length; i++) {
+        getDefaultSketch(groupByResultHolder, groupKeyArray[i])
+            .merge(KllFloatsSketch.heapify(Memory.wrap(bytesValues[i])));
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, int[][] groupKeysArray, GroupByResultHolder groupByResultHolder,
+      BlockValSet... blockValSets) {
+    if (blockValSets[0].getValueType() != DataType.BYTES) {
+      double[] doubleValues = blockValSets[0].getDoubleValuesSV();
+      for (int i = 0; i < length; i++) {
+        float value = (float) doubleValues[i];
+        for (int groupKey : groupKeysArray[i]) {
+          getDefaultSketch(groupByResultHolder, groupKey).update(value);
+        }
+      }
+    } else {
+      // Serialized KLL sketch
+      byte[][] bytesValues = blockValSets[0].getBytesValuesSV();
+      for (int i = 0; i < length; i++) {
+        KllFloatsSketch value = KllFloatsSketch.heapify(Memory.wrap(bytesValues[i]));
+        for (int groupKey : groupKeysArray[i]) {
+          getDefaultSketch(groupByResultHolder, groupKey).merge(value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public KllFloatsSketch extractAggregationResult(AggregationResultHolder aggregationResultHolder) {
+    KllFloatsSketch sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      return new KllFloatsSketch(DEFAULT_K);
+    } else {
+      return sketch;
+    }
+  }
+
+  @Override
+  public KllFloatsSketch extractGroupByResult(GroupByResultHolder groupByResultHolder, int groupKey) {
+    KllFloatsSketch sketch = groupByResultHolder.getResult(groupKey);
+    if (sketch == null) {
+      return new KllFloatsSketch(DEFAULT_K);
+    } else {
+      return sketch;
+    }
+  }
+
+  @Override
+  public KllFloatsSketch merge(KllFloatsSketch intermediateResult1, KllFloatsSketch intermediateResult2) {
+    if (intermediateResult1.isEmpty()) {
+      return intermediateResult2;
+    }
+    if (intermediateResult2.isEmpty()) {
+      return intermediateResult1;
+    }
+    intermediateResult1.merge(intermediateResult2);
+    return intermediateResult1;
+  }
+
+  @Override
+  public boolean isIntermediateResultComparable() {
+    return false;
+  }
+
+  @Override
+  public ColumnDataType getIntermediateResultColumnType() {
+    return ColumnDataType.OBJECT;
+  }
+
+  @Override
+  public Double extractFinalResult(KllFloatsSketch intermediateResult) {
+    if (intermediateResult.isEmpty()) {
+      return DEFAULT_FINAL_RESULT;
+    } else {
+      return (double) intermediateResult.getQuantile(_percentile / 100.0);
+    }
+  }
+
+  /**
+   * Returns the KLL sketch from the result holder or creates a new one with default k if it does not exist.
+   *
+   * @param aggregationResultHolder Result holder
+   * @return KLL sketch from the result holder
+   */
+  protected static KllFloatsSketch getDefaultSketch(AggregationResultHolder aggregationResultHolder) {
+    KllFloatsSketch sketch = aggregationResultHolder.getResult();
+    if (sketch == null) {
+      sketch = new KllFloatsSketch(DEFAULT_K);
+      aggregationResultHolder.setValue(sketch);
+    }
+    return sketch;
+  }
+
+  /**
+   * Returns the KLL sketch for the given group key if exists, or creates a new one with default k.
+   *
+   * @param groupByResultHolder Result holder
+   * @param groupKey Group key for which to return the KLL sketch
+   * @return KLL sketch for the group key
+   */
+  protected static KllFloatsSketch getDefaultSketch(GroupByResultHolder groupByResultHolder, int groupKey) {
+    KllFloatsSketch sketch = groupByResultHolder.getResult(groupKey);
+    if (sketch == null) {
+      sketch = new KllFloatsSketch(DEFAULT_K);
+      groupByResultHolder.setValueForKey(groupKey, sketch);
+    }
+    return sketch;
+  }
+}
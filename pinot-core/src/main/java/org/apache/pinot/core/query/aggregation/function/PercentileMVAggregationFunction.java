@@ -31,6 +31,10 @@ public class PercentileMVAggregationFunction extends PercentileAggregationFuncti
     super(percentile);
   }
 
+  public PercentileMVAggregationFunction(int percentile, int maxExactValues) {
+    super(percentile, maxExactValues);
+  }
+
   @Override
   public AggregationFunctionType getType() {
     return AggregationFunctionType.PERCENTILEMV;
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import com.google.common.base.Preconditions;
+import com.yahoo.sketches.theta.AnotB;
+import com.yahoo.sketches.theta.Intersection;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Union;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
+
+
+/**
+ * Set expression for the theta sketch based distinct count, e.g. <code>setIntersect(a, setUnion(b, c))</code>.
+ * <p>Only the input expressions (leaves of the set expression) are aggregated into theta sketches on the servers, and
+ * the set operations are applied on the merged sketches on the broker, so that each input is only scanned once no
+ * matter how many times it appears in the set expression.
+ * <p>Supported set functions:
+ * <ul>
+ *   <li>setUnion(a, b, ...): union of the inputs</li>
+ *   <li>setIntersect(a, b, ...): intersection of the inputs</li>
+ *   <li>setDiff(a, b): values in a but not in b</li>
+ * </ul>
+ */
+class ThetaSketchSetExpression {
+  private static final String SET_UNION = "setunion";
+  private static final String SET_INTERSECT = "setintersect";
+  private static final String SET_DIFF = "setdiff";
+
+  private final TransformExpressionTree _expression;
+  private final int _nominalEntries;
+  private final List<TransformExpressionTree> _inputExpressions;
+
+  ThetaSketchSetExpression(TransformExpressionTree expression, int nominalEntries) {
+    _expression = expression;
+    _nominalEntries = nominalEntries;
+    _inputExpressions = getInputExpressions(expression);
+  }
+
+  /**
+   * Returns the distinct input expressions of the given set expression in the order of their first appearance, without
+   * setting up the set operations.
+   */
+  static List<TransformExpressionTree> getInputExpressions(TransformExpressionTree expression) {
+    List<TransformExpressionTree> inputExpressions = new ArrayList<>();
+    extractInputExpressions(expression, inputExpressions);
+    return inputExpressions;
+  }
+
+  /**
+   * Returns the distinct input expressions in the order of their first appearance in the set expression.
+   */
+  List<TransformExpressionTree> getInputExpressions() {
+    return _inputExpressions;
+  }
+
+  /**
+   * Evaluates the set expression on the sketches of the input expressions (in the same order as the input
+   * expressions).
+   */
+  Sketch evaluate(Sketch[] sketches) {
+    return evaluate(_expression, sketches);
+  }
+
+  private static void extractInputExpressions(TransformExpressionTree expression,
+      List<TransformExpressionTree> inputExpressions) {
+    if (isSetFunction(expression)) {
+      List<TransformExpressionTree> children = expression.getChildren();
+      if (expression.getValue().equals(SET_DIFF)) {
+        Preconditions.checkArgument(children.size() == 2, "setDiff expects exactly 2 arguments, got: %s", expression);
+      } else {
+        Preconditions.checkArgument(children.size() >= 2, "%s expects at least 2 arguments, got: %s",
+            expression.getValue(), expression);
+      }
+      for (TransformExpressionTree child : children) {
+        extractInputExpressions(child, inputExpressions);
+      }
+    } else if (!inputExpressions.contains(expression)) {
+      inputExpressions.add(expression);
+    }
+  }
+
+  private Sketch evaluate(TransformExpressionTree expression, Sketch[] sketches) {
+    if (!isSetFunction(expression)) {
+      return sketches[_inputExpressions.indexOf(expression)];
+    }
+    List<TransformExpressionTree> children = expression.getChildren();
+    switch (expression.getValue()) {
+      case SET_UNION:
+        Union union = SetOperation.builder().setNominalEntries(_nominalEntries).buildUnion();
+        for (TransformExpressionTree child : children) {
+          union.update(evaluate(child, sketches));
+        }
+        return union.getResult();
+      case SET_INTERSECT:
+        Intersection intersection = SetOperation.builder().setNominalEntries(_nominalEntries).buildIntersection();
+        for (TransformExpressionTree child : children) {
+          intersection.update(evaluate(child, sketches));
+        }
+        return intersection.getResult();
+      case SET_DIFF:
+        AnotB aNotB = SetOperation.builder().setNominalEntries(_nominalEntries).buildANotB();
+        aNotB.update(evaluate(children.get(0), sketches), evaluate(children.get(1), sketches));
+        return aNotB.getResult();
+      default:
+        throw new IllegalStateException("Unsupported set function: " + expression.getValue());
+    }
+  }
+
+  private static boolean isSetFunction(TransformExpressionTree expression) {
+    if (expression.getExpressionType() != TransformExpressionTree.ExpressionType.FUNCTION) {
+      return false;
+    }
+    String functionName = expression.getValue();
+    return functionName.equals(SET_UNION) || functionName.equals(SET_INTERSECT) || functionName.equals(SET_DIFF);
+  }
+}
@@ -0,0 +1,366 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function.customobject;
+
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import org.apache.pinot.common.utils.StringUtil;
+
+
+/**
+ * Exact set of distinct values kept as a sorted array, used as the intermediate result of the exact distinct count.
+ * FLOAT and DOUBLE values are stored as their raw bits in INT and LONG arrays.
+ * <p>Sorted arrays are merged linearly without hashing, and numeric values are serialized as variable-length deltas,
+ * which takes much less space than fixed-width values for dense value ranges.
+ */
+public class SortedDistinctValues {
+  public enum StoredType {
+    INT, LONG, STRING
+  }
+
+  private static final SortedDistinctValues EMPTY = new SortedDistinctValues(StoredType.INT, new int[0], null, null);
+
+  private final StoredType _storedType;
+  private final int[] _intValues;
+  private final long[] _longValues;
+  private final String[] _stringValues;
+
+  private SortedDistinctValues(StoredType storedType, int[] intValues, long[] longValues, String[] stringValues) {
+    _storedType = storedType;
+    _intValues = intValues;
+    _longValues = longValues;
+    _stringValues = stringValues;
+  }
+
+  public static SortedDistinctValues empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates the distinct values from the first <code>length</code> values of the array (in any order, duplicates
+   * allowed). The array is sorted in place.
+   */
+  public static SortedDistinctValues fromInts(int[] values, int length) {
+    Arrays.sort(values, 0, length);
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      if (size == 0 || values[i] != values[size - 1]) {
+        values[size++] = values[i];
+      }
+    }
+    return new SortedDistinctValues(StoredType.INT, size == values.length ? values : Arrays.copyOf(values, size), null,
+        null);
+  }
+
+  /**
+   * Creates the distinct values from the first <code>length</code> values of the array (in any order, duplicates
+   * allowed). The array is sorted in place.
+   */
+  public static SortedDistinctValues fromLongs(long[] values, int length) {
+    Arrays.sort(values, 0, length);
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      if (size == 0 || values[i] != values[size - 1]) {
+        values[size++] = values[i];
+      }
+    }
+    return new SortedDistinctValues(StoredType.LONG, null, size == values.length ? values : Arrays.copyOf(values, size),
+        null);
+  }
+
+  /**
+   * Creates the distinct values from the first <code>length</code> values of the array (in any order, duplicates
+   * allowed). The array is sorted in place.
+   */
+  public static SortedDistinctValues fromStrings(String[] values, int length) {
+    Arrays.sort(values, 0, length);
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      if (size == 0 || !values[i].equals(values[size - 1])) {
+        values[size++] = values[i];
+      }
+    }
+    return new SortedDistinctValues(StoredType.STRING, null, null,
+        size == values.length ? values : Arrays.copyOf(values, size));
+  }
+
+  public StoredType getStoredType() {
+    return _storedType;
+  }
+
+  public int size() {
+    switch (_storedType) {
+      case INT:
+        return _intValues.length;
+      case LONG:
+        return _longValues.length;
+      case STRING:
+        return _stringValues.length;
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Returns the union of this and the given distinct values. Both sides are left unchanged.
+   */
+  public SortedDistinctValues merge(@Nonnull SortedDistinctValues other) {
+    if (other.size() == 0) {
+      return this;
+    }
+    if (size() == 0) {
+      return other;
+    }
+    Preconditions.checkState(_storedType == other._storedType, "Cannot merge distinct values of type: %s with: %s",
+        _storedType, other._storedType);
+    switch (_storedType) {
+      case INT:
+        return new SortedDistinctValues(StoredType.INT, mergeInts(_intValues, other._intValues), null, null);
+      case LONG:
+        return new SortedDistinctValues(StoredType.LONG, null, mergeLongs(_longValues, other._longValues), null);
+      case STRING:
+        return new SortedDistinctValues(StoredType.STRING, null, null,
+            mergeStrings(_stringValues, other._stringValues));
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private static int[] mergeInts(int[] values1, int[] values2) {
+    int[] merged = new int[values1.length + values2.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < values1.length && j < values2.length) {
+      int value1 = values1[i];
+      int value2 = values2[j];
+      if (value1 <= value2) {
+        merged[size++] = value1;
+        i++;
+        if (value1 == value2) {
+          j++;
+        }
+      } else {
+        merged[size++] = value2;
+        j++;
+      }
+    }
+    while (i < values1.length) {
+      merged[size++] = values1[i++];
+    }
+    while (j < values2.length) {
+      merged[size++] = values2[j++];
+    }
+    return size == merged.length ? merged : Arrays.copyOf(merged, size);
+  }
+
+  private static long[] mergeLongs(long[] values1, long[] values2) {
+    long[] merged = new long[values1.length + values2.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < values1.length && j < values2.length) {
+      long value1 = values1[i];
+      long value2 = values2[j];
+      if (value1 <= value2) {
+        merged[size++] = value1;
+        i++;
+        if (value1 == value2) {
+          j++;
+        }
+      } else {
+        merged[size++] = value2;
+        j++;
+      }
+    }
+    while (i < values1.length) {
+      merged[size++] = values1[i++];
+    }
+    while (j < values2.length) {
+      merged[size++] = values2[j++];
+    }
+    return size == merged.length ? merged : Arrays.copyOf(merged, size);
+  }
+
+  private static String[] mergeStrings(String[] values1, String[] values2) {
+    String[] merged = new String[values1.length + values2.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < values1.length && j < values2.length) {
+      int result = values1[i].compareTo(values2[j]);
+      if (result <= 0) {
+        merged[size++] = values1[i++];
+        if (result == 0) {
+          j++;
+        }
+      } else {
+        merged[size++] = values2[j++];
+      }
+    }
+    while (i < values1.length) {
+      merged[size++] = values1[i++];
+    }
+    while (j < values2.length) {
+      merged[size++] = values2[j++];
+    }
+    return size == merged.length ? merged : Arrays.copyOf(merged, size);
+  }
+
+  /**
+   * Serializes the values as: stored type (1 byte), number of values (4 bytes), then the values. Numeric values are
+   * encoded as unsigned var-length deltas from the previous value (starting from the min value of the type), and
+   * strings as var-length UTF-8 byte lengths followed by the bytes.
+   */
+  @Nonnull
+  public byte[] toBytes() {
+    int size = size();
+    ByteBuffer byteBuffer;
+    switch (_storedType) {
+      case INT: {
+        byteBuffer = ByteBuffer.allocate(1 + Integer.BYTES + size * 5);
+        byteBuffer.put((byte) _storedType.ordinal());
+        byteBuffer.putInt(size);
+        long previousValue = Integer.MIN_VALUE;
+        for (int value : _intValues) {
+          writeVarLong(byteBuffer, value - previousValue);
+          previousValue = value;
+        }
+        break;
+      }
+      case LONG: {
+        byteBuffer = ByteBuffer.allocate(1 + Integer.BYTES + size * 10);
+        byteBuffer.put((byte) _storedType.ordinal());
+        byteBuffer.putInt(size);
+        long previousValue = Long.MIN_VALUE;
+        for (long value : _longValues) {
+          // Difference between sorted values always fits in an unsigned long
+          writeVarLong(byteBuffer, value - previousValue);
+          previousValue = value;
+        }
+        break;
+      }
+      case STRING: {
+        byte[][] valueBytes = new byte[size][];
+        int bufferSize = 1 + Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+          valueBytes[i] = StringUtil.encodeUtf8(_stringValues[i]);
+          bufferSize += 5 + valueBytes[i].length;
+        }
+        byteBuffer = ByteBuffer.allocate(bufferSize);
+        byteBuffer.put((byte) _storedType.ordinal());
+        byteBuffer.putInt(size);
+        for (byte[] bytes : valueBytes) {
+          writeVarLong(byteBuffer, bytes.length);
+          byteBuffer.put(bytes);
+        }
+        break;
+      }
+      default:
+        throw new IllegalStateException();
+    }
+    return Arrays.copyOf(byteBuffer.array(), byteBuffer.position());
+  }
+
+  @Nonnull
+  public static SortedDistinctValues fromBytes(byte[] bytes) {
+    return fromByteBuffer(ByteBuffer.wrap(bytes));
+  }
+
+  @Nonnull
+  public static SortedDistinctValues fromByteBuffer(ByteBuffer byteBuffer) {
+    StoredType storedType = StoredType.values()[byteBuffer.get()];
+    int size = byteBuffer.getInt();
+    switch (storedType) {
+      case INT: {
+        int[] values = new int[size];
+        long value = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+          value += readVarLong(byteBuffer);
+          values[i] = (int) value;
+        }
+        return new SortedDistinctValues(StoredType.INT, values, null, null);
+      }
+      case LONG: {
+        long[] values = new long[size];
+        long value = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+          value += readVarLong(byteBuffer);
+          values[i] = value;
+        }
+        return new SortedDistinctValues(StoredType.LONG, null, values, null);
+      }
+      case STRING: {
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+          byte[] bytes = new byte[(int) readVarLong(byteBuffer)];
+          byteBuffer.get(bytes);
+          values[i] = StringUtil.decodeUtf8(bytes);
+        }
+        return new SortedDistinctValues(StoredType.STRING, null, null, values);
+      }
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private static void writeVarLong(ByteBuffer byteBuffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      byteBuffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    byteBuffer.put((byte) value);
+  }
+
+  private static long readVarLong(ByteBuffer byteBuffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = byteBuffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SortedDistinctValues)) {
+      return false;
+    }
+    SortedDistinctValues that = (SortedDistinctValues) o;
+    return _storedType == that._storedType && Arrays.equals(_intValues, that._intValues) && Arrays
+        .equals(_longValues, that._longValues) && Arrays.equals(_stringValues, that._stringValues);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = _storedType.hashCode();
+    result = 31 * result + Arrays.hashCode(_intValues);
+    result = 31 * result + Arrays.hashCode(_longValues);
+    result = 31 * result + Arrays.hashCode(_stringValues);
+    return result;
+  }
+}
@@ -30,6 +30,7 @@ import org.apache.pinot.core.operator.transform.TransformResultMetadata;
 import org.apache.pinot.core.plan.DocIdSetPlanNode;
 import org.apache.pinot.core.query.aggregation.AggregationFunctionContext;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.DistinctCountThetaSketchAggregationFunction;
 
 
 /**
@@ -157,6 +158,20 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
       } else {
         function.aggregateGroupBySV(length, _svGroupKeys, resultHolder);
       }
+    } else if (function.getType() == AggregationFunctionType.DISTINCTCOUNTTHETASKETCH) {
+      // distinctCountThetaSketch takes one block value set per input expression of the set expression
+      List<TransformExpressionTree> inputExpressions =
+          ((DistinctCountThetaSketchAggregationFunction) function).getInputExpressions();
+      int numInputExpressions = inputExpressions.size();
+      BlockValSet[] blockValSets = new BlockValSet[numInputExpressions];
+      for (int i = 0; i < numInputExpressions; i++) {
+        blockValSets[i] = transformBlock.getBlockValueSet(inputExpressions.get(i));
+      }
+      if (_hasMVGroupByExpression) {
+        function.aggregateGroupByMV(length, _mvGroupKeys, resultHolder, blockValSets);
+      } else {
+        function.aggregateGroupBySV(length, _svGroupKeys, resultHolder, blockValSets);
+      }
     } else {
       BlockValSet blockValueSet = transformBlock.getBlockValueSet(_aggregationExpressions[functionIndex]);
       if (_hasMVGroupByExpression) {
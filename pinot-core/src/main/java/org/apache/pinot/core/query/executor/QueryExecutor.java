@@ -55,6 +55,14 @@ public interface QueryExecutor {
    */
   DataTable processQuery(ServerQueryRequest queryRequest, ExecutorService executorService);
 
+  /**
+   * Cancels the query with the given query id (see {@link ServerQueryRequest#getQueryId()}) if it is being processed.
+   * <p>The query stops at the next operator block boundary and returns a query cancellation error.
+   *
+   * @return Whether the query is being processed
+   */
+  boolean cancelQuery(String queryId);
+
   /**
    * Sets the timeout for the given table, instead of using the global timeout.
    */
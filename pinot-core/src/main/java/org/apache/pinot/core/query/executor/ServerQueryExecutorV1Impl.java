@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import javax.annotation.concurrent.ThreadSafe;
@@ -47,6 +48,7 @@ import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import org.apache.pinot.core.plan.maker.PlanMaker;
 import org.apache.pinot.core.query.config.QueryExecutorConfig;
 import org.apache.pinot.core.query.exception.BadQueryRequestException;
+import org.apache.pinot.core.query.exception.QueryCancelledException;
 import org.apache.pinot.core.query.pruner.SegmentPrunerService;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.request.context.TimerContext;
@@ -65,6 +67,9 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private PlanMaker _planMaker = null;
   private long _defaultTimeOutMs = CommonConstants.Server.DEFAULT_QUERY_EXECUTOR_TIMEOUT_MS;
   private final Map<String, Long> _tableTimeoutMs = new ConcurrentHashMap<>();
+  // Query id -> thread processing the query
+  private final Map<String, Thread> _runningQueries = new ConcurrentHashMap<>();
+  private final Set<String> _cancelledQueries = ConcurrentHashMap.newKeySet();
   private ServerMetrics _serverMetrics;
 
   @Override
@@ -161,6 +166,10 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       LOGGER.debug("Querying {} consuming segments with min minConsumingFreshnessTimeMs {}", numConsumingSegmentsProcessed, minConsumingFreshnessTimeMs);
     }
 
+    // Register the query so that it can be cancelled
+    String queryId = queryRequest.getQueryId();
+    _runningQueries.put(queryId, Thread.currentThread());
+
     DataTable dataTable = null;
     try {
       TimerContext.Timer segmentPruneTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.SEGMENT_PRUNING);
@@ -198,18 +207,28 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         dataTable.getMetadata().put(DataTable.TOTAL_DOCS_METADATA_KEY, Long.toString(totalRawDocs));
       }
     } catch (Exception e) {
-      _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
-
       // Do not log error for BadQueryRequestException because it's caused by bad query
       if (e instanceof BadQueryRequestException) {
+        _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
         LOGGER.info("Caught BadQueryRequestException while processing requestId: {}, {}", requestId, e.getMessage());
-      } else {
+      } else if (!(e instanceof QueryCancelledException)) {
+        _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
         LOGGER.error("Exception processing requestId {}", requestId, e);
       }
 
       dataTable = new DataTableImplV2();
       dataTable.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
     } finally {
+      // Once removed from the running queries, the thread can no longer get interrupted by cancelQuery(), so it is safe
+      // to clear the interrupt flag before the thread goes back to the pool
+      _runningQueries.remove(queryId);
+      Thread.interrupted();
+      if (_cancelledQueries.remove(queryId)) {
+        _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.CANCELLED_QUERIES, 1);
+        LOGGER.info("Cancelled requestId: {} from broker: {}", requestId, queryRequest.getBrokerId());
+        dataTable = new DataTableImplV2();
+        dataTable.addException(QueryException.QUERY_CANCELLATION_ERROR);
+      }
       for (SegmentDataManager segmentDataManager : segmentDataManagers) {
         tableDataManager.releaseSegment(segmentDataManager);
       }
@@ -263,6 +282,15 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     return totalRawDocs;
   }
 
+  @Override
+  public boolean cancelQuery(String queryId) {
+    return _runningQueries.computeIfPresent(queryId, (k, thread) -> {
+      _cancelledQueries.add(queryId);
+      thread.interrupt();
+      return thread;
+    }) != null;
+  }
+
   @Override
   public void setTableTimeoutMs(String tableNameWithType, long timeOutMs) {
     _tableTimeoutMs.put(tableNameWithType, timeOutMs);
@@ -18,11 +18,9 @@
  */
 package org.apache.pinot.core.query.pruner;
 
-import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import org.apache.pinot.common.data.FieldSpec;
-import org.apache.pinot.common.request.FilterOperator;
 import org.apache.pinot.common.utils.BytesUtils;
 import org.apache.pinot.common.utils.request.FilterQueryTree;
 import org.apache.pinot.core.query.exception.BadQueryRequestException;
@@ -41,11 +39,7 @@ public abstract class AbstractSegmentPruner implements SegmentPruner {
       Map<String, BloomFilterReader> bloomFilterMap);
 
   /**
-   * Given a non leaf filter query tree node prunes it as follows:
-   * <ul>
-   *   <li> For 'AND', node is pruned as long as at least one child can prune it. </li>
-   *   <li> For 'OR', node is pruned as long as all children can prune it. </li>
-   * </ul>
+   * Given a non leaf filter query tree node prunes it as described in {@link SegmentPrunerUtils#pruneNonLeaf}.
    *
    * @param filterQueryTree Non leaf node in the filter query tree.
    * @param columnMetadataMap Map for column metadata.
@@ -54,33 +48,8 @@ public abstract class AbstractSegmentPruner implements SegmentPruner {
    */
   protected boolean pruneNonLeaf(@Nonnull FilterQueryTree filterQueryTree,
       @Nonnull Map<String, ColumnMetadata> columnMetadataMap, Map<String, BloomFilterReader> bloomFilterMap) {
-    List<FilterQueryTree> children = filterQueryTree.getChildren();
-
-    if (children.isEmpty()) {
-      return false;
-    }
-
-    FilterOperator filterOperator = filterQueryTree.getOperator();
-    switch (filterOperator) {
-      case AND:
-        for (FilterQueryTree child : children) {
-          if (pruneSegment(child, columnMetadataMap, bloomFilterMap)) {
-            return true;
-          }
-        }
-        return false;
-
-      case OR:
-        for (FilterQueryTree child : children) {
-          if (!pruneSegment(child, columnMetadataMap, bloomFilterMap)) {
-            return false;
-          }
-        }
-        return true;
-
-      default:
-        throw new IllegalStateException("Unsupported filter operator: " + filterOperator);
-    }
+    return SegmentPrunerUtils
+        .pruneNonLeaf(filterQueryTree, child -> pruneSegment(child, columnMetadataMap, bloomFilterMap));
   }
 
   /**
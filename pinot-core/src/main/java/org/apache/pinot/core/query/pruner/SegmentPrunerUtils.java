@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.pruner;
+
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import org.apache.pinot.common.request.FilterOperator;
+import org.apache.pinot.common.utils.request.FilterQueryTree;
+
+
+/**
+ * Utility methods shared by the server side segment pruners and the broker side segment ZK metadata pruners.
+ */
+public class SegmentPrunerUtils {
+  private SegmentPrunerUtils() {
+  }
+
+  /**
+   * Given a non leaf filter query tree node prunes it as follows:
+   * <ul>
+   *   <li> For 'AND', node is pruned as long as at least one child can prune it. </li>
+   *   <li> For 'OR', node is pruned as long as all children can prune it. </li>
+   * </ul>
+   *
+   * @param filterQueryTree Non leaf node in the filter query tree.
+   * @param childPruner Returns whether a child node can prune the segment.
+   *
+   * @return True to prune, false otherwise
+   */
+  public static boolean pruneNonLeaf(@Nonnull FilterQueryTree filterQueryTree,
+      @Nonnull Predicate<FilterQueryTree> childPruner) {
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+
+    if (children.isEmpty()) {
+      return false;
+    }
+
+    FilterOperator filterOperator = filterQueryTree.getOperator();
+    switch (filterOperator) {
+      case AND:
+        for (FilterQueryTree child : children) {
+          if (childPruner.test(child)) {
+            return true;
+          }
+        }
+        return false;
+
+      case OR:
+        for (FilterQueryTree child : children) {
+          if (!childPruner.test(child)) {
+            return false;
+          }
+        }
+        return true;
+
+      default:
+        throw new IllegalStateException("Unsupported filter operator: " + filterOperator);
+    }
+  }
+}
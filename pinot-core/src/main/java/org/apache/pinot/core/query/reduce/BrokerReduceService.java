@@ -19,6 +19,7 @@
 package org.apache.pinot.core.query.reduce;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,7 +29,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -58,10 +63,12 @@ import org.apache.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionK
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
 import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.core.data.order.OrderByUtils;
 import org.apache.pinot.core.data.table.ConcurrentIndexedTable;
 import org.apache.pinot.core.data.table.IndexedTable;
 import org.apache.pinot.core.data.table.Key;
 import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.data.table.SimpleIndexedTable;
 import org.apache.pinot.core.query.aggregation.DistinctTable;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
@@ -76,14 +83,52 @@ import org.slf4j.LoggerFactory;
 /**
  * The <code>BrokerReduceService</code> class provides service to reduce data tables gathered from multiple servers
  * to {@link BrokerResponseNative}.
+ * <p>When constructed with an executor, large group-by results are reduced in parallel: the group keys are
+ * hash-partitioned, each partition is merged into its own {@link IndexedTable}, and the sorted partitions are merged
+ * to get the top-N groups. The number of partitions is chosen from the total number of rows in the data tables.
  */
 @ThreadSafe
 public class BrokerReduceService implements ReduceService<BrokerResponseNative> {
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerReduceService.class);
 
+  // Minimum number of rows (over all the data tables) for each partition when reducing group-by results in parallel
+  private static final int MIN_NUM_ROWS_PER_PARTITION = 50_000;
+  private static final int INDEXED_TABLE_CAPACITY = 1_000_000;
+
+  private final ExecutorService _reduceExecutor;
+  private final int _maxReduceParallelism;
+
+  public BrokerReduceService() {
+    this(null, 1);
+  }
+
+  /**
+   * @param reduceExecutor Executor to reduce group-by results in parallel, or null to always reduce sequentially
+   * @param maxReduceParallelism Max number of partitions (tasks) used to reduce the group-by results of one query
+   */
+  public BrokerReduceService(@Nullable ExecutorService reduceExecutor, int maxReduceParallelism) {
+    _reduceExecutor = reduceExecutor;
+    _maxReduceParallelism = reduceExecutor != null ? Math.max(maxReduceParallelism, 1) : 1;
+  }
+
   @Override
   public BrokerResponseNative reduceOnDataTable(BrokerRequest brokerRequest,
       Map<ServerInstance, DataTable> dataTableMap, @Nullable BrokerMetrics brokerMetrics) {
+    return reduceOnDataTable(brokerRequest, dataTableMap, Long.MAX_VALUE, brokerMetrics);
+  }
+
+  /**
+   * Reduces the data tables gathered from the servers into one broker response, waiting at most the given time for the
+   * parallel reduce tasks.
+   *
+   * @param brokerRequest broker request
+   * @param dataTableMap map from server instance to data table
+   * @param reduceTimeoutMs max time to wait for the parallel reduce tasks, usually the remaining time of the query
+   * @param brokerMetrics broker metrics to track execution statistics
+   * @return broker response
+   */
+  public BrokerResponseNative reduceOnDataTable(BrokerRequest brokerRequest,
+      Map<ServerInstance, DataTable> dataTableMap, long reduceTimeoutMs, @Nullable BrokerMetrics brokerMetrics) {
     if (dataTableMap.size() == 0) {
       // Empty response.
       return BrokerResponseNative.empty();
@@ -101,6 +146,9 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
     long minConsumingFreshnessTimeMs = Long.MAX_VALUE;
     long numTotalRawDocs = 0L;
     boolean numGroupsLimitReached = false;
+    long reduceEndTimeMs =
+        reduceTimeoutMs < Long.MAX_VALUE - System.currentTimeMillis() ? System.currentTimeMillis() + reduceTimeoutMs
+            : Long.MAX_VALUE;
 
     // Cache a data schema from data tables (try to cache one with data rows associated with it).
     DataSchema cachedDataSchema = null;
@@ -234,7 +282,7 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
         } else if (brokerRequest.isSetGroupBy() && GroupByUtils.isGroupByMode(Request.SQL, queryOptions) && GroupByUtils
             .isResponseFormat(Request.SQL, queryOptions)) {
           setSQLGroupByOrderByResults(brokerResponseNative, cachedDataSchema, brokerRequest.getAggregationsInfo(),
-              brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType);
+              brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType, reduceEndTimeMs);
         }
       }
     } else {
@@ -281,11 +329,11 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
             // if RESPONSE_FORMAT is SQL, return results in {@link ResultTable}
             if (GroupByUtils.isResponseFormat(Request.SQL, queryOptions)) {
               setSQLGroupByOrderByResults(brokerResponseNative, cachedDataSchema, brokerRequest.getAggregationsInfo(),
-                  brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType);
+                  brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType, reduceEndTimeMs);
               resultSize = brokerResponseNative.getResultTable().getRows().size();
             } else {
               setPQLGroupByOrderByResults(brokerResponseNative, cachedDataSchema, brokerRequest.getAggregationsInfo(),
-                  brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType);
+                  brokerRequest.getGroupBy(), brokerRequest.getOrderBy(), dataTableMap, preserveType, reduceEndTimeMs);
               if (!brokerResponseNative.getAggregationResults().isEmpty()) {
                 resultSize = brokerResponseNative.getAggregationResults().get(0).getGroupByResult().size();
               }
@@ -467,7 +515,7 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
    */
   private void setSQLGroupByOrderByResults(BrokerResponseNative brokerResponseNative, DataSchema dataSchema,
       List<AggregationInfo> aggregationInfos, GroupBy groupBy, List<SelectionSort> orderBy,
-      Map<ServerInstance, DataTable> dataTableMap, boolean preserveType) {
+      Map<ServerInstance, DataTable> dataTableMap, boolean preserveType, long reduceEndTimeMs) {
 
     List<String> columns = new ArrayList<>(dataSchema.size());
     for (int i = 0; i < dataSchema.size(); i++) {
@@ -477,8 +525,9 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
     int numGroupBy = groupBy.getExpressionsSize();
     int numAggregations = aggregationInfos.size();
 
-    IndexedTable indexedTable =
-        getIndexedTable(numGroupBy, numAggregations, groupBy, aggregationInfos, orderBy, dataSchema, dataTableMap);
+    Iterator<Record> sortedIterator =
+        getSortedRecordIterator(numGroupBy, numAggregations, aggregationInfos, orderBy, dataSchema, dataTableMap,
+            reduceEndTimeMs);
 
     List<AggregationFunction> aggregationFunctions = new ArrayList<>(aggregationInfos.size());
     for (AggregationInfo aggregationInfo : aggregationInfos) {
@@ -488,7 +537,6 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
 
     List<Serializable[]> rows = new ArrayList<>();
     int numColumns = columns.size();
-    Iterator<Record> sortedIterator = indexedTable.iterator();
     int numRows = 0;
     while (numRows < groupBy.getTopN() && sortedIterator.hasNext()) {
 
@@ -513,64 +561,197 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
     brokerResponseNative.setResultTable(new ResultTable(columns, rows));
   }
 
-  private IndexedTable getIndexedTable(int numGroupBy, int numAggregations, GroupBy groupBy,
+  /**
+   * Merges the group-by results from all the data tables, and returns an iterator over the merged records in the
+   * order of the order-by clause. The results are merged in parallel if the executor is configured and the data tables
+   * hold enough rows. Each phase runs at most as many tasks as partitions, and all of them must finish before the given
+   * end time.
+   */
+  private Iterator<Record> getSortedRecordIterator(int numGroupBy, int numAggregations,
       List<AggregationInfo> aggregationInfos, List<SelectionSort> orderBy, DataSchema dataSchema,
-      Map<ServerInstance, DataTable> dataTableMap) {
+      Map<ServerInstance, DataTable> dataTableMap, long reduceEndTimeMs) {
+    int numPartitions = getNumReducePartitions(dataTableMap);
+    if (numPartitions <= 1) {
+      return getIndexedTable(numGroupBy, numAggregations, aggregationInfos, orderBy, dataSchema, dataTableMap)
+          .iterator();
+    }
 
-    IndexedTable indexedTable = new ConcurrentIndexedTable();
-    int indexedTableCapacity = 1_000_000;
-    // FIXME: indexedTableCapacity should be derived from TOP. Hardcoding this value to a higher number until we can tune the resize
-    // int capacity = GroupByUtils.getTableCapacity((int) groupBy.getTopN());
-    indexedTable.init(dataSchema, aggregationInfos, orderBy, indexedTableCapacity);
+    // Extract the records from the data tables in parallel, and hash-partition them on the group key. The data tables
+    // are split into at most numPartitions chunks, each of them extracted by one task
+    List<DataTable> dataTables = new ArrayList<>(dataTableMap.values());
+    int numDataTables = dataTables.size();
+    List<Record>[][] partitionedRecords = new List[numDataTables][];
+    int numExtractTasks = Math.min(numDataTables, numPartitions);
+    List<Future<?>> futures = new ArrayList<>(numExtractTasks);
+    for (int i = 0; i < numExtractTasks; i++) {
+      int taskId = i;
+      futures.add(_reduceExecutor.submit(() -> {
+        for (int dataTableIndex = taskId; dataTableIndex < numDataTables; dataTableIndex += numExtractTasks) {
+          if (Thread.currentThread().isInterrupted()) {
+            return;
+          }
+          DataTable dataTable = dataTables.get(dataTableIndex);
+          BiFunction<Integer, Integer, Object>[] functions = getValueExtractors(dataSchema, dataTable);
+          int numRows = dataTable.getNumberOfRows();
+          List<Record>[] partitions = new List[numPartitions];
+          for (int j = 0; j < numPartitions; j++) {
+            partitions[j] = new ArrayList<>(numRows / numPartitions + 1);
+          }
+          for (int row = 0; row < numRows; row++) {
+            Record record = getRecord(functions, row, numGroupBy, numAggregations);
+            partitions[getPartition(record.getKey(), numPartitions)].add(record);
+          }
+          partitionedRecords[dataTableIndex] = partitions;
+        }
+      }));
+    }
+    waitForReduceTasks(futures, reduceEndTimeMs);
+
+    // Merge each partition into its own indexed table
+    IndexedTable[] partitionTables = new IndexedTable[numPartitions];
+    futures = new ArrayList<>(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      int partition = i;
+      futures.add(_reduceExecutor.submit(() -> {
+        IndexedTable indexedTable = new SimpleIndexedTable();
+        indexedTable.init(dataSchema, aggregationInfos, orderBy, INDEXED_TABLE_CAPACITY);
+        for (List<Record>[] partitions : partitionedRecords) {
+          for (Record record : partitions[partition]) {
+            indexedTable.upsert(record);
+          }
+        }
+        indexedTable.finish(true);
+        partitionTables[partition] = indexedTable;
+      }));
+    }
+    waitForReduceTasks(futures, reduceEndTimeMs);
 
+    // Each group key belongs to exactly one partition, so the top-N groups can be merged from the sorted partitions
+    List<Iterator<Record>> partitionIterators = new ArrayList<>(numPartitions);
+    for (IndexedTable partitionTable : partitionTables) {
+      partitionIterators.add(partitionTable.iterator());
+    }
+    if (orderBy != null && !orderBy.isEmpty()) {
+      return Iterators.mergeSorted(partitionIterators,
+          OrderByUtils.getKeysAndValuesComparator(dataSchema, orderBy, aggregationInfos, true));
+    } else {
+      return Iterators.concat(partitionIterators.iterator());
+    }
+  }
+
+  /**
+   * Returns the number of partitions to reduce the group-by results with, based on the total number of rows in the
+   * data tables.
+   */
+  private int getNumReducePartitions(Map<ServerInstance, DataTable> dataTableMap) {
+    if (_maxReduceParallelism <= 1 || dataTableMap.size() <= 1) {
+      return 1;
+    }
+    long numRows = 0;
     for (DataTable dataTable : dataTableMap.values()) {
-      BiFunction[] functions = new BiFunction[dataSchema.size()];
-      for (int i = 0; i < dataSchema.size(); i++) {
-        ColumnDataType columnDataType = dataSchema.getColumnDataType(i);
-        BiFunction<Integer, Integer, Object> function;
-        switch (columnDataType) {
+      numRows += dataTable.getNumberOfRows();
+    }
+    return (int) Math.min(numRows / MIN_NUM_ROWS_PER_PARTITION, _maxReduceParallelism);
+  }
 
-          case INT:
-            function = dataTable::getInt;
-            break;
-          case LONG:
-            function = dataTable::getLong;
-            break;
-          case FLOAT:
-            function = dataTable::getFloat;
-            break;
-          case DOUBLE:
-            function = dataTable::getDouble;
-            break;
-          case STRING:
-            function = dataTable::getString;
-            break;
-          default:
-            function = dataTable::getObject;
+  private static int getPartition(Key key, int numPartitions) {
+    int hash = key.hashCode();
+    return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % numPartitions;
+  }
+
+  private static void waitForReduceTasks(List<Future<?>> futures, long reduceEndTimeMs) {
+    try {
+      for (Future<?> future : futures) {
+        if (reduceEndTimeMs == Long.MAX_VALUE) {
+          future.get();
+        } else {
+          future.get(Math.max(reduceEndTimeMs - System.currentTimeMillis(), 0L), TimeUnit.MILLISECONDS);
         }
-        functions[i] = function;
       }
+    } catch (TimeoutException e) {
+      cancelReduceTasks(futures);
+      throw new RuntimeException("Timed out while reducing group-by results", e);
+    } catch (InterruptedException e) {
+      cancelReduceTasks(futures);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while reducing group-by results", e);
+    } catch (ExecutionException e) {
+      cancelReduceTasks(futures);
+      throw new RuntimeException("Caught exception while reducing group-by results", e.getCause());
+    }
+  }
+
+  private static void cancelReduceTasks(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  private IndexedTable getIndexedTable(int numGroupBy, int numAggregations, List<AggregationInfo> aggregationInfos,
+      List<SelectionSort> orderBy, DataSchema dataSchema, Map<ServerInstance, DataTable> dataTableMap) {
 
+    IndexedTable indexedTable = new ConcurrentIndexedTable();
+    // FIXME: indexedTableCapacity should be derived from TOP. Hardcoding this value to a higher number until we can tune the resize
+    // int capacity = GroupByUtils.getTableCapacity((int) groupBy.getTopN());
+    indexedTable.init(dataSchema, aggregationInfos, orderBy, INDEXED_TABLE_CAPACITY);
+
+    for (DataTable dataTable : dataTableMap.values()) {
+      BiFunction<Integer, Integer, Object>[] functions = getValueExtractors(dataSchema, dataTable);
       for (int row = 0; row < dataTable.getNumberOfRows(); row++) {
-        Object[] key = new Object[numGroupBy];
-        int col = 0;
-        for (int j = 0; j < numGroupBy; j++) {
-          key[j] = functions[col].apply(row, col);
-          col++;
-        }
-        Object[] value = new Object[numAggregations];
-        for (int j = 0; j < numAggregations; j++) {
-          value[j] = functions[col].apply(row, col);
-          col++;
-        }
-        Record record = new Record(new Key(key), value);
-        indexedTable.upsert(record);
+        indexedTable.upsert(getRecord(functions, row, numGroupBy, numAggregations));
       }
     }
     indexedTable.finish(true);
     return indexedTable;
   }
 
+  private static BiFunction<Integer, Integer, Object>[] getValueExtractors(DataSchema dataSchema,
+      DataTable dataTable) {
+    BiFunction<Integer, Integer, Object>[] functions = new BiFunction[dataSchema.size()];
+    for (int i = 0; i < dataSchema.size(); i++) {
+      ColumnDataType columnDataType = dataSchema.getColumnDataType(i);
+      BiFunction<Integer, Integer, Object> function;
+      switch (columnDataType) {
+
+        case INT:
+          function = dataTable::getInt;
+          break;
+        case LONG:
+          function = dataTable::getLong;
+          break;
+        case FLOAT:
+          function = dataTable::getFloat;
+          break;
+        case DOUBLE:
+          function = dataTable::getDouble;
+          break;
+        case STRING:
+          function = dataTable::getString;
+          break;
+        default:
+          function = dataTable::getObject;
+      }
+      functions[i] = function;
+    }
+    return functions;
+  }
+
+  private static Record getRecord(BiFunction<Integer, Integer, Object>[] functions, int row, int numGroupBy,
+      int numAggregations) {
+    Object[] key = new Object[numGroupBy];
+    int col = 0;
+    for (int j = 0; j < numGroupBy; j++) {
+      key[j] = functions[col].apply(row, col);
+      col++;
+    }
+    Object[] value = new Object[numAggregations];
+    for (int j = 0; j < numAggregations; j++) {
+      value[j] = functions[col].apply(row, col);
+      col++;
+    }
+    return new Record(new Key(key), value);
+  }
+
   /**
    * Extract the results of group by order by into a List of {@link AggregationResult}
    * There will be 1 aggregation result per aggregation. The group by keys will be the same across all aggregations
@@ -583,7 +764,7 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
    */
   private void setPQLGroupByOrderByResults(BrokerResponseNative brokerResponseNative, DataSchema dataSchema,
       List<AggregationInfo> aggregationInfos, GroupBy groupBy, List<SelectionSort> orderBy,
-      Map<ServerInstance, DataTable> dataTableMap, boolean preserveType) {
+      Map<ServerInstance, DataTable> dataTableMap, boolean preserveType, long reduceEndTimeMs) {
 
     int numGroupBy = groupBy.getExpressionsSize();
     int numAggregations = aggregationInfos.size();
@@ -610,10 +791,9 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
     }
 
     if (!dataTableMap.isEmpty()) {
-      IndexedTable indexedTable =
-          getIndexedTable(numGroupBy, numAggregations, groupBy, aggregationInfos, orderBy, dataSchema, dataTableMap);
-
-      Iterator<Record> sortedIterator = indexedTable.iterator();
+      Iterator<Record> sortedIterator =
+          getSortedRecordIterator(numGroupBy, numAggregations, aggregationInfos, orderBy, dataSchema, dataTableMap,
+              reduceEndTimeMs);
       int numRows = 0;
       while (numRows < groupBy.getTopN() && sortedIterator.hasNext()) {
 
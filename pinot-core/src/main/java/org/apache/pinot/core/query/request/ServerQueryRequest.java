@@ -34,6 +34,7 @@ import org.apache.pinot.common.request.transform.TransformExpressionTree;
 import org.apache.pinot.common.utils.request.FilterQueryTree;
 import org.apache.pinot.common.utils.request.RequestUtils;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import org.apache.pinot.core.query.request.context.QueryResourceTracker;
 import org.apache.pinot.core.query.request.context.TimerContext;
 
 
@@ -54,6 +55,9 @@ public class ServerQueryRequest {
   // Timing information for different phases of query execution
   private final TimerContext _timerContext;
 
+  // CPU time and allocated bytes of the query across all threads
+  private final QueryResourceTracker _resourceTracker = new QueryResourceTracker();
+
   // Pre-computed segment independent information
   private final Set<String> _allColumns;
   private final FilterQueryTree _filterQueryTree;
@@ -161,10 +165,25 @@ public class ServerQueryRequest {
     return _brokerId;
   }
 
+  /**
+   * Returns the id that identifies the query among the queries sent by all brokers, used to cancel the query.
+   */
+  public String getQueryId() {
+    return getQueryId(_brokerId, _requestId, _tableNameWithType);
+  }
+
+  public static String getQueryId(String brokerId, long requestId, String tableNameWithType) {
+    return brokerId + '_' + requestId + '_' + tableNameWithType;
+  }
+
   public TimerContext getTimerContext() {
     return _timerContext;
   }
 
+  public QueryResourceTracker getResourceTracker() {
+    return _resourceTracker;
+  }
+
   public Set<String> getAllColumns() {
     return _allColumns;
   }
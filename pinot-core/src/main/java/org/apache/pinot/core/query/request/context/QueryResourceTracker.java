@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.request.context;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupAccountant;
+import org.apache.pinot.core.query.scheduler.resources.QueryExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>QueryResourceTracker</code> class tracks the CPU time and the allocated bytes of a query across the query
+ * runner thread and all the worker threads executing the query.
+ * <p>The usage of a thread is measured with the {@link ThreadMXBean} between {@link #startThread()} and
+ * {@link #endThread()}. The usage of the threads still running is included when reading the usage, so that runaway
+ * queries can be detected while being processed. Both measurements fall back to 0 if not supported by the JVM.
+ * <p>The CPU time is charged to the scheduler group when the thread ends, and can also be charged periodically with
+ * {@link #chargeCpuTime()} while the threads are still running, so that a long running query affects the priority of
+ * its group before it finishes. Each CPU time interval is charged only once.
+ */
+@ThreadSafe
+public class QueryResourceTracker {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResourceTracker.class);
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_MEASUREMENT_ENABLED;
+  private static final boolean ALLOCATED_BYTES_MEASUREMENT_ENABLED;
+
+  static {
+    boolean cpuTimeMeasurementEnabled = false;
+    boolean allocatedBytesMeasurementEnabled = false;
+    try {
+      cpuTimeMeasurementEnabled = THREAD_MX_BEAN.isThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+      if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        allocatedBytesMeasurementEnabled =
+            threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+      }
+    } catch (Throwable t) {
+      LOGGER.warn("Caught exception while checking thread resource measurement support", t);
+    }
+    CPU_TIME_MEASUREMENT_ENABLED = cpuTimeMeasurementEnabled;
+    ALLOCATED_BYTES_MEASUREMENT_ENABLED = allocatedBytesMeasurementEnabled;
+    LOGGER.info("Thread CPU time measurement enabled: {}, thread allocated bytes measurement enabled: {}",
+        CPU_TIME_MEASUREMENT_ENABLED, ALLOCATED_BYTES_MEASUREMENT_ENABLED);
+  }
+
+  // Usage of the threads that finished working on the query
+  private final AtomicLong _cpuTimeNs = new AtomicLong();
+  private final AtomicLong _allocatedBytes = new AtomicLong();
+  // Thread id -> usage of the thread when it started working on the query
+  private final Map<Long, ThreadUsage> _activeThreads = new ConcurrentHashMap<>();
+
+  // Scheduler group to be charged with the CPU time of the query
+  private volatile SchedulerGroupAccountant _schedulerGroup;
+
+  public static boolean isCpuTimeMeasurementEnabled() {
+    return CPU_TIME_MEASUREMENT_ENABLED;
+  }
+
+  public static boolean isAllocatedBytesMeasurementEnabled() {
+    return ALLOCATED_BYTES_MEASUREMENT_ENABLED;
+  }
+
+  public void setSchedulerGroup(SchedulerGroupAccountant schedulerGroup) {
+    _schedulerGroup = schedulerGroup;
+  }
+
+  /**
+   * Starts tracking the current thread for the query.
+   *
+   * @return true if the thread starts being tracked, false if it is already tracked
+   */
+  public boolean startThread() {
+    long threadId = Thread.currentThread().getId();
+    return _activeThreads.putIfAbsent(threadId, new ThreadUsage(getThreadCpuTimeNs(threadId),
+        getThreadAllocatedBytes(threadId))) == null;
+  }
+
+  /**
+   * Stops tracking the current thread for the query, and adds its usage to the query (and charges the CPU time not
+   * charged yet to the scheduler group).
+   */
+  public void endThread() {
+    long threadId = Thread.currentThread().getId();
+    ThreadUsage startUsage = _activeThreads.remove(threadId);
+    if (startUsage == null) {
+      return;
+    }
+    long threadCpuTimeNs = getThreadCpuTimeNs(threadId);
+    _cpuTimeNs.addAndGet(Math.max(threadCpuTimeNs - startUsage._cpuTimeNs, 0));
+    _allocatedBytes.addAndGet(Math.max(getThreadAllocatedBytes(threadId) - startUsage._allocatedBytes, 0));
+    chargeCpuTime(startUsage, threadCpuTimeNs);
+  }
+
+  /**
+   * Charges the CPU time used so far by the threads still working on the query to the scheduler group.
+   */
+  public void chargeCpuTime() {
+    if (!CPU_TIME_MEASUREMENT_ENABLED || _schedulerGroup == null) {
+      return;
+    }
+    for (Map.Entry<Long, ThreadUsage> entry : _activeThreads.entrySet()) {
+      chargeCpuTime(entry.getValue(), getThreadCpuTimeNs(entry.getKey()));
+    }
+  }
+
+  /**
+   * Charges the CPU time of the thread since the last charge. The charged CPU time only moves forward, so that the
+   * same interval is never charged twice when the thread ends while being charged periodically.
+   */
+  private void chargeCpuTime(ThreadUsage threadUsage, long threadCpuTimeNs) {
+    long chargedCpuTimeNs = threadUsage._chargedCpuTimeNs.getAndAccumulate(threadCpuTimeNs, Math::max);
+    long cpuTimeNs = threadCpuTimeNs - chargedCpuTimeNs;
+    SchedulerGroupAccountant schedulerGroup = _schedulerGroup;
+    if (cpuTimeNs > 0 && schedulerGroup != null) {
+      schedulerGroup.addCpuTime(cpuTimeNs);
+    }
+  }
+
+  /**
+   * Returns an executor service that tracks the threads executing the tasks submitted by the query.
+   */
+  public ExecutorService trackExecutorService(ExecutorService executorService) {
+    return new QueryExecutorService() {
+      @Override
+      public void execute(Runnable command) {
+        executorService.execute(() -> {
+          boolean started = startThread();
+          try {
+            command.run();
+          } finally {
+            if (started) {
+              endThread();
+            }
+          }
+        });
+      }
+    };
+  }
+
+  /**
+   * Returns the CPU time used by the query so far, including the threads still working on the query.
+   */
+  public long getCpuTimeNs() {
+    long cpuTimeNs = _cpuTimeNs.get();
+    if (CPU_TIME_MEASUREMENT_ENABLED) {
+      for (Map.Entry<Long, ThreadUsage> entry : _activeThreads.entrySet()) {
+        cpuTimeNs += Math.max(getThreadCpuTimeNs(entry.getKey()) - entry.getValue()._cpuTimeNs, 0);
+      }
+    }
+    return cpuTimeNs;
+  }
+
+  /**
+   * Returns the bytes allocated by the query so far, including the threads still working on the query.
+   */
+  public long getAllocatedBytes() {
+    long allocatedBytes = _allocatedBytes.get();
+    if (ALLOCATED_BYTES_MEASUREMENT_ENABLED) {
+      for (Map.Entry<Long, ThreadUsage> entry : _activeThreads.entrySet()) {
+        allocatedBytes += Math.max(getThreadAllocatedBytes(entry.getKey()) - entry.getValue()._allocatedBytes, 0);
+      }
+    }
+    return allocatedBytes;
+  }
+
+  /**
+   * Returns the CPU time of the given thread, or 0 if not available (e.g. the thread is dead).
+   */
+  private static long getThreadCpuTimeNs(long threadId) {
+    if (!CPU_TIME_MEASUREMENT_ENABLED) {
+      return 0;
+    }
+    return Math.max(THREAD_MX_BEAN.getThreadCpuTime(threadId), 0);
+  }
+
+  /**
+   * Returns the allocated bytes of the given thread, or 0 if not available (e.g. the thread is dead).
+   */
+  private static long getThreadAllocatedBytes(long threadId) {
+    if (!ALLOCATED_BYTES_MEASUREMENT_ENABLED) {
+      return 0;
+    }
+    return Math.max(((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(threadId), 0);
+  }
+
+  private static class ThreadUsage {
+    final long _cpuTimeNs;
+    final long _allocatedBytes;
+    // CPU time of the thread up to which the scheduler group is charged
+    final AtomicLong _chargedCpuTimeNs;
+
+    ThreadUsage(long cpuTimeNs, long allocatedBytes) {
+      _cpuTimeNs = cpuTimeNs;
+      _allocatedBytes = allocatedBytes;
+      _chargedCpuTimeNs = new AtomicLong(cpuTimeNs);
+    }
+  }
+}
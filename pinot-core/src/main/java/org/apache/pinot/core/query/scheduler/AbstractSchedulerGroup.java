@@ -22,7 +22,9 @@ import com.google.common.base.Preconditions;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 /**
@@ -40,6 +42,8 @@ public abstract class AbstractSchedulerGroup implements SchedulerGroup {
   protected AtomicInteger threadsInUse = new AtomicInteger(0);
   // Total reserved threads for currently running queries for this group
   protected AtomicInteger reservedThreads = new AtomicInteger(0);
+  // Total CPU time used by the queries of this group
+  protected AtomicLong cpuTimeNs = new AtomicLong(0);
 
   public AbstractSchedulerGroup(@Nonnull String name) {
     Preconditions.checkNotNull(name);
@@ -77,6 +81,20 @@ public abstract class AbstractSchedulerGroup implements SchedulerGroup {
     }
   }
 
+  @Nullable
+  @Override
+  public SchedulerQueryContext remove(String queryId) {
+    Iterator<SchedulerQueryContext> iter = pendingQueries.iterator();
+    while (iter.hasNext()) {
+      SchedulerQueryContext next = iter.next();
+      if (next.getQueryRequest().getQueryId().equals(queryId)) {
+        iter.remove();
+        return next;
+      }
+    }
+    return null;
+  }
+
   @Override
   public boolean isEmpty() {
     return pendingQueries.isEmpty();
@@ -133,4 +151,14 @@ public abstract class AbstractSchedulerGroup implements SchedulerGroup {
     decrementThreads();
     numRunning.decrementAndGet();
   }
+
+  @Override
+  public void addCpuTime(long cpuTimeNs) {
+    this.cpuTimeNs.addAndGet(cpuTimeNs);
+  }
+
+  @Override
+  public long getCpuTimeNs() {
+    return cpuTimeNs.get();
+  }
 }
@@ -145,6 +145,23 @@ public class MultiLevelPriorityQueue implements SchedulerPriorityQueue {
     return pending;
   }
 
+  @Nullable
+  @Override
+  public SchedulerQueryContext remove(@Nonnull String queryId) {
+    queueLock.lock();
+    try {
+      for (SchedulerGroup group : schedulerGroups.values()) {
+        SchedulerQueryContext query = group.remove(queryId);
+        if (query != null) {
+          return query;
+        }
+      }
+      return null;
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
   private SchedulerQueryContext takeNextInternal() {
     SchedulerGroup currentWinnerGroup = null;
     long startTime = System.nanoTime();
@@ -209,6 +226,16 @@ public class MultiLevelPriorityQueue implements SchedulerPriorityQueue {
 
   private void checkGroupHasCapacity(SchedulerGroup groupContext)
       throws OutOfCapacityException {
+    // Groups with a bounded admission queue (e.g. workloads) are limited by the number of pending queries only
+    int groupMaxPending = resourceManager.getMaxPendingQueries(groupContext.name());
+    if (groupMaxPending >= 0) {
+      if (groupContext.numPending() >= groupMaxPending) {
+        throw new OutOfCapacityException(
+            String.format("SchedulerGroup %s is out of capacity. numPending: %d, maxPending: %d", groupContext.name(),
+                groupContext.numPending(), groupMaxPending));
+      }
+      return;
+    }
     if (groupContext.numPending() >= maxPendingPerGroup && groupContext.totalReservedThreads() >= resourceManager
         .getTableThreadsHardLimit()) {
       throw new OutOfCapacityException(String.format(
@@ -60,7 +60,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
     super(config, queryExecutor, resourceManager, metrics, latestQueryTime);
     Preconditions.checkNotNull(queue);
     this.queryQueue = queue;
-    this.numRunners = resourceManager.getNumQueryRunnerThreads();
+    this.numRunners = resourceManager.getMaxConcurrentQueries();
     runningQueriesSemaphore = new Semaphore(numRunners);
   }
 
@@ -82,6 +82,22 @@ public abstract class PriorityScheduler extends QueryScheduler {
     return schedQueryContext.getResultFuture();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>Pending queries are removed from the queue without being processed.
+   */
+  @Override
+  public boolean cancel(@Nonnull String queryId) {
+    SchedulerQueryContext queryContext = queryQueue.remove(queryId);
+    if (queryContext == null) {
+      return super.cancel(queryId);
+    }
+    ServerQueryRequest queryRequest = queryContext.getQueryRequest();
+    serverMetrics.addMeteredTableValue(queryRequest.getTableNameWithType(), ServerMeter.CANCELLED_QUERIES, 1);
+    queryContext.setResultFuture(immediateErrorResponse(queryRequest, QueryException.QUERY_CANCELLATION_ERROR));
+    return true;
+  }
+
   @Override
   public void start() {
     super.start();
@@ -107,6 +123,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
             ServerQueryRequest queryRequest = request.getQueryRequest();
             final QueryExecutorService executor =
                 resourceManager.getExecutorService(queryRequest, request.getSchedulerGroup());
+            queryRequest.getResourceTracker().setSchedulerGroup(request.getSchedulerGroup());
             final ListenableFutureTask<byte[]> queryFutureTask = createQueryFutureTask(queryRequest, executor);
             queryFutureTask.addListener(new Runnable() {
               @Override
@@ -123,7 +140,7 @@ public abstract class PriorityScheduler extends QueryScheduler {
             request.setResultFuture(queryFutureTask);
             request.getSchedulerGroup().startQuery();
             queryRequest.getTimerContext().getPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT).stopAndRecord();
-            resourceManager.getQueryRunners().submit(queryFutureTask);
+            resourceManager.getQueryRunners(queryRequest).submit(queryFutureTask);
           } catch (Throwable t) {
             LOGGER.error(
                 "Error in scheduler thread. This is indicative of a bug. Please report this. Server will continue with errors",
@@ -24,7 +24,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.RateLimiter;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAccumulator;
@@ -41,6 +44,7 @@ import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.core.common.datatable.DataTableImplV2;
 import org.apache.pinot.core.query.executor.QueryExecutor;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.request.context.QueryResourceTracker;
 import org.apache.pinot.core.query.request.context.TimerContext;
 import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
 import org.slf4j.Logger;
@@ -59,10 +63,21 @@ public abstract class QueryScheduler {
   private static final String INVALID_FRESHNESS_MS = "-1";
   private static final String QUERY_LOG_MAX_RATE_KEY = "query.log.maxRatePerSecond";
   private static final double DEFAULT_QUERY_LOG_MAX_RATE = 10_000d;
+  // Queries using more CPU time (across all threads) than this limit get cancelled, non-positive value to disable
+  private static final String QUERY_MAX_CPU_TIME_MS_KEY = "query.max.cpu.time.ms";
+  private static final long DEFAULT_QUERY_MAX_CPU_TIME_MS = -1L;
+  // Interval to check the CPU time limit and charge the CPU time of the running queries to their scheduler groups
+  private static final String QUERY_CPU_TIME_CHECK_INTERVAL_MS_KEY = "query.cpu.time.check.interval.ms";
+  private static final long DEFAULT_QUERY_CPU_TIME_CHECK_INTERVAL_MS = 100L;
 
   private final RateLimiter queryLogRateLimiter;
   private final RateLimiter numDroppedLogRateLimiter;
   private final AtomicInteger numDroppedLogCounter;
+  private final long maxQueryCpuTimeNs;
+  private final long queryCpuTimeCheckIntervalMs;
+  // Query id -> running query, only tracked when the thread CPU time measurement is enabled
+  private final Map<String, ServerQueryRequest> runningQueries = new ConcurrentHashMap<>();
+  private ScheduledExecutorService queryCpuTimeChecker;
 
   protected final ServerMetrics serverMetrics;
   protected final QueryExecutor queryExecutor;
@@ -91,8 +106,15 @@ public abstract class QueryScheduler {
     this.queryLogRateLimiter = RateLimiter.create(config.getDouble(QUERY_LOG_MAX_RATE_KEY, DEFAULT_QUERY_LOG_MAX_RATE));
     this.numDroppedLogRateLimiter = RateLimiter.create(1.0d);
     this.numDroppedLogCounter = new AtomicInteger(0);
+    this.maxQueryCpuTimeNs =
+        TimeUnit.MILLISECONDS.toNanos(config.getLong(QUERY_MAX_CPU_TIME_MS_KEY, DEFAULT_QUERY_MAX_CPU_TIME_MS));
+    this.queryCpuTimeCheckIntervalMs =
+        config.getLong(QUERY_CPU_TIME_CHECK_INTERVAL_MS_KEY, DEFAULT_QUERY_CPU_TIME_CHECK_INTERVAL_MS);
 
     LOGGER.info("Query log max rate: {}", queryLogRateLimiter.getRate());
+    if (maxQueryCpuTimeNs > 0 && !QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      LOGGER.warn("Thread CPU time measurement is not enabled, query CPU time limit will not be enforced");
+    }
   }
 
   /**
@@ -104,6 +126,15 @@ public abstract class QueryScheduler {
   @Nonnull
   public abstract ListenableFuture<byte[]> submit(@Nonnull ServerQueryRequest queryRequest);
 
+  /**
+   * Cancels the query with the given query id (see {@link ServerQueryRequest#getQueryId()}) if it is being processed.
+   * @param queryId id of the query to cancel
+   * @return true if the query got cancelled, false if the query is not found (not received yet or already finished)
+   */
+  public boolean cancel(@Nonnull String queryId) {
+    return queryExecutor.cancelQuery(queryId);
+  }
+
   /**
    * Query scheduler name for logging
    */
@@ -114,6 +145,17 @@ public abstract class QueryScheduler {
    */
   public void start() {
     isRunning = true;
+    if (QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      LOGGER.info("Query CPU time check interval: {}ms, max CPU time: {}ms (non-positive means no limit)",
+          queryCpuTimeCheckIntervalMs, TimeUnit.NANOSECONDS.toMillis(maxQueryCpuTimeNs));
+      queryCpuTimeChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "QueryCpuTimeChecker");
+        thread.setDaemon(true);
+        return thread;
+      });
+      queryCpuTimeChecker.scheduleWithFixedDelay(this::checkQueryCpuTime, queryCpuTimeCheckIntervalMs,
+          queryCpuTimeCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
   }
 
   /**
@@ -122,6 +164,41 @@ public abstract class QueryScheduler {
   public void stop() {
     // don't stop resourcemanager yet...we need to wait for all running queries to finish
     isRunning = false;
+    if (queryCpuTimeChecker != null) {
+      queryCpuTimeChecker.shutdownNow();
+    }
+  }
+
+  /**
+   * Charges the CPU time used so far by the running queries to their scheduler groups, so that a long running query
+   * lowers the priority of its group before it finishes.
+   * <p>Also cancels the running queries that used more CPU time than the configured limit. These runaway queries would
+   * otherwise keep the query workers busy at the expense of the other queries.
+   */
+  private void checkQueryCpuTime() {
+    try {
+      for (ServerQueryRequest queryRequest : runningQueries.values()) {
+        QueryResourceTracker resourceTracker = queryRequest.getResourceTracker();
+        resourceTracker.chargeCpuTime();
+        if (maxQueryCpuTimeNs <= 0) {
+          continue;
+        }
+        long cpuTimeNs = resourceTracker.getCpuTimeNs();
+        if (cpuTimeNs > maxQueryCpuTimeNs) {
+          String queryId = queryRequest.getQueryId();
+          if (runningQueries.remove(queryId) != null && cancel(queryId)) {
+            LOGGER.warn("Cancelled requestId: {} from broker: {} on table: {} after using {}ms of CPU time",
+                queryRequest.getRequestId(), queryRequest.getBrokerId(), queryRequest.getTableNameWithType(),
+                TimeUnit.NANOSECONDS.toMillis(cpuTimeNs));
+            serverMetrics.addMeteredTableValue(queryRequest.getTableNameWithType(),
+                ServerMeter.CPU_TIME_LIMIT_EXCEEDED_QUERIES, 1);
+          }
+        }
+      }
+    } catch (Exception e) {
+      // Keep the periodic check alive
+      LOGGER.error("Caught exception while checking query CPU time", e);
+    }
   }
 
   /**
@@ -148,8 +225,14 @@ public abstract class QueryScheduler {
       @Nonnull ExecutorService executorService) {
     latestQueryTime.accumulate(System.currentTimeMillis());
     DataTable dataTable;
+    QueryResourceTracker resourceTracker = queryRequest.getResourceTracker();
+    String queryId = queryRequest.getQueryId();
+    if (QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      runningQueries.put(queryId, queryRequest);
+    }
+    resourceTracker.startThread();
     try {
-      dataTable = queryExecutor.processQuery(queryRequest, executorService);
+      dataTable = queryExecutor.processQuery(queryRequest, resourceTracker.trackExecutorService(executorService));
     } catch (Exception e) {
       LOGGER.error("Encountered exception while processing requestId {} from broker {}", queryRequest.getRequestId(),
           queryRequest.getBrokerId(), e);
@@ -157,10 +240,21 @@ public abstract class QueryScheduler {
       serverMetrics.addMeteredGlobalValue(ServerMeter.UNCAUGHT_EXCEPTIONS, 1);
       dataTable = new DataTableImplV2();
       dataTable.addException(QueryException.getException(QueryException.INTERNAL_ERROR, e));
+    } finally {
+      resourceTracker.endThread();
+      runningQueries.remove(queryId);
     }
     long requestId = queryRequest.getRequestId();
     Map<String, String> dataTableMetadata = dataTable.getMetadata();
     dataTableMetadata.put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    long threadCpuTimeNs = resourceTracker.getCpuTimeNs();
+    long threadAllocatedBytes = resourceTracker.getAllocatedBytes();
+    if (QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      dataTableMetadata.put(DataTable.THREAD_CPU_TIME_NS_METADATA_KEY, Long.toString(threadCpuTimeNs));
+    }
+    if (QueryResourceTracker.isAllocatedBytesMeasurementEnabled()) {
+      dataTableMetadata.put(DataTable.THREAD_ALLOCATED_BYTES_METADATA_KEY, Long.toString(threadAllocatedBytes));
+    }
 
     byte[] responseData = serializeDataTable(queryRequest, dataTable);
 
@@ -192,6 +286,12 @@ public abstract class QueryScheduler {
       serverMetrics.addMeteredTableValue(tableNameWithType, ServerMeter.NUM_ENTRIES_SCANNED_POST_FILTER,
           numEntriesScannedPostFilter);
     }
+    if (QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      serverMetrics.addPhaseTiming(tableNameWithType, ServerQueryPhase.QUERY_CPU_TIME, threadCpuTimeNs);
+    }
+    if (threadAllocatedBytes > 0) {
+      serverMetrics.addMeteredTableValue(tableNameWithType, ServerMeter.QUERY_ALLOCATED_BYTES, threadAllocatedBytes);
+    }
 
     TimerContext timerContext = queryRequest.getTimerContext();
     int numSegmentsQueried = queryRequest.getSegmentsToQuery().size();
@@ -201,11 +301,12 @@ public abstract class QueryScheduler {
       LOGGER.info(
           "Processed requestId={},table={},segments(queried/processed/matched/consuming)={}/{}/{}/{},"
               + "schedulerWaitMs={},totalExecMs={},totalTimeMs={},minConsumingFreshnessMs={},broker={},"
-              + "numDocsScanned={},scanInFilter={},scanPostFilter={},sched={}",
+              + "numDocsScanned={},scanInFilter={},scanPostFilter={},cpuTimeMs={},allocatedBytes={},sched={}",
           requestId, tableNameWithType, numSegmentsQueried, numSegmentsProcessed, numSegmentsMatched,
           numSegmentsConsuming, schedulerWaitMs, timerContext.getPhaseDurationMs(ServerQueryPhase.QUERY_PROCESSING),
           timerContext.getPhaseDurationMs(ServerQueryPhase.TOTAL_QUERY_TIME), minConsumingFreshnessMs,
-          queryRequest.getBrokerId(), numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter, name());
+          queryRequest.getBrokerId(), numDocsScanned, numEntriesScannedInFilter, numEntriesScannedPostFilter,
+          TimeUnit.NANOSECONDS.toMillis(threadCpuTimeNs), threadAllocatedBytes, name());
 
       // Limit the dropping log message at most once per second.
       if (numDroppedLogRateLimiter.tryAcquire()) {
@@ -18,6 +18,9 @@
  */
 package org.apache.pinot.core.query.scheduler;
 
+import javax.annotation.Nullable;
+
+
 /**
  * Scheduler group is a sub-queue in multi-level scheduling queues.
  * This class maintains context information for each of the scheduling
@@ -55,6 +58,13 @@ public interface SchedulerGroup extends SchedulerGroupAccountant {
    */
   void trimExpired(long deadlineMillis);
 
+  /**
+   * Removes the pending query with the given query id (see ServerQueryRequest#getQueryId())
+   * @return removed query or null if there is no such pending query
+   */
+  @Nullable
+  SchedulerQueryContext remove(String queryId);
+
   /**
    * @return true if there are no pending queries for this group
    */
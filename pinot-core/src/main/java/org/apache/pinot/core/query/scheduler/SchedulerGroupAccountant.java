@@ -27,6 +27,9 @@ package org.apache.pinot.core.query.scheduler;
  * CPU and IO cost for each query but also penalizes for GC activity. We do not account
  * for memory utilization yet. Nevertheless, wall clock time is a good approximation for
  * resource utilization in an online system.
+ *
+ * The CPU time measured for the queries of the group is also reported, so that implementations
+ * can choose to account for CPU time instead of wall clock time.
  */
 public interface SchedulerGroupAccountant extends Comparable<SchedulerGroupAccountant> {
   /**
@@ -72,4 +75,16 @@ public interface SchedulerGroupAccountant extends Comparable<SchedulerGroupAccou
    * Mark end of query execution.
    */
   void endQuery();
+
+  /**
+   * Add CPU time used by a thread working on a query of this group
+   * @param cpuTimeNs CPU time in nanoseconds
+   */
+  void addCpuTime(long cpuTimeNs);
+
+  /**
+   * Get total CPU time used by the queries of this group
+   * @return CPU time in nanoseconds
+   */
+  long getCpuTimeNs();
 }
@@ -54,4 +54,12 @@ public interface SchedulerPriorityQueue {
    */
   @Nonnull
   List<SchedulerQueryContext> drain();
+
+  /**
+   * Removes the pending query with the given query id from the queue
+   * @param queryId id of the query to remove (see ServerQueryRequest#getQueryId())
+   * @return removed query or null if the query is not pending in the queue
+   */
+  @Nullable
+  SchedulerQueryContext remove(@Nonnull String queryId);
 }
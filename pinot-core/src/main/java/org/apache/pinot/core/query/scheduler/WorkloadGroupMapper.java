@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler;
+
+import org.apache.pinot.core.query.scheduler.resources.QueryWorkload;
+import org.apache.pinot.core.query.scheduler.resources.WorkloadResourceManager;
+
+
+/**
+ * Maps query request to scheduler group based on the workload of the table.
+ * Tables not mapped to any workload keep per table query queues.
+ */
+public class WorkloadGroupMapper implements SchedulerGroupMapper {
+  private final WorkloadResourceManager resourceManager;
+
+  public WorkloadGroupMapper(WorkloadResourceManager resourceManager) {
+    this.resourceManager = resourceManager;
+  }
+
+  /**
+   * Maps query to per-workload {@link SchedulerGroup}
+   * @param query
+   * @return workload name for tables mapped to a workload, table name otherwise
+   */
+  @Override
+  public String getSchedulerGroupName(SchedulerQueryContext query) {
+    String tableNameWithType = query.getQueryRequest().getTableNameWithType();
+    QueryWorkload workload = resourceManager.getWorkload(tableNameWithType);
+    return workload != null ? workload.getName() : tableNameWithType;
+  }
+}
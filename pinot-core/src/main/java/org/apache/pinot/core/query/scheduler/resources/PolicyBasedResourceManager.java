@@ -32,7 +32,7 @@ import org.slf4j.LoggerFactory;
 public class PolicyBasedResourceManager extends ResourceManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(PolicyBasedResourceManager.class);
 
-  private final ResourceLimitPolicy resourcePolicy;
+  protected final ResourceLimitPolicy resourcePolicy;
 
   public PolicyBasedResourceManager(Configuration config) {
     super(config);
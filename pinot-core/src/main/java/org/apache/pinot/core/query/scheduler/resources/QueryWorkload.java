@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resources;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Workload class that a set of tables is mapped to (e.g. interactive dashboards vs batch exports).
+ *
+ * Each workload runs its queries either on dedicated query runner and worker threadpools or on the threadpools
+ * shared with the tables not mapped to any workload. A workload also bounds its admission queue (number of pending
+ * queries) and the number of segments processed concurrently by its queries, so that a heavy workload can not take
+ * over the server resources of the other workloads.
+ */
+public class QueryWorkload {
+  private final String name;
+  private final ListeningExecutorService queryRunners;
+  private final ExecutorService queryWorkers;
+  private final int numRunnerThreads;
+  private final int numWorkerThreads;
+  private final boolean dedicatedPools;
+  private final int maxPendingQueries;
+  private final int maxConcurrentSegments;
+
+  // Running queries on the threadpools of the workload, shared by all the workloads using the shared threadpools
+  private final AtomicInteger numRunningQueries;
+  private final AtomicInteger numSegmentsInFlight = new AtomicInteger(0);
+
+  QueryWorkload(@Nonnull String name, @Nonnull ListeningExecutorService queryRunners,
+      @Nonnull ExecutorService queryWorkers, int numRunnerThreads, int numWorkerThreads, boolean dedicatedPools,
+      int maxPendingQueries, int maxConcurrentSegments, @Nonnull AtomicInteger numRunningQueries) {
+    this.name = name;
+    this.queryRunners = queryRunners;
+    this.queryWorkers = queryWorkers;
+    this.numRunnerThreads = numRunnerThreads;
+    this.numWorkerThreads = numWorkerThreads;
+    this.dedicatedPools = dedicatedPools;
+    this.maxPendingQueries = maxPendingQueries;
+    this.maxConcurrentSegments = maxConcurrentSegments;
+    this.numRunningQueries = numRunningQueries;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  ListeningExecutorService getQueryRunners() {
+    return queryRunners;
+  }
+
+  ExecutorService getQueryWorkers() {
+    return queryWorkers;
+  }
+
+  int getNumRunnerThreads() {
+    return numRunnerThreads;
+  }
+
+  int getNumWorkerThreads() {
+    return numWorkerThreads;
+  }
+
+  boolean hasDedicatedPools() {
+    return dedicatedPools;
+  }
+
+  /**
+   * Max number of pending queries, or -1 if not bounded by the workload
+   */
+  int getMaxPendingQueries() {
+    return maxPendingQueries;
+  }
+
+  int getNumRunningQueries() {
+    return numRunningQueries.get();
+  }
+
+  int getNumSegmentsInFlight() {
+    return numSegmentsInFlight.get();
+  }
+
+  /**
+   * Check if a query on the given number of segments can be started without exceeding the concurrent segments budget.
+   * A query is always allowed to start if no other query of the workload is running, so that queries larger than
+   * the budget are not starved.
+   */
+  boolean canStartQuery(int numSegments) {
+    if (numRunningQueries.get() >= numRunnerThreads) {
+      return false;
+    }
+    if (maxConcurrentSegments <= 0) {
+      return true;
+    }
+    int segmentsInFlight = numSegmentsInFlight.get();
+    return segmentsInFlight == 0 || segmentsInFlight + numSegments <= maxConcurrentSegments;
+  }
+
+  void startQuery(int numSegments) {
+    numRunningQueries.incrementAndGet();
+    numSegmentsInFlight.addAndGet(numSegments);
+  }
+
+  void endQuery(int numSegments) {
+    numRunningQueries.decrementAndGet();
+    numSegmentsInFlight.addAndGet(-numSegments);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{%s: runners=%d, workers=%d, dedicated=%b, maxPending=%d, maxConcurrentSegments=%d}", name,
+        numRunnerThreads, numWorkerThreads, dedicatedPools, maxPendingQueries, maxConcurrentSegments);
+  }
+}
@@ -124,6 +124,32 @@ public abstract class ResourceManager {
     return queryRunners;
   }
 
+  /**
+   * Returns executor service for running the given query.
+   * @param query query to run
+   * @return
+   */
+  public ListeningExecutorService getQueryRunners(ServerQueryRequest query) {
+    return queryRunners;
+  }
+
+  /**
+   * Max number of queries that can run concurrently on the query runners.
+   * @return
+   */
+  public int getMaxConcurrentQueries() {
+    return numQueryRunnerThreads;
+  }
+
+  /**
+   * Max number of pending queries for a scheduler group.
+   * @param groupName scheduler group name
+   * @return max number of pending queries, or -1 if the scheduler applies its default limit
+   */
+  public int getMaxPendingQueries(String groupName) {
+    return -1;
+  }
+
   @VisibleForTesting
   final public ExecutorService getQueryWorkers() {
     return queryWorkers;
@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resources;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.configuration.Configuration;
+import org.apache.pinot.common.config.TableNameBuilder;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.scheduler.SchedulerGroup;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupAccountant;
+import org.apache.pinot.core.query.scheduler.SchedulerQueryContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * ResourceManager that isolates the configured {@link QueryWorkload}s from each other.
+ *
+ * Tables are mapped to workloads through the scheduler configuration:
+ * <pre>
+ *   workloads=interactive,batch
+ *   workload.interactive.tables=dashboard1,dashboard2_OFFLINE
+ *   workload.interactive.max_pending_queries=100
+ *   workload.batch.tables=exports
+ *   workload.batch.runner_threads=2
+ *   workload.batch.worker_threads=4
+ *   workload.batch.max_concurrent_segments=200
+ * </pre>
+ * Workloads with runner and worker threads configured get dedicated threadpools, the others share the threadpools
+ * with the tables not mapped to any workload. The scheduler group of the queries of a workload is the workload (see
+ * {@link org.apache.pinot.core.query.scheduler.WorkloadGroupMapper}), so that a workload is only scheduled when its
+ * threadpools have a free runner thread and its concurrent segments budget allows the next query.
+ */
+public class WorkloadResourceManager extends PolicyBasedResourceManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkloadResourceManager.class);
+
+  public static final String WORKLOADS_CONFIG_KEY = "workloads";
+  public static final String WORKLOAD_CONFIG_PREFIX = "workload";
+  public static final String TABLES_CONFIG_KEY = "tables";
+  public static final String RUNNER_THREADS_CONFIG_KEY = "runner_threads";
+  public static final String WORKER_THREADS_CONFIG_KEY = "worker_threads";
+  public static final String MAX_PENDING_QUERIES_CONFIG_KEY = "max_pending_queries";
+  public static final String MAX_CONCURRENT_SEGMENTS_CONFIG_KEY = "max_concurrent_segments";
+  public static final String DEFAULT_WORKLOAD_NAME = "default";
+
+  // Table name (with or without type) -> workload
+  private final Map<String, QueryWorkload> tableToWorkloadMap = new HashMap<>();
+  // Workload name -> workload
+  private final Map<String, QueryWorkload> workloadMap = new HashMap<>();
+  // Workload for the tables not mapped to any workload
+  private final QueryWorkload defaultWorkload;
+  private final int maxConcurrentQueries;
+
+  public static boolean hasWorkloads(@Nonnull Configuration config) {
+    return config.getStringArray(WORKLOADS_CONFIG_KEY).length > 0;
+  }
+
+  public WorkloadResourceManager(@Nonnull Configuration config) {
+    super(config);
+    AtomicInteger numSharedRunningQueries = new AtomicInteger(0);
+    defaultWorkload =
+        new QueryWorkload(DEFAULT_WORKLOAD_NAME, queryRunners, queryWorkers, numQueryRunnerThreads,
+            numQueryWorkerThreads, false, -1, -1, numSharedRunningQueries);
+    int maxConcurrentQueries = numQueryRunnerThreads;
+
+    for (String workloadName : config.getStringArray(WORKLOADS_CONFIG_KEY)) {
+      workloadName = workloadName.trim();
+      Preconditions.checkArgument(!workloadName.isEmpty() && !workloadName.equals(DEFAULT_WORKLOAD_NAME),
+          "Invalid workload name: '%s'", workloadName);
+      Preconditions.checkArgument(!workloadMap.containsKey(workloadName), "Duplicate workload: %s", workloadName);
+      Configuration workloadConfig = config.subset(WORKLOAD_CONFIG_PREFIX + '.' + workloadName);
+      int numRunnerThreads = workloadConfig.getInt(RUNNER_THREADS_CONFIG_KEY, 0);
+      int numWorkerThreads = workloadConfig.getInt(WORKER_THREADS_CONFIG_KEY, 0);
+      int maxPendingQueries = workloadConfig.getInt(MAX_PENDING_QUERIES_CONFIG_KEY, -1);
+      int maxConcurrentSegments = workloadConfig.getInt(MAX_CONCURRENT_SEGMENTS_CONFIG_KEY, -1);
+
+      QueryWorkload workload;
+      if (numRunnerThreads > 0 && numWorkerThreads > 0) {
+        // pqr/pqw prefixed with the workload name (to tell the threadpools apart)
+        ThreadFactory queryRunnerFactory = new ThreadFactoryBuilder().setDaemon(false)
+            .setPriority(QUERY_RUNNER_THREAD_PRIORITY).setNameFormat(workloadName + "-pqr-%d").build();
+        ThreadFactory queryWorkersFactory = new ThreadFactoryBuilder().setDaemon(false)
+            .setPriority(Thread.NORM_PRIORITY).setNameFormat(workloadName + "-pqw-%d").build();
+        workload = new QueryWorkload(workloadName,
+            MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numRunnerThreads, queryRunnerFactory)),
+            MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numWorkerThreads, queryWorkersFactory)),
+            numRunnerThreads, numWorkerThreads, true, maxPendingQueries, maxConcurrentSegments,
+            new AtomicInteger(0));
+        maxConcurrentQueries += numRunnerThreads;
+      } else {
+        if (numRunnerThreads > 0 || numWorkerThreads > 0) {
+          LOGGER.warn("Both runner and worker threads are required for dedicated threadpools, workload: {} will use "
+              + "the shared threadpools", workloadName);
+        }
+        workload = new QueryWorkload(workloadName, queryRunners, queryWorkers, numQueryRunnerThreads,
+            numQueryWorkerThreads, false, maxPendingQueries, maxConcurrentSegments, numSharedRunningQueries);
+      }
+      workloadMap.put(workloadName, workload);
+      for (String tableName : workloadConfig.getStringArray(TABLES_CONFIG_KEY)) {
+        tableName = tableName.trim();
+        QueryWorkload existingWorkload = tableToWorkloadMap.put(tableName, workload);
+        Preconditions.checkArgument(existingWorkload == null, "Table: %s is mapped to both workload: %s and %s",
+            tableName, workloadName, existingWorkload != null ? existingWorkload.getName() : null);
+      }
+      LOGGER.info("Initialized workload: {} with tables: {}", workload,
+          String.join(",", workloadConfig.getStringArray(TABLES_CONFIG_KEY)));
+    }
+    this.maxConcurrentQueries = maxConcurrentQueries;
+  }
+
+  /**
+   * Returns the workload the table is mapped to, or null if the table is not mapped to any workload.
+   * @param tableNameWithType table name with type
+   */
+  @Nullable
+  public QueryWorkload getWorkload(@Nonnull String tableNameWithType) {
+    QueryWorkload workload = tableToWorkloadMap.get(tableNameWithType);
+    if (workload != null) {
+      return workload;
+    }
+    return tableToWorkloadMap.get(TableNameBuilder.extractRawTableName(tableNameWithType));
+  }
+
+  private QueryWorkload getWorkload(@Nonnull ServerQueryRequest query) {
+    QueryWorkload workload = getWorkload(query.getTableNameWithType());
+    return workload != null ? workload : defaultWorkload;
+  }
+
+  private QueryWorkload getWorkload(@Nonnull SchedulerGroupAccountant accountant) {
+    if (accountant instanceof SchedulerGroup) {
+      QueryWorkload workload = workloadMap.get(((SchedulerGroup) accountant).name());
+      if (workload != null) {
+        return workload;
+      }
+    }
+    return defaultWorkload;
+  }
+
+  @Override
+  public QueryExecutorService getExecutorService(ServerQueryRequest query, SchedulerGroupAccountant accountant) {
+    QueryWorkload workload = getWorkload(query);
+    int numSegments = query.getSegmentsToQuery().size();
+    QueryExecutorService executorService;
+    if (workload.hasDedicatedPools()) {
+      int queryThreadLimit = Math.max(1, Math.min(resourcePolicy.getMaxThreadsPerQuery(), numSegments));
+      int spareThreads = Math.max(1,
+          Math.min(workload.getNumWorkerThreads() - accountant.totalReservedThreads(), queryThreadLimit));
+      accountant.addReservedThreads(spareThreads);
+      executorService = new BoundedAccountingExecutor(workload.getQueryWorkers(), spareThreads, accountant);
+    } else {
+      executorService = super.getExecutorService(query, accountant);
+    }
+
+    workload.startQuery(numSegments);
+    return new QueryExecutorService() {
+      @Override
+      public void execute(Runnable command) {
+        executorService.execute(command);
+      }
+
+      @Override
+      public void releaseWorkers() {
+        executorService.releaseWorkers();
+        workload.endQuery(numSegments);
+      }
+    };
+  }
+
+  @Override
+  public ListeningExecutorService getQueryRunners(ServerQueryRequest query) {
+    return getWorkload(query).getQueryRunners();
+  }
+
+  @Override
+  public int getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  @Override
+  public int getMaxPendingQueries(String groupName) {
+    QueryWorkload workload = workloadMap.get(groupName);
+    return workload != null ? workload.getMaxPendingQueries() : -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>A group is also not scheduled if all the runner threads of its workload are busy, or if the next query of the
+   * group would exceed the concurrent segments budget of the workload.
+   */
+  @Override
+  public boolean canSchedule(SchedulerGroupAccountant accountant) {
+    QueryWorkload workload = getWorkload(accountant);
+    int numSegments = 0;
+    if (accountant instanceof SchedulerGroup) {
+      SchedulerQueryContext nextQuery = ((SchedulerGroup) accountant).peekFirst();
+      if (nextQuery != null) {
+        numSegments = nextQuery.getQueryRequest().getSegmentsToQuery().size();
+      }
+    }
+    if (!workload.canStartQuery(numSegments)) {
+      return false;
+    }
+    if (workload.hasDedicatedPools()) {
+      return accountant.totalReservedThreads() < workload.getNumWorkerThreads();
+    }
+    return super.canSchedule(accountant);
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    for (QueryWorkload workload : workloadMap.values()) {
+      if (workload.hasDedicatedPools()) {
+        workload.getQueryWorkers().shutdownNow();
+        workload.getQueryRunners().shutdownNow();
+      }
+    }
+  }
+}
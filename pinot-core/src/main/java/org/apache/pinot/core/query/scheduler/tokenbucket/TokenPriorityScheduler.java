@@ -27,24 +27,41 @@ import org.apache.pinot.core.query.scheduler.MultiLevelPriorityQueue;
 import org.apache.pinot.core.query.scheduler.PriorityScheduler;
 import org.apache.pinot.core.query.scheduler.SchedulerGroup;
 import org.apache.pinot.core.query.scheduler.SchedulerGroupFactory;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupMapper;
 import org.apache.pinot.core.query.scheduler.TableBasedGroupMapper;
+import org.apache.pinot.core.query.scheduler.WorkloadGroupMapper;
 import org.apache.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
 import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
+import org.apache.pinot.core.query.scheduler.resources.WorkloadResourceManager;
 
 
 /**
  * Schedules queries from a {@link SchedulerGroup} with highest number of tokens on priority.
  * This is a thin wrapper factory class that configures {@link PriorityScheduler} with
  * the right concrete classes. All the priority based scheduling logic is in {@link PriorityScheduler}
+ *
+ * If workloads are configured, tables are isolated per workload with a {@link WorkloadResourceManager}
+ * and tokens are accounted per workload instead of per table.
  */
 public class TokenPriorityScheduler extends PriorityScheduler {
   public static final String TOKENS_PER_MS_KEY = "tokens_per_ms";
   public static final String TOKEN_LIFETIME_MS_KEY = "token_lifetime_ms";
+  // Deduct tokens for the CPU time of the queries instead of the thread wall clock time
+  public static final String CPU_TIME_ACCOUNTING_KEY = "cpu_time_accounting";
   private static final int DEFAULT_TOKEN_LIFETIME_MS = 100;
 
   public static TokenPriorityScheduler create(@Nonnull Configuration config, @Nonnull QueryExecutor queryExecutor,
       @Nonnull ServerMetrics metrics, @Nonnull LongAccumulator latestQueryTime) {
-    final ResourceManager rm = new PolicyBasedResourceManager(config);
+    final ResourceManager rm;
+    final SchedulerGroupMapper groupMapper;
+    if (WorkloadResourceManager.hasWorkloads(config)) {
+      WorkloadResourceManager workloadResourceManager = new WorkloadResourceManager(config);
+      rm = workloadResourceManager;
+      groupMapper = new WorkloadGroupMapper(workloadResourceManager);
+    } else {
+      rm = new PolicyBasedResourceManager(config);
+      groupMapper = new TableBasedGroupMapper();
+    }
     final SchedulerGroupFactory groupFactory = new SchedulerGroupFactory() {
       @Override
       public SchedulerGroup create(Configuration config, String groupName) {
@@ -53,12 +70,13 @@ public class TokenPriorityScheduler extends PriorityScheduler {
         int maxTokensPerMs = rm.getNumQueryRunnerThreads() + rm.getNumQueryWorkerThreads();
         int tokensPerMs = config.getInt(TOKENS_PER_MS_KEY, maxTokensPerMs);
         int tokenLifetimeMs = config.getInt(TOKEN_LIFETIME_MS_KEY, DEFAULT_TOKEN_LIFETIME_MS);
+        boolean cpuTimeAccounting = config.getBoolean(CPU_TIME_ACCOUNTING_KEY, false);
 
-        return new TokenSchedulerGroup(groupName, tokensPerMs, tokenLifetimeMs);
+        return new TokenSchedulerGroup(groupName, tokensPerMs, tokenLifetimeMs, cpuTimeAccounting);
       }
     };
 
-    MultiLevelPriorityQueue queue = new MultiLevelPriorityQueue(config, rm, groupFactory, new TableBasedGroupMapper());
+    MultiLevelPriorityQueue queue = new MultiLevelPriorityQueue(config, rm, groupFactory, groupMapper);
     return new TokenPriorityScheduler(config, rm, queryExecutor, queue, metrics, latestQueryTime);
   }
 
@@ -19,6 +19,7 @@
 package org.apache.pinot.core.query.scheduler.tokenbucket;
 
 import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.pinot.core.query.scheduler.AbstractSchedulerGroup;
@@ -36,6 +37,11 @@ import org.apache.pinot.core.query.scheduler.fcfs.FCFSSchedulerGroup;
  * by applying linear decay. Linear decay memorizes resource utilization in the previous
  * time quantum penalizing heavy users. This is important to give fair chance to low qps
  * workloads.
+ *
+ * Optionally, tokens can be deducted for the CPU time (instead of the wall clock time) of the
+ * threads working on the queries of the group. CPU time does not penalize groups for threads
+ * blocked on IO or locks, and reflects the real cost of the queries when the server is CPU bound.
+ * 1 token then corresponds to 1 millisecond of CPU time.
  */
 public class TokenSchedulerGroup extends AbstractSchedulerGroup {
 
@@ -49,6 +55,11 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
   // those can be scheduled if there is no other work
   private final int numTokensPerMs;
 
+  // whether tokens are deducted for the CPU time reported for the queries instead of the thread wall clock time
+  private final boolean cpuTimeAccounting;
+  // CPU time reported but not yet deducted from the tokens (less than a token)
+  private long pendingCpuTimeNs;
+
   // currently available tokens for this group
   private int availableTokens;
   // last time token values were updated for this group
@@ -65,11 +76,16 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
   private static final double ALPHA = 0.80;
 
   TokenSchedulerGroup(String schedGroupName, int numTokensPerMs, int tokenLifetimeMs) {
+    this(schedGroupName, numTokensPerMs, tokenLifetimeMs, false);
+  }
+
+  TokenSchedulerGroup(String schedGroupName, int numTokensPerMs, int tokenLifetimeMs, boolean cpuTimeAccounting) {
     super(schedGroupName);
     Preconditions.checkArgument(numTokensPerMs > 0);
     Preconditions.checkArgument(tokenLifetimeMs > 0);
     this.numTokensPerMs = numTokensPerMs;
     this.tokenLifetimeMs = tokenLifetimeMs;
+    this.cpuTimeAccounting = cpuTimeAccounting;
     lastUpdateTimeMs = currentTimeMillis();
     availableTokens = numTokensPerMs * tokenLifetimeMs;
     lastTokenTimeMs = lastUpdateTimeMs;
@@ -103,6 +119,22 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
     super.endQuery();
   }
 
+  @Override
+  public void addCpuTime(long cpuTimeNs) {
+    super.addCpuTime(cpuTimeNs);
+    if (!cpuTimeAccounting) {
+      return;
+    }
+    try (TokenLockManager lm = new TokenLockManager(tokenLock)) {
+      // allot new tokens (if due) before deducting the CPU time
+      consumeTokens();
+      pendingCpuTimeNs += cpuTimeNs;
+      long cpuTimeMs = TimeUnit.NANOSECONDS.toMillis(pendingCpuTimeNs);
+      availableTokens -= cpuTimeMs;
+      pendingCpuTimeNs -= TimeUnit.MILLISECONDS.toNanos(cpuTimeMs);
+    }
+  }
+
   /**
    * Compares priority of this group with respect to another scheduler group.
    * Priority is compared on the basis of available tokens. SchedulerGroup with
@@ -151,7 +183,8 @@ public class TokenSchedulerGroup extends AbstractSchedulerGroup {
       if (diffMs <= 0) {
         return availableTokens;
       }
-      int threads = threadsInUse.get();
+      // with CPU time accounting, tokens are deducted when the CPU time is reported instead
+      int threads = cpuTimeAccounting ? 0 : threadsInUse.get();
       long nextTokenTime = lastTokenTimeMs + tokenLifetimeMs;
       if (nextTokenTime > currentTimeMs) {
         availableTokens -= diffMs * threads;
@@ -18,11 +18,16 @@
  */
 package org.apache.pinot.core.realtime.impl;
 
+import java.io.File;
+import java.util.List;
 import java.util.Set;
 import org.apache.pinot.common.config.SegmentPartitionConfig;
 import org.apache.pinot.common.data.Schema;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.realtime.impl.upsert.PartitionUpsertMetadataManager;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
 
 
 public class RealtimeSegmentConfig {
@@ -34,19 +39,29 @@ public class RealtimeSegmentConfig {
   private final Set<String> _noDictionaryColumns;
   private final Set<String> _varLengthDictionaryColumns;
   private final Set<String> _invertedIndexColumns;
+  private final String _sortedColumn;
   private final RealtimeSegmentZKMetadata _realtimeSegmentZKMetadata;
   private final boolean _offHeap;
   private final PinotDataBufferMemoryManager _memoryManager;
   private final RealtimeSegmentStatsHistory _statsHistory;
   private final SegmentPartitionConfig _segmentPartitionConfig;
   private final boolean _aggregateMetrics;
+  private final List<String> _primaryKeyColumns;
+  private final PartitionUpsertMetadataManager _partitionUpsertMetadataManager;
+  private final List<StarTreeV2BuilderConfig> _starTreeV2BuilderConfigs;
+  private final int _starTreeNumDocsPerTree;
+  private final File _starTreeTempDir;
+  private final ServerMetrics _serverMetrics;
 
   private RealtimeSegmentConfig(String segmentName, String streamName, Schema schema, int capacity,
       int avgNumMultiValues, Set<String> noDictionaryColumns, Set<String> varLengthDictionaryColumns,
-      Set<String> invertedIndexColumns, RealtimeSegmentZKMetadata realtimeSegmentZKMetadata,
+      Set<String> invertedIndexColumns, String sortedColumn, RealtimeSegmentZKMetadata realtimeSegmentZKMetadata,
       boolean offHeap, PinotDataBufferMemoryManager memoryManager,
       RealtimeSegmentStatsHistory statsHistory, SegmentPartitionConfig segmentPartitionConfig,
-      boolean aggregateMetrics) {
+      boolean aggregateMetrics, List<String> primaryKeyColumns,
+      PartitionUpsertMetadataManager partitionUpsertMetadataManager,
+      List<StarTreeV2BuilderConfig> starTreeV2BuilderConfigs, int starTreeNumDocsPerTree, File starTreeTempDir,
+      ServerMetrics serverMetrics) {
     _segmentName = segmentName;
     _streamName = streamName;
     _schema = schema;
@@ -55,12 +70,19 @@ public class RealtimeSegmentConfig {
     _noDictionaryColumns = noDictionaryColumns;
     _varLengthDictionaryColumns = varLengthDictionaryColumns;
     _invertedIndexColumns = invertedIndexColumns;
+    _sortedColumn = sortedColumn;
     _realtimeSegmentZKMetadata = realtimeSegmentZKMetadata;
     _offHeap = offHeap;
     _memoryManager = memoryManager;
     _statsHistory = statsHistory;
     _segmentPartitionConfig = segmentPartitionConfig;
     _aggregateMetrics = aggregateMetrics;
+    _primaryKeyColumns = primaryKeyColumns;
+    _partitionUpsertMetadataManager = partitionUpsertMetadataManager;
+    _starTreeV2BuilderConfigs = starTreeV2BuilderConfigs;
+    _starTreeNumDocsPerTree = starTreeNumDocsPerTree;
+    _starTreeTempDir = starTreeTempDir;
+    _serverMetrics = serverMetrics;
   }
 
   public String getSegmentName() {
@@ -95,6 +117,10 @@ public class RealtimeSegmentConfig {
     return _invertedIndexColumns;
   }
 
+  public String getSortedColumn() {
+    return _sortedColumn;
+  }
+
   public RealtimeSegmentZKMetadata getRealtimeSegmentZKMetadata() {
     return _realtimeSegmentZKMetadata;
   }
@@ -119,6 +145,30 @@ public class RealtimeSegmentConfig {
     return _aggregateMetrics;
   }
 
+  public List<String> getPrimaryKeyColumns() {
+    return _primaryKeyColumns;
+  }
+
+  public PartitionUpsertMetadataManager getPartitionUpsertMetadataManager() {
+    return _partitionUpsertMetadataManager;
+  }
+
+  public List<StarTreeV2BuilderConfig> getStarTreeV2BuilderConfigs() {
+    return _starTreeV2BuilderConfigs;
+  }
+
+  public int getStarTreeNumDocsPerTree() {
+    return _starTreeNumDocsPerTree;
+  }
+
+  public File getStarTreeTempDir() {
+    return _starTreeTempDir;
+  }
+
+  public ServerMetrics getServerMetrics() {
+    return _serverMetrics;
+  }
+
   public static class Builder {
     private String _segmentName;
     private String _streamName;
@@ -128,12 +178,19 @@ public class RealtimeSegmentConfig {
     private Set<String> _noDictionaryColumns;
     private Set<String> _varLengthDictionaryColumns;
     private Set<String> _invertedIndexColumns;
+    private String _sortedColumn;
     private RealtimeSegmentZKMetadata _realtimeSegmentZKMetadata;
     private boolean _offHeap;
     private PinotDataBufferMemoryManager _memoryManager;
     private RealtimeSegmentStatsHistory _statsHistory;
     private SegmentPartitionConfig _segmentPartitionConfig;
     private boolean _aggregateMetrics = false;
+    private List<String> _primaryKeyColumns;
+    private PartitionUpsertMetadataManager _partitionUpsertMetadataManager;
+    private List<StarTreeV2BuilderConfig> _starTreeV2BuilderConfigs;
+    private int _starTreeNumDocsPerTree;
+    private File _starTreeTempDir;
+    private ServerMetrics _serverMetrics;
 
     public Builder() {
     }
@@ -178,6 +235,11 @@ public class RealtimeSegmentConfig {
       return this;
     }
 
+    public Builder setSortedColumn(String sortedColumn) {
+      _sortedColumn = sortedColumn;
+      return this;
+    }
+
     public Builder setRealtimeSegmentZKMetadata(RealtimeSegmentZKMetadata realtimeSegmentZKMetadata) {
       _realtimeSegmentZKMetadata = realtimeSegmentZKMetadata;
       return this;
@@ -208,11 +270,43 @@ public class RealtimeSegmentConfig {
       return this;
     }
 
+    public Builder setPrimaryKeyColumns(List<String> primaryKeyColumns) {
+      _primaryKeyColumns = primaryKeyColumns;
+      return this;
+    }
+
+    public Builder setPartitionUpsertMetadataManager(PartitionUpsertMetadataManager partitionUpsertMetadataManager) {
+      _partitionUpsertMetadataManager = partitionUpsertMetadataManager;
+      return this;
+    }
+
+    public Builder setStarTreeV2BuilderConfigs(List<StarTreeV2BuilderConfig> starTreeV2BuilderConfigs) {
+      _starTreeV2BuilderConfigs = starTreeV2BuilderConfigs;
+      return this;
+    }
+
+    public Builder setStarTreeNumDocsPerTree(int starTreeNumDocsPerTree) {
+      _starTreeNumDocsPerTree = starTreeNumDocsPerTree;
+      return this;
+    }
+
+    public Builder setStarTreeTempDir(File starTreeTempDir) {
+      _starTreeTempDir = starTreeTempDir;
+      return this;
+    }
+
+    public Builder setServerMetrics(ServerMetrics serverMetrics) {
+      _serverMetrics = serverMetrics;
+      return this;
+    }
+
     public RealtimeSegmentConfig build() {
       return new RealtimeSegmentConfig(_segmentName, _streamName, _schema, _capacity, _avgNumMultiValues,
-          _noDictionaryColumns, _varLengthDictionaryColumns, _invertedIndexColumns,
+          _noDictionaryColumns, _varLengthDictionaryColumns, _invertedIndexColumns, _sortedColumn,
           _realtimeSegmentZKMetadata, _offHeap, _memoryManager,
-          _statsHistory, _segmentPartitionConfig, _aggregateMetrics);
+          _statsHistory, _segmentPartitionConfig, _aggregateMetrics, _primaryKeyColumns,
+          _partitionUpsertMetadataManager, _starTreeV2BuilderConfigs, _starTreeNumDocsPerTree, _starTreeTempDir,
+          _serverMetrics);
     }
   }
 }
@@ -341,6 +341,27 @@ public class RealtimeSegmentStatsHistory implements Serializable {
     return (numRowsIndexed > 0) ? (int) (numRowsIndexed / numEntriesToScan) : DEFAULT_ROWS_TO_INDEX;
   }
 
+  /**
+   * Estimate the memory (allocated through the memory manager of the consuming segment) used per indexed row,
+   * based on the past segments of the table.
+   * For now, we return the average value.
+   *
+   * @return estimated memory used per row in bytes, or 0 if there are no prior statistics
+   */
+  public synchronized long getEstimatedMemUsedBytesPerRow() {
+    int numEntriesToScan = getNumntriesToScan();
+    long totalBytesPerRow = 0;
+    int numValidValues = 0;
+    for (int i = 0; i < numEntriesToScan; i++) {
+      SegmentStats segmentStats = getSegmentStatsAt(i);
+      if (segmentStats.getNumRowsIndexed() > 0 && segmentStats.getMemUsedBytes() > 0) {
+        totalBytesPerRow += segmentStats.getMemUsedBytes() / segmentStats.getNumRowsIndexed();
+        numValidValues++;
+      }
+    }
+    return (numValidValues > 0) ? totalBytesPerRow / numValidValues : 0;
+  }
+
   public SegmentStats getSegmentStatsAt(int index) {
     return _entries[index];
   }
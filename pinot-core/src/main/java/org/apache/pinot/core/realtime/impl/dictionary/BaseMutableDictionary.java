@@ -19,10 +19,13 @@
 package org.apache.pinot.core.realtime.impl.dictionary;
 
 import it.unimi.dsi.fastutil.ints.IntSet;
+import javax.annotation.Nullable;
+import org.apache.pinot.core.realtime.impl.sortedindex.RealtimeSortedIndex;
 import org.apache.pinot.core.segment.index.readers.BaseDictionary;
 
 
 public abstract class BaseMutableDictionary extends BaseDictionary {
+  private RealtimeSortedIndex _sortedIndex;
 
   public boolean isSorted() {
     return false;
@@ -51,6 +54,23 @@ public abstract class BaseMutableDictionary extends BaseDictionary {
    */
   public abstract IntSet getDictIdsInRange(String lower, String upper, boolean includeLower, boolean includeUpper);
 
+  /**
+   * Sets the sorted index maintained on top of the dictionary for the sorted column of the consuming segment. Should be
+   * set before the dictionary becomes queryable.
+   */
+  public void setSortedIndex(RealtimeSortedIndex sortedIndex) {
+    _sortedIndex = sortedIndex;
+  }
+
+  /**
+   * Returns the sorted index maintained on top of the dictionary if exists, or {@code null} if not. When exists, it can
+   * be used to look up the dictIds in a value range without scanning the whole dictionary.
+   */
+  @Nullable
+  public RealtimeSortedIndex getSortedIndex() {
+    return _sortedIndex;
+  }
+
   /**
    * Returns the minimum value in the dictionary. Note that for type BYTES, {@code ByteArray} will be returned. This API
    * is for stats collection and will be called after all values are inserted.
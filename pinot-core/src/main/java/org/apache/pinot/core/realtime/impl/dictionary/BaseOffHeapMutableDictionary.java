@@ -19,12 +19,10 @@
 package org.apache.pinot.core.realtime.impl.dictionary;
 
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.HashCommon;
 import java.io.IOException;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.segment.memory.PinotDataBuffer;
 import org.slf4j.Logger;
@@ -36,175 +34,117 @@ import org.slf4j.LoggerFactory;
  * - A forward map from dictionary ID to the actual value.
  * - A reverse map from the value to the dictionary ID.
  *
- * This base class provides the reverse map functionality. The reverse map is realized using a list of off-heap
- * IntBuffers directly allocated.
+ * This base class provides the reverse map functionality. The reverse map is an open addressing hash table with linear
+ * probing, stored in an off-heap buffer. The number of slots is a power of 2, and each slot is a long that packs the
+ * hash of the value (higher 32 bits) and the dictionary ID plus 1 (lower 32 bits), so that an empty slot is 0:
  *
- * An on-heap overflow hashmap holds items that have hash collisions, until the overflow hashmap reaches a threshold
- * size. At this point, we add a new IntBuffer, and transfer items from the overflow hashmap into the newly allocated
- * buffer, and also create a new overflow hashmap to handle future collisions.
+ *        | slot 0          | slot 1          | ..... | slot N-1          |
+ *        | hash | dictId+1 | hash | dictId+1 | ..... | hash | dictId+1   |
  *
- * Overflow on-heap hashmap is set to contain a max number of values as provided in the constructor. If number is 0
- * then overflow on-heap hashmap is disabled.
- *
- * To start with, we only have the on-heap overflow buffer. The IntBuffers are allocated when overflow hashmap reaches
- * a threshold number of entries.
- *
- * A buffer has N rows (N being a prime number) and NUM_COLUMNS columns, as below.
- * - The actual value for NUM_COLUMNS is yet to be tuned.
- * - Each cell in the buffer can hold one integer.
- *
- *                | col 0 | col 1 | ..... | col M-1 |
- *        ==========================================|
- *        row 0   |       |       |       |         |
- *        ==========================================|
- *        row 1   |       |       |       |
- *        ==========================================|
- *          .
- *          .
- *          .
- *        ==========================================|
- *        row N-1 |       |       |       |         |
- *        ==========================================|
- *
- * To start with, all cells are initialized to have NULL_VALUE_INDEX (indicating empty cell)
  * Here is the pseudo-code for indexing an item or finding the dictionary ID of an item.
  *
  * index(item) {
- *   foreach (iBuf: iBufList) {
- *     hash value into a row for the buffer.
- *     foreach (cell: rowOfCells) {
- *       if (cell is not occupied) {
- *         set it to dictId
- *         return
- *       } else if (item.equals(get(dictId)) {
- *         // item already present in dictionary
- *         return
- *       }
+ *   slot = hash(item) & (N - 1)
+ *   while (slot is occupied) {
+ *     if (hash of slot == hash(item) && item.equals(get(dictId of slot))) {
+ *       // item already present in dictionary
+ *       return dictId of slot
  *     }
+ *     slot = (slot + 1) & (N - 1)
  *   }
- *   oveflow.put(item, dictId)
- *   if (overflow.size() > threshold) {
- *     newSize = lastBufSize * expansionMultiple
- *     newBuf = allocateDirect(newSize)
- *     add newBuf to iBufList
- *     newOverflow = new HashMap()
- *     foreach (entry: overflow) {
- *       hash entry.key() into a row for newBuf
- *       foreach (cell : rowOfCells) {
- *         if (cell empty) {
- *           set cell to entry.value();
- *         }
- *       }
- *       if (we did not enter value above) {
- *         newOverflow.put(entry.key(), entry.value());
- *       }
- *     }
+ *   add item to the forward map with dictId = numEntries
+ *   if (numEntries < N * MAX_LOAD_FACTOR) {
+ *     set slot to (hash(item), dictId)
+ *   } else {
+ *     allocate a new table with 2N slots
+ *     re-insert all the occupied slots of the old table using the stored hash, then insert (hash(item), dictId)
+ *     publish the new table
  *   }
  * }
  *
  * indexOf(item) {
- *   foreach (iBuf: iBufList) {
- *     hash value into a row for the buffer;
- *     foreach (cell : rowOfCells) {
- *       if (cell is not occupied) {
- *         return NULL_VALUE_INDEX;
- *       }
- *       if (cell is occupied && item.equals(get(dictId))) {
- *         return dictId;
- *       }
+ *   slot = hash(item) & (N - 1)
+ *   while (slot is occupied) {
+ *     if (hash of slot == hash(item) && item.equals(get(dictId of slot))) {
+ *       return dictId of slot
  *     }
+ *     slot = (slot + 1) & (N - 1)
  *   }
- *   if (overflow.contains(item)) {
- *     return overflow.get(item);
- *   }
- *   return NULL_VALUE_INDEX;
+ *   return NULL_VALUE_INDEX
  * }
  *
- * The list of buffers and the overflow hash are maintained in a class (ValueToDictId) that is referenced via an
- * AtomicReference. This ensures that readers always get either the new version of these objects or the old version,
- * but not some inconsistent versions of these.
+ * Because the hash is stored in the slot, the values in the forward map (e.g. the bytes of a string) are only compared
+ * when the hashes match, and the table can be resized without reading the values.
+ *
+ * The table is referenced via a volatile field, and a new table is fully populated before being published, so readers
+ * never need to lock: they always see either the old table or the new one. The old table is not modified after the new
+ * one is published, but it is only released when the dictionary is closed, as readers may still be accessing it.
  *
  * It should be noted that this class assumes that there is one writer and multiple readers of the dictionary. It is
  * NOT safe for a multiple writer scenario.
- *
- * TODO
- * - It may be useful to implement a way to stop adding new items when the the number of buffers reaches a certain
- *   threshold. In this case, we could close the realtime segment, and start a new one with bigger buffers.
  */
 public abstract class BaseOffHeapMutableDictionary extends BaseMutableDictionary {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseOffHeapMutableDictionary.class);
 
-  // List of primes from http://compoasso.free.fr/primelistweb/page/prime/liste_online_en.php
-  private static final int[] PRIME_NUMBERS =
-      new int[]{13, 127, 547, 1009, 2003, 3001, 4003, 5003, 7001, 9001, 10007, 12007, 14009, 16001, 18013, 20011, 40009, 60013, 80021, 100003, 125113, 150011, 175003, 200003, 225023, 250007, 275003, 300007, 350003, 400009, 450001, 500009, 600011, 700001, 800011, 900001, 1000003};
-
-  // expansionMultiple setting as we add new buffers. A setting of 1 sets the new buffer to be
-  // the same size as the last one added. Setting of 2 allocates a buffer twice as big as the
-  // previous one. It is assumed that these values are powers of 2. It is a good idea to restrict
-  // these to 1 or 2, but not higher values. This array can be arbitrarily long. If the number of
-  // buffers exceeds the number of elements in the array, we use the last value.
-  private static final int[] EXPANSION_MULTIPLES = new int[]{1, 1, 2, 2, 2};
-
-  // Number of columns in each row of an IntBuffer.
-  private static final int NUM_COLUMNS = 3;
-
-  // Whether to start with 0 off-heap storage. Items are added to the overflow map first, until it reaches
-  // a threshold, and then the off-heap structures are allocated.
-  @SuppressWarnings("FieldCanBeLocal")
-  private static boolean _heapFirst = true;
-
-  private final int _maxItemsInOverflowHash;
+  private static final long EMPTY_SLOT = 0L;
+  private static final int MIN_NUM_SLOTS = 16;
+  private static final int MAX_NUM_SLOTS = 1 << 30;
+  // Keep the table at most half full so that the probe sequences stay short
+  private static final double MAX_LOAD_FACTOR = 0.5;
 
   // Number of entries in the dictionary. Max dictId is _numEntries-1.
   private volatile int _numEntries;
 
-  // We keep a list of PinotDataBuffer items from which we get the IntBuffer items, so
-  // that we can call close() on these.
+  // We keep a list of all the PinotDataBuffer items allocated for the reverse map (including the ones of the tables
+  // replaced during resize), so that we can call close() on these.
   private final List<PinotDataBuffer> _pinotDataBuffers = new ArrayList<>();
-  private final int _initialRowCount;
+  // Total size of the buffers above, which can be read by threads other than the writer
+  private volatile long _offHeapMemUsed;
+  private final int _initialNumSlots;
+  private int _numResizes;
   protected final PinotDataBufferMemoryManager _memoryManager;
   protected final String _allocationContext;
 
   /**
-   * A class to hold all the objects needed for the reverse mapping.
+   * A class to hold the buffer and the size of the hash table for the reverse mapping.
    */
   private static class ValueToDictId {
-    // Each iBuf layout is as described in comments above.
-    private final List<IntBuffer> _iBufList;
-    // The map should be a concurrent one.
-    private final Map<Object, Integer> _overflowMap;
-
-    private ValueToDictId(List<IntBuffer> iBufList, Map<Object, Integer> overflowMap) {
-      _iBufList = iBufList;
-      _overflowMap = overflowMap;
-    }
-
-    private List<IntBuffer> getIBufList() {
-      return _iBufList;
+    private final PinotDataBuffer _buffer;
+    private final int _mask;
+    private final int _maxNumEntries;
+
+    private ValueToDictId(PinotDataBuffer buffer, int numSlots) {
+      _buffer = buffer;
+      _mask = numSlots - 1;
+      // Always keep at least one empty slot so that the probing terminates
+      _maxNumEntries = numSlots < MAX_NUM_SLOTS ? (int) (numSlots * MAX_LOAD_FACTOR) : numSlots - 1;
     }
 
-    private Map<Object, Integer> getOverflowMap() {
-      return _overflowMap;
+    private int getNumSlots() {
+      return _mask + 1;
     }
   }
 
   private volatile ValueToDictId _valueToDict;
 
-  protected BaseOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowHashSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
+  /**
+   * @param estimatedCardinality Estimated cardinality of the dictionary, used to size the initial hash table
+   * @param memoryManager Memory manager for the off-heap buffers
+   * @param allocationContext Context for the allocated buffers
+   */
+  protected BaseOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
     _memoryManager = memoryManager;
     _allocationContext = allocationContext;
-    _initialRowCount = nearestPrime(estimatedCardinality);
-    _maxItemsInOverflowHash = maxOverflowHashSize;
+    long numSlots = Math.max((long) (estimatedCardinality / MAX_LOAD_FACTOR), MIN_NUM_SLOTS);
+    _initialNumSlots = numSlots < MAX_NUM_SLOTS ? nearestPowerOf2((int) numSlots) : MAX_NUM_SLOTS;
     init();
   }
 
   protected void init() {
     _numEntries = 0;
-    _valueToDict = new ValueToDictId(new ArrayList<IntBuffer>(0), new ConcurrentHashMap<Object, Integer>(0));
-    if (!_heapFirst || (_maxItemsInOverflowHash == 0)) {
-      expand(_initialRowCount, 1);
-    }
+    _numResizes = 0;
+    _valueToDict = allocateTable(_initialNumSlots);
   }
 
   @Override
@@ -218,103 +158,53 @@ public abstract class BaseOffHeapMutableDictionary extends BaseMutableDictionary
     doClose();
 
     _numEntries = 0;
-    ValueToDictId valueToDictId = _valueToDict;
     _valueToDict = null;
-    Map<Object, Integer> overflowMap = valueToDictId.getOverflowMap();
-    overflowMap.clear();
-    List<IntBuffer> iBufs = valueToDictId.getIBufList();
-    iBufs.clear();
-
     for (PinotDataBuffer pinotDataBuffer : _pinotDataBuffers) {
       pinotDataBuffer.close();
     }
     _pinotDataBuffers.clear();
+    _offHeapMemUsed = 0;
   }
 
-  private int nearestPrime(int size) {
-    for (int primeNumber : PRIME_NUMBERS) {
-      if (primeNumber >= size) {
-        return primeNumber;
-      }
-    }
-    return PRIME_NUMBERS[PRIME_NUMBERS.length - 1];
-  }
-
-  private long computeBBsize(long numRows) {
-    return numRows * NUM_COLUMNS * Integer.BYTES;
-  }
-
-  // Assume prevNumRows is a valid value, and return it if the new one overflows.
-  private int validatedNumRows(int prevNumRows, int multiple) {
-    long newNumRows = (long) prevNumRows * multiple;
-
-    if (newNumRows > Integer.MAX_VALUE) {
-      return prevNumRows;
-    }
-
-    if (computeBBsize(newNumRows) > Integer.MAX_VALUE) {
-      return prevNumRows;
+  private ValueToDictId allocateTable(int numSlots) {
+    long bufferSize = (long) numSlots * Long.BYTES;
+    LOGGER.info("Allocating {} bytes for: {}", bufferSize, _allocationContext);
+    PinotDataBuffer buffer = _memoryManager.allocate(bufferSize, _allocationContext);
+    _pinotDataBuffers.add(buffer);
+    _offHeapMemUsed += bufferSize;
+    for (long offset = 0; offset < bufferSize; offset += Long.BYTES) {
+      buffer.putLong(offset, EMPTY_SLOT);
     }
-    return (int) newNumRows;
+    return new ValueToDictId(buffer, numSlots);
   }
 
-  private IntBuffer expand(int prevNumRows, int multiple) {
-    final int newNumRows = validatedNumRows(prevNumRows, multiple);
-    final int bbSize = (int) computeBBsize(newNumRows);
-
-    final ValueToDictId valueToDictId = _valueToDict;
-    List<IntBuffer> oldList = valueToDictId.getIBufList();
-    List<IntBuffer> newList = new ArrayList<>(oldList.size() + 1);
-    for (IntBuffer iBuf : oldList) {
-      newList.add(iBuf);
-    }
-    LOGGER.info("Allocating {} bytes for: {}", bbSize, _allocationContext);
-    PinotDataBuffer buffer = _memoryManager.allocate(bbSize, _allocationContext);
-    _pinotDataBuffers.add(buffer);
-    IntBuffer iBuf = buffer.toDirectByteBuffer(0L, bbSize).asIntBuffer();
-    for (int i = 0; i < iBuf.capacity(); i++) {
-      iBuf.put(i, NULL_VALUE_INDEX);
-    }
-    newList.add(iBuf);
-    Map<Object, Integer> newOverflowMap = new ConcurrentHashMap<>(_maxItemsInOverflowHash);
-    if (_maxItemsInOverflowHash > 0) {
-      Map<Object, Integer> oldOverflowMap = valueToDictId.getOverflowMap();
-      for (Map.Entry<Object, Integer> entry : oldOverflowMap.entrySet()) {
-        final int hashVal = entry.getKey().hashCode() & Integer.MAX_VALUE;
-        final int offsetInBuf = (hashVal % newNumRows) * NUM_COLUMNS;
-        boolean done = false;
-        for (int i = offsetInBuf; i < offsetInBuf + NUM_COLUMNS; i++) {
-          if (iBuf.get(i) == NULL_VALUE_INDEX) {
-            iBuf.put(i, entry.getValue());
-            done = true;
-            break;
-          }
-        }
-        if (!done) {
-          newOverflowMap.put(entry.getKey(), entry.getValue());
-        }
+  /**
+   * Returns a new table of twice the size with all the entries of the given table.
+   */
+  private ValueToDictId resize(ValueToDictId valueToDictId) {
+    int numSlots = valueToDictId.getNumSlots();
+    Preconditions.checkState(numSlots < MAX_NUM_SLOTS, "Too many entries in the dictionary for: %s",
+        _allocationContext);
+    ValueToDictId newValueToDictId = allocateTable(numSlots * 2);
+    PinotDataBuffer buffer = valueToDictId._buffer;
+    for (int slotId = 0; slotId < numSlots; slotId++) {
+      long slot = buffer.getLong(getSlotOffset(slotId));
+      if (!isEmpty(slot)) {
+        insert(newValueToDictId, slot);
       }
     }
-    _valueToDict = new ValueToDictId(newList, newOverflowMap);
-    // We should not clear oldOverflowMap or oldList here, as readers may still be accessing those.
-    // We let GC take care of those elements.
-    return iBuf;
+    _numResizes++;
+    return newValueToDictId;
   }
 
-  private IntBuffer expand() {
-    final ValueToDictId valueToDictId = _valueToDict;
-    List<IntBuffer> iBufList = valueToDictId.getIBufList();
-    final int numBuffers = iBufList.size();
-    if (numBuffers == 0) {
-      return expand(_initialRowCount, 1);
+  private static void insert(ValueToDictId valueToDictId, long slot) {
+    PinotDataBuffer buffer = valueToDictId._buffer;
+    int mask = valueToDictId._mask;
+    int slotId = getHash(slot) & mask;
+    while (!isEmpty(buffer.getLong(getSlotOffset(slotId)))) {
+      slotId = (slotId + 1) & mask;
     }
-    final int lastCapacity = iBufList.get(numBuffers - 1).capacity();
-    int expansionMultiple = EXPANSION_MULTIPLES[EXPANSION_MULTIPLES.length - 1];
-    if (numBuffers < EXPANSION_MULTIPLES.length) {
-      expansionMultiple = EXPANSION_MULTIPLES[numBuffers];
-    }
-    int prevNumRows = lastCapacity / NUM_COLUMNS;
-    return expand(prevNumRows, expansionMultiple);
+    buffer.putLong(getSlotOffset(slotId), slot);
   }
 
   protected int nearestPowerOf2(int num) {
@@ -330,37 +220,30 @@ public abstract class BaseOffHeapMutableDictionary extends BaseMutableDictionary
    * Given a raw value, get the dictionary ID from the reverse map.
    *
    * Since the dictionary IDs are stored in a hash map, multiple dictionary
-   * IDs may match to the same raw value. Use the methods provided by sub-class
+   * IDs may match to the same hash. Use the methods provided by sub-class
    * to compare the raw values with those in the forward map.
    *
    * @param value value of object for which we need to get dictionary ID
-   * @param serializedValue serialized form of the
+   * @param serializedValue serialized form of the value, may be null.
    * @return dictionary ID if found, NULL_VALUE_INDEX otherwise.
    */
   protected int getDictId(Object value, byte[] serializedValue) {
-    final int hashVal = value.hashCode() & Integer.MAX_VALUE;
+    final int hash = hash(value);
     final ValueToDictId valueToDictId = _valueToDict;
-    final List<IntBuffer> iBufList = valueToDictId.getIBufList();
-    for (IntBuffer iBuf : iBufList) {
-      final int modulo = iBuf.capacity() / NUM_COLUMNS;
-      final int offsetInBuf = (hashVal % modulo) * NUM_COLUMNS;
-      for (int i = offsetInBuf; i < offsetInBuf + NUM_COLUMNS; i++) {
-        int dictId = iBuf.get(i);
-        if (dictId != NULL_VALUE_INDEX) {
-          if (equalsValueAt(dictId, value, serializedValue)) {
-            return dictId;
-          }
+    final PinotDataBuffer buffer = valueToDictId._buffer;
+    final int mask = valueToDictId._mask;
+    int slotId = hash & mask;
+    long slot;
+    while (!isEmpty(slot = buffer.getLong(getSlotOffset(slotId)))) {
+      if (getHash(slot) == hash) {
+        int dictId = getDictIdFromSlot(slot);
+        if (equalsValueAt(dictId, value, serializedValue)) {
+          return dictId;
         }
       }
+      slotId = (slotId + 1) & mask;
     }
-    if (_maxItemsInOverflowHash == 0) {
-      return NULL_VALUE_INDEX;
-    }
-    Integer dictId = valueToDictId.getOverflowMap().get(value);
-    if (dictId == null) {
-      return NULL_VALUE_INDEX;
-    }
-    return dictId;
+    return NULL_VALUE_INDEX;
   }
 
   /**
@@ -373,77 +256,78 @@ public abstract class BaseOffHeapMutableDictionary extends BaseMutableDictionary
    * @param serializedValue serialized representation of the value, may be null.
    */
   protected int indexValue(Object value, byte[] serializedValue) {
-    final int hashVal = value.hashCode() & Integer.MAX_VALUE;
-    int newValueDictId = _numEntries;
+    final int hash = hash(value);
     ValueToDictId valueToDictId = _valueToDict;
-
-    for (IntBuffer iBuf : valueToDictId.getIBufList()) {
-      final int modulo = iBuf.capacity() / NUM_COLUMNS;
-      final int offsetInBuf = (hashVal % modulo) * NUM_COLUMNS;
-      for (int i = offsetInBuf; i < offsetInBuf + NUM_COLUMNS; i++) {
-        final int dictId = iBuf.get(i);
-        if (dictId == NULL_VALUE_INDEX) {
-          setValue(newValueDictId, value, serializedValue);
-          iBuf.put(i, newValueDictId);
-          _numEntries = newValueDictId + 1;
-          return newValueDictId;
-        } else if (equalsValueAt(dictId, value, serializedValue)) {
+    final PinotDataBuffer buffer = valueToDictId._buffer;
+    final int mask = valueToDictId._mask;
+    int slotId = hash & mask;
+    long slot;
+    while (!isEmpty(slot = buffer.getLong(getSlotOffset(slotId)))) {
+      if (getHash(slot) == hash) {
+        int dictId = getDictIdFromSlot(slot);
+        if (equalsValueAt(dictId, value, serializedValue)) {
           return dictId;
         }
       }
-    }
-    // We know that we had a hash collision beyond the number of columns in the buffer.
-    Map<Object, Integer> overflowMap = valueToDictId.getOverflowMap();
-    if (_maxItemsInOverflowHash > 0) {
-      Integer dictId = overflowMap.get(value);
-      if (dictId != null) {
-        return dictId;
-      }
+      slotId = (slotId + 1) & mask;
     }
 
+    int newValueDictId = _numEntries;
     setValue(newValueDictId, value, serializedValue);
-
-    if (_maxItemsInOverflowHash > 0) {
-      if (overflowMap.size() < _maxItemsInOverflowHash) {
-        overflowMap.put(value, newValueDictId);
-        _numEntries = newValueDictId + 1;
-        return newValueDictId;
-      }
+    long newSlot = getSlot(hash, newValueDictId);
+    if (newValueDictId < valueToDictId._maxNumEntries) {
+      buffer.putLong(getSlotOffset(slotId), newSlot);
+    } else {
+      valueToDictId = resize(valueToDictId);
+      insert(valueToDictId, newSlot);
+      _valueToDict = valueToDictId;
     }
-    // Need a new buffer
-    IntBuffer buf = expand();
-    final int modulo = buf.capacity() / NUM_COLUMNS;
-    final int offsetInBuf = (hashVal % modulo) * NUM_COLUMNS;
-    for (int i = offsetInBuf; i < offsetInBuf + NUM_COLUMNS; i++) {
-      if (buf.get(i) == NULL_VALUE_INDEX) {
-        buf.put(i, newValueDictId);
-        _numEntries = newValueDictId + 1;
-        return newValueDictId;
-      }
-    }
-    overflowMap = _valueToDict.getOverflowMap();
-    overflowMap.put(value, newValueDictId);
     _numEntries = newValueDictId + 1;
     return newValueDictId;
   }
 
+  /**
+   * Returns the size of all the hash tables allocated so far. The tables replaced during resize are counted as well, as
+   * they are only released when the dictionary is closed.
+   */
   protected long getOffHeapMemUsed() {
-    ValueToDictId valueToDictId = _valueToDict;
-    long size = 0;
-    for (IntBuffer iBuf : valueToDictId._iBufList) {
-      size = size + iBuf.capacity() * Integer.BYTES;
-    }
-    return size;
+    return _offHeapMemUsed;
   }
 
-  public int getNumberOfHeapBuffersUsed() {
-    ValueToDictId valueToDictId = _valueToDict;
-    return valueToDictId._iBufList.size();
+  public int getNumResizes() {
+    return _numResizes;
   }
 
-  public int getNumberOfOveflowValues() {
-    ValueToDictId valueToDictId = _valueToDict;
-    return valueToDictId._overflowMap.size();
+  public int getNumSlots() {
+    return _valueToDict.getNumSlots();
+  }
+
+  private static int hash(Object value) {
+    return HashCommon.mix(value.hashCode());
+  }
+
+  private static long getSlot(int hash, int dictId) {
+    return ((long) hash << 32) | (dictId + 1);
+  }
+
+  private static int getHash(long slot) {
+    return (int) (slot >>> 32);
+  }
+
+  private static int getDictIdFromSlot(long slot) {
+    return (int) slot - 1;
+  }
+
+  /**
+   * Checks the dictionary ID part only, so that a slot being written concurrently (hash set but not yet the dictionary
+   * ID) is treated as empty by the readers.
+   */
+  private static boolean isEmpty(long slot) {
+    return (int) slot == 0;
+  }
+
+  private static long getSlotOffset(int slotId) {
+    return (long) slotId * Long.BYTES;
   }
 
   protected abstract void setValue(int dictId, Object value, byte[] serializedValue);
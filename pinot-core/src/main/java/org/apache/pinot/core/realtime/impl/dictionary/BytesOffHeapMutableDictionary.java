@@ -41,14 +41,13 @@ public class BytesOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
    * Constructor the class.
    *
    * @param estimatedCardinality Estimated cardinality for the column.
-   * @param maxOverflowHashSize Max size for in-memory hash.
    * @param memoryManager Memory manager
    * @param allocationContext Context for allocation
    * @param avgLength Estimated average Length of entry
    */
-  public BytesOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowHashSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext, int avgLength) {
-    super(estimatedCardinality, maxOverflowHashSize, memoryManager, allocationContext);
+  public BytesOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext, int avgLength) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     _byteStore = new MutableOffHeapByteArrayStore(memoryManager, allocationContext, estimatedCardinality, avgLength);
   }
 
@@ -35,9 +35,9 @@ public class DoubleOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
   private volatile double _min = Double.MAX_VALUE;
   private volatile double _max = Double.MIN_VALUE;
 
-  public DoubleOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
-    super(estimatedCardinality, maxOverflowSize, memoryManager, allocationContext);
+  public DoubleOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     int initialEntryCount = nearestPowerOf2(estimatedCardinality);
     _dictIdToValue = new FixedByteSingleColumnSingleValueReaderWriter(initialEntryCount, Double.BYTES, memoryManager,
         allocationContext);
@@ -35,9 +35,9 @@ public class FloatOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
   private volatile float _min = Float.MAX_VALUE;
   private volatile float _max = Float.MIN_VALUE;
 
-  public FloatOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
-    super(estimatedCardinality, maxOverflowSize, memoryManager, allocationContext);
+  public FloatOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     int initialEntryCount = nearestPowerOf2(estimatedCardinality);
     _dictIdToValue = new FixedByteSingleColumnSingleValueReaderWriter(initialEntryCount, Float.BYTES, memoryManager,
         allocationContext);
@@ -35,9 +35,9 @@ public class IntOffHeapMutableDictionary extends BaseOffHeapMutableDictionary {
   private volatile int _min = Integer.MAX_VALUE;
   private volatile int _max = Integer.MIN_VALUE;
 
-  public IntOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
-    super(estimatedCardinality, maxOverflowSize, memoryManager, allocationContext);
+  public IntOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     int initialEntryCount = nearestPowerOf2(estimatedCardinality);
     _dictIdToValue = new FixedByteSingleColumnSingleValueReaderWriter(initialEntryCount, Integer.BYTES, memoryManager,
         allocationContext);
@@ -35,9 +35,9 @@ public class LongOffHeapMutableDictionary extends BaseOffHeapMutableDictionary {
   private volatile long _min = Long.MAX_VALUE;
   private volatile long _max = Long.MIN_VALUE;
 
-  public LongOffHeapMutableDictionary(int estimatedCardinality, int overflowSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
-    super(estimatedCardinality, overflowSize, memoryManager, allocationContext);
+  public LongOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     int initialEntryCount = nearestPowerOf2(estimatedCardinality);
     _dictIdToValue = new FixedByteSingleColumnSingleValueReaderWriter(initialEntryCount, Long.BYTES, memoryManager,
         allocationContext);
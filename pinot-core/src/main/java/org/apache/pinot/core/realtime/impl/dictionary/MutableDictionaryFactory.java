@@ -29,22 +29,21 @@ public class MutableDictionaryFactory {
   public static BaseMutableDictionary getMutableDictionary(FieldSpec.DataType dataType, boolean isOffHeapAllocation,
       PinotDataBufferMemoryManager memoryManager, int avgLength, int cardinality, String allocationContext) {
     if (isOffHeapAllocation) {
-      // OnHeap allocation
-      int maxOverflowSize = cardinality / 10;
+      // OffHeap allocation
       switch (dataType) {
         case INT:
-          return new IntOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext);
+          return new IntOffHeapMutableDictionary(cardinality, memoryManager, allocationContext);
         case LONG:
-          return new LongOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext);
+          return new LongOffHeapMutableDictionary(cardinality, memoryManager, allocationContext);
         case FLOAT:
-          return new FloatOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext);
+          return new FloatOffHeapMutableDictionary(cardinality, memoryManager, allocationContext);
         case DOUBLE:
-          return new DoubleOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext);
+          return new DoubleOffHeapMutableDictionary(cardinality, memoryManager, allocationContext);
         case STRING:
-          return new StringOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext,
+          return new StringOffHeapMutableDictionary(cardinality, memoryManager, allocationContext,
               avgLength);
         case BYTES:
-          return new BytesOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext,
+          return new BytesOffHeapMutableDictionary(cardinality, memoryManager, allocationContext,
               avgLength);
         default:
           throw new UnsupportedOperationException();
@@ -37,9 +37,9 @@ public class StringOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
   private volatile String _min = null;
   private volatile String _max = null;
 
-  public StringOffHeapMutableDictionary(int estimatedCardinality, int maxOverflowHashSize,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext, int avgStringLen) {
-    super(estimatedCardinality, maxOverflowHashSize, memoryManager, allocationContext);
+  public StringOffHeapMutableDictionary(int estimatedCardinality, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext, int avgStringLen) {
+    super(estimatedCardinality, memoryManager, allocationContext);
     _byteStore = new MutableOffHeapByteArrayStore(memoryManager, allocationContext, estimatedCardinality, avgStringLen);
   }
 
@@ -47,7 +47,7 @@ public class StringOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
   public int index(Object value) {
     String stringValue = (String) value;
     updateMinMax(stringValue);
-    return indexValue(stringValue, StringUtil.encodeUtf8(stringValue));
+    return indexValue(stringValue, null);
   }
 
   @Override
@@ -57,7 +57,7 @@ public class StringOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
     for (int i = 0; i < numValues; i++) {
       String stringValue = (String) values[i];
       updateMinMax(stringValue);
-      dictIds[i] = indexValue(stringValue, StringUtil.encodeUtf8(stringValue));
+      dictIds[i] = indexValue(stringValue, null);
     }
     return dictIds;
   }
@@ -127,7 +127,7 @@ public class StringOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
 
   @Override
   public int indexOf(String stringValue) {
-    return getDictId(stringValue, StringUtil.encodeUtf8(stringValue));
+    return getDictId(stringValue, null);
   }
 
   @Override
@@ -167,12 +167,13 @@ public class StringOffHeapMutableDictionary extends BaseOffHeapMutableDictionary
 
   @Override
   protected void setValue(int dictId, Object value, byte[] serializedValue) {
-    _byteStore.add(serializedValue);
+    // Only encode the string when it is added, lookups compare the string with the stored bytes in place
+    _byteStore.add(StringUtil.encodeUtf8((String) value));
   }
 
   @Override
   protected boolean equalsValueAt(int dictId, Object value, byte[] serializedValue) {
-    return _byteStore.equalsValueAt(serializedValue, dictId);
+    return _byteStore.equalsValueAt((String) value, dictId);
   }
 
   @Override
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.sortedindex;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.utils.BytesUtils;
+import org.apache.pinot.common.utils.primitive.ByteArray;
+import org.apache.pinot.core.common.predicate.RangePredicate;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
+
+
+/**
+ * Real-time sorted index for the sorted column of a consuming segment.
+ * <p>The mutable dictionary assigns dictionary ids in arrival order, so unlike the immutable dictionary, the values
+ * of a dictionary id range are not in a value range. This index keeps the dictionary ids ordered by value in a skip
+ * list, so that the dictionary ids in a value range can be looked up in logarithmic time instead of scanning the
+ * whole dictionary. Combined with the inverted index of the column, it gives the document ids in a value range.
+ * <p>This class is thread-safe for single writer multiple readers.
+ */
+public class RealtimeSortedIndex {
+  private final BaseMutableDictionary _dictionary;
+  private final DataType _dataType;
+  private final ConcurrentSkipListMap<Comparable, Integer> _valueToDictIdMap = new ConcurrentSkipListMap<>();
+
+  private int _numDictIds = 0;
+
+  public RealtimeSortedIndex(BaseMutableDictionary dictionary, DataType dataType) {
+    _dictionary = dictionary;
+    _dataType = dataType;
+  }
+
+  /**
+   * Adds the dictionary id into the index if it is not added yet. Should be called right after indexing the value into
+   * the dictionary, before the document becomes queryable.
+   */
+  public void add(int dictId) {
+    // NOTE: dictionary ids are assigned sequentially, so only need to add the dictionary id when it is a new one
+    if (dictId == _numDictIds) {
+      Object value = _dictionary.get(dictId);
+      if (_dataType == DataType.BYTES) {
+        _valueToDictIdMap.put(new ByteArray((byte[]) value), dictId);
+      } else {
+        _valueToDictIdMap.put((Comparable) value, dictId);
+      }
+      _numDictIds++;
+    }
+  }
+
+  /**
+   * Returns a set of dictIds in the given value range, where lower/upper bound can be "*" which indicates unbounded
+   * range. Same semantic as {@link BaseMutableDictionary#getDictIdsInRange(String, String, boolean, boolean)}.
+   */
+  public IntSet getDictIdsInRange(String lower, String upper, boolean includeLower, boolean includeUpper) {
+    NavigableMap<Comparable, Integer> subMap;
+    if (lower.equals(RangePredicate.UNBOUNDED)) {
+      if (upper.equals(RangePredicate.UNBOUNDED)) {
+        subMap = _valueToDictIdMap;
+      } else {
+        subMap = _valueToDictIdMap.headMap(parseValue(upper), includeUpper);
+      }
+    } else {
+      Comparable lowerValue = parseValue(lower);
+      if (upper.equals(RangePredicate.UNBOUNDED)) {
+        subMap = _valueToDictIdMap.tailMap(lowerValue, includeLower);
+      } else {
+        Comparable upperValue = parseValue(upper);
+        int compareResult = lowerValue.compareTo(upperValue);
+        if (compareResult > 0 || (compareResult == 0 && !(includeLower && includeUpper))) {
+          return IntSets.EMPTY_SET;
+        }
+        subMap = _valueToDictIdMap.subMap(lowerValue, includeLower, upperValue, includeUpper);
+      }
+    }
+
+    IntSet dictIds = new IntOpenHashSet();
+    for (int dictId : subMap.values()) {
+      dictIds.add(dictId);
+    }
+    return dictIds;
+  }
+
+  /**
+   * Returns all the dictionary ids in the index sorted by their values.
+   */
+  public int[] getSortedDictIds() {
+    IntArrayList sortedDictIds = new IntArrayList(_numDictIds);
+    for (int dictId : _valueToDictIdMap.values()) {
+      sortedDictIds.add(dictId);
+    }
+    return sortedDictIds.toIntArray();
+  }
+
+  private Comparable parseValue(String stringValue) {
+    switch (_dataType) {
+      case INT:
+        return Integer.valueOf(stringValue);
+      case LONG:
+        return Long.valueOf(stringValue);
+      case FLOAT:
+        return Float.valueOf(stringValue);
+      case DOUBLE:
+        return Double.valueOf(stringValue);
+      case STRING:
+        return stringValue;
+      case BYTES:
+        return new ByteArray(BytesUtils.toBytes(stringValue));
+      default:
+        throw new UnsupportedOperationException("Unsupported data type: " + _dataType);
+    }
+  }
+}
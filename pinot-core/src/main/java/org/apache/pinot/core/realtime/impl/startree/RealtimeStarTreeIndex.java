@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.startree;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.apache.pinot.core.startree.v2.StarTreeV2;
+import org.apache.pinot.core.startree.v2.StarTreeV2Metadata;
+import org.apache.pinot.core.startree.v2.builder.OnHeapSingleTreeBuilder;
+import org.apache.pinot.core.startree.v2.builder.StarTreeIndexCombiner;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
+import org.apache.pinot.core.startree.v2.store.StarTreeLoaderUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.pinot.core.startree.v2.StarTreeV2Constants.INDEX_FILE_NAME;
+import static org.apache.pinot.core.startree.v2.StarTreeV2Constants.STAR_TREE_TEMP_DIR;
+import static org.apache.pinot.core.startree.v2.store.StarTreeIndexMapUtils.IndexKey;
+import static org.apache.pinot.core.startree.v2.store.StarTreeIndexMapUtils.IndexValue;
+
+
+/**
+ * Star-trees (V2) of a consuming segment.
+ * <p>Once the configured number of documents have been indexed since the last build, these documents are sealed, and
+ * a star-tree is built on them for each builder config. Queries can solve the sealed documents with these small
+ * star-trees (one per sealed document range), and only scan the documents indexed after them.
+ * <p>The star-trees are built by the consuming thread right after indexing a document, so that the dictionaries do not
+ * change during the build. The consuming thread is stalled during the build, which is tracked by the
+ * {@link ServerTimer#REALTIME_STAR_TREE_BUILD_TIME_MS} timer. Queries read the star-trees from an immutable
+ * {@link Snapshot}, so this class is thread-safe for single writer multiple readers.
+ * <p>The star-trees are loaded into buffers allocated from the memory manager of the segment, so that they are counted
+ * in the memory used by the consuming segment (e.g. for the flush threshold), and released with the segment.
+ */
+@ThreadSafe
+public class RealtimeStarTreeIndex {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeStarTreeIndex.class);
+
+  private final IndexSegment _segment;
+  private final List<StarTreeV2BuilderConfig> _builderConfigs;
+  private final int _numDocsPerTree;
+  private final File _tempDir;
+  private final PinotDataBufferMemoryManager _memoryManager;
+  private final ServerMetrics _serverMetrics;
+
+  // Only accessed by the consuming thread
+  private boolean _buildFailed = false;
+
+  private volatile Snapshot _snapshot = new Snapshot(Collections.emptyList(), 0);
+
+  /**
+   * Constructor for the realtime star-tree index.
+   *
+   * @param segment Consuming segment (all star-tree dimensions must be single-value with dictionary)
+   * @param builderConfigs Star-tree builder configs
+   * @param numDocsPerTree Number of documents to seal for each star-tree
+   * @param tempDir Directory for the temporary files during the build
+   * @param memoryManager Memory manager of the consuming segment to allocate the star-tree buffers from
+   * @param serverMetrics Server metrics, or {@code null} if not tracked
+   */
+  public RealtimeStarTreeIndex(IndexSegment segment, List<StarTreeV2BuilderConfig> builderConfigs, int numDocsPerTree,
+      File tempDir, PinotDataBufferMemoryManager memoryManager, @Nullable ServerMetrics serverMetrics) {
+    _segment = segment;
+    _builderConfigs = builderConfigs;
+    _numDocsPerTree = numDocsPerTree;
+    _tempDir = tempDir;
+    _memoryManager = memoryManager;
+    _serverMetrics = serverMetrics;
+  }
+
+  /**
+   * Builds the star-trees on the documents indexed since the last build if there are enough of them. Should only be
+   * called by the consuming thread after indexing a document.
+   *
+   * @param numDocsIndexed Number of documents indexed in the segment
+   */
+  public void onDocIndexed(int numDocsIndexed) {
+    Snapshot snapshot = _snapshot;
+    int startDocId = snapshot._numSealedDocs;
+    int numDocs = numDocsIndexed - startDocId;
+    if (_buildFailed || numDocs < _numDocsPerTree) {
+      return;
+    }
+
+    long startTime = System.currentTimeMillis();
+    try {
+      List<StarTreeV2> starTrees = buildStarTrees(startDocId, numDocs);
+      List<List<StarTreeV2>> sealedStarTrees = new ArrayList<>(snapshot._starTrees.size() + 1);
+      sealedStarTrees.addAll(snapshot._starTrees);
+      sealedStarTrees.add(starTrees);
+      _snapshot = new Snapshot(sealedStarTrees, numDocsIndexed);
+      LOGGER.debug("Built star-trees on documents [{}, {}) of segment: {} in {}ms", startDocId, numDocsIndexed,
+          _segment.getSegmentName(), System.currentTimeMillis() - startTime);
+    } catch (Exception e) {
+      // Keep serving queries with the star-trees already built, and scan the rest of the documents
+      LOGGER.error("Caught exception while building star-trees on documents [{}, {}) of segment: {}, stop building "
+          + "star-trees for the segment", startDocId, numDocsIndexed, _segment.getSegmentName(), e);
+      _buildFailed = true;
+    }
+    if (_serverMetrics != null) {
+      _serverMetrics.addTimedTableValue(_segment.getSegmentMetadata().getTableName(),
+          ServerTimer.REALTIME_STAR_TREE_BUILD_TIME_MS, System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Returns the current snapshot of the star-trees.
+   */
+  public Snapshot getSnapshot() {
+    return _snapshot;
+  }
+
+  private List<StarTreeV2> buildStarTrees(int startDocId, int numDocs)
+      throws Exception {
+    File indexDir = new File(_tempDir, _segment.getSegmentName() + "_" + startDocId);
+    File starTreeIndexDir = new File(indexDir, STAR_TREE_TEMP_DIR);
+    FileUtils.forceMkdir(starTreeIndexDir);
+    try {
+      // NOTE: The dictionaries do not change during the build because the star-trees are built by the consuming thread
+      Map<String, Integer> cardinalityMap = new HashMap<>();
+      for (StarTreeV2BuilderConfig builderConfig : _builderConfigs) {
+        for (String dimension : builderConfig.getDimensionsSplitOrder()) {
+          cardinalityMap.put(dimension, _segment.getDataSource(dimension).getDictionary().length());
+        }
+      }
+
+      int numStarTrees = _builderConfigs.size();
+      List<Map<IndexKey, IndexValue>> indexMapList = new ArrayList<>(numStarTrees);
+      List<StarTreeV2Metadata> starTreeMetadataList = new ArrayList<>(numStarTrees);
+      File indexFile = new File(indexDir, INDEX_FILE_NAME);
+      try (StarTreeIndexCombiner indexCombiner = new StarTreeIndexCombiner(indexFile)) {
+        for (StarTreeV2BuilderConfig builderConfig : _builderConfigs) {
+          Configuration metadataProperties = new BaseConfiguration();
+          try (OnHeapSingleTreeBuilder builder = new OnHeapSingleTreeBuilder(builderConfig, starTreeIndexDir, _segment,
+              startDocId, numDocs, metadataProperties)) {
+            builder.build();
+          }
+          indexMapList.add(indexCombiner.combine(builderConfig, starTreeIndexDir));
+          starTreeMetadataList.add(new StarTreeV2Metadata(metadataProperties));
+        }
+      }
+
+      // Load the index file into memory so that the temporary files can be removed
+      long indexFileLength = indexFile.length();
+      String allocationContext = _segment.getSegmentName() + ":" + INDEX_FILE_NAME + "_" + startDocId;
+      PinotDataBuffer buffer = _memoryManager.allocate(indexFileLength, allocationContext);
+      buffer.readFrom(0, indexFile, 0, indexFileLength);
+      PinotDataBuffer dataBuffer = buffer.view(0, indexFileLength, ByteOrder.LITTLE_ENDIAN);
+      return StarTreeLoaderUtils
+          .loadStarTreeV2(dataBuffer, indexMapList, starTreeMetadataList, _segment, cardinalityMap);
+    } finally {
+      FileUtils.deleteQuietly(indexDir);
+    }
+  }
+
+  /**
+   * Immutable snapshot of the star-trees of the consuming segment.
+   */
+  public static class Snapshot {
+    private final List<List<StarTreeV2>> _starTrees;
+    private final int _numSealedDocs;
+
+    private Snapshot(List<List<StarTreeV2>> starTrees, int numSealedDocs) {
+      _starTrees = starTrees;
+      _numSealedDocs = numSealedDocs;
+    }
+
+    /**
+     * Returns the star-trees for each sealed document range in document order, where each element contains one
+     * star-tree for each builder config in config order.
+     */
+    public List<List<StarTreeV2>> getStarTrees() {
+      return _starTrees;
+    }
+
+    /**
+     * Returns the number of sealed documents, i.e. documents [0, numSealedDocs) are covered by the star-trees.
+     */
+    public int getNumSealedDocs() {
+      return _numSealedDocs;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.upsert;
+
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Upsert metadata of a stream partition of a LLC realtime table.
+ *
+ * Keeps track of the location (segment sequence number and document id) of the latest record for each primary key,
+ * and the {@link ValidDocIds} of each segment of the partition. Records are ordered by their location, i.e. by the
+ * order in which they were consumed from the stream, so the result is the same regardless of the order in which the
+ * segments are loaded.
+ * <p>The location is packed into a primitive long (sequence number in the higher 32 bits, document id in the lower 32
+ * bits) to keep the per-key overhead low.
+ * <p>The primary keys pointing to each segment are also indexed per segment, so that removing a segment only visits
+ * its own primary keys instead of scanning the whole map while holding the lock. The per segment sets reference the
+ * same {@link PrimaryKey} objects as the map, so the keys are not copied.
+ */
+@ThreadSafe
+public class PartitionUpsertMetadataManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionUpsertMetadataManager.class);
+  private static final long NO_LOCATION = -1L;
+
+  private final String _tableNameWithType;
+  private final int _partitionId;
+  private final Object2LongOpenHashMap<PrimaryKey> _primaryKeyToLocationMap = new Object2LongOpenHashMap<>();
+  private final Map<Integer, ValidDocIds> _sequenceNumberToValidDocIdsMap = new HashMap<>();
+  private final Map<Integer, ObjectOpenHashSet<PrimaryKey>> _sequenceNumberToPrimaryKeysMap = new HashMap<>();
+
+  public PartitionUpsertMetadataManager(String tableNameWithType, int partitionId) {
+    _tableNameWithType = tableNameWithType;
+    _partitionId = partitionId;
+    _primaryKeyToLocationMap.defaultReturnValue(NO_LOCATION);
+  }
+
+  /**
+   * Registers the valid document ids of a consuming segment before its records are added.
+   * <p>If a segment with the same sequence number exists (e.g. consumption restarted), the primary keys pointing to it
+   * are dropped, and will be re-added as the records are consumed again.
+   */
+  public synchronized void addSegment(int sequenceNumber, ValidDocIds validDocIds) {
+    if (_sequenceNumberToValidDocIdsMap.put(sequenceNumber, validDocIds) != null) {
+      int numRemovedKeys = removeLocations(sequenceNumber);
+      LOGGER.info("Replaced segment with sequence number: {} for table: {}, partition: {}, removed {} primary keys",
+          sequenceNumber, _tableNameWithType, _partitionId, numRemovedKeys);
+    }
+  }
+
+  /**
+   * Adds a segment with all its records, where the primary key of the record with document id i is primaryKeys[i].
+   * <p>When a segment is replaced (e.g. consuming segment replaced by the committed one), the locations pointing to the
+   * previous version of the segment are swapped in place to the new version, so that the primary keys are never missing
+   * from the metadata. The primary keys only present in the previous version are removed afterwards.
+   */
+  public synchronized void addSegment(int sequenceNumber, ValidDocIds validDocIds, PrimaryKey[] primaryKeys) {
+    ValidDocIds previousValidDocIds = _sequenceNumberToValidDocIdsMap.put(sequenceNumber, validDocIds);
+    ObjectOpenHashSet<PrimaryKey> previousPrimaryKeys =
+        previousValidDocIds != null ? _sequenceNumberToPrimaryKeysMap.remove(sequenceNumber) : null;
+    int numDocs = primaryKeys.length;
+    for (int docId = 0; docId < numDocs; docId++) {
+      PrimaryKey primaryKey = primaryKeys[docId];
+      if (previousPrimaryKeys != null && previousPrimaryKeys.remove(primaryKey)) {
+        // The primary key points to the previous version of the segment
+        _primaryKeyToLocationMap.put(primaryKey, getLocation(sequenceNumber, docId));
+        _sequenceNumberToPrimaryKeysMap.computeIfAbsent(sequenceNumber, k -> new ObjectOpenHashSet<>())
+            .add(primaryKey);
+        validDocIds.add(docId);
+      } else {
+        updateRecord(primaryKey, sequenceNumber, docId, validDocIds);
+      }
+    }
+    if (previousPrimaryKeys != null) {
+      int numRemovedKeys = removeLocations(sequenceNumber, previousPrimaryKeys);
+      LOGGER.info("Replaced segment with sequence number: {} for table: {}, partition: {}, removed {} primary keys",
+          sequenceNumber, _tableNameWithType, _partitionId, numRemovedKeys);
+    }
+  }
+
+  /**
+   * Removes a segment and all the primary keys pointing to it.
+   */
+  public synchronized void removeSegment(int sequenceNumber) {
+    if (_sequenceNumberToValidDocIdsMap.remove(sequenceNumber) != null) {
+      int numRemovedKeys = removeLocations(sequenceNumber);
+      LOGGER.info("Removed segment with sequence number: {} for table: {}, partition: {}, removed {} primary keys",
+          sequenceNumber, _tableNameWithType, _partitionId, numRemovedKeys);
+    }
+  }
+
+  /**
+   * Adds a record to the metadata. The record becomes valid if it is newer than the current record with the same
+   * primary key (which is then invalidated), and is ignored otherwise.
+   */
+  public synchronized void updateRecord(PrimaryKey primaryKey, int sequenceNumber, int docId) {
+    ValidDocIds validDocIds = _sequenceNumberToValidDocIdsMap.get(sequenceNumber);
+    if (validDocIds == null) {
+      // Segment already removed
+      return;
+    }
+    updateRecord(primaryKey, sequenceNumber, docId, validDocIds);
+  }
+
+  private void updateRecord(PrimaryKey primaryKey, int sequenceNumber, int docId, ValidDocIds validDocIds) {
+    long location = getLocation(sequenceNumber, docId);
+    long currentLocation = _primaryKeyToLocationMap.getLong(primaryKey);
+    if (location < currentLocation) {
+      // Newer record already exists
+      return;
+    }
+    if (currentLocation != NO_LOCATION && currentLocation != location) {
+      int currentSequenceNumber = getSequenceNumber(currentLocation);
+      ValidDocIds currentValidDocIds = _sequenceNumberToValidDocIdsMap.get(currentSequenceNumber);
+      if (currentValidDocIds != null) {
+        currentValidDocIds.remove(getDocId(currentLocation));
+      }
+      if (currentSequenceNumber != sequenceNumber) {
+        ObjectOpenHashSet<PrimaryKey> currentPrimaryKeys = _sequenceNumberToPrimaryKeysMap.get(currentSequenceNumber);
+        if (currentPrimaryKeys != null) {
+          currentPrimaryKeys.remove(primaryKey);
+        }
+      }
+    }
+    _primaryKeyToLocationMap.put(primaryKey, location);
+    _sequenceNumberToPrimaryKeysMap.computeIfAbsent(sequenceNumber, k -> new ObjectOpenHashSet<>()).add(primaryKey);
+    validDocIds.add(docId);
+  }
+
+  @VisibleForTesting
+  synchronized int getNumPrimaryKeys() {
+    return _primaryKeyToLocationMap.size();
+  }
+
+  private int removeLocations(int sequenceNumber) {
+    ObjectOpenHashSet<PrimaryKey> primaryKeys = _sequenceNumberToPrimaryKeysMap.remove(sequenceNumber);
+    return primaryKeys != null ? removeLocations(sequenceNumber, primaryKeys) : 0;
+  }
+
+  private int removeLocations(int sequenceNumber, ObjectOpenHashSet<PrimaryKey> primaryKeys) {
+    int numRemovedKeys = 0;
+    for (PrimaryKey primaryKey : primaryKeys) {
+      if (getSequenceNumber(_primaryKeyToLocationMap.getLong(primaryKey)) == sequenceNumber) {
+        _primaryKeyToLocationMap.removeLong(primaryKey);
+        numRemovedKeys++;
+      }
+    }
+    return numRemovedKeys;
+  }
+
+  private static long getLocation(int sequenceNumber, int docId) {
+    return ((long) sequenceNumber << 32) | (docId & 0xFFFFFFFFL);
+  }
+
+  private static int getSequenceNumber(long location) {
+    return (int) (location >>> 32);
+  }
+
+  private static int getDocId(long location) {
+    return (int) location;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.upsert;
+
+import java.util.Arrays;
+import org.apache.pinot.common.utils.primitive.ByteArray;
+
+
+/**
+ * Primary key of a record in an upsert table, made of the values of the primary key columns.
+ * <p>BYTES values are wrapped into {@link ByteArray} so that keys can be compared by content.
+ */
+public final class PrimaryKey {
+  private final Object[] _values;
+  private final int _hashCode;
+
+  public PrimaryKey(Object[] values) {
+    int numValues = values.length;
+    for (int i = 0; i < numValues; i++) {
+      if (values[i] instanceof byte[]) {
+        values[i] = new ByteArray((byte[]) values[i]);
+      }
+    }
+    _values = values;
+    _hashCode = Arrays.hashCode(values);
+  }
+
+  public Object[] getValues() {
+    return _values;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof PrimaryKey)) {
+      return false;
+    }
+    PrimaryKey that = (PrimaryKey) o;
+    return _hashCode == that._hashCode && Arrays.equals(_values, that._values);
+  }
+
+  @Override
+  public int hashCode() {
+    return _hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(_values);
+  }
+}
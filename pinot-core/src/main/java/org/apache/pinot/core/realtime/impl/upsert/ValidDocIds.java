@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.upsert;
+
+import javax.annotation.concurrent.ThreadSafe;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Bitmap of the valid (latest for their primary key) document ids of a segment in an upsert table.
+ * <p>Documents are added when indexed/loaded and removed when a newer record with the same primary key shows up.
+ * <p>The snapshot is cached until the next update, so that the queries on a segment that is not being updated share
+ * the same snapshot instead of cloning the bitmap for each query.
+ */
+@ThreadSafe
+public class ValidDocIds {
+  private final MutableRoaringBitmap _mutableRoaringBitmap = new MutableRoaringBitmap();
+  private volatile ImmutableRoaringBitmap _snapshot;
+
+  public synchronized void add(int docId) {
+    _mutableRoaringBitmap.add(docId);
+    _snapshot = null;
+  }
+
+  public synchronized void remove(int docId) {
+    _mutableRoaringBitmap.remove(docId);
+    _snapshot = null;
+  }
+
+  /**
+   * Returns a snapshot of the valid document ids, which won't be affected by the following updates.
+   */
+  public ImmutableRoaringBitmap getSnapshot() {
+    ImmutableRoaringBitmap snapshot = _snapshot;
+    if (snapshot != null) {
+      return snapshot;
+    }
+    synchronized (this) {
+      if (_snapshot == null) {
+        _snapshot = _mutableRoaringBitmap.clone();
+      }
+      return _snapshot;
+    }
+  }
+}
@@ -426,7 +426,8 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     if (starTreeV2BuilderConfigs != null && !starTreeV2BuilderConfigs.isEmpty()) {
       MultipleTreesBuilder.BuildMode buildMode =
           config.isOnHeap() ? MultipleTreesBuilder.BuildMode.ON_HEAP : MultipleTreesBuilder.BuildMode.OFF_HEAP;
-      new MultipleTreesBuilder(starTreeV2BuilderConfigs, indexDir, buildMode).build();
+      new MultipleTreesBuilder(starTreeV2BuilderConfigs, indexDir, buildMode, config.getStarTreeV2NumBuildThreads())
+          .build();
     }
   }
 
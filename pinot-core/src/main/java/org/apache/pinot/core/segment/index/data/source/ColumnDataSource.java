@@ -150,6 +150,10 @@ public final class ColumnDataSource extends DataSource {
     return _metadata;
   }
 
+  public DataFileReader getForwardIndex() {
+    return _forwardIndex;
+  }
+
   @Override
   public Dictionary getDictionary() {
     return _dictionary;
@@ -18,7 +18,9 @@
  */
 package org.apache.pinot.core.startree;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
@@ -27,9 +29,13 @@ import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.FilterOperator;
 import org.apache.pinot.common.request.transform.TransformExpressionTree;
 import org.apache.pinot.common.utils.request.FilterQueryTree;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.indexsegment.mutable.MutableSegment;
 import org.apache.pinot.core.query.aggregation.AggregationFunctionContext;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.realtime.impl.startree.RealtimeStarTreeIndex;
 import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
+import org.apache.pinot.core.startree.v2.StarTreeV2;
 import org.apache.pinot.core.startree.v2.StarTreeV2Metadata;
 
 
@@ -55,6 +61,9 @@ public class StarTreeUtils {
    *   <li>All predicate columns and group-by columns are star-tree dimensions</li>
    *   <li>All predicates are conjoined by AND</li>
    * </ul>
+   * <p>Transform expressions are allowed in group-by and predicates as long as their columns are star-tree dimensions.
+   * A predicate on an expression must only contain one dimension, and is evaluated over the star-tree records with
+   * the value of that dimension (so that the transform function does not need to be monotonic).
    */
   public static boolean isFitForStarTree(@Nonnull StarTreeV2Metadata starTreeV2Metadata,
       @Nonnull Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs,
@@ -83,8 +92,47 @@ public class StarTreeUtils {
   }
 
   /**
-   * Helper method to check whether all columns in predicates are star-tree dimensions, and all predicates are
-   * conjoined by AND.
+   * Returns the snapshot of the star-trees built on the sealed documents of the given segment, or {@code null} if the
+   * segment is not a consuming segment or does not have any star-tree built yet.
+   */
+  @Nullable
+  public static RealtimeStarTreeIndex.Snapshot getRealtimeStarTreeSnapshot(@Nonnull IndexSegment indexSegment) {
+    if (indexSegment instanceof MutableSegment) {
+      RealtimeStarTreeIndex.Snapshot snapshot = ((MutableSegment) indexSegment).getStarTreeSnapshot();
+      if (snapshot != null && snapshot.getNumSealedDocs() > 0) {
+        return snapshot;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the star-trees (one for each sealed document range) of the first star-tree config that is fit for the
+   * query, or {@code null} if none of them is fit for the query.
+   */
+  @Nullable
+  public static List<StarTreeV2> getFitRealtimeStarTrees(@Nonnull RealtimeStarTreeIndex.Snapshot snapshot,
+      @Nonnull Set<AggregationFunctionColumnPair> aggregationFunctionColumnPairs,
+      @Nullable Set<TransformExpressionTree> groupByExpressions, @Nullable FilterQueryTree rootFilterNode) {
+    List<List<StarTreeV2>> sealedStarTrees = snapshot.getStarTrees();
+    List<StarTreeV2> firstStarTrees = sealedStarTrees.get(0);
+    int numStarTrees = firstStarTrees.size();
+    for (int i = 0; i < numStarTrees; i++) {
+      if (isFitForStarTree(firstStarTrees.get(i).getMetadata(), aggregationFunctionColumnPairs, groupByExpressions,
+          rootFilterNode)) {
+        List<StarTreeV2> fitStarTrees = new ArrayList<>(sealedStarTrees.size());
+        for (List<StarTreeV2> starTrees : sealedStarTrees) {
+          fitStarTrees.add(starTrees.get(i));
+        }
+        return fitStarTrees;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Helper method to check whether all columns in predicates are star-tree dimensions, all predicates on expressions
+   * only contain one column, and all predicates are conjoined by AND.
    */
   private static boolean checkFilters(@Nonnull FilterQueryTree filterNode, @Nonnull Set<String> starTreeDimensions) {
     FilterOperator operator = filterNode.getOperator();
@@ -99,10 +147,26 @@ public class StarTreeUtils {
       }
       return true;
     }
+    TransformExpressionTree expression = filterNode.getExpression();
+    if (expression.getExpressionType() == TransformExpressionTree.ExpressionType.FUNCTION) {
+      String dimension = getExpressionDimension(expression);
+      return dimension != null && starTreeDimensions.contains(dimension);
+    }
     String column = filterNode.getColumn();
     return starTreeDimensions.contains(column);
   }
 
+  /**
+   * Returns the only column in the given expression, or {@code null} if the expression contains zero or multiple
+   * columns.
+   */
+  @Nullable
+  public static String getExpressionDimension(@Nonnull TransformExpressionTree expression) {
+    Set<String> columns = new HashSet<>();
+    expression.getColumns(columns);
+    return columns.size() == 1 ? columns.iterator().next() : null;
+  }
+
   /**
    * Creates a {@link AggregationFunctionContext} from the given context but replace the column with the function-column
    * pair.
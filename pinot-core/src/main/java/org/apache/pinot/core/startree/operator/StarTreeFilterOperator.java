@@ -34,6 +34,7 @@ import java.util.Queue;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
 import org.apache.pinot.common.utils.request.FilterQueryTree;
 import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.common.Predicate;
@@ -42,11 +43,13 @@ import org.apache.pinot.core.operator.blocks.FilterBlock;
 import org.apache.pinot.core.operator.filter.BaseFilterOperator;
 import org.apache.pinot.core.operator.filter.BitmapBasedFilterOperator;
 import org.apache.pinot.core.operator.filter.EmptyFilterOperator;
+import org.apache.pinot.core.operator.filter.ExpressionFilterOperator;
 import org.apache.pinot.core.operator.filter.FilterOperatorUtils;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
 import org.apache.pinot.core.startree.StarTree;
 import org.apache.pinot.core.startree.StarTreeNode;
+import org.apache.pinot.core.startree.StarTreeUtils;
 import org.apache.pinot.core.startree.v2.StarTreeV2;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
@@ -82,6 +85,10 @@ import org.roaringbitmap.buffer.MutableRoaringBitmap;
  *     For each remaining predicate columns, use the list of {@link PredicateEvaluator}s to generate separate
  *     {@link BaseFilterOperator}s for it
  *   </li>
+ *   <li>
+ *     For predicates on transform expressions of a dimension, traverse the dimension like a group-by column, and use
+ *     {@link ExpressionFilterOperator}s to evaluate them over the matching documents
+ *   </li>
  *   <li>Conjoin all {@link BaseFilterOperator}s with AND if we have multiple of them</li>
  * </ul>
  */
@@ -129,6 +136,8 @@ public class StarTreeFilterOperator extends BaseFilterOperator {
   private final Map<String, List<PredicateEvaluator>> _predicateEvaluatorsMap;
   // Map from column to matching dictionary ids
   private final Map<String, IntSet> _matchingDictIdsMap;
+  // Map from dimension to the filters on expressions of it, which are evaluated over the matching star-tree records
+  private final Map<String, List<FilterQueryTree>> _expressionFiltersMap;
 
   private final Map<String, String> _debugOptions;
   boolean _resultEmpty = false;
@@ -136,12 +145,13 @@ public class StarTreeFilterOperator extends BaseFilterOperator {
   public StarTreeFilterOperator(StarTreeV2 starTreeV2, @Nullable FilterQueryTree rootFilterNode,
       @Nullable Set<String> groupByColumns, @Nullable Map<String, String> debugOptions) {
     _starTreeV2 = starTreeV2;
-    _groupByColumns = groupByColumns != null ? new HashSet<>(groupByColumns) : Collections.emptySet();
+    _groupByColumns = groupByColumns != null ? new HashSet<>(groupByColumns) : new HashSet<>();
     _debugOptions = debugOptions;
 
     if (rootFilterNode != null) {
       _predicateEvaluatorsMap = new HashMap<>();
       _matchingDictIdsMap = new HashMap<>();
+      _expressionFiltersMap = new HashMap<>();
 
       // Process the filter tree and get a map from column to a list of predicates applied to it
       Map<String, List<Predicate>> predicatesMap = getPredicatesMap(rootFilterNode);
@@ -170,16 +180,22 @@ public class StarTreeFilterOperator extends BaseFilterOperator {
         }
       }
 
+      // Treat dimensions with expression filters as group-by columns because we cannot use star node for them (the
+      // expressions need the dimension values from the star-tree records)
+      _groupByColumns.addAll(_expressionFiltersMap.keySet());
+
       // Remove columns with predicates from group-by columns because we won't use star node for that column
       _groupByColumns.removeAll(_predicateEvaluatorsMap.keySet());
     } else {
       _predicateEvaluatorsMap = Collections.emptyMap();
       _matchingDictIdsMap = Collections.emptyMap();
+      _expressionFiltersMap = Collections.emptyMap();
     }
   }
 
   /**
-   * Helper method to process the filter tree and get a map from column to a list of predicates applied to it.
+   * Helper method to process the filter tree and get a map from column to a list of predicates applied to it. Filters
+   * on expressions are put into the expression filters map instead.
    */
   private Map<String, List<Predicate>> getPredicatesMap(@Nonnull FilterQueryTree rootFilterNode) {
     Map<String, List<Predicate>> predicatesMap = new HashMap<>();
@@ -190,9 +206,15 @@ public class StarTreeFilterOperator extends BaseFilterOperator {
       FilterQueryTree filterNode = queue.remove();
       List<FilterQueryTree> children = filterNode.getChildren();
       if (children == null) {
-        String columnName = filterNode.getColumn();
-        Predicate predicate = Predicate.newPredicate(filterNode);
-        predicatesMap.computeIfAbsent(columnName, k -> new ArrayList<>()).add(predicate);
+        TransformExpressionTree expression = filterNode.getExpression();
+        if (expression.getExpressionType() == TransformExpressionTree.ExpressionType.FUNCTION) {
+          _expressionFiltersMap.computeIfAbsent(StarTreeUtils.getExpressionDimension(expression),
+              k -> new ArrayList<>()).add(filterNode);
+        } else {
+          String columnName = filterNode.getColumn();
+          Predicate predicate = Predicate.newPredicate(filterNode);
+          predicatesMap.computeIfAbsent(columnName, k -> new ArrayList<>()).add(predicate);
+        }
       } else {
         queue.addAll(children);
       }
@@ -257,6 +279,16 @@ public class StarTreeFilterOperator extends BaseFilterOperator {
       }
     }
 
+    // Add expression filters
+    for (Map.Entry<String, List<FilterQueryTree>> entry : _expressionFiltersMap.entrySet()) {
+      String dimension = entry.getKey();
+      Map<String, DataSource> dataSourceMap = Collections.singletonMap(dimension, _starTreeV2.getDataSource(dimension));
+      for (FilterQueryTree filterNode : entry.getValue()) {
+        childFilterOperators.add(new ExpressionFilterOperator(dataSourceMap, numDocs, filterNode.getExpression(),
+            Predicate.newPredicate(filterNode)));
+      }
+    }
+
     return FilterOperatorUtils.getAndFilterOperator(childFilterOperators, numDocs, _debugOptions);
   }
 
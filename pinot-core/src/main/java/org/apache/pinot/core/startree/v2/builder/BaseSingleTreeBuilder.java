@@ -36,7 +36,7 @@ import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.core.data.aggregator.ValueAggregator;
 import org.apache.pinot.core.data.aggregator.ValueAggregatorFactory;
 import org.apache.pinot.core.data.readers.PinotSegmentColumnReader;
-import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.io.compression.ChunkCompressorFactory.CompressionType;
 import org.apache.pinot.core.segment.creator.SingleValueRawIndexCreator;
 import org.apache.pinot.core.segment.creator.impl.fwd.SingleValueFixedByteRawIndexCreator;
@@ -63,13 +63,19 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
 
   final StarTreeV2BuilderConfig _builderConfig;
   final File _outputDir;
-  final ImmutableSegment _segment;
+  final IndexSegment _segment;
+  // Range of the segment documents to build the star-tree on
+  final int _segmentStartDocId;
+  final int _numSegmentDocs;
   final Configuration _metadataProperties;
 
   final int _numDimensions;
   final String[] _dimensionsSplitOrder;
   final Set<Integer> _skipStarNodeCreationForDimensions;
   final PinotSegmentColumnReader[] _dimensionReaders;
+  // Whether the first dimension in the split order is the sorted column of the segment, in which case the segment
+  // records are already sorted on the first dimension
+  final boolean _firstDimensionSorted;
 
   final int _numMetrics;
   // Name of the function-column pairs
@@ -106,13 +112,17 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
    * @param builderConfig Builder config
    * @param outputDir Directory to store the index files
    * @param segment Index segment
+   * @param segmentStartDocId Id of the first segment document to build the star-tree on
+   * @param numSegmentDocs Number of segment documents to build the star-tree on
    * @param metadataProperties Segment metadata properties
    */
-  BaseSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir, ImmutableSegment segment,
-      Configuration metadataProperties) {
+  BaseSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir, IndexSegment segment,
+      int segmentStartDocId, int numSegmentDocs, Configuration metadataProperties) {
     _builderConfig = builderConfig;
     _outputDir = outputDir;
     _segment = segment;
+    _segmentStartDocId = segmentStartDocId;
+    _numSegmentDocs = numSegmentDocs;
     _metadataProperties = metadataProperties;
 
     List<String> dimensionsSplitOrder = builderConfig.getDimensionsSplitOrder();
@@ -131,6 +141,8 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
       Preconditions
           .checkState(_dimensionReaders[i].hasDictionary(), "Dimension: " + dimension + " does not have dictionary");
     }
+    _firstDimensionSorted =
+        _numDimensions > 0 && segment.getDataSource(_dimensionsSplitOrder[0]).getDataSourceMetadata().isSorted();
 
     Set<AggregationFunctionColumnPair> functionColumnPairs = builderConfig.getFunctionColumnPairs();
     _numMetrics = functionColumnPairs.size();
@@ -219,13 +231,13 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
   /**
    * Reads the dimensions for a record of the given document Id in the segment.
    *
-   * @param docId Document Id
+   * @param docId Document Id (relative to the first segment document to build the star-tree on)
    * @return Dimensions (dictionary Ids) for a segment record
    */
   int[] getSegmentRecordDimensions(int docId) {
     int[] dimensions = new int[_numDimensions];
     for (int i = 0; i < _numDimensions; i++) {
-      dimensions[i] = _dimensionReaders[i].getDictionaryId(docId);
+      dimensions[i] = _dimensionReaders[i].getDictionaryId(_segmentStartDocId + docId);
     }
     return dimensions;
   }
@@ -233,7 +245,7 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
   /**
    * Reads a record of the given document Id in the segment.
    *
-   * @param docId Document Id
+   * @param docId Document Id (relative to the first segment document to build the star-tree on)
    * @return Segment record
    */
   Record getSegmentRecord(int docId) {
@@ -242,7 +254,7 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
     for (int i = 0; i < _numMetrics; i++) {
       // Ignore the column for COUNT aggregation function
       if (_metricReaders[i] != null) {
-        metrics[i] = _metricReaders[i].readSV(docId, _metricDataTypes[i]);
+        metrics[i] = _metricReaders[i].readSV(_segmentStartDocId + docId, _metricDataTypes[i]);
       }
     }
     return new Record(dimensions, metrics);
@@ -306,7 +318,7 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
     long startTime = System.currentTimeMillis();
     LOGGER.info("Starting building star-tree with config: {}", _builderConfig);
 
-    int numSegmentRecords = _segment.getSegmentMetadata().getTotalRawDocs();
+    int numSegmentRecords = _numSegmentDocs;
     Iterator<Record> recordIterator = sortAndAggregateSegmentRecords(numSegmentRecords);
     while (recordIterator.hasNext()) {
       appendToStarTree(recordIterator.next());
@@ -462,7 +474,7 @@ abstract class BaseSingleTreeBuilder implements SingleTreeBuilder {
         new SingleValueUnsortedForwardIndexCreator[_numDimensions];
     for (int i = 0; i < _numDimensions; i++) {
       String dimension = _dimensionsSplitOrder[i];
-      int cardinality = _segment.getDictionary(dimension).length();
+      int cardinality = _segment.getDataSource(dimension).getDictionary().length();
       dimensionIndexCreators[i] =
           new SingleValueUnsortedForwardIndexCreator(_outputDir, _dimensionsSplitOrder[i], cardinality, _numDocs);
     }
@@ -22,8 +22,14 @@ import com.google.common.base.Preconditions;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
@@ -48,6 +54,8 @@ import static org.apache.pinot.core.startree.v2.store.StarTreeIndexMapUtils.Inde
  * The {@code MultipleTreesBuilder} class is the top level star-tree builder that takes a list of
  * {@link StarTreeV2BuilderConfig}s and builds multiple star-trees with the given {@link BuildMode} ({@code ON_HEAP} or
  * {@code OFF_HEAP}).
+ * <p>The star-trees are built one at a time by default, or in parallel (bounded by the given number of threads), each
+ * of them into a separate temporary directory, and then combined in the order of the builder configs.
  * <p>The indexes for all star-trees will be stored in a single index file, and there will be an extra index map file to
  * mark the offset and size of each index in the index file.
  */
@@ -59,13 +67,14 @@ public class MultipleTreesBuilder {
   private final File _segmentDirectory;
   private final PropertiesConfiguration _metadataProperties;
   private final BuildMode _buildMode;
+  private final int _numThreads;
 
   public enum BuildMode {
     ON_HEAP, OFF_HEAP
   }
 
   /**
-   * Constructor for the multiple star-trees builder.
+   * Constructor for the multiple star-trees builder, which builds the star-trees one at a time.
    *
    * @param builderConfigs List of builder configs
    * @param indexDir Index directory
@@ -73,6 +82,20 @@ public class MultipleTreesBuilder {
    */
   public MultipleTreesBuilder(List<StarTreeV2BuilderConfig> builderConfigs, File indexDir, BuildMode buildMode)
       throws Exception {
+    this(builderConfigs, indexDir, buildMode, 1);
+  }
+
+  /**
+   * Constructor for the multiple star-trees builder.
+   *
+   * @param builderConfigs List of builder configs
+   * @param indexDir Index directory
+   * @param buildMode Build mode (ON_HEAP or OFF_HEAP)
+   * @param numThreads Max number of star-trees to build in parallel
+   */
+  public MultipleTreesBuilder(List<StarTreeV2BuilderConfig> builderConfigs, File indexDir, BuildMode buildMode,
+      int numThreads)
+      throws Exception {
     _builderConfigs = builderConfigs;
     _segmentDirectory = SegmentDirectoryPaths.findSegmentDirectory(indexDir);
     _segment = ImmutableSegmentLoader.load(indexDir, ReadMode.mmap);
@@ -84,6 +107,7 @@ public class MultipleTreesBuilder {
     Preconditions
         .checkState(!_metadataProperties.containsKey(MetadataKey.STAR_TREE_COUNT), "Star-tree v2 already exists");
     _buildMode = buildMode;
+    _numThreads = numThreads;
   }
 
   /**
@@ -103,15 +127,53 @@ public class MultipleTreesBuilder {
       _metadataProperties.addProperty(MetadataKey.STAR_TREE_COUNT, numStarTrees);
       List<Map<IndexKey, IndexValue>> indexMaps = new ArrayList<>(numStarTrees);
 
-      // Build all star-trees
+      // Build all star-trees, each of them into its own directory and metadata properties so that they can be built
+      // in parallel
+      File[] outputDirs = new File[numStarTrees];
+      Configuration[] starTreeMetadataProperties = new Configuration[numStarTrees];
+      for (int i = 0; i < numStarTrees; i++) {
+        outputDirs[i] = new File(starTreeIndexDir, Integer.toString(i));
+        FileUtils.forceMkdir(outputDirs[i]);
+        starTreeMetadataProperties[i] = new BaseConfiguration();
+      }
+      int numThreads = Math.min(_numThreads, numStarTrees);
+      if (numThreads <= 1) {
+        for (int i = 0; i < numStarTrees; i++) {
+          buildStarTree(_builderConfigs.get(i), outputDirs[i], starTreeMetadataProperties[i]);
+        }
+      } else {
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+          List<Future<Void>> futures = new ArrayList<>(numStarTrees);
+          for (int i = 0; i < numStarTrees; i++) {
+            StarTreeV2BuilderConfig builderConfig = _builderConfigs.get(i);
+            File outputDir = outputDirs[i];
+            Configuration metadataProperties = starTreeMetadataProperties[i];
+            futures.add(executorService.submit(() -> {
+              buildStarTree(builderConfig, outputDir, metadataProperties);
+              return null;
+            }));
+          }
+          for (Future<Void> future : futures) {
+            future.get();
+          }
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+          executorService.shutdownNow();
+        }
+      }
+
+      // Combine the indexes and metadata in the order of the builder configs
       for (int i = 0; i < numStarTrees; i++) {
-        StarTreeV2BuilderConfig builderConfig = _builderConfigs.get(i);
         Configuration metadataProperties = _metadataProperties.subset(MetadataKey.getStarTreePrefix(i));
-        try (SingleTreeBuilder singleTreeBuilder = getSingleTreeBuilder(builderConfig, starTreeIndexDir, _segment,
-            metadataProperties, _buildMode)) {
-          singleTreeBuilder.build();
+        Iterator<String> keys = starTreeMetadataProperties[i].getKeys();
+        while (keys.hasNext()) {
+          String key = keys.next();
+          metadataProperties.setProperty(key, starTreeMetadataProperties[i].getProperty(key));
         }
-        indexMaps.add(indexCombiner.combine(builderConfig, starTreeIndexDir));
+        indexMaps.add(indexCombiner.combine(_builderConfigs.get(i), outputDirs[i]));
       }
 
       // Save the metadata and index maps to the disk
@@ -123,6 +185,14 @@ public class MultipleTreesBuilder {
     LOGGER.info("Finished building {} star-trees in {}ms", numStarTrees, System.currentTimeMillis() - startTime);
   }
 
+  private void buildStarTree(StarTreeV2BuilderConfig builderConfig, File outputDir, Configuration metadataProperties)
+      throws Exception {
+    try (SingleTreeBuilder singleTreeBuilder = getSingleTreeBuilder(builderConfig, outputDir, _segment,
+        metadataProperties, _buildMode)) {
+      singleTreeBuilder.build();
+    }
+  }
+
   private static SingleTreeBuilder getSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir,
       ImmutableSegment segment, Configuration metadataProperties, BuildMode buildMode)
       throws FileNotFoundException {
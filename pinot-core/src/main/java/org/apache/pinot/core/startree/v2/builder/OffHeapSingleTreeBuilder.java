@@ -19,6 +19,8 @@
 package org.apache.pinot.core.startree.v2.builder;
 
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -66,7 +68,7 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
   public OffHeapSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir, ImmutableSegment segment,
       Configuration metadataProperties)
       throws FileNotFoundException {
-    super(builderConfig, outputDir, segment, metadataProperties);
+    super(builderConfig, outputDir, segment, 0, segment.getSegmentMetadata().getTotalRawDocs(), metadataProperties);
     _segmentRecordFile = new File(_outputDir, SEGMENT_RECORD_FILE_NAME);
     Preconditions
         .checkState(!_segmentRecordFile.exists(), "Segment record file: " + _segmentRecordFile + " already exists");
@@ -216,10 +218,12 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
           offset += Integer.BYTES;
         }
       }
-      it.unimi.dsi.fastutil.Arrays.quickSort(0, numDocs, (i1, i2) -> {
+      // Records are already sorted on the first dimension if it is the sorted column, skip comparing it
+      int startDimensionId = _firstDimensionSorted ? 1 : 0;
+      IntComparator comparator = (i1, i2) -> {
         long offset1 = (long) sortedDocIds[i1] * _numDimensions * Integer.BYTES;
         long offset2 = (long) sortedDocIds[i2] * _numDimensions * Integer.BYTES;
-        for (int i = 0; i < _numDimensions; i++) {
+        for (int i = startDimensionId; i < _numDimensions; i++) {
           int dimension1 = dataBuffer.getInt(offset1 + i * Integer.BYTES);
           int dimension2 = dataBuffer.getInt(offset2 + i * Integer.BYTES);
           if (dimension1 != dimension2) {
@@ -227,11 +231,30 @@ public class OffHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
           }
         }
         return 0;
-      }, (i1, i2) -> {
+      };
+      Swapper swapper = (i1, i2) -> {
         int temp = sortedDocIds[i1];
         sortedDocIds[i1] = sortedDocIds[i2];
         sortedDocIds[i2] = temp;
-      });
+      };
+      if (_firstDimensionSorted) {
+        // Only sort the records with the same first dimension value
+        long recordSize = (long) _numDimensions * Integer.BYTES;
+        int startIndex = 0;
+        while (startIndex < numDocs) {
+          int firstDimension = dataBuffer.getInt(startIndex * recordSize);
+          int endIndex = startIndex + 1;
+          while (endIndex < numDocs && dataBuffer.getInt(endIndex * recordSize) == firstDimension) {
+            endIndex++;
+          }
+          if (endIndex - startIndex > 1) {
+            it.unimi.dsi.fastutil.Arrays.quickSort(startIndex, endIndex, comparator, swapper);
+          }
+          startIndex = endIndex;
+        }
+      } else {
+        it.unimi.dsi.fastutil.Arrays.parallelQuickSort(0, numDocs, comparator, swapper);
+      }
     } finally {
       dataBuffer.close();
       if (_segmentRecordFile.exists()) {
@@ -21,9 +21,11 @@ package org.apache.pinot.core.startree.v2.builder;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.configuration.Configuration;
+import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 
 import static org.apache.pinot.core.startree.v2.StarTreeV2Constants.STAR_IN_FORWARD_INDEX;
@@ -45,7 +47,23 @@ public class OnHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
    */
   public OnHeapSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir, ImmutableSegment segment,
       Configuration metadataProperties) {
-    super(builderConfig, outputDir, segment, metadataProperties);
+    super(builderConfig, outputDir, segment, 0, segment.getSegmentMetadata().getTotalRawDocs(), metadataProperties);
+  }
+
+  /**
+   * Constructor for the on-heap single star-tree builder on a range of the segment documents (e.g. the sealed
+   * documents of a consuming segment).
+   *
+   * @param builderConfig Builder config
+   * @param outputDir Directory to store the index files
+   * @param segment Index segment
+   * @param segmentStartDocId Id of the first segment document to build the star-tree on
+   * @param numSegmentDocs Number of segment documents to build the star-tree on
+   * @param metadataProperties Star-tree metadata properties
+   */
+  public OnHeapSingleTreeBuilder(StarTreeV2BuilderConfig builderConfig, File outputDir, IndexSegment segment,
+      int segmentStartDocId, int numSegmentDocs, Configuration metadataProperties) {
+    super(builderConfig, outputDir, segment, segmentStartDocId, numSegmentDocs, metadataProperties);
   }
 
   @Override
@@ -69,14 +87,24 @@ public class OnHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
     for (int i = 0; i < numDocs; i++) {
       records[i] = getSegmentRecord(i);
     }
-    Arrays.sort(records, (o1, o2) -> {
-      for (int i = 0; i < _numDimensions; i++) {
-        if (o1._dimensions[i] != o2._dimensions[i]) {
-          return o1._dimensions[i] - o2._dimensions[i];
+    if (_firstDimensionSorted) {
+      // Records are already sorted on the first dimension, only sort the records with the same first dimension value
+      Comparator<Record> comparator = getRecordComparator(1);
+      int startIndex = 0;
+      while (startIndex < numDocs) {
+        int firstDimension = records[startIndex]._dimensions[0];
+        int endIndex = startIndex + 1;
+        while (endIndex < numDocs && records[endIndex]._dimensions[0] == firstDimension) {
+          endIndex++;
+        }
+        if (endIndex - startIndex > 1) {
+          Arrays.sort(records, startIndex, endIndex, comparator);
         }
+        startIndex = endIndex;
       }
-      return 0;
-    });
+    } else {
+      Arrays.parallelSort(records, getRecordComparator(0));
+    }
     return new Iterator<Record>() {
       boolean _hasNext = true;
       Record _currentRecord = records[0];
@@ -105,6 +133,17 @@ public class OnHeapSingleTreeBuilder extends BaseSingleTreeBuilder {
     };
   }
 
+  private Comparator<Record> getRecordComparator(int startDimensionId) {
+    return (o1, o2) -> {
+      for (int i = startDimensionId; i < _numDimensions; i++) {
+        if (o1._dimensions[i] != o2._dimensions[i]) {
+          return o1._dimensions[i] - o2._dimensions[i];
+        }
+      }
+      return 0;
+    };
+  }
+
   @Override
   Iterator<Record> generateRecordsForStarNode(int startDocId, int endDocId, int dimensionId) {
     int numDocs = endDocId - startDocId;
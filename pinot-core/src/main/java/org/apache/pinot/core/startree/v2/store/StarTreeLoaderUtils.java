@@ -26,12 +26,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 import org.apache.pinot.common.data.MetricFieldSpec;
 import org.apache.pinot.common.data.Schema;
 import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.common.segment.StarTreeMetadata;
 import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.data.aggregator.ValueAggregatorFactory;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.io.util.PinotDataBitSet;
 import org.apache.pinot.core.segment.index.ColumnMetadata;
 import org.apache.pinot.core.segment.index.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.index.column.ColumnIndexContainer;
@@ -64,60 +67,98 @@ public class StarTreeLoaderUtils {
     List<StarTreeV2> starTrees = new ArrayList<>(numStarTrees);
 
     for (int i = 0; i < numStarTrees; i++) {
-      Map<IndexKey, IndexValue> indexMap = indexMapList.get(i);
+      StarTreeV2Metadata starTreeMetadata = starTreeMetadataList.get(i);
+      int numDocs = starTreeMetadata.getNumDocs();
+      starTrees.add(loadStarTreeV2(dataBuffer, indexMapList.get(i), starTreeMetadata, (dimension, forwardIndex) -> {
+        ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(dimension);
+        return new StarTreeDimensionDataSource(forwardIndex, dimension, numDocs, columnMetadata.getDataType(),
+            indexContainerMap.get(dimension).getDictionary(), columnMetadata.getBitsPerElement(),
+            columnMetadata.getCardinality());
+      }));
+    }
 
-      // Load star-tree index
-      IndexValue indexValue = indexMap.get(STAR_TREE_INDEX_KEY);
-      long start = indexValue._offset;
-      long end = start + indexValue._size;
-      StarTree starTree = new OffHeapStarTree(dataBuffer.view(start, end, ByteOrder.LITTLE_ENDIAN));
+    return starTrees;
+  }
+
+  /**
+   * Loads the star-trees built on a range of documents of a consuming segment. The star-tree dimensions share the
+   * dictionaries of the consuming segment.
+   *
+   * @param dataBuffer Data buffer of the combined star-tree indexes
+   * @param indexMapList Index maps of the star-trees
+   * @param starTreeMetadataList Metadata of the star-trees
+   * @param segment Consuming segment
+   * @param cardinalityMap Map from dimension to its dictionary cardinality when the star-trees were built
+   * @return List of star-trees
+   */
+  public static List<StarTreeV2> loadStarTreeV2(PinotDataBuffer dataBuffer,
+      List<Map<IndexKey, IndexValue>> indexMapList, List<StarTreeV2Metadata> starTreeMetadataList,
+      IndexSegment segment, Map<String, Integer> cardinalityMap) {
+    int numStarTrees = starTreeMetadataList.size();
+    List<StarTreeV2> starTrees = new ArrayList<>(numStarTrees);
 
+    for (int i = 0; i < numStarTrees; i++) {
       StarTreeV2Metadata starTreeMetadata = starTreeMetadataList.get(i);
       int numDocs = starTreeMetadata.getNumDocs();
-      Map<String, DataSource> dataSourceMap = new HashMap<>();
+      starTrees.add(loadStarTreeV2(dataBuffer, indexMapList.get(i), starTreeMetadata, (dimension, forwardIndex) -> {
+        DataSource dataSource = segment.getDataSource(dimension);
+        int cardinality = cardinalityMap.get(dimension);
+        return new StarTreeDimensionDataSource(forwardIndex, dimension, numDocs,
+            dataSource.getDataSourceMetadata().getDataType(), dataSource.getDictionary(),
+            PinotDataBitSet.getNumBitsPerValue(cardinality - 1), cardinality);
+      }));
+    }
 
-      // Load dimension forward indexes
-      for (String dimension : starTreeMetadata.getDimensionsSplitOrder()) {
-        indexValue = indexMap.get(new IndexKey(IndexType.FORWARD_INDEX, dimension));
-        start = indexValue._offset;
-        end = start + indexValue._size;
-        ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(dimension);
-        dataSourceMap.put(dimension,
-            new StarTreeDimensionDataSource(dataBuffer.view(start, end, ByteOrder.BIG_ENDIAN), dimension, numDocs,
-                columnMetadata.getDataType(), indexContainerMap.get(dimension).getDictionary(),
-                columnMetadata.getBitsPerElement(), columnMetadata.getCardinality()));
-      }
+    return starTrees;
+  }
 
-      // Load metric (function-column pair) forward indexes
-      for (AggregationFunctionColumnPair functionColumnPair : starTreeMetadata.getFunctionColumnPairs()) {
-        String metric = functionColumnPair.toColumnName();
-        indexValue = indexMap.get(new IndexKey(IndexType.FORWARD_INDEX, metric));
-        start = indexValue._offset;
-        end = start + indexValue._size;
-        dataSourceMap.put(metric,
-            new StarTreeMetricDataSource(dataBuffer.view(start, end, ByteOrder.BIG_ENDIAN), metric, numDocs,
-                ValueAggregatorFactory.getAggregatedValueType(functionColumnPair.getFunctionType())));
-      }
+  private static StarTreeV2 loadStarTreeV2(PinotDataBuffer dataBuffer, Map<IndexKey, IndexValue> indexMap,
+      StarTreeV2Metadata starTreeMetadata, BiFunction<String, PinotDataBuffer, DataSource> dimensionDataSourceCreator) {
+    // Load star-tree index
+    IndexValue indexValue = indexMap.get(STAR_TREE_INDEX_KEY);
+    long start = indexValue._offset;
+    long end = start + indexValue._size;
+    StarTree starTree = new OffHeapStarTree(dataBuffer.view(start, end, ByteOrder.LITTLE_ENDIAN));
+
+    int numDocs = starTreeMetadata.getNumDocs();
+    Map<String, DataSource> dataSourceMap = new HashMap<>();
+
+    // Load dimension forward indexes
+    for (String dimension : starTreeMetadata.getDimensionsSplitOrder()) {
+      indexValue = indexMap.get(new IndexKey(IndexType.FORWARD_INDEX, dimension));
+      start = indexValue._offset;
+      end = start + indexValue._size;
+      dataSourceMap.put(dimension,
+          dimensionDataSourceCreator.apply(dimension, dataBuffer.view(start, end, ByteOrder.BIG_ENDIAN)));
+    }
 
-      starTrees.add(new StarTreeV2() {
-        @Override
-        public StarTree getStarTree() {
-          return starTree;
-        }
+    // Load metric (function-column pair) forward indexes
+    for (AggregationFunctionColumnPair functionColumnPair : starTreeMetadata.getFunctionColumnPairs()) {
+      String metric = functionColumnPair.toColumnName();
+      indexValue = indexMap.get(new IndexKey(IndexType.FORWARD_INDEX, metric));
+      start = indexValue._offset;
+      end = start + indexValue._size;
+      dataSourceMap.put(metric,
+          new StarTreeMetricDataSource(dataBuffer.view(start, end, ByteOrder.BIG_ENDIAN), metric, numDocs,
+              ValueAggregatorFactory.getAggregatedValueType(functionColumnPair.getFunctionType())));
+    }
 
-        @Override
-        public StarTreeV2Metadata getMetadata() {
-          return starTreeMetadata;
-        }
+    return new StarTreeV2() {
+      @Override
+      public StarTree getStarTree() {
+        return starTree;
+      }
 
-        @Override
-        public DataSource getDataSource(String columnName) {
-          return dataSourceMap.get(columnName);
-        }
-      });
-    }
+      @Override
+      public StarTreeV2Metadata getMetadata() {
+        return starTreeMetadata;
+      }
 
-    return starTrees;
+      @Override
+      public DataSource getDataSource(String columnName) {
+        return dataSourceMap.get(columnName);
+      }
+    };
   }
 
   public static List<StarTreeV2> convertFromStarTreeV1(PinotDataBuffer dataBuffer, SegmentMetadataImpl segmentMetadata,
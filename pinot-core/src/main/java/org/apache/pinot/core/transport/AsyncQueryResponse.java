@@ -18,18 +18,26 @@
  */
 package org.apache.pinot.core.transport;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.request.InstanceRequest;
 import org.apache.pinot.common.utils.DataTable;
 
 
 /**
  * The {@code AsyncQueryResponse} class represents an asynchronous query response.
  * <p>Call {@link #getResponse()} to get the query response asynchronously.
+ * <p>The request to a server can be hedged, i.e. sent again to another server hosting the same segments. The first
+ * response received for the request is kept, and the other one is ignored.
  */
 @ThreadSafe
 public class AsyncQueryResponse {
@@ -37,10 +45,20 @@ public class AsyncQueryResponse {
   private final long _requestId;
   private final ConcurrentHashMap<Server, ServerResponse> _responseMap;
   private final CountDownLatch _countDownLatch;
+  private final long _startTimeMs;
   private final long _maxEndTimeMs;
+  private final ServerRoutingStats _serverRoutingStats;
+  // Map from the hedge server to the server whose request is hedged
+  private final Map<Server, Server> _hedgeServerMap = new ConcurrentHashMap<>();
+  // Servers whose request (or its hedged request) got the response
+  private final Set<Server> _respondedServers = ConcurrentHashMap.newKeySet();
+  // Hedge servers that responded before the server whose request is hedged
+  private final Set<Server> _hedgeServersResponded = ConcurrentHashMap.newKeySet();
+  private final Queue<Future> _hedgeFutures = new ConcurrentLinkedQueue<>();
+  private final Map<Server, InstanceRequest> _submittedRequestMap = new ConcurrentHashMap<>();
 
   public AsyncQueryResponse(QueryRouter queryRouter, long requestId, Set<Server> serversQueried, long startTimeMs,
-      long timeoutMs) {
+      long timeoutMs, @Nullable ServerRoutingStats serverRoutingStats) {
     _queryRouter = queryRouter;
     _requestId = requestId;
     int numServersQueried = serversQueried.size();
@@ -49,7 +67,9 @@ public class AsyncQueryResponse {
       _responseMap.put(server, new ServerResponse(startTimeMs));
     }
     _countDownLatch = new CountDownLatch(numServersQueried);
+    _startTimeMs = startTimeMs;
     _maxEndTimeMs = startTimeMs + timeoutMs;
+    _serverRoutingStats = serverRoutingStats;
   }
 
   /**
@@ -59,12 +79,83 @@ public class AsyncQueryResponse {
       throws InterruptedException {
     try {
       _countDownLatch.await(_maxEndTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-      return _responseMap;
+      if (_hedgeServerMap.isEmpty()) {
+        return _responseMap;
+      }
+      // Only keep one response for each hedged request
+      Map<Server, ServerResponse> responseMap = new HashMap<>(_responseMap);
+      for (Map.Entry<Server, Server> entry : _hedgeServerMap.entrySet()) {
+        Server hedgeServer = entry.getKey();
+        if (_hedgeServersResponded.contains(hedgeServer)) {
+          responseMap.remove(entry.getValue());
+        } else {
+          responseMap.remove(hedgeServer);
+        }
+      }
+      return responseMap;
     } finally {
+      for (Future hedgeFuture : _hedgeFutures) {
+        hedgeFuture.cancel(false);
+      }
       _queryRouter.markQueryDone(_requestId);
+      if (_serverRoutingStats != null) {
+        recordErrorsForUnfinishedRequests();
+      }
+      cancelUnfinishedRequests();
     }
   }
 
+  /**
+   * Cancels the requests that did not get the response (timed out, query failed, or the hedged request lost), so that
+   * the servers do not keep processing them.
+   */
+  private void cancelUnfinishedRequests() {
+    for (Map.Entry<Server, InstanceRequest> entry : _submittedRequestMap.entrySet()) {
+      Server server = entry.getKey();
+      if (_responseMap.get(server).getDataTable() == null) {
+        _queryRouter.cancelRequest(server, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Records an error for the servers that did not respond, so that the in-flight requests are accounted correctly. The
+   * request that lost to its hedged request (or the other way around) is not an error of the server, and is only
+   * removed from the in-flight requests.
+   */
+  private void recordErrorsForUnfinishedRequests() {
+    long currentTimeMs = System.currentTimeMillis();
+    for (Map.Entry<Server, ServerResponse> entry : _responseMap.entrySet()) {
+      Server server = entry.getKey();
+      ServerResponse serverResponse = entry.getValue();
+      long submitDelayMs = serverResponse.getSubmitDelayMs();
+      // Only count the requests submitted to the server
+      if (submitDelayMs >= 0 && serverResponse.markFinished()) {
+        Server hedgedServer = _hedgeServerMap.get(server);
+        if (_respondedServers.contains(hedgedServer != null ? hedgedServer : server)) {
+          _serverRoutingStats.recordRequestCancelled(server.getInstanceName());
+        } else {
+          long latencyMs = currentTimeMs - _startTimeMs - submitDelayMs;
+          _serverRoutingStats.recordError(server.getInstanceName(), latencyMs);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of hedged requests sent.
+   */
+  public int getNumHedgedRequests() {
+    return _hedgeServerMap.size();
+  }
+
+  /**
+   * Returns the number of hedged requests that responded before the original request.
+   */
+  public int getNumHedgedResponsesUsed() {
+    return _hedgeServersResponded.size();
+  }
+
   /**
    * Returns the statistics for the servers the query sent to.
    * <p>Should be called after calling {@link #getResponse()}.
@@ -78,13 +169,66 @@ public class AsyncQueryResponse {
     return stringBuilder.toString();
   }
 
-  void markRequestSubmitted(Server server) {
+  void markRequestSubmitted(Server server, InstanceRequest instanceRequest) {
     _responseMap.get(server).markRequestSubmitted();
+    _submittedRequestMap.put(server, instanceRequest);
+    if (_serverRoutingStats != null) {
+      _serverRoutingStats.recordRequestSubmitted(server.getInstanceName());
+    }
+  }
+
+  /**
+   * Returns the request submitted to the server, or {@code null} if no request is submitted.
+   */
+  @Nullable
+  InstanceRequest getSubmittedRequest(Server server) {
+    return _submittedRequestMap.get(server);
   }
 
   void receiveDataTable(Server server, DataTable dataTable, long responseSize, long deserializationTimeMs) {
-    _responseMap.get(server).receiveDataTable(dataTable, responseSize, deserializationTimeMs);
-    _countDownLatch.countDown();
+    ServerResponse serverResponse = _responseMap.get(server);
+    serverResponse.receiveDataTable(dataTable, responseSize, deserializationTimeMs);
+    if (_serverRoutingStats != null && serverResponse.markFinished()) {
+      _serverRoutingStats.recordResponse(server.getInstanceName(), serverResponse.getResponseDelayMs());
+    }
+    Server hedgedServer = _hedgeServerMap.get(server);
+    if (hedgedServer == null) {
+      if (_respondedServers.add(server)) {
+        _countDownLatch.countDown();
+      }
+    } else {
+      if (_respondedServers.add(hedgedServer)) {
+        _hedgeServersResponded.add(server);
+        _countDownLatch.countDown();
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if the request to the server still waits for the response.
+   */
+  boolean isWaitingForResponse(Server server) {
+    return _countDownLatch.getCount() > 0 && !_respondedServers.contains(server);
+  }
+
+  boolean containsServer(Server server) {
+    return _responseMap.containsKey(server);
+  }
+
+  /**
+   * Registers a hedged request for the given server to the hedge server, returns {@code false} if the hedge server is
+   * already queried.
+   */
+  boolean addHedgedRequest(Server server, Server hedgeServer) {
+    if (_responseMap.putIfAbsent(hedgeServer, new ServerResponse(_startTimeMs)) != null) {
+      return false;
+    }
+    _hedgeServerMap.put(hedgeServer, server);
+    return true;
+  }
+
+  void addHedgeFuture(Future hedgeFuture) {
+    _hedgeFutures.add(hedgeFuture);
   }
 
   void markQueryFailed() {
@@ -96,11 +240,12 @@ public class AsyncQueryResponse {
 
   /**
    * NOTE: the server might not be hit by the query. Only fail the query if the query was sent to the server and the
-   * server hasn't responded yet.
+   * server hasn't responded yet, and the request is not hedged (in which case the other server can still respond).
    */
   void markServerDown(Server server) {
     ServerResponse serverResponse = _responseMap.get(server);
-    if (serverResponse != null && serverResponse.getDataTable() == null) {
+    if (serverResponse != null && serverResponse.getDataTable() == null && !_hedgeServerMap.containsKey(server)
+        && !_hedgeServerMap.containsValue(server)) {
       markQueryFailed();
     }
   }
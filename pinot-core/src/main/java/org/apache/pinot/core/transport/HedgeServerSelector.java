@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.util.List;
+import org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
+
+
+/**
+ * The {@code HedgeServerSelector} provides the replicas a hedged request can be sent to when a server is slow to
+ * respond. It is only called when a request needs to be hedged, so the lookup does not slow down the other queries.
+ */
+public interface HedgeServerSelector {
+
+  /**
+   * Returns the instance names of the servers (other than the given one) hosting all the given segments of the given
+   * table type, or an empty list if there is no such server.
+   */
+  List<String> getHedgeServers(String instanceName, TableType tableType, List<String> segments);
+}
@@ -18,18 +18,25 @@
  */
 package org.apache.pinot.core.transport;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.InstanceRequest;
 import org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
 import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,26 +45,100 @@ import org.slf4j.LoggerFactory;
  * The {@code QueryRouter} class provides methods to route the query based on the routing table, and returns a
  * {@link AsyncQueryResponse} so that caller can handle the query response asynchronously.
  * <p>It works on {@link ServerChannels} which maintains only a single connection between the broker and each server.
+ * <p>When hedging is enabled, a server that has not responded after its 95th percentile latency gets its request sent
+ * again to another server hosting the same segments, and the first response is used. The hedged requests of each table
+ * are bounded by a ratio of the requests sent, so that a slow cluster is not overloaded with extra requests.
+ * <p>When query cancellation is enabled, the requests that have not finished when the query is done (timed out, failed
+ * or the hedged request lost) get cancelled on the servers.
+ * <p>When request templates are enabled, the queries are sent as templates registered once per server connection, and
+ * then only the template id and the filter values are sent for the queries of the same shape. If the server does not
+ * know the template, the full query is sent again.
  */
 @ThreadSafe
 public class QueryRouter {
   private static final Logger LOGGER = LoggerFactory.getLogger(QueryRouter.class);
+  private static final String UNKNOWN_REQUEST_TEMPLATE_EXCEPTION_KEY =
+      DataTable.EXCEPTION_METADATA_KEY + QueryException.UNKNOWN_REQUEST_TEMPLATE_ERROR_CODE;
 
   private final String _brokerId;
   private final BrokerMetrics _brokerMetrics;
   private final ServerChannels _serverChannels;
+  private final ServerRoutingStats _serverRoutingStats;
   private final ConcurrentHashMap<Long, AsyncQueryResponse> _asyncQueryResponseMap = new ConcurrentHashMap<>();
+  private final double _hedgeBudgetRatio;
+  private final long _minHedgeDelayMs;
+  private final ScheduledThreadPoolExecutor _hedgeExecutor;
+  private final ExecutorService _hedgeSendExecutor;
+  private final ConcurrentHashMap<String, HedgeBudget> _hedgeBudgetMap = new ConcurrentHashMap<>();
+  private final boolean _enableQueryCancellation;
+  private final boolean _enableRequestTemplates;
 
   public QueryRouter(String brokerId, BrokerMetrics brokerMetrics) {
+    this(brokerId, brokerMetrics, null);
+  }
+
+  /**
+   * @param serverRoutingStats Statistics of the servers to be updated with the query responses (for adaptive server
+   *                           selection), or {@code null} if not tracked
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, @Nullable ServerRoutingStats serverRoutingStats) {
+    this(brokerId, brokerMetrics, serverRoutingStats, 0, 0, false, false);
+  }
+
+  /**
+   * @param serverRoutingStats Statistics of the servers to be updated with the query responses, or {@code null} if not
+   *                           tracked (hedging requires the statistics)
+   * @param hedgeBudgetRatio Max ratio of hedged requests over the requests sent for each table, non-positive value
+   *                         disables hedging
+   * @param minHedgeDelayMs Min delay before sending a hedged request
+   * @param enableQueryCancellation Whether to cancel the requests that have not finished when the query is done
+   * @param enableRequestTemplates Whether to send the queries as request templates
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, @Nullable ServerRoutingStats serverRoutingStats,
+      double hedgeBudgetRatio, long minHedgeDelayMs, boolean enableQueryCancellation, boolean enableRequestTemplates) {
     _brokerId = brokerId;
     _brokerMetrics = brokerMetrics;
     _serverChannels = new ServerChannels(this, brokerMetrics);
+    _serverRoutingStats = serverRoutingStats;
+    _hedgeBudgetRatio = hedgeBudgetRatio;
+    _minHedgeDelayMs = minHedgeDelayMs;
+    if (serverRoutingStats != null && hedgeBudgetRatio > 0) {
+      LOGGER.info("Enabling hedged requests with budget ratio: {}, min hedge delay: {}ms", hedgeBudgetRatio,
+          minHedgeDelayMs);
+      _hedgeExecutor = new ScheduledThreadPoolExecutor(1,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hedge-timer-%d").build());
+      // Most of the hedges are cancelled because the server responded in time
+      _hedgeExecutor.setRemoveOnCancelPolicy(true);
+      // Sending the hedged request might block on connecting to the hedge server, so it is not done on the timer thread
+      // which would delay all the other hedges
+      _hedgeSendExecutor = Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hedge-sender-%d").build());
+    } else {
+      _hedgeExecutor = null;
+      _hedgeSendExecutor = null;
+    }
+    _enableQueryCancellation = enableQueryCancellation;
+    _enableRequestTemplates = enableRequestTemplates;
   }
 
   public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
       @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<String, List<String>> offlineRoutingTable,
       @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<String, List<String>> realtimeRoutingTable,
       long timeoutMs) {
+    return submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
+        realtimeRoutingTable, timeoutMs, null);
+  }
+
+  /**
+   * Submits the query to the servers based on the routing tables.
+   *
+   * @param hedgeServerSelector Selector of the servers to send the hedged requests to, or {@code null} to not hedge the
+   *                            requests
+   */
+  public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
+      @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<String, List<String>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<String, List<String>> realtimeRoutingTable,
+      long timeoutMs, @Nullable HedgeServerSelector hedgeServerSelector) {
     assert offlineBrokerRequest != null || realtimeBrokerRequest != null;
 
     // Build map from server to request based on the routing table
@@ -79,21 +160,57 @@ public class QueryRouter {
       }
     }
 
+    // Templates are shared by all the servers of the same table type
+    BrokerRequestTemplate offlineRequestTemplate = null;
+    BrokerRequestTemplate realtimeRequestTemplate = null;
+    if (_enableRequestTemplates) {
+      if (offlineBrokerRequest != null) {
+        offlineRequestTemplate = BrokerRequestTemplate.fromBrokerRequest(offlineBrokerRequest);
+      }
+      if (realtimeBrokerRequest != null) {
+        realtimeRequestTemplate = BrokerRequestTemplate.fromBrokerRequest(realtimeBrokerRequest);
+      }
+    }
+
     // Create the asynchronous query response with the request map
     AsyncQueryResponse asyncQueryResponse =
-        new AsyncQueryResponse(this, requestId, requestMap.keySet(), System.currentTimeMillis(), timeoutMs);
+        new AsyncQueryResponse(this, requestId, requestMap.keySet(), System.currentTimeMillis(), timeoutMs,
+            _serverRoutingStats);
     _asyncQueryResponseMap.put(requestId, asyncQueryResponse);
     for (Map.Entry<Server, InstanceRequest> entry : requestMap.entrySet()) {
       Server server = entry.getKey();
+      BrokerRequestTemplate requestTemplate =
+          server.getTableType() == TableType.OFFLINE ? offlineRequestTemplate : realtimeRequestTemplate;
       try {
-        _serverChannels.sendRequest(server, entry.getValue());
-        asyncQueryResponse.markRequestSubmitted(server);
+        _serverChannels.sendRequest(server, entry.getValue(), requestTemplate);
+        asyncQueryResponse.markRequestSubmitted(server, entry.getValue());
       } catch (Exception e) {
         LOGGER.error("Caught exception while sending request {} to server: {}, marking query failed", requestId, server,
             e);
         _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.REQUEST_SEND_EXCEPTIONS, 1);
         asyncQueryResponse.markQueryFailed();
-        break;
+        return asyncQueryResponse;
+      }
+    }
+
+    if (_hedgeExecutor != null && hedgeServerSelector != null) {
+      HedgeBudget hedgeBudget = _hedgeBudgetMap.computeIfAbsent(rawTableName, k -> new HedgeBudget());
+      hedgeBudget.recordRequests(requestMap.size());
+      for (Map.Entry<Server, InstanceRequest> entry : requestMap.entrySet()) {
+        Server server = entry.getKey();
+        // Do not hedge the request before getting enough responses from the server
+        long latencyP95Ms = _serverRoutingStats.getLatencyP95Ms(server.getInstanceName());
+        if (latencyP95Ms >= 0) {
+          long hedgeDelayMs = Math.max(latencyP95Ms, _minHedgeDelayMs);
+          if (hedgeDelayMs < timeoutMs) {
+            InstanceRequest instanceRequest = entry.getValue();
+            BrokerRequestTemplate requestTemplate =
+                server.getTableType() == TableType.OFFLINE ? offlineRequestTemplate : realtimeRequestTemplate;
+            asyncQueryResponse.addHedgeFuture(_hedgeExecutor.schedule(() -> _hedgeSendExecutor
+                    .execute(() -> hedgeRequest(asyncQueryResponse, server, instanceRequest, requestTemplate,
+                        hedgeServerSelector, hedgeBudget)), hedgeDelayMs, TimeUnit.MILLISECONDS));
+          }
+        }
       }
     }
 
@@ -101,19 +218,115 @@ public class QueryRouter {
   }
 
   public void shutDown() {
+    if (_hedgeExecutor != null) {
+      _hedgeExecutor.shutdownNow();
+      _hedgeSendExecutor.shutdownNow();
+    }
     _serverChannels.shutDown();
   }
 
+  /**
+   * Sends the request again to the best other server hosting the same segments if the server has not responded yet and
+   * the hedge budget of the table allows it.
+   */
+  private void hedgeRequest(AsyncQueryResponse asyncQueryResponse, Server server, InstanceRequest instanceRequest,
+      @Nullable BrokerRequestTemplate requestTemplate, HedgeServerSelector hedgeServerSelector,
+      HedgeBudget hedgeBudget) {
+    if (!asyncQueryResponse.isWaitingForResponse(server)) {
+      return;
+    }
+    List<String> hedgeInstanceNames =
+        hedgeServerSelector.getHedgeServers(server.getInstanceName(), server.getTableType(),
+            instanceRequest.getSearchSegments());
+    Server hedgeServer = null;
+    double minScore = Double.MAX_VALUE;
+    for (String hedgeInstanceName : hedgeInstanceNames) {
+      Server candidate = new Server(hedgeInstanceName, server.getTableType());
+      // Skip the servers already queried
+      if (asyncQueryResponse.containsServer(candidate)) {
+        continue;
+      }
+      double score = _serverRoutingStats.getScore(hedgeInstanceName);
+      if (score < minScore) {
+        hedgeServer = candidate;
+        minScore = score;
+      }
+    }
+    if (hedgeServer == null || !hedgeBudget.tryAcquire(_hedgeBudgetRatio)
+        || !asyncQueryResponse.addHedgedRequest(server, hedgeServer)) {
+      return;
+    }
+    try {
+      _serverChannels.sendRequest(hedgeServer, instanceRequest, requestTemplate);
+      asyncQueryResponse.markRequestSubmitted(hedgeServer, instanceRequest);
+    } catch (Exception e) {
+      // The original request can still get the response
+      LOGGER.warn("Caught exception while sending hedged request {} to server: {}", instanceRequest.getRequestId(),
+          hedgeServer, e);
+    }
+  }
+
+  /**
+   * Cancels the request on the server (if query cancellation is enabled), so that the server stops processing a query
+   * whose response is no longer needed. The cancel request is only sent if the connection to the server is still
+   * established.
+   */
+  void cancelRequest(Server server, InstanceRequest instanceRequest) {
+    if (!_enableQueryCancellation) {
+      return;
+    }
+    InstanceRequest cancelRequest = new InstanceRequest(instanceRequest.getRequestId(), instanceRequest.getQuery());
+    cancelRequest.setBrokerId(instanceRequest.getBrokerId());
+    cancelRequest.setCancel(true);
+    try {
+      if (_serverChannels.sendRequestIfConnected(server, cancelRequest)) {
+        _brokerMetrics.addMeteredGlobalValue(BrokerMeter.CANCELLED_SERVER_REQUESTS, 1);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while cancelling request {} on server: {}", instanceRequest.getRequestId(), server,
+          e);
+    }
+  }
+
   void receiveDataTable(Server server, DataTable dataTable, long responseSize, long deserializationTimeMs) {
     long requestId = Long.parseLong(dataTable.getMetadata().get(DataTable.REQUEST_ID_METADATA_KEY));
     AsyncQueryResponse asyncQueryResponse = _asyncQueryResponseMap.get(requestId);
 
     // Query future might be null if the query is already done (maybe due to failure)
     if (asyncQueryResponse != null) {
+      if (dataTable.getMetadata().containsKey(UNKNOWN_REQUEST_TEMPLATE_EXCEPTION_KEY) && resendWithoutTemplate(
+          asyncQueryResponse, server)) {
+        return;
+      }
       asyncQueryResponse.receiveDataTable(server, dataTable, responseSize, deserializationTimeMs);
     }
   }
 
+  /**
+   * Handles the server not knowing the request template (e.g. it failed to deserialize the request registering the
+   * template): removes the template so that the next query of the same shape registers it again, and sends the full
+   * query to the server instead.
+   *
+   * @return Whether the full query is sent
+   */
+  private boolean resendWithoutTemplate(AsyncQueryResponse asyncQueryResponse, Server server) {
+    InstanceRequest instanceRequest = asyncQueryResponse.getSubmittedRequest(server);
+    // Only send the full query once (when the template is still registered)
+    if (instanceRequest == null || !_serverChannels
+        .unregisterTemplate(server, BrokerRequestTemplate.fromBrokerRequest(instanceRequest.getQuery()))) {
+      return false;
+    }
+    _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_UNKNOWN, 1);
+    try {
+      // NOTE: this runs on the channel event loop, so do not try to reconnect
+      return _serverChannels.sendRequestIfConnected(server, instanceRequest);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while sending request {} without template to server: {}",
+          instanceRequest.getRequestId(), server, e);
+      return false;
+    }
+  }
+
   void markServerDown(Server server) {
     for (AsyncQueryResponse asyncQueryResponse : _asyncQueryResponseMap.values()) {
       asyncQueryResponse.markServerDown(server);
@@ -133,4 +346,32 @@ public class QueryRouter {
     instanceRequest.setBrokerId(_brokerId);
     return instanceRequest;
   }
+
+  /**
+   * Bounds the hedged requests of a table to a ratio of the requests sent. The counts are halved periodically so that
+   * the budget follows the recent traffic.
+   */
+  @ThreadSafe
+  private static class HedgeBudget {
+    static final long DECAY_NUM_REQUESTS = 10_000L;
+
+    long _numRequests;
+    long _numHedgedRequests;
+
+    synchronized void recordRequests(int numRequests) {
+      _numRequests += numRequests;
+      if (_numRequests >= DECAY_NUM_REQUESTS) {
+        _numRequests /= 2;
+        _numHedgedRequests /= 2;
+      }
+    }
+
+    synchronized boolean tryAcquire(double hedgeBudgetRatio) {
+      if (_numHedgedRequests + 1 > hedgeBudgetRatio * _numRequests) {
+        return false;
+      }
+      _numHedgedRequests++;
+      return true;
+    }
+  }
 }
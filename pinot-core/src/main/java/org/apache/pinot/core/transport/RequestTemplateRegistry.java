@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
+
+
+/**
+ * Request templates registered by the broker on a single server connection.
+ * <p>The registry is bounded with the same LRU policy as the server side, and it is accessed once for each templated
+ * request in the order the requests are sent on the connection, so both sides always evict the same templates.
+ */
+@NotThreadSafe
+public class RequestTemplateRegistry {
+  // Template -> template id, in access order
+  private final Map<BrokerRequest, Long> _templateIds =
+      new LinkedHashMap<BrokerRequest, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BrokerRequest, Long> eldest) {
+          return size() > BrokerRequestTemplate.MAX_NUM_TEMPLATES_PER_CONNECTION;
+        }
+      };
+  private long _nextTemplateId = 0;
+
+  /**
+   * Returns the id of the template if it is already registered, or {@code null} otherwise.
+   */
+  @Nullable
+  public Long getTemplateId(BrokerRequest template) {
+    return _templateIds.get(template);
+  }
+
+  /**
+   * Registers the template with a new id and returns the id.
+   */
+  public long register(BrokerRequest template) {
+    long templateId = _nextTemplateId++;
+    _templateIds.put(template, templateId);
+    return templateId;
+  }
+
+  /**
+   * Removes the template (e.g. the server does not know it), so that it is registered again with a new id next time.
+   *
+   * @return Whether the template was registered
+   */
+  public boolean unregister(BrokerRequest template) {
+    return _templateIds.remove(template) != null;
+  }
+
+  /**
+   * Removes all the templates (e.g. on reconnect). The ids are not reused.
+   */
+  public void clear() {
+    _templateIds.clear();
+  }
+
+  public int size() {
+    return _templateIds.size();
+  }
+}
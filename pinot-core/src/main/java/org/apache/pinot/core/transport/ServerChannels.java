@@ -19,46 +19,149 @@
 package org.apache.pinot.core.transport;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.ReferenceCountUtil;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.metrics.BrokerGauge;
 import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.InstanceRequest;
-import org.apache.thrift.TSerializer;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
+import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
  * The {@code ServerChannels} class manages the channels between broker to all the connected servers.
  * <p>There is only one channel between the broker and each connected server (we count OFFLINE and REALTIME as different
- * servers)
+ * servers), which is shared by all the queries to the server.
+ * <ul>
+ *   <li>The native epoll transport is used when available, otherwise falls back to the NIO transport.</li>
+ *   <li>Requests are serialized directly into pooled direct buffers (no intermediate byte array).</li>
+ *   <li>Flushes from concurrent queries to the same server are coalesced into fewer syscalls.</li>
+ *   <li>
+ *     When the bytes pending to be written to a server go above the high watermark, new requests to the server are
+ *     rejected until the pending bytes go below the low watermark, so that a server that does not read its requests
+ *     does not make the broker buffer unbounded data.
+ *   </li>
+ *   <li>
+ *     Optionally, the queries are sent as templates registered once per connection, followed by the template id and
+ *     the filter values only (see {@link BrokerRequestTemplate}).
+ *   </li>
+ * </ul>
  */
 @ThreadSafe
 public class ServerChannels {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServerChannels.class);
+
+  private static final boolean USE_NATIVE_TRANSPORT = Epoll.isAvailable();
+  private static final int WRITE_BUFFER_LOW_WATER_MARK = 4 * 1024 * 1024;
+  private static final int WRITE_BUFFER_HIGH_WATER_MARK = 16 * 1024 * 1024;
+  // Flush at least once every so many consolidated flushes to bound the latency
+  private static final int MAX_CONSOLIDATED_FLUSHES = 256;
+  // Placeholder for the required query field of the templated requests
+  private static final BrokerRequest EMPTY_BROKER_REQUEST = new BrokerRequest();
+
   private final QueryRouter _queryRouter;
   private final BrokerMetrics _brokerMetrics;
   private final ConcurrentHashMap<Server, ServerChannel> _serverToChannelMap = new ConcurrentHashMap<>();
-  private final EventLoopGroup _eventLoopGroup = new NioEventLoopGroup();
+  private final EventLoopGroup _eventLoopGroup;
 
   public ServerChannels(QueryRouter queryRouter, BrokerMetrics brokerMetrics) {
     _queryRouter = queryRouter;
     _brokerMetrics = brokerMetrics;
+    if (USE_NATIVE_TRANSPORT) {
+      LOGGER.info("Using native epoll transport for server channels");
+      _eventLoopGroup = new EpollEventLoopGroup();
+    } else {
+      _eventLoopGroup = new NioEventLoopGroup();
+    }
   }
 
   public void sendRequest(Server server, InstanceRequest instanceRequest)
       throws Exception {
-    _serverToChannelMap.computeIfAbsent(server, ServerChannel::new).sendRequest(instanceRequest);
+    sendRequest(server, instanceRequest, null);
+  }
+
+  /**
+   * Sends the request to the server.
+   *
+   * @param requestTemplate Template of the query in the request, or {@code null} to send the full query
+   */
+  public void sendRequest(Server server, InstanceRequest instanceRequest,
+      @Nullable BrokerRequestTemplate requestTemplate)
+      throws Exception {
+    ServerChannel serverChannel = _serverToChannelMap.computeIfAbsent(server, ServerChannel::new);
+    if (requestTemplate != null) {
+      serverChannel.sendTemplatedRequest(instanceRequest, requestTemplate);
+      return;
+    }
+    ByteBuf requestBuf = serialize(instanceRequest);
+    try {
+      serverChannel.sendRequest(requestBuf);
+    } catch (Exception e) {
+      ReferenceCountUtil.safeRelease(requestBuf);
+      throw e;
+    }
+  }
+
+  /**
+   * Sends the request to the server only if the connection to the server is already established (does not try to
+   * connect to the server).
+   *
+   * @return Whether the request is sent
+   */
+  public boolean sendRequestIfConnected(Server server, InstanceRequest instanceRequest)
+      throws Exception {
+    ServerChannel serverChannel = _serverToChannelMap.get(server);
+    if (serverChannel == null) {
+      return false;
+    }
+    ByteBuf requestBuf = serialize(instanceRequest);
+    try {
+      if (serverChannel.sendRequestIfConnected(requestBuf)) {
+        return true;
+      }
+    } catch (Exception e) {
+      ReferenceCountUtil.safeRelease(requestBuf);
+      throw e;
+    }
+    ReferenceCountUtil.safeRelease(requestBuf);
+    return false;
+  }
+
+  /**
+   * Removes the request template registered on the connection to the server, so that the next query of the same shape
+   * registers it again.
+   *
+   * @return Whether the template was registered
+   */
+  public boolean unregisterTemplate(Server server, BrokerRequestTemplate requestTemplate) {
+    ServerChannel serverChannel = _serverToChannelMap.get(server);
+    return serverChannel != null && serverChannel.unregisterTemplate(requestTemplate.getTemplate());
   }
 
   public void shutDown() {
@@ -66,43 +169,133 @@ public class ServerChannels {
     _eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
   }
 
+  /**
+   * Serializes the request into a pooled direct buffer.
+   */
+  private static ByteBuf serialize(InstanceRequest instanceRequest)
+      throws TException {
+    ByteBuf requestBuf = PooledByteBufAllocator.DEFAULT.ioBuffer();
+    try {
+      instanceRequest.write(new TCompactProtocol(new TIOStreamTransport(new ByteBufOutputStream(requestBuf))));
+    } catch (TException e) {
+      requestBuf.release();
+      throw e;
+    }
+    return requestBuf;
+  }
+
   @ThreadSafe
   private class ServerChannel {
-    final TSerializer _serializer = new TSerializer(new TCompactProtocol.Factory());
     final Server _server;
     final Bootstrap _bootstrap;
+    // Templates registered on the current channel
+    final RequestTemplateRegistry _requestTemplateRegistry = new RequestTemplateRegistry();
     Channel _channel;
 
     ServerChannel(Server server) {
       _server = server;
       _bootstrap = new Bootstrap().remoteAddress(server.getHostName(), server.getPort()).group(_eventLoopGroup)
-          .channel(NioSocketChannel.class).option(ChannelOption.SO_KEEPALIVE, true)
+          .channel(USE_NATIVE_TRANSPORT ? EpollSocketChannel.class : NioSocketChannel.class)
+          .option(ChannelOption.SO_KEEPALIVE, true).option(ChannelOption.TCP_NODELAY, true)
+          .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+          .option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+              new WriteBufferWaterMark(WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_HIGH_WATER_MARK))
           .handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
-              ch.pipeline()
-                  .addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Integer.BYTES, 0, Integer.BYTES),
-                      new LengthFieldPrepender(Integer.BYTES),
-                      // NOTE: data table de-serialization happens inside this handler
-                      // Revisit if this becomes a bottleneck
-                      new DataTableHandler(_queryRouter, _server, _brokerMetrics));
+              ch.pipeline().addLast(new FlushConsolidationHandler(MAX_CONSOLIDATED_FLUSHES, true),
+                  new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Integer.BYTES, 0, Integer.BYTES),
+                  new LengthFieldPrepender(Integer.BYTES),
+                  // NOTE: data table de-serialization happens inside this handler
+                  // Revisit if this becomes a bottleneck
+                  new DataTableHandler(_queryRouter, _server, _brokerMetrics));
             }
           });
     }
 
-    synchronized void sendRequest(InstanceRequest instanceRequest)
+    synchronized void sendRequest(ByteBuf requestBuf)
+        throws Exception {
+      connectIfNeeded();
+      checkWritable();
+      write(requestBuf);
+    }
+
+    synchronized boolean sendRequestIfConnected(ByteBuf requestBuf)
         throws Exception {
+      if (_channel == null || !_channel.isActive()) {
+        return false;
+      }
+      checkWritable();
+      write(requestBuf);
+      return true;
+    }
+
+    /**
+     * Sends the request with the query replaced by the template id and the filter values (the template itself is only
+     * sent the first time). The request is serialized under the lock so that the templates are registered in the same
+     * order as the requests are sent.
+     */
+    synchronized void sendTemplatedRequest(InstanceRequest instanceRequest, BrokerRequestTemplate requestTemplate)
+        throws Exception {
+      connectIfNeeded();
+      checkWritable();
+      InstanceRequest templatedRequest = new InstanceRequest(instanceRequest.getRequestId(), EMPTY_BROKER_REQUEST);
+      templatedRequest.setSearchSegments(instanceRequest.getSearchSegments());
+      if (instanceRequest.isSetEnableTrace()) {
+        templatedRequest.setEnableTrace(instanceRequest.isEnableTrace());
+      }
+      templatedRequest.setBrokerId(instanceRequest.getBrokerId());
+      templatedRequest.setTemplateFilterValues(requestTemplate.getFilterValues());
+      BrokerRequest template = requestTemplate.getTemplate();
+      Long templateId = _requestTemplateRegistry.getTemplateId(template);
+      if (templateId == null) {
+        templateId = _requestTemplateRegistry.register(template);
+        templatedRequest.setQuery(template);
+        _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_REGISTERED, 1L);
+      }
+      templatedRequest.setTemplateId(templateId);
+      ByteBuf requestBuf;
+      try {
+        requestBuf = serialize(templatedRequest);
+      } catch (Exception e) {
+        // The template cache got updated without sending the request, close the channel so that both sides start over
+        // with empty caches
+        _requestTemplateRegistry.clear();
+        _channel.close();
+        throw e;
+      }
+      write(requestBuf);
+    }
+
+    synchronized boolean unregisterTemplate(BrokerRequest template) {
+      return _requestTemplateRegistry.unregister(template);
+    }
+
+    private void connectIfNeeded()
+        throws InterruptedException {
       if (_channel == null || !_channel.isActive()) {
         long startTime = System.currentTimeMillis();
         _channel = _bootstrap.connect().sync().channel();
         _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.NETTY_CONNECTION_CONNECT_TIME_MS,
             System.currentTimeMillis() - startTime);
+        // Templates are registered per connection
+        _requestTemplateRegistry.clear();
       }
-      byte[] requestBytes = _serializer.serialize(instanceRequest);
-      _channel
-          .writeAndFlush(_channel.alloc().buffer(requestBytes.length).writeBytes(requestBytes), _channel.voidPromise());
+    }
+
+    private void checkWritable() {
+      if (!_channel.isWritable()) {
+        _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_REJECTED, 1L);
+        throw new IllegalStateException(
+            "Channel to server: " + _server + " is not writable, pending bytes are above the high watermark");
+      }
+    }
+
+    private void write(ByteBuf requestBuf) {
+      int requestSize = requestBuf.readableBytes();
+      _channel.writeAndFlush(requestBuf, _channel.voidPromise());
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, 1L);
-      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, requestBytes.length);
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, requestSize);
     }
   }
 }
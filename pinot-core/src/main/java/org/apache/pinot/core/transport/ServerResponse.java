@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.core.transport;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.utils.DataTable;
 
@@ -33,6 +34,7 @@ public class ServerResponse {
   private volatile DataTable _dataTable;
   private volatile long _responseSize;
   private volatile long _deserializationTimeMs;
+  private final AtomicBoolean _finished = new AtomicBoolean();
 
   public ServerResponse(long startTimeMs) {
     _startTimeMs = startTimeMs;
@@ -82,4 +84,12 @@ public class ServerResponse {
     _responseSize = responseSize;
     _deserializationTimeMs = deserializationTimeMs;
   }
+
+  /**
+   * Marks the request to the server finished (either responded or abandoned), returns {@code true} for the first call
+   * only.
+   */
+  boolean markFinished() {
+    return _finished.compareAndSet(false, true);
+  }
 }
@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The {@code ServerRoutingStats} class keeps the statistics of the servers the broker sends queries to, and scores the
+ * servers so that the broker can select the best replica of a segment for each query.
+ * <p>For each server instance, it tracks:
+ * <ul>
+ *   <li>Exponentially weighted moving average (EWMA) of the response latency</li>
+ *   <li>Number of in-flight requests (sent but not responded)</li>
+ *   <li>EWMA of the error rate (requests timed out or failed because the server went down)</li>
+ * </ul>
+ * The score of a server follows the idea of C3: the latency estimation is multiplied by the cube of the in-flight
+ * requests so that the broker backs off quickly from a server that starts queueing requests (e.g. during a GC pause),
+ * and is further penalized by the error rate. Servers without response recorded yet are scored by their in-flight
+ * requests only, so that they get explored.
+ * <p>It also keeps the 95th percentile of the recent latencies of each server, which is used to decide when to send a
+ * hedged request to another replica.
+ */
+@ThreadSafe
+public class ServerRoutingStats {
+  private static final double LATENCY_EWMA_ALPHA = 0.2;
+  private static final double ERROR_RATE_EWMA_ALPHA = 0.1;
+  private static final double MIN_SUCCESS_RATE = 0.01;
+  // Keep the recent latencies to compute the latency percentile, which is re-computed every 16 requests
+  private static final int NUM_LATENCY_SAMPLES = 128;
+  private static final int LATENCY_PERCENTILE_UPDATE_INTERVAL = 16;
+  private static final double LATENCY_PERCENTILE = 0.95;
+
+  private final Map<String, Stats> _statsMap = new ConcurrentHashMap<>();
+
+  /**
+   * Records a request sent to the server.
+   */
+  public void recordRequestSubmitted(String instanceName) {
+    getStats(instanceName).requestSubmitted();
+  }
+
+  /**
+   * Records a response received from the server. Each submitted request should either get a response or an error
+   * recorded.
+   */
+  public void recordResponse(String instanceName, long latencyMs) {
+    getStats(instanceName).requestFinished(latencyMs, false);
+  }
+
+  /**
+   * Records a request that did not get a response from the server (timed out or failed).
+   */
+  public void recordError(String instanceName, long latencyMs) {
+    getStats(instanceName).requestFinished(latencyMs, true);
+  }
+
+  /**
+   * Records a request whose response is no longer needed (e.g. the hedged request lost to the other server). The
+   * request is no longer in-flight, but it is neither a response nor an error of the server.
+   */
+  public void recordRequestCancelled(String instanceName) {
+    getStats(instanceName).requestCancelled();
+  }
+
+  /**
+   * Returns the score of the server, where lower score is better.
+   */
+  public double getScore(String instanceName) {
+    Stats stats = _statsMap.get(instanceName);
+    return stats != null ? stats.getScore() : 1.0;
+  }
+
+  /**
+   * Returns the 95th percentile of the recent latencies of the server, or -1 if there are not enough samples.
+   */
+  public long getLatencyP95Ms(String instanceName) {
+    Stats stats = _statsMap.get(instanceName);
+    return stats != null ? stats._latencyP95Ms : -1;
+  }
+
+  /**
+   * Selects a server from the given servers hosting the same segment using power of two choices: picks two random
+   * servers and returns the one with the lower score.
+   *
+   * @param servers Servers hosting the segment
+   * @param scoreCache Cache of the server scores for the current query so that each server is scored only once
+   * @return Selected server
+   */
+  public String selectServer(List<String> servers, Map<String, Double> scoreCache) {
+    int numServers = servers.size();
+    if (numServers == 1) {
+      return servers.get(0);
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int index1 = random.nextInt(numServers);
+    int index2 = random.nextInt(numServers - 1);
+    if (index2 >= index1) {
+      index2++;
+    }
+    String server1 = servers.get(index1);
+    String server2 = servers.get(index2);
+    double score1 = scoreCache.computeIfAbsent(server1, this::getScore);
+    double score2 = scoreCache.computeIfAbsent(server2, this::getScore);
+    return score1 <= score2 ? server1 : server2;
+  }
+
+  @VisibleForTesting
+  int getNumInFlightRequests(String instanceName) {
+    return getStats(instanceName)._numInFlightRequests;
+  }
+
+  @VisibleForTesting
+  double getLatencyEwmaMs(String instanceName) {
+    return getStats(instanceName)._latencyEwmaMs;
+  }
+
+  @VisibleForTesting
+  double getErrorRateEwma(String instanceName) {
+    return getStats(instanceName)._errorRateEwma;
+  }
+
+  private Stats getStats(String instanceName) {
+    return _statsMap.computeIfAbsent(instanceName, k -> new Stats());
+  }
+
+  private static class Stats {
+    volatile int _numInFlightRequests;
+    // Negative latency means no response recorded yet
+    volatile double _latencyEwmaMs = -1;
+    volatile double _errorRateEwma;
+    final long[] _recentLatenciesMs = new long[NUM_LATENCY_SAMPLES];
+    long _numLatencySamples;
+    volatile long _latencyP95Ms = -1;
+
+    synchronized void requestSubmitted() {
+      _numInFlightRequests++;
+    }
+
+    synchronized void requestCancelled() {
+      if (_numInFlightRequests > 0) {
+        _numInFlightRequests--;
+      }
+    }
+
+    synchronized void requestFinished(long latencyMs, boolean error) {
+      if (_numInFlightRequests > 0) {
+        _numInFlightRequests--;
+      }
+      if (_latencyEwmaMs < 0) {
+        _latencyEwmaMs = latencyMs;
+      } else {
+        _latencyEwmaMs = LATENCY_EWMA_ALPHA * latencyMs + (1 - LATENCY_EWMA_ALPHA) * _latencyEwmaMs;
+      }
+      _errorRateEwma = ERROR_RATE_EWMA_ALPHA * (error ? 1 : 0) + (1 - ERROR_RATE_EWMA_ALPHA) * _errorRateEwma;
+
+      _recentLatenciesMs[(int) (_numLatencySamples++ % NUM_LATENCY_SAMPLES)] = latencyMs;
+      if (_numLatencySamples % LATENCY_PERCENTILE_UPDATE_INTERVAL == 0) {
+        int numSamples = (int) Math.min(_numLatencySamples, NUM_LATENCY_SAMPLES);
+        long[] sortedLatenciesMs = Arrays.copyOf(_recentLatenciesMs, numSamples);
+        Arrays.sort(sortedLatenciesMs);
+        _latencyP95Ms = sortedLatenciesMs[(int) Math.ceil(numSamples * LATENCY_PERCENTILE) - 1];
+      }
+    }
+
+    double getScore() {
+      double latencyEwmaMs = Math.max(_latencyEwmaMs, 0);
+      double queueFactor = 1 + _numInFlightRequests;
+      double successRate = Math.max(1 - _errorRateEwma, MIN_SUCCESS_RATE);
+      return (latencyEwmaMs + 1) * queueFactor * queueFactor * queueFactor / successRate;
+    }
+  }
+}
@@ -37,9 +37,9 @@ public class FixedIntArrayOffHeapIdMap extends BaseOffHeapMutableDictionary impl
   private final FixedByteSingleValueMultiColumnReaderWriter _dictIdToValue;
   private final int _numColumns;
 
-  public FixedIntArrayOffHeapIdMap(int estimatedCardinality, int maxOverflowHashSize, int numColumns,
-      PinotDataBufferMemoryManager memoryManager, String allocationContext) {
-    super(estimatedCardinality, maxOverflowHashSize, memoryManager, allocationContext);
+  public FixedIntArrayOffHeapIdMap(int estimatedCardinality, int numColumns, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, memoryManager, allocationContext);
 
     int initialSize = nearestPowerOf2(estimatedCardinality);
     int[] columnSizesInBytes = new int[numColumns];
@@ -20,6 +20,13 @@ package org.apache.pinot.core.common;
 
 import com.clearspring.analytics.stream.cardinality.HyperLogLog;
 import com.tdunning.math.stats.TDigest;
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.hll.TgtHllType;
+import com.yahoo.sketches.kll.KllFloatsSketch;
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.quantiles.UpdateDoublesSketch;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.UpdateSketch;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
@@ -28,10 +35,12 @@ import java.util.Map;
 import java.util.Random;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.pinot.core.query.aggregation.function.PercentileEstAggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.PercentileKLLAggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.PercentileTDigestAggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.customobject.AvgPair;
 import org.apache.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
 import org.apache.pinot.core.query.aggregation.function.customobject.QuantileDigest;
+import org.apache.pinot.core.query.aggregation.function.customobject.SortedDistinctValues;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
@@ -185,6 +194,111 @@ public class ObjectSerDeUtilsTest {
     }
   }
 
+  @Test
+  public void testSortedDistinctValues() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int size = RANDOM.nextInt(100);
+      int[] intValues = new int[size];
+      long[] longValues = new long[size];
+      String[] stringValues = new String[size];
+      for (int j = 0; j < size; j++) {
+        // Include duplicate and extreme values
+        intValues[j] = j % 10 == 0 ? Integer.MIN_VALUE : RANDOM.nextInt(50) - 25;
+        longValues[j] = j % 10 == 0 ? Long.MAX_VALUE : RANDOM.nextLong();
+        stringValues[j] = RandomStringUtils.random(RANDOM.nextInt(3));
+      }
+
+      for (SortedDistinctValues expected : new SortedDistinctValues[]{SortedDistinctValues.fromInts(intValues, size),
+          SortedDistinctValues.fromLongs(longValues, size), SortedDistinctValues.fromStrings(stringValues, size)}) {
+        byte[] bytes = ObjectSerDeUtils.serialize(expected);
+        SortedDistinctValues actual =
+            ObjectSerDeUtils.deserialize(bytes, ObjectSerDeUtils.ObjectType.SortedDistinctValues);
+
+        assertEquals(actual, expected, ERROR_MESSAGE);
+      }
+    }
+  }
+
+  @Test
+  public void testThetaSketchArray() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int numSketches = RANDOM.nextInt(5) + 1;
+      Sketch[] expected = new Sketch[numSketches];
+      for (int j = 0; j < numSketches; j++) {
+        UpdateSketch updateSketch = UpdateSketch.builder().build();
+        int size = RANDOM.nextInt(100);
+        for (int k = 0; k < size; k++) {
+          updateSketch.update(RANDOM.nextLong());
+        }
+        expected[j] = updateSketch.compact();
+      }
+
+      byte[] bytes = ObjectSerDeUtils.serialize(expected);
+      Sketch[] actual = ObjectSerDeUtils.deserialize(bytes, ObjectSerDeUtils.ObjectType.ThetaSketchArray);
+
+      assertEquals(actual.length, numSketches, ERROR_MESSAGE);
+      for (int j = 0; j < numSketches; j++) {
+        assertEquals(actual[j].getEstimate(), expected[j].getEstimate(), ERROR_MESSAGE);
+      }
+    }
+  }
+
+  @Test
+  public void testHllSketch() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      HllSketch expected = new HllSketch(12, TgtHllType.HLL_4);
+      int size = RANDOM.nextInt(100);
+      for (int j = 0; j < size; j++) {
+        expected.update(RANDOM.nextLong());
+      }
+
+      byte[] bytes = ObjectSerDeUtils.serialize(expected);
+      HllSketch actual = ObjectSerDeUtils.deserialize(bytes, ObjectSerDeUtils.ObjectType.HllSketch);
+
+      assertEquals(actual.getEstimate(), expected.getEstimate(), ERROR_MESSAGE);
+    }
+  }
+
+  @Test
+  public void testKllFloatsSketch() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      KllFloatsSketch expected = new KllFloatsSketch(PercentileKLLAggregationFunction.DEFAULT_K);
+      int size = RANDOM.nextInt(1000) + 1;
+      for (int j = 0; j < size; j++) {
+        expected.update(RANDOM.nextFloat());
+      }
+
+      byte[] bytes = ObjectSerDeUtils.serialize(expected);
+      KllFloatsSketch actual = ObjectSerDeUtils.deserialize(bytes, ObjectSerDeUtils.ObjectType.KllFloatsSketch);
+
+      assertEquals(actual.getN(), expected.getN(), ERROR_MESSAGE);
+      for (int j = 0; j <= 100; j++) {
+        double fraction = j / 100.0;
+        assertEquals(actual.getQuantile(fraction), expected.getQuantile(fraction), ERROR_MESSAGE);
+      }
+    }
+  }
+
+  @Test
+  public void testDoublesSketch() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      UpdateDoublesSketch expected = DoublesSketch.builder().build();
+      int size = RANDOM.nextInt(1000) + 1;
+      for (int j = 0; j < size; j++) {
+        expected.update(RANDOM.nextLong());
+      }
+
+      byte[] bytes = ObjectSerDeUtils.serialize(expected);
+      DoublesSketch actual = ObjectSerDeUtils.deserialize(bytes, ObjectSerDeUtils.ObjectType.DoublesSketch);
+
+      assertEquals(actual.getN(), expected.getN(), ERROR_MESSAGE);
+      for (int j = 0; j <= 100; j++) {
+        double fraction = j / 100.0;
+        assertEquals(actual.getQuantile(fraction), expected.getQuantile(fraction), ERROR_MESSAGE);
+      }
+    }
+  }
+
   @Test
   public void testTDigest() {
     for (int i = 0; i < NUM_ITERATIONS; i++) {
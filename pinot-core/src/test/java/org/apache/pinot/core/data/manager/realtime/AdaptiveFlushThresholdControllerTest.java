@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class AdaptiveFlushThresholdControllerTest {
+  private static final String TABLE_NAME = "testTable_REALTIME";
+  private static final String STATS_FILE_NAME = AdaptiveFlushThresholdControllerTest.class.getSimpleName() + ".ser";
+
+  @Test
+  public void testTargetSegmentSize() {
+    AdaptiveFlushThresholdController controller = new AdaptiveFlushThresholdController(100_000_000L, 0L);
+
+    // No statistics, configured value should be used
+    Assert.assertEquals(controller.computeSegmentMaxRowCount(TABLE_NAME, 0, null, null, 500_000), 500_000);
+
+    // 100 bytes per row on partition 0
+    controller.segmentBuilt(TABLE_NAME, 0, 500_000, 50_000_000L);
+    Assert.assertEquals(controller.getDiskBytesPerRow(TABLE_NAME, 0), 100.0);
+    Assert.assertEquals(controller.computeSegmentMaxRowCount(TABLE_NAME, 0, null, null, 500_000), 1_000_000);
+
+    // Partition without history uses the average of the table
+    controller.segmentBuilt(TABLE_NAME, 1, 500_000, 100_000_000L);
+    Assert.assertEquals(controller.getDiskBytesPerRow(TABLE_NAME, 2), 150.0);
+
+    // Ratio is smoothed with the previous one
+    controller.segmentBuilt(TABLE_NAME, 0, 1_000_000, 200_000_000L);
+    Assert.assertEquals(controller.getDiskBytesPerRow(TABLE_NAME, 0), 110.0, 1e-9);
+
+    // Never go below the minimum
+    controller.segmentBuilt(TABLE_NAME, 3, 1, 100_000_000L);
+    Assert.assertEquals(controller.computeSegmentMaxRowCount(TABLE_NAME, 3, null, null, 500_000), 10_000);
+
+    // Minimum never exceeds the configured value
+    Assert.assertEquals(controller.computeSegmentMaxRowCount(TABLE_NAME, 3, null, null, 5_000), 5_000);
+  }
+
+  @Test
+  public void testMemoryBudget()
+      throws Exception {
+    File statsFile = new File(FileUtils.getTempDirectory(), STATS_FILE_NAME);
+    FileUtils.deleteQuietly(statsFile);
+    try {
+      RealtimeSegmentStatsHistory statsHistory = RealtimeSegmentStatsHistory.deserialzeFrom(statsFile);
+      RealtimeSegmentStatsHistory.SegmentStats segmentStats = new RealtimeSegmentStatsHistory.SegmentStats();
+      segmentStats.setNumRowsIndexed(1_000_000);
+      segmentStats.setMemUsedBytes(1_000_000_000L);
+      statsHistory.addSegmentStats(segmentStats);
+      Assert.assertEquals(statsHistory.getEstimatedMemUsedBytesPerRow(), 1000L);
+
+      AdaptiveFlushThresholdController controller = new AdaptiveFlushThresholdController(0L, 2_000_000_000L);
+      PinotDataBufferMemoryManager memoryManager1 = mock(PinotDataBufferMemoryManager.class);
+      PinotDataBufferMemoryManager memoryManager2 = mock(PinotDataBufferMemoryManager.class);
+
+      // Only consuming segment, gets the whole budget
+      controller.registerConsumingSegment(memoryManager1);
+      Assert.assertEquals(
+          controller.computeSegmentMaxRowCount(TABLE_NAME, 0, statsHistory, memoryManager1, 5_000_000), 2_000_000);
+
+      // Two consuming segments, each gets half of the budget
+      controller.registerConsumingSegment(memoryManager2);
+      Assert.assertEquals(
+          controller.computeSegmentMaxRowCount(TABLE_NAME, 1, statsHistory, memoryManager2, 5_000_000), 1_000_000);
+
+      // Other consuming segment already used most of the budget
+      when(memoryManager1.getTotalAllocatedBytes()).thenReturn(1_500_000_000L);
+      Assert.assertEquals(
+          controller.computeSegmentMaxRowCount(TABLE_NAME, 1, statsHistory, memoryManager2, 5_000_000), 500_000);
+
+      // Configured value is lower than the memory limit
+      controller.unregisterConsumingSegment(memoryManager1);
+      Assert.assertEquals(
+          controller.computeSegmentMaxRowCount(TABLE_NAME, 1, statsHistory, memoryManager2, 100_000), 100_000);
+    } finally {
+      FileUtils.deleteQuietly(statsFile);
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.util.TestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class RealtimeConsumptionSchedulerTest {
+  private static final long PRIORITY_BOOST_MILLIS = 100L;
+  // Large boost so that the priority is not affected by the time between the enqueues
+  private static final long LARGE_PRIORITY_BOOST_MILLIS = 10_000L;
+  private static final long TIMEOUT_MS = 10_000L;
+  private static final long IDLE_FETCH_TIMEOUT_MS = 500L;
+  private static final int NUM_BUSY_BATCHES = 100;
+
+  @Test
+  public void testIdleAndBusyPartitions()
+      throws Exception {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeConsumptionScheduler scheduler = new RealtimeConsumptionScheduler(1, PRIORITY_BOOST_MILLIS, serverMetrics);
+
+    // Idle partition keeps blocking on fetches that return no message
+    AtomicBoolean stopIdlePartition = new AtomicBoolean();
+    AtomicInteger numIdleFetches = new AtomicInteger();
+    AtomicBoolean idleIndexedWithSlot = new AtomicBoolean();
+    RealtimeConsumptionScheduler.ConsumptionSlot idleSlot = scheduler.newSlot();
+    Thread idleThread = new Thread(() -> {
+      try {
+        while (!stopIdlePartition.get()) {
+          Thread.sleep(IDLE_FETCH_TIMEOUT_MS);
+          idleSlot.index(0, false, () -> {
+            if (scheduler.getNumActiveConsumers() > 0) {
+              idleIndexedWithSlot.set(true);
+            }
+          });
+          numIdleFetches.incrementAndGet();
+        }
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    idleThread.start();
+
+    // Busy partition should index all its batches while the idle partition is blocked on its fetches, and should hold
+    // the slot only while indexing
+    RealtimeConsumptionScheduler.ConsumptionSlot busySlot = scheduler.newSlot();
+    AtomicInteger numBusyBatches = new AtomicInteger();
+    long startTimeMs = System.currentTimeMillis();
+    for (int i = 0; i < NUM_BUSY_BATCHES; i++) {
+      busySlot.index(100, false, () -> {
+        Assert.assertEquals(scheduler.getNumActiveConsumers(), 1);
+        numBusyBatches.incrementAndGet();
+      });
+      Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+      Assert.assertEquals(busySlot.getLastWaitTimeMillis(), 0L, 50L);
+    }
+    Assert.assertEquals(numBusyBatches.get(), NUM_BUSY_BATCHES);
+    Assert.assertTrue(System.currentTimeMillis() - startTimeMs < IDLE_FETCH_TIMEOUT_MS * NUM_BUSY_BATCHES);
+
+    TestUtils.waitForCondition(aVoid -> numIdleFetches.get() >= 2, TIMEOUT_MS, "Idle partition should keep fetching");
+    stopIdlePartition.set(true);
+    idleThread.join(TIMEOUT_MS);
+    Assert.assertFalse(idleIndexedWithSlot.get());
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+    Assert.assertEquals(scheduler.getNumWaitingConsumers(), 0);
+  }
+
+  @Test
+  public void testPriority()
+      throws Exception {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeConsumptionScheduler scheduler =
+        new RealtimeConsumptionScheduler(1, LARGE_PRIORITY_BOOST_MILLIS, serverMetrics);
+
+    // Hold the slot until all the other partitions are waiting
+    CountDownLatch holdingLatch = new CountDownLatch(1);
+    CountDownLatch releaseLatch = new CountDownLatch(1);
+    RealtimeConsumptionScheduler.ConsumptionSlot holdingSlot = scheduler.newSlot();
+    Thread holdingThread = startIndexThread(holdingSlot, false, () -> {
+      holdingLatch.countDown();
+      try {
+        releaseLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Assert.assertTrue(holdingLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 1);
+
+    List<String> indexOrder = new CopyOnWriteArrayList<>();
+    // Partition coming back from an idle stream has the lowest priority
+    RealtimeConsumptionScheduler.ConsumptionSlot idleSlot = scheduler.newSlot();
+    idleSlot.index(0, false, () -> {
+    });
+    Thread idleThread = startIndexThread(idleSlot, false, () -> indexOrder.add("idle"));
+    TestUtils.waitForCondition(aVoid -> scheduler.getNumWaitingConsumers() == 1, TIMEOUT_MS,
+        "Idle partition should be waiting");
+
+    RealtimeConsumptionScheduler.ConsumptionSlot laggingSlot = scheduler.newSlot();
+    Thread laggingThread = startIndexThread(laggingSlot, false, () -> indexOrder.add("lagging"));
+    TestUtils.waitForCondition(aVoid -> scheduler.getNumWaitingConsumers() == 2, TIMEOUT_MS,
+        "Lagging partition should be waiting");
+
+    RealtimeConsumptionScheduler.ConsumptionSlot catchingUpSlot = scheduler.newSlot();
+    Thread catchingUpThread = startIndexThread(catchingUpSlot, true, () -> indexOrder.add("catchingUp"));
+    TestUtils.waitForCondition(aVoid -> scheduler.getNumWaitingConsumers() == 3, TIMEOUT_MS,
+        "Catching up partition should be waiting");
+    Assert.assertEquals(serverMetrics.getValueOfGlobalGauge(ServerGauge.LLC_WAITING_CONSUMERS), 3L);
+
+    releaseLatch.countDown();
+    holdingThread.join(TIMEOUT_MS);
+    catchingUpThread.join(TIMEOUT_MS);
+    laggingThread.join(TIMEOUT_MS);
+    idleThread.join(TIMEOUT_MS);
+    Assert.assertEquals(indexOrder.size(), 3);
+    Assert.assertEquals(indexOrder.get(0), "catchingUp");
+    Assert.assertEquals(indexOrder.get(1), "lagging");
+    Assert.assertEquals(indexOrder.get(2), "idle");
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+    Assert.assertEquals(scheduler.getNumWaitingConsumers(), 0);
+    Assert.assertTrue(catchingUpSlot.getLastWaitTimeMillis() > 0);
+    Assert.assertTrue(serverMetrics.getValueOfGlobalGauge(ServerGauge.LLC_PARTITION_CONSUMER_WAIT_TIME_MS) > 0);
+  }
+
+  @Test
+  public void testSharedIndexingThreads()
+      throws Exception {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeConsumptionScheduler scheduler = new RealtimeConsumptionScheduler(2, PRIORITY_BOOST_MILLIS, serverMetrics);
+
+    // All the partitions should index on the shared indexing threads, never on their own consumer thread
+    int numPartitions = 8;
+    Set<String> indexingThreadNames = ConcurrentHashMap.newKeySet();
+    AtomicInteger maxNumActiveConsumers = new AtomicInteger();
+    AtomicInteger numBatches = new AtomicInteger();
+    List<Thread> consumerThreads = new ArrayList<>(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      RealtimeConsumptionScheduler.ConsumptionSlot slot = scheduler.newSlot();
+      Thread consumerThread = new Thread(() -> {
+        Thread thread = Thread.currentThread();
+        try {
+          for (int j = 0; j < NUM_BUSY_BATCHES; j++) {
+            slot.index(100, false, () -> {
+              Assert.assertNotSame(Thread.currentThread(), thread);
+              indexingThreadNames.add(Thread.currentThread().getName());
+              maxNumActiveConsumers.accumulateAndGet(scheduler.getNumActiveConsumers(), Math::max);
+              numBatches.incrementAndGet();
+            });
+          }
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      consumerThread.start();
+      consumerThreads.add(consumerThread);
+    }
+    for (Thread consumerThread : consumerThreads) {
+      consumerThread.join(TIMEOUT_MS);
+    }
+    Assert.assertEquals(numBatches.get(), numPartitions * NUM_BUSY_BATCHES);
+    Assert.assertTrue(indexingThreadNames.size() <= 2);
+    for (String indexingThreadName : indexingThreadNames) {
+      Assert.assertTrue(indexingThreadName.startsWith("realtime-indexing-"));
+    }
+    Assert.assertTrue(maxNumActiveConsumers.get() <= 2);
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+    Assert.assertEquals(scheduler.getNumWaitingConsumers(), 0);
+  }
+
+  @Test
+  public void testIndexingFailure()
+      throws Exception {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeConsumptionScheduler scheduler = new RealtimeConsumptionScheduler(1, PRIORITY_BOOST_MILLIS, serverMetrics);
+
+    // Exception thrown by the indexer should be rethrown to the consumer thread as is
+    RealtimeConsumptionScheduler.ConsumptionSlot slot = scheduler.newSlot();
+    try {
+      slot.index(100, false, () -> {
+        throw new IllegalStateException("Realtime segment full");
+      });
+      Assert.fail("Indexing failure should be rethrown");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(e.getMessage(), "Realtime segment full");
+    }
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+  }
+
+  @Test
+  public void testInterruptWaitingPartition()
+      throws Exception {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    RealtimeConsumptionScheduler scheduler = new RealtimeConsumptionScheduler(1, PRIORITY_BOOST_MILLIS, serverMetrics);
+
+    CountDownLatch holdingLatch = new CountDownLatch(1);
+    CountDownLatch releaseLatch = new CountDownLatch(1);
+    Thread holdingThread = startIndexThread(scheduler.newSlot(), false, () -> {
+      holdingLatch.countDown();
+      try {
+        releaseLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Assert.assertTrue(holdingLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    // Batch of the interrupted partition should never be indexed
+    AtomicBoolean indexed = new AtomicBoolean();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    RealtimeConsumptionScheduler.ConsumptionSlot slot = scheduler.newSlot();
+    Thread waitingThread = new Thread(() -> {
+      try {
+        slot.index(100, false, () -> indexed.set(true));
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    waitingThread.start();
+    TestUtils.waitForCondition(aVoid -> scheduler.getNumWaitingConsumers() == 1, TIMEOUT_MS,
+        "Partition should be waiting");
+    waitingThread.interrupt();
+    waitingThread.join(TIMEOUT_MS);
+    Assert.assertTrue(interrupted.get());
+    Assert.assertEquals(scheduler.getNumWaitingConsumers(), 0);
+
+    releaseLatch.countDown();
+    holdingThread.join(TIMEOUT_MS);
+    Assert.assertFalse(indexed.get());
+    Assert.assertEquals(scheduler.getNumActiveConsumers(), 0);
+  }
+
+  private static Thread startIndexThread(RealtimeConsumptionScheduler.ConsumptionSlot slot, boolean catchingUp,
+      Runnable indexer) {
+    Thread thread = new Thread(() -> {
+      try {
+        slot.index(100, catchingUp, indexer);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.util.Arrays;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.segment.SegmentMetadata;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.io.reader.SingleColumnSingleValueReader;
+import org.apache.pinot.core.realtime.impl.upsert.PrimaryKey;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class RealtimeTableDataManagerTest {
+  private static final int NUM_DOCS = 5;
+
+  @Test
+  public void testGetPrimaryKeys() {
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension("rawColumn", DataType.INT)
+        .addSingleValueDimension("dictColumn", DataType.STRING).build();
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getSchema()).thenReturn(schema);
+    when(segmentMetadata.getTotalRawDocs()).thenReturn(NUM_DOCS);
+
+    // Raw column, value is 10 * docId
+    SingleColumnSingleValueReader rawForwardIndex = mock(SingleColumnSingleValueReader.class);
+    when(rawForwardIndex.getInt(anyInt())).thenAnswer(invocation -> 10 * (int) invocation.getArgument(0));
+    // Dictionary encoded column, dictionary id is docId % 2
+    SingleColumnSingleValueReader dictForwardIndex = mock(SingleColumnSingleValueReader.class);
+    when(dictForwardIndex.getInt(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) % 2);
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.get(anyInt())).thenAnswer(invocation -> "value" + invocation.getArgument(0));
+
+    ImmutableSegment immutableSegment = mock(ImmutableSegment.class);
+    when(immutableSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    when(immutableSegment.getForwardIndex("rawColumn")).thenReturn(rawForwardIndex);
+    when(immutableSegment.getForwardIndex("dictColumn")).thenReturn(dictForwardIndex);
+    when(immutableSegment.getDictionary("dictColumn")).thenReturn(dictionary);
+
+    PrimaryKey[] primaryKeys =
+        RealtimeTableDataManager.getPrimaryKeys(immutableSegment, Arrays.asList("rawColumn", "dictColumn"));
+    Assert.assertEquals(primaryKeys.length, NUM_DOCS);
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      Assert.assertEquals(primaryKeys[docId], new PrimaryKey(new Object[]{10 * docId, "value" + docId % 2}));
+    }
+  }
+}
@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.indexsegment.mutable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.common.BlockSingleValIterator;
+import org.apache.pinot.core.common.Constants;
+import org.apache.pinot.core.common.DataSource;
+import org.apache.pinot.core.data.GenericRow;
+import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.operator.blocks.IntermediateResultsBlock;
+import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.plan.AggregationPlanNode;
+import org.apache.pinot.core.plan.FilterPlanNode;
+import org.apache.pinot.core.realtime.impl.RealtimeSegmentConfig;
+import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
+import org.apache.pinot.core.realtime.impl.startree.RealtimeStarTreeIndex;
+import org.apache.pinot.core.realtime.impl.upsert.PartitionUpsertMetadataManager;
+import org.apache.pinot.core.realtime.stream.StreamMessageMetadata;
+import org.apache.pinot.core.startree.StarTreeUtils;
+import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
+import org.apache.pinot.core.startree.v2.StarTreeV2;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests the star-trees built on the sealed documents of a consuming segment by comparing the aggregation results solved
+ * with the star-trees (and the scan of the documents after them) against the results of scanning all the documents.
+ */
+public class MutableSegmentImplStarTreeTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+  private static final Random RANDOM = new Random(RANDOM_SEED);
+  private static final String ERROR_MESSAGE = "Random seed: " + RANDOM_SEED;
+
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "MutableSegmentImplStarTreeTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String DIMENSION_D1 = "d1";
+  private static final String DIMENSION_D2 = "d2";
+  private static final String METRIC = "m";
+  private static final int NUM_DOCS_PER_TREE = 1000;
+  private static final int NUM_DOCS = 5500;
+  // Check the results right before, on and right after each seal boundary, as well as in the middle of the ranges
+  private static final int[] CHECKPOINTS = {1, 500, 999, 1000, 1001, 1999, 2000, 2001, 3500, 4000, 5500};
+
+  private static final String AGGREGATIONS = "COUNT(*), SUM(m), MAX(m), MIN(m)";
+  // The mutable dictionaries are unsorted as the values are added in the order of arrival, and the values of d1 that
+  // are larger than 10 only show up after the first seal boundary
+  private static final String[] FILTERS =
+      {"", " WHERE d1 = 3", " WHERE d1 BETWEEN 3 AND 11", " WHERE d1 >= 12 AND d2 <> 'v0'",
+          " WHERE d1 < 5 AND d2 IN ('v1', 'v3')", " WHERE d2 > 'v2'", " WHERE d2 <= 'v1' AND d1 > 8",
+          " WHERE d1 = 1000"};
+
+  private MutableSegmentImpl _mutableSegment;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    FileUtils.forceMkdir(TEMP_DIR);
+
+    Schema schema = getSchema();
+    _mutableSegment = MutableSegmentImplTestUtils
+        .createMutableSegmentImpl(schema, Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
+            false, getStarTreeV2BuilderConfigs(), NUM_DOCS_PER_TREE, TEMP_DIR);
+  }
+
+  private static Schema getSchema() {
+    return new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension(DIMENSION_D1, DataType.INT).addSingleValueDimension(DIMENSION_D2, DataType.STRING)
+        .addMetric(METRIC, DataType.INT).build();
+  }
+
+  /**
+   * Returns 2 star-tree configs, where the first one can only solve SUM(m) with filters on d2, and the second one can
+   * solve all the queries.
+   */
+  private static List<StarTreeV2BuilderConfig> getStarTreeV2BuilderConfigs() {
+    StarTreeV2BuilderConfig d2Config =
+        new StarTreeV2BuilderConfig.Builder().setDimensionsSplitOrder(Collections.singletonList(DIMENSION_D2))
+            .setFunctionColumnPairs(
+                Collections.singleton(new AggregationFunctionColumnPair(AggregationFunctionType.SUM, METRIC)))
+            .setMaxLeafRecords(RANDOM.nextInt(100) + 1).build();
+    StarTreeV2BuilderConfig d1D2Config =
+        new StarTreeV2BuilderConfig.Builder().setDimensionsSplitOrder(Arrays.asList(DIMENSION_D1, DIMENSION_D2))
+            .setFunctionColumnPairs(new HashSet<>(Arrays
+                .asList(AggregationFunctionColumnPair.COUNT_STAR,
+                    new AggregationFunctionColumnPair(AggregationFunctionType.SUM, METRIC),
+                    new AggregationFunctionColumnPair(AggregationFunctionType.MAX, METRIC),
+                    new AggregationFunctionColumnPair(AggregationFunctionType.MIN, METRIC))))
+            .setMaxLeafRecords(RANDOM.nextInt(100) + 1).build();
+    return Arrays.asList(d2Config, d1D2Config);
+  }
+
+  @Test
+  public void testQueries() {
+    StreamMessageMetadata defaultMetadata = new StreamMessageMetadata(System.currentTimeMillis());
+    int firstTreeD1Cardinality = 0;
+    int checkpointIndex = 0;
+    for (int i = 0; i < NUM_DOCS; i++) {
+      GenericRow row = new GenericRow();
+      // Add new values of d1 for each sealed document range so that the dictionary keeps growing
+      row.putField(DIMENSION_D1, RANDOM.nextInt(10 + 5 * (i / NUM_DOCS_PER_TREE)));
+      row.putField(DIMENSION_D2, "v" + RANDOM.nextInt(5));
+      row.putField(METRIC, RANDOM.nextInt(1000));
+      _mutableSegment.index(row, defaultMetadata);
+
+      int numDocs = i + 1;
+      if (numDocs == NUM_DOCS_PER_TREE) {
+        firstTreeD1Cardinality = _mutableSegment.getDataSource(DIMENSION_D1).getDictionary().length();
+      }
+      if (numDocs == CHECKPOINTS[checkpointIndex]) {
+        checkSnapshot(numDocs);
+        for (String filter : FILTERS) {
+          testQuery("SELECT " + AGGREGATIONS + " FROM " + RAW_TABLE_NAME + filter, numDocs);
+          testQuery("SELECT SUM(m) FROM " + RAW_TABLE_NAME + filter, numDocs);
+          testFilterWithStartDocId("SELECT COUNT(*) FROM " + RAW_TABLE_NAME + filter, numDocs);
+        }
+        checkpointIndex++;
+      }
+    }
+    assertEquals(checkpointIndex, CHECKPOINTS.length, ERROR_MESSAGE);
+
+    // The star-trees on the first sealed document range should keep the cardinality when they were built, and share
+    // the dictionary with the consuming segment
+    DataSource segmentDataSource = _mutableSegment.getDataSource(DIMENSION_D1);
+    assertTrue(segmentDataSource.getDictionary().length() > firstTreeD1Cardinality, ERROR_MESSAGE);
+    StarTreeV2 firstStarTree = _mutableSegment.getStarTreeSnapshot().getStarTrees().get(0).get(1);
+    DataSource starTreeDataSource = firstStarTree.getDataSource(DIMENSION_D1);
+    assertEquals(starTreeDataSource.getDataSourceMetadata().getCardinality(), firstTreeD1Cardinality, ERROR_MESSAGE);
+    assertSame(starTreeDataSource.getDictionary(), segmentDataSource.getDictionary(), ERROR_MESSAGE);
+    BlockSingleValIterator valueIterator =
+        (BlockSingleValIterator) starTreeDataSource.nextBlock().getBlockValueSet().iterator();
+    int numStarTreeDocs = firstStarTree.getMetadata().getNumDocs();
+    for (int i = 0; i < numStarTreeDocs; i++) {
+      assertTrue(valueIterator.nextIntVal() < firstTreeD1Cardinality, ERROR_MESSAGE);
+    }
+  }
+
+  private void checkSnapshot(int numDocs) {
+    RealtimeStarTreeIndex.Snapshot snapshot = _mutableSegment.getStarTreeSnapshot();
+    assertNotNull(snapshot, ERROR_MESSAGE);
+    int numSealedRanges = numDocs / NUM_DOCS_PER_TREE;
+    assertEquals(snapshot.getNumSealedDocs(), numSealedRanges * NUM_DOCS_PER_TREE, ERROR_MESSAGE);
+    List<List<StarTreeV2>> starTrees = snapshot.getStarTrees();
+    assertEquals(starTrees.size(), numSealedRanges, ERROR_MESSAGE);
+    for (List<StarTreeV2> starTreesForRange : starTrees) {
+      // One star-tree for each builder config
+      assertEquals(starTreesForRange.size(), 2, ERROR_MESSAGE);
+    }
+  }
+
+  /**
+   * Compares the result of the query solved with the star-trees against the result of scanning all the documents.
+   */
+  private void testQuery(String query, int numDocs) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    AggregationOperator starTreeOperator = new AggregationPlanNode(_mutableSegment, brokerRequest).run();
+    IntermediateResultsBlock starTreeResultsBlock = starTreeOperator.nextBlock();
+
+    BrokerRequest nonStarTreeBrokerRequest = COMPILER.compileToBrokerRequest(query);
+    nonStarTreeBrokerRequest.setDebugOptions(Collections.singletonMap(StarTreeUtils.USE_STAR_TREE_KEY, "false"));
+    AggregationOperator nonStarTreeOperator = new AggregationPlanNode(_mutableSegment, nonStarTreeBrokerRequest).run();
+    IntermediateResultsBlock nonStarTreeResultsBlock = nonStarTreeOperator.nextBlock();
+
+    String errorMessage = "Query: " + query + ", numDocs: " + numDocs + ", " + ERROR_MESSAGE;
+    assertEquals(starTreeResultsBlock.getAggregationResult(), nonStarTreeResultsBlock.getAggregationResult(),
+        errorMessage);
+    assertEquals(starTreeOperator.getExecutionStatistics().getNumTotalRawDocs(), numDocs, errorMessage);
+
+    // Without filter, the star-trees should be used on the sealed documents, and only the documents after them should
+    // be scanned
+    if (!query.contains("WHERE")) {
+      long numDocsScanned = starTreeOperator.getExecutionStatistics().getNumDocsScanned();
+      assertEquals(nonStarTreeOperator.getExecutionStatistics().getNumDocsScanned(), numDocs, errorMessage);
+      int numSealedDocs = (numDocs / NUM_DOCS_PER_TREE) * NUM_DOCS_PER_TREE;
+      assertTrue(numDocsScanned >= numDocs - numSealedDocs, errorMessage);
+      if (numSealedDocs > 0) {
+        assertTrue(numDocsScanned < numDocs, errorMessage);
+      } else {
+        assertEquals(numDocsScanned, numDocs, errorMessage);
+      }
+    }
+  }
+
+  /**
+   * Compares the documents matched by the filter plan node starting from a document id against the documents matched
+   * by the filter plan node on all the documents.
+   */
+  private void testFilterWithStartDocId(String query, int numDocs) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    List<Integer> allMatchingDocIds = getMatchingDocIds(new FilterPlanNode(_mutableSegment, brokerRequest).run());
+    for (int startDocId : new int[]{1, numDocs / 2, numDocs - 1, numDocs, numDocs + 1}) {
+      BaseFilterOperator filterOperator = new FilterPlanNode(_mutableSegment, brokerRequest, startDocId).run();
+      String errorMessage =
+          "Query: " + query + ", numDocs: " + numDocs + ", startDocId: " + startDocId + ", " + ERROR_MESSAGE;
+      if (startDocId >= numDocs) {
+        assertTrue(filterOperator.isResultEmpty(), errorMessage);
+        continue;
+      }
+      List<Integer> expectedDocIds = new ArrayList<>();
+      for (int docId : allMatchingDocIds) {
+        if (docId >= startDocId) {
+          expectedDocIds.add(docId);
+        }
+      }
+      assertEquals(getMatchingDocIds(filterOperator), expectedDocIds, errorMessage);
+    }
+  }
+
+  private static List<Integer> getMatchingDocIds(BaseFilterOperator filterOperator) {
+    List<Integer> docIds = new ArrayList<>();
+    if (filterOperator.isResultEmpty()) {
+      return docIds;
+    }
+    BlockDocIdIterator docIdIterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    int docId;
+    while ((docId = docIdIterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    return docIds;
+  }
+
+  @Test
+  public void testStarTreeDisabledWithMetricsAggregation() {
+    // Metrics aggregation requires no-dictionary metrics
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils
+        .createMutableSegmentImpl(getSchema(), Collections.singleton(METRIC), Collections.emptySet(),
+            Collections.emptySet(), true, getStarTreeV2BuilderConfigs(), NUM_DOCS_PER_TREE, TEMP_DIR);
+    try {
+      assertNull(mutableSegment.getStarTreeSnapshot());
+      assertNull(mutableSegment.getStarTrees());
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testStarTreeDisabledWithUpsert() {
+    String segmentName = new LLCSegmentName(RAW_TABLE_NAME, 0, 0, System.currentTimeMillis()).getSegmentName();
+    RealtimeSegmentStatsHistory statsHistory = mock(RealtimeSegmentStatsHistory.class);
+    when(statsHistory.getEstimatedCardinality(anyString())).thenReturn(200);
+    when(statsHistory.getEstimatedAvgColSize(anyString())).thenReturn(32);
+    RealtimeSegmentConfig realtimeSegmentConfig =
+        new RealtimeSegmentConfig.Builder().setSegmentName(segmentName).setStreamName(RAW_TABLE_NAME)
+            .setSchema(getSchema()).setCapacity(100000).setAvgNumMultiValues(2)
+            .setNoDictionaryColumns(Collections.emptySet()).setVarLengthDictionaryColumns(Collections.emptySet())
+            .setInvertedIndexColumns(Collections.emptySet())
+            .setRealtimeSegmentZKMetadata(new RealtimeSegmentZKMetadata())
+            .setMemoryManager(new DirectMemoryManager(segmentName)).setStatsHistory(statsHistory)
+            .setPrimaryKeyColumns(Collections.singletonList(DIMENSION_D1))
+            .setPartitionUpsertMetadataManager(new PartitionUpsertMetadataManager(RAW_TABLE_NAME + "_REALTIME", 0))
+            .setStarTreeV2BuilderConfigs(getStarTreeV2BuilderConfigs()).setStarTreeNumDocsPerTree(NUM_DOCS_PER_TREE)
+            .setStarTreeTempDir(TEMP_DIR).build();
+    MutableSegmentImpl mutableSegment = new MutableSegmentImpl(realtimeSegmentConfig);
+    try {
+      assertNotNull(mutableSegment.getValidDocIds());
+      assertNull(mutableSegment.getStarTreeSnapshot());
+      assertNull(mutableSegment.getStarTrees());
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testStarTreeMemoryAndBuildTime() {
+    String segmentName = new LLCSegmentName(RAW_TABLE_NAME, 0, 0, System.currentTimeMillis()).getSegmentName();
+    String realtimeTableName = RAW_TABLE_NAME + "_REALTIME";
+    RealtimeSegmentStatsHistory statsHistory = mock(RealtimeSegmentStatsHistory.class);
+    when(statsHistory.getEstimatedCardinality(anyString())).thenReturn(200);
+    when(statsHistory.getEstimatedAvgColSize(anyString())).thenReturn(32);
+    RealtimeSegmentZKMetadata segmentZKMetadata = new RealtimeSegmentZKMetadata();
+    segmentZKMetadata.setTableName(realtimeTableName);
+    DirectMemoryManager memoryManager = spy(new DirectMemoryManager(segmentName));
+    ServerMetrics serverMetrics = mock(ServerMetrics.class);
+    RealtimeSegmentConfig realtimeSegmentConfig =
+        new RealtimeSegmentConfig.Builder().setSegmentName(segmentName).setStreamName(RAW_TABLE_NAME)
+            .setSchema(getSchema()).setCapacity(100000).setAvgNumMultiValues(2)
+            .setNoDictionaryColumns(Collections.emptySet()).setVarLengthDictionaryColumns(Collections.emptySet())
+            .setInvertedIndexColumns(Collections.emptySet()).setRealtimeSegmentZKMetadata(segmentZKMetadata)
+            .setMemoryManager(memoryManager).setStatsHistory(statsHistory).setServerMetrics(serverMetrics)
+            .setStarTreeV2BuilderConfigs(getStarTreeV2BuilderConfigs()).setStarTreeNumDocsPerTree(NUM_DOCS_PER_TREE)
+            .setStarTreeTempDir(TEMP_DIR).build();
+    MutableSegmentImpl mutableSegment = new MutableSegmentImpl(realtimeSegmentConfig);
+    try {
+      StreamMessageMetadata defaultMetadata = new StreamMessageMetadata(System.currentTimeMillis());
+      long allocatedBytesBeforeSeal = 0;
+      for (int i = 0; i < 2 * NUM_DOCS_PER_TREE; i++) {
+        if (i == NUM_DOCS_PER_TREE - 1) {
+          allocatedBytesBeforeSeal = memoryManager.getTotalAllocatedBytes();
+        }
+        GenericRow row = new GenericRow();
+        row.putField(DIMENSION_D1, RANDOM.nextInt(10));
+        row.putField(DIMENSION_D2, "v" + RANDOM.nextInt(5));
+        row.putField(METRIC, RANDOM.nextInt(1000));
+        mutableSegment.index(row, defaultMetadata);
+      }
+      assertEquals(mutableSegment.getStarTreeSnapshot().getStarTrees().size(), 2, ERROR_MESSAGE);
+
+      // The star-trees should be loaded into buffers allocated from the memory manager of the segment, so that they are
+      // counted in the memory used by the segment
+      verify(memoryManager).allocate(anyLong(), eq(segmentName + ":star_tree_index_0"));
+      verify(memoryManager).allocate(anyLong(), eq(segmentName + ":star_tree_index_" + NUM_DOCS_PER_TREE));
+      assertTrue(memoryManager.getTotalAllocatedBytes() > allocatedBytesBeforeSeal, ERROR_MESSAGE);
+
+      // The time spent building the star-trees should be tracked for each build
+      verify(serverMetrics, times(2))
+          .addTimedTableValue(eq(realtimeTableName), eq(ServerTimer.REALTIME_STAR_TREE_BUILD_TIME_MS), anyLong(),
+              eq(TimeUnit.MILLISECONDS));
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _mutableSegment.destroy();
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
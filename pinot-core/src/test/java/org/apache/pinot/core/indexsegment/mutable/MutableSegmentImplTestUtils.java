@@ -18,13 +18,17 @@
  */
 package org.apache.pinot.core.indexsegment.mutable;
 
+import java.io.File;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.data.Schema;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentConfig;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
+import org.apache.pinot.core.startree.v2.builder.StarTreeV2BuilderConfig;
 
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
@@ -41,6 +45,15 @@ public class MutableSegmentImplTestUtils {
   public static MutableSegmentImpl createMutableSegmentImpl(@Nonnull Schema schema,
       @Nonnull Set<String> noDictionaryColumns, @Nonnull Set<String> varLengthDictionaryColumns,
       @Nonnull Set<String> invertedIndexColumns, boolean aggregateMetrics) {
+    return createMutableSegmentImpl(schema, noDictionaryColumns, varLengthDictionaryColumns, invertedIndexColumns,
+        aggregateMetrics, null, 0, null);
+  }
+
+  public static MutableSegmentImpl createMutableSegmentImpl(@Nonnull Schema schema,
+      @Nonnull Set<String> noDictionaryColumns, @Nonnull Set<String> varLengthDictionaryColumns,
+      @Nonnull Set<String> invertedIndexColumns, boolean aggregateMetrics,
+      @Nullable List<StarTreeV2BuilderConfig> starTreeV2BuilderConfigs, int starTreeNumDocsPerTree,
+      @Nullable File starTreeTempDir) {
     RealtimeSegmentStatsHistory statsHistory = mock(RealtimeSegmentStatsHistory.class);
     when(statsHistory.getEstimatedCardinality(anyString())).thenReturn(200);
     when(statsHistory.getEstimatedAvgColSize(anyString())).thenReturn(32);
@@ -51,7 +64,8 @@ public class MutableSegmentImplTestUtils {
             .setVarLengthDictionaryColumns(varLengthDictionaryColumns)
             .setInvertedIndexColumns(invertedIndexColumns).setRealtimeSegmentZKMetadata(new RealtimeSegmentZKMetadata())
             .setMemoryManager(new DirectMemoryManager(SEGMENT_NAME)).setStatsHistory(statsHistory)
-            .setAggregateMetrics(aggregateMetrics).build();
+            .setAggregateMetrics(aggregateMetrics).setStarTreeV2BuilderConfigs(starTreeV2BuilderConfigs)
+            .setStarTreeNumDocsPerTree(starTreeNumDocsPerTree).setStarTreeTempDir(starTreeTempDir).build();
     return new MutableSegmentImpl(realtimeSegmentConfig);
   }
 }
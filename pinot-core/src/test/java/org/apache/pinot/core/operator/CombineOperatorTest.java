@@ -0,0 +1,334 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.common.Block;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.data.GenericRow;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.indexsegment.mutable.MutableSegmentImpl;
+import org.apache.pinot.core.indexsegment.mutable.MutableSegmentImplTestUtils;
+import org.apache.pinot.core.operator.blocks.IntermediateResultsBlock;
+import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import org.apache.pinot.core.plan.maker.PlanMaker;
+import org.apache.pinot.core.query.aggregation.DistinctTable;
+import org.apache.pinot.core.realtime.stream.StreamMessageMetadata;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link CombineOperator} on multiple segments, including the segments skipped once enough rows are
+ * collected.
+ */
+public class CombineOperatorTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final PlanMaker PLAN_MAKER = new InstancePlanMakerImplV2();
+  private static final ExecutorService EXECUTOR_SERVICE = Executors.newFixedThreadPool(10);
+  private static final long TIMEOUT_MS = 10_000L;
+
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "CombineOperatorTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME_PREFIX = "testSegment_";
+  private static final String D_COLUMN = "d";
+  private static final String T_COLUMN = "t";
+  // The combine operator splits the segments into at most (number of processors / 2) groups, so that each group has
+  // multiple segments
+  private static final int NUM_SEGMENTS = Runtime.getRuntime().availableProcessors() + 4;
+  private static final int NUM_DOCS_PER_SEGMENT = 100;
+  private static final int NUM_DISTINCT_VALUES_PER_SEGMENT = 10;
+
+  private final List<IndexSegment> _indexSegments = new ArrayList<>(NUM_SEGMENTS);
+  private final List<IndexSegment> _orderByIndexSegments = new ArrayList<>();
+  private final Set<Integer> _dValues = new HashSet<>();
+  private final Set<Long> _tValues = new HashSet<>();
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    Pql2Compiler.ENABLE_DISTINCT = true;
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension(D_COLUMN, DataType.INT).addSingleValueDimension(T_COLUMN, DataType.LONG).build();
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      // Each segment has 10 distinct values of d (overlapping with the other segments), and a disjoint range of t
+      List<GenericRow> rows = new ArrayList<>(NUM_DOCS_PER_SEGMENT);
+      for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+        int dValue = i + j % NUM_DISTINCT_VALUES_PER_SEGMENT;
+        long tValue = i * 1000L + j;
+        GenericRow row = new GenericRow();
+        row.putField(D_COLUMN, dValue);
+        row.putField(T_COLUMN, tValue);
+        rows.add(row);
+        _dValues.add(dValue);
+        _tValues.add(tValue);
+      }
+      _indexSegments.add(createSegment(schema, SEGMENT_NAME_PREFIX + i, rows));
+    }
+
+    // Segments for the order-by queries on t (ordered by d on ties)
+    // Segments with disjoint ranges of t, where each value of t shows up 4 times
+    for (int i = 0; i < NUM_SEGMENTS; i++) {
+      List<GenericRow> rows = new ArrayList<>(NUM_DOCS_PER_SEGMENT);
+      for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+        rows.add(createRow(j, i * 1000L + j / 4));
+      }
+      _orderByIndexSegments.add(createSegment(schema, SEGMENT_NAME_PREFIX + "disjoint_" + i, rows));
+    }
+    // Segments with ranges of t overlapping with the disjoint segments
+    List<GenericRow> rows = new ArrayList<>(NUM_DOCS_PER_SEGMENT);
+    for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+      rows.add(createRow(j, 500L + j * 20));
+    }
+    _orderByIndexSegments.add(createSegment(schema, SEGMENT_NAME_PREFIX + "overlapping_0", rows));
+    rows = new ArrayList<>(NUM_DOCS_PER_SEGMENT);
+    for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+      rows.add(createRow(j, j * NUM_SEGMENTS * 10L));
+    }
+    _orderByIndexSegments.add(createSegment(schema, SEGMENT_NAME_PREFIX + "overlapping_1", rows));
+    // Segment with values of t tied with the last rows kept from the best disjoint segment (for both ASC and DESC),
+    // which cannot be skipped because they win on d
+    rows = new ArrayList<>(NUM_DOCS_PER_SEGMENT);
+    for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+      rows.add(createRow(-j - 1, j < NUM_DOCS_PER_SEGMENT / 2 ? 3L : (NUM_SEGMENTS - 1) * 1000L + 21));
+    }
+    _orderByIndexSegments.add(createSegment(schema, SEGMENT_NAME_PREFIX + "tie", rows));
+    // Consuming segment, which has no column metadata to be skipped with
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils
+        .createMutableSegmentImpl(schema, Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
+            false);
+    StreamMessageMetadata defaultMetadata = new StreamMessageMetadata(System.currentTimeMillis());
+    for (int j = 0; j < NUM_DOCS_PER_SEGMENT; j++) {
+      mutableSegment.index(createRow(j, (j * 37L) % (NUM_SEGMENTS * 1000L)), defaultMetadata);
+    }
+    _orderByIndexSegments.add(mutableSegment);
+  }
+
+  private static GenericRow createRow(int dValue, long tValue) {
+    GenericRow row = new GenericRow();
+    row.putField(D_COLUMN, dValue);
+    row.putField(T_COLUMN, tValue);
+    return row;
+  }
+
+  private static IndexSegment createSegment(Schema schema, String segmentName, List<GenericRow> rows)
+      throws Exception {
+    SegmentGeneratorConfig segmentGeneratorConfig = new SegmentGeneratorConfig(schema);
+    segmentGeneratorConfig.setTableName(RAW_TABLE_NAME);
+    segmentGeneratorConfig.setSegmentName(segmentName);
+    segmentGeneratorConfig.setOutDir(INDEX_DIR.getPath());
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(segmentGeneratorConfig, new GenericRowRecordReader(rows, schema));
+    driver.build();
+    return ImmutableSegmentLoader.load(new File(INDEX_DIR, segmentName), ReadMode.mmap);
+  }
+
+  @Test
+  public void testSelectionOnly() {
+    // Each segment group should stop after its first segment, which has enough rows
+    int limit = 10;
+    CombineResult result = combine("SELECT d, t FROM testTable LIMIT " + limit, _indexSegments);
+    assertEquals(result._resultsBlock.getSelectionResult().size(), limit);
+    checkSelectionRows(result);
+    assertTrue(result._numSegmentsProcessed < NUM_SEGMENTS);
+    assertEquals(result._numDocsScanned, result._numSegmentsProcessed * limit);
+
+    // Rows from multiple segments are needed
+    limit = NUM_DOCS_PER_SEGMENT * 5 / 2;
+    result = combine("SELECT d, t FROM testTable LIMIT " + limit, _indexSegments);
+    assertEquals(result._resultsBlock.getSelectionResult().size(), limit);
+    checkSelectionRows(result);
+    assertTrue(result._numSegmentsProcessed >= 3);
+
+    // All segments are needed
+    int numDocs = NUM_SEGMENTS * NUM_DOCS_PER_SEGMENT;
+    result = combine("SELECT d, t FROM testTable LIMIT " + (numDocs + 1), _indexSegments);
+    assertEquals(result._resultsBlock.getSelectionResult().size(), numDocs);
+    checkSelectionRows(result);
+    assertEquals(result._numSegmentsProcessed, NUM_SEGMENTS);
+    assertEquals(result._numDocsScanned, numDocs);
+  }
+
+  private void checkSelectionRows(CombineResult result) {
+    Set<Long> tValues = new HashSet<>();
+    for (Serializable[] row : result._resultsBlock.getSelectionResult()) {
+      assertTrue(_dValues.contains(row[0]));
+      assertTrue(_tValues.contains(row[1]));
+      // Values of t are unique
+      assertTrue(tValues.add((Long) row[1]));
+    }
+  }
+
+  @Test
+  public void testDistinct() {
+    // Each segment group should stop after its first segment, which has enough distinct values
+    int limit = NUM_DISTINCT_VALUES_PER_SEGMENT / 2;
+    CombineResult result = combine("SELECT DISTINCT(d) FROM testTable LIMIT " + limit, _indexSegments);
+    Set<Integer> dValues = getDistinctValues(result);
+    assertEquals(dValues.size(), limit);
+    assertTrue(_dValues.containsAll(dValues));
+    assertTrue(result._numSegmentsProcessed < NUM_SEGMENTS);
+    assertEquals(result._numDocsScanned, result._numSegmentsProcessed * NUM_DOCS_PER_SEGMENT);
+
+    // All segments are needed
+    result = combine("SELECT DISTINCT(d) FROM testTable LIMIT " + (_dValues.size() + 1), _indexSegments);
+    assertEquals(getDistinctValues(result), _dValues);
+    assertEquals(result._numSegmentsProcessed, NUM_SEGMENTS);
+    assertEquals(result._numDocsScanned, NUM_SEGMENTS * NUM_DOCS_PER_SEGMENT);
+  }
+
+  private static Set<Integer> getDistinctValues(CombineResult result) {
+    DistinctTable distinctTable = (DistinctTable) result._resultsBlock.getAggregationResult().get(0);
+    Set<Integer> values = new HashSet<>();
+    Iterator<Key> iterator = distinctTable.getIterator();
+    while (iterator.hasNext()) {
+      values.add((Integer) iterator.next().getColumns()[0]);
+    }
+    return values;
+  }
+
+  @Test
+  public void testSelectionOrderBy() {
+    int numSegments = _orderByIndexSegments.size();
+    for (String order : new String[]{"ASC", "DESC"}) {
+      for (String limit : new String[]{"10", "5, 10"}) {
+        String query = "SELECT d, t FROM testTable ORDER BY t " + order + ", d LIMIT " + limit;
+        CombineResult result = combine(query, _orderByIndexSegments, true);
+        CombineResult expectedResult = combine(query, _orderByIndexSegments, false);
+        assertEquals(getSortedRows(result), getSortedRows(expectedResult), query);
+        // The worst disjoint segment cannot beat the first 15 rows of any other segment
+        assertTrue(result._numSegmentsProcessed < numSegments, query);
+        assertEquals(expectedResult._numSegmentsProcessed, numSegments, query);
+        assertTrue(result._numDocsScanned < expectedResult._numDocsScanned, query);
+      }
+    }
+  }
+
+  /**
+   * Returns the rows of the selection order-by result sorted on all the columns, so that the results can be compared
+   * regardless of the order of the rows in the priority queue.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Serializable[]> getSortedRows(CombineResult result) {
+    List<Serializable[]> rows = new ArrayList<>(result._resultsBlock.getSelectionResult());
+    rows.sort((row1, row2) -> {
+      for (int i = 0; i < row1.length; i++) {
+        int cmp = ((Comparable) row1[i]).compareTo(row2[i]);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    });
+    return rows;
+  }
+
+  private static CombineResult combine(String query, List<IndexSegment> indexSegments) {
+    return combine(query, indexSegments, true);
+  }
+
+  /**
+   * Runs the query on the given segments with the combine operator, and collects the execution statistics of the
+   * segments processed (the skipped segments are never executed, so they have no execution statistics).
+   * <p>When the segments cannot be skipped with the order-by bounds, the segment operators are wrapped so that the
+   * combine operator cannot read the segment metadata, which gives the result without optimization.
+   */
+  private static CombineResult combine(String query, List<IndexSegment> indexSegments,
+      boolean skipSegmentsWithOrderByBounds) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    List<Operator> operators = new ArrayList<>(indexSegments.size());
+    for (IndexSegment indexSegment : indexSegments) {
+      Operator operator = PLAN_MAKER.makeInnerSegmentPlan(indexSegment, brokerRequest).run();
+      operators.add(skipSegmentsWithOrderByBounds ? operator : new Operator() {
+        @Override
+        public Block nextBlock() {
+          return operator.nextBlock();
+        }
+
+        @Override
+        public ExecutionStatistics getExecutionStatistics() {
+          return operator.getExecutionStatistics();
+        }
+      });
+    }
+    IntermediateResultsBlock resultsBlock =
+        new CombineOperator(operators, EXECUTOR_SERVICE, TIMEOUT_MS, brokerRequest).nextBlock();
+    // Each segment group must produce a result block, otherwise the combine operator would time out
+    List<?> processingExceptions = resultsBlock.getProcessingExceptions();
+    assertTrue(processingExceptions == null || processingExceptions.isEmpty(), String.valueOf(processingExceptions));
+
+    CombineResult result = new CombineResult(resultsBlock);
+    for (Operator operator : operators) {
+      ExecutionStatistics executionStatistics = operator.getExecutionStatistics();
+      if (executionStatistics != null) {
+        result._numSegmentsProcessed++;
+        result._numDocsScanned += executionStatistics.getNumDocsScanned();
+      }
+    }
+    return result;
+  }
+
+  private static class CombineResult {
+    final IntermediateResultsBlock _resultsBlock;
+    int _numSegmentsProcessed;
+    long _numDocsScanned;
+
+    CombineResult(IntermediateResultsBlock resultsBlock) {
+      _resultsBlock = resultsBlock;
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    for (IndexSegment indexSegment : _indexSegments) {
+      indexSegment.destroy();
+    }
+    for (IndexSegment indexSegment : _orderByIndexSegments) {
+      indexSegment.destroy();
+    }
+    EXECUTOR_SERVICE.shutdown();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
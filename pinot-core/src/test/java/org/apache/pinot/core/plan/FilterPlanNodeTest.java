@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.plan;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.segment.SegmentMetadata;
+import org.apache.pinot.core.common.BlockDocIdIterator;
+import org.apache.pinot.core.common.Constants;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.core.realtime.impl.upsert.ValidDocIds;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class FilterPlanNodeTest {
+  private static final int NUM_DOCS = 10;
+
+  @Test
+  public void testValidDocIds() {
+    ValidDocIds validDocIds = new ValidDocIds();
+    validDocIds.add(1);
+    validDocIds.add(3);
+    validDocIds.add(5);
+    IndexSegment segment = getSegment(validDocIds);
+    BrokerRequest brokerRequest = new BrokerRequest();
+
+    // Only the valid documents should be matched
+    Assert.assertEquals(getMatchingDocIds(new FilterPlanNode(segment, brokerRequest).run()), new int[]{1, 3, 5});
+    Assert.assertEquals(getMatchingDocIds(new FilterPlanNode(segment, brokerRequest, 2).run()), new int[]{3, 5});
+
+    // Documents invalidated after the plan is made should not affect it
+    FilterPlanNode filterPlanNode = new FilterPlanNode(segment, brokerRequest);
+    BaseFilterOperator filterOperator = filterPlanNode.run();
+    validDocIds.remove(3);
+    validDocIds.add(7);
+    Assert.assertEquals(getMatchingDocIds(filterOperator), new int[]{1, 3, 5});
+    Assert.assertEquals(getMatchingDocIds(filterPlanNode.run()), new int[]{1, 5, 7});
+  }
+
+  @Test
+  public void testWithoutValidDocIds() {
+    IndexSegment segment = getSegment(null);
+    BrokerRequest brokerRequest = new BrokerRequest();
+    Assert.assertEquals(getMatchingDocIds(new FilterPlanNode(segment, brokerRequest).run()).length, NUM_DOCS);
+    Assert.assertEquals(getMatchingDocIds(new FilterPlanNode(segment, brokerRequest, 8).run()), new int[]{8, 9});
+  }
+
+  private static IndexSegment getSegment(ValidDocIds validDocIds) {
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getTotalRawDocs()).thenReturn(NUM_DOCS);
+    IndexSegment segment = mock(IndexSegment.class);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    return segment;
+  }
+
+  private static int[] getMatchingDocIds(BaseFilterOperator filterOperator) {
+    BlockDocIdIterator docIdIterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> docIds = new ArrayList<>();
+    int docId;
+    while ((docId = docIdIterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    return docIds.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -18,9 +18,13 @@
  */
 package org.apache.pinot.core.query.aggregation.function;
 
+import java.util.Arrays;
+import java.util.Collections;
 import org.apache.pinot.common.function.AggregationFunctionType;
 import org.apache.pinot.common.request.AggregationInfo;
 import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.transform.TransformExpressionTree;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -83,6 +87,31 @@ public class AggregationFunctionFactoryTest {
     Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.DISTINCTCOUNT);
     Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "distinctCount_column");
 
+    aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("DiStInCtCoUnTeXaCt");
+    aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
+    Assert.assertTrue(aggregationFunction instanceof DistinctCountExactAggregationFunction);
+    Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.DISTINCTCOUNTEXACT);
+    Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "distinctCountExact_column");
+
+    aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("DiStInCtCoUnTtHeTaSkEtCh");
+    aggregationInfo.putToAggregationParams(AggregationFunctionUtils.COLUMN_KEY, "setIntersect(a, setUnion(b, a))");
+    aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
+    Assert.assertTrue(aggregationFunction instanceof DistinctCountThetaSketchAggregationFunction);
+    Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.DISTINCTCOUNTTHETASKETCH);
+    Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "distinctCountThetaSketch_column");
+    Assert.assertEquals(((DistinctCountThetaSketchAggregationFunction) aggregationFunction).getInputExpressions(),
+        Arrays.asList(TransformExpressionTree.compileToExpressionTree("a"),
+            TransformExpressionTree.compileToExpressionTree("b")));
+
+    aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("DiStInCtCoUnThLlSkEtCh");
+    aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
+    Assert.assertTrue(aggregationFunction instanceof DistinctCountHLLSketchAggregationFunction);
+    Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.DISTINCTCOUNTHLLSKETCH);
+    Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "distinctCountHLLSketch_column");
+
     aggregationInfo = new AggregationInfo();
     aggregationInfo.setAggregationType("DiStInCtCoUnThLl");
     aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
@@ -126,6 +155,13 @@ public class AggregationFunctionFactoryTest {
     Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.PERCENTILETDIGEST);
     Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "percentileTDigest99_column");
 
+    aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("PeRcEnTiLeKlL99");
+    aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
+    Assert.assertTrue(aggregationFunction instanceof PercentileKLLAggregationFunction);
+    Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.PERCENTILEKLL);
+    Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "percentileKLL99_column");
+
     aggregationInfo = new AggregationInfo();
     aggregationInfo.setAggregationType("CoUnTmV");
     aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
@@ -209,5 +245,36 @@ public class AggregationFunctionFactoryTest {
     Assert.assertTrue(aggregationFunction instanceof PercentileTDigestMVAggregationFunction);
     Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.PERCENTILETDIGESTMV);
     Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "percentileTDigest95MV_column");
+
+    aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("PeRcEnTiLeKlL95mV");
+    aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo, brokerRequest);
+    Assert.assertTrue(aggregationFunction instanceof PercentileKLLMVAggregationFunction);
+    Assert.assertEquals(aggregationFunction.getType(), AggregationFunctionType.PERCENTILEKLLMV);
+    Assert.assertEquals(aggregationFunction.getColumnName(COLUMN), "percentileKLL95MV_column");
+  }
+
+  @Test
+  public void testPercentileMaxExactValues() {
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("PeRcEnTiLe95");
+    BrokerRequest brokerRequest = new BrokerRequest();
+    PercentileAggregationFunction aggregationFunction =
+        (PercentileAggregationFunction) AggregationFunctionFactory.getAggregationFunction(aggregationInfo,
+            brokerRequest);
+    Assert.assertEquals(aggregationFunction._maxExactValues, 0);
+
+    brokerRequest.setQueryOptions(Collections.singletonMap(QueryOptionKey.PERCENTILE_MAX_EXACT_VALUES, "1000"));
+    aggregationFunction =
+        (PercentileAggregationFunction) AggregationFunctionFactory.getAggregationFunction(aggregationInfo,
+            brokerRequest);
+    Assert.assertEquals(aggregationFunction._maxExactValues, 1000);
+
+    // Invalid value should fall back to no limit instead of failing the query
+    brokerRequest.setQueryOptions(Collections.singletonMap(QueryOptionKey.PERCENTILE_MAX_EXACT_VALUES, "invalid"));
+    aggregationFunction =
+        (PercentileAggregationFunction) AggregationFunctionFactory.getAggregationFunction(aggregationInfo,
+            brokerRequest);
+    Assert.assertEquals(aggregationFunction._maxExactValues, 0);
   }
 }
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Random;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.core.common.BlockValSet;
+import org.apache.pinot.core.query.aggregation.AggregationResultHolder;
+import org.apache.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests that the dictionary id based path of {@link DistinctCountAggregationFunction} gives the same results as the
+ * value based path.
+ */
+public class DistinctCountAggregationFunctionTest {
+  private static final int NUM_DOCS = 1000;
+  private static final int CARDINALITY = 100;
+  private static final int NUM_GROUPS = 10;
+  private static final DataType[] VALUE_TYPES =
+      new DataType[]{DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE, DataType.STRING};
+  private static final Random RANDOM = new Random();
+
+  private final DistinctCountAggregationFunction _function = new DistinctCountAggregationFunction();
+
+  @Test
+  public void testAggregation() {
+    for (DataType valueType : VALUE_TYPES) {
+      int[] dictIds = getDictIds();
+      BlockValSet dictIdBlockValSet = getDictIdBlockValSet(valueType, dictIds);
+      BlockValSet valueBlockValSet = getValueBlockValSet(valueType, dictIds);
+
+      AggregationResultHolder dictIdResultHolder = _function.createAggregationResultHolder();
+      AggregationResultHolder valueResultHolder = _function.createAggregationResultHolder();
+      // Aggregate in 2 blocks to test accumulating into the same result
+      int length = NUM_DOCS / 2;
+      _function.aggregate(length, dictIdResultHolder, dictIdBlockValSet);
+      _function.aggregate(length, valueResultHolder, valueBlockValSet);
+      int[] secondBlockDictIds = getDictIds();
+      _function.aggregate(length, dictIdResultHolder, getDictIdBlockValSet(valueType, secondBlockDictIds));
+      _function.aggregate(length, valueResultHolder, getValueBlockValSet(valueType, secondBlockDictIds));
+
+      IntOpenHashSet dictIdResult = _function.extractAggregationResult(dictIdResultHolder);
+      IntOpenHashSet valueResult = _function.extractAggregationResult(valueResultHolder);
+      Assert.assertEquals(dictIdResult, valueResult, "Mismatch for value type: " + valueType);
+      Assert.assertEquals(_function.extractFinalResult(dictIdResult), _function.extractFinalResult(valueResult));
+    }
+  }
+
+  @Test
+  public void testGroupBy() {
+    for (DataType valueType : VALUE_TYPES) {
+      int[] dictIds = getDictIds();
+      BlockValSet dictIdBlockValSet = getDictIdBlockValSet(valueType, dictIds);
+      BlockValSet valueBlockValSet = getValueBlockValSet(valueType, dictIds);
+
+      // Single-value group keys
+      int[] groupKeyArray = new int[NUM_DOCS];
+      for (int i = 0; i < NUM_DOCS; i++) {
+        groupKeyArray[i] = RANDOM.nextInt(NUM_GROUPS);
+      }
+      GroupByResultHolder dictIdResultHolder = _function.createGroupByResultHolder(NUM_GROUPS, NUM_GROUPS);
+      GroupByResultHolder valueResultHolder = _function.createGroupByResultHolder(NUM_GROUPS, NUM_GROUPS);
+      _function.aggregateGroupBySV(NUM_DOCS, groupKeyArray, dictIdResultHolder, dictIdBlockValSet);
+      _function.aggregateGroupBySV(NUM_DOCS, groupKeyArray, valueResultHolder, valueBlockValSet);
+      for (int groupKey = 0; groupKey < NUM_GROUPS; groupKey++) {
+        Assert.assertEquals(_function.extractGroupByResult(dictIdResultHolder, groupKey),
+            _function.extractGroupByResult(valueResultHolder, groupKey), "Mismatch for value type: " + valueType);
+      }
+
+      // Multi-value group keys
+      int[][] groupKeysArray = new int[NUM_DOCS][];
+      for (int i = 0; i < NUM_DOCS; i++) {
+        groupKeysArray[i] = new int[]{RANDOM.nextInt(NUM_GROUPS), RANDOM.nextInt(NUM_GROUPS)};
+      }
+      dictIdResultHolder = _function.createGroupByResultHolder(NUM_GROUPS, NUM_GROUPS);
+      valueResultHolder = _function.createGroupByResultHolder(NUM_GROUPS, NUM_GROUPS);
+      _function.aggregateGroupByMV(NUM_DOCS, groupKeysArray, dictIdResultHolder, dictIdBlockValSet);
+      _function.aggregateGroupByMV(NUM_DOCS, groupKeysArray, valueResultHolder, valueBlockValSet);
+      for (int groupKey = 0; groupKey < NUM_GROUPS; groupKey++) {
+        Assert.assertEquals(_function.extractGroupByResult(dictIdResultHolder, groupKey),
+            _function.extractGroupByResult(valueResultHolder, groupKey), "Mismatch for value type: " + valueType);
+      }
+    }
+  }
+
+  private static int[] getDictIds() {
+    int[] dictIds = new int[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; i++) {
+      dictIds[i] = RANDOM.nextInt(CARDINALITY);
+    }
+    return dictIds;
+  }
+
+  private static BlockValSet getDictIdBlockValSet(DataType valueType, int[] dictIds) {
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.getIntValue(anyInt())).thenAnswer(invocation -> getIntValue(invocation.getArgument(0)));
+    when(dictionary.getLongValue(anyInt())).thenAnswer(invocation -> getLongValue(invocation.getArgument(0)));
+    when(dictionary.getFloatValue(anyInt())).thenAnswer(invocation -> getFloatValue(invocation.getArgument(0)));
+    when(dictionary.getDoubleValue(anyInt())).thenAnswer(invocation -> getDoubleValue(invocation.getArgument(0)));
+    when(dictionary.getStringValue(anyInt())).thenAnswer(invocation -> getStringValue(invocation.getArgument(0)));
+
+    BlockValSet blockValSet = mock(BlockValSet.class);
+    when(blockValSet.getValueType()).thenReturn(valueType);
+    when(blockValSet.isSingleValue()).thenReturn(true);
+    when(blockValSet.getDictionary()).thenReturn(dictionary);
+    when(blockValSet.getDictionaryIdsSV()).thenReturn(dictIds);
+    return blockValSet;
+  }
+
+  private static BlockValSet getValueBlockValSet(DataType valueType, int[] dictIds) {
+    int numValues = dictIds.length;
+    int[] intValues = new int[numValues];
+    long[] longValues = new long[numValues];
+    float[] floatValues = new float[numValues];
+    double[] doubleValues = new double[numValues];
+    String[] stringValues = new String[numValues];
+    for (int i = 0; i < numValues; i++) {
+      int dictId = dictIds[i];
+      intValues[i] = getIntValue(dictId);
+      longValues[i] = getLongValue(dictId);
+      floatValues[i] = getFloatValue(dictId);
+      doubleValues[i] = getDoubleValue(dictId);
+      stringValues[i] = getStringValue(dictId);
+    }
+
+    BlockValSet blockValSet = mock(BlockValSet.class);
+    when(blockValSet.getValueType()).thenReturn(valueType);
+    when(blockValSet.isSingleValue()).thenReturn(true);
+    when(blockValSet.getDictionary()).thenReturn(null);
+    when(blockValSet.getIntValuesSV()).thenReturn(intValues);
+    when(blockValSet.getLongValuesSV()).thenReturn(longValues);
+    when(blockValSet.getFloatValuesSV()).thenReturn(floatValues);
+    when(blockValSet.getDoubleValuesSV()).thenReturn(doubleValues);
+    when(blockValSet.getStringValuesSV()).thenReturn(stringValues);
+    return blockValSet;
+  }
+
+  // Values are spread out so that the hashes of the different types are exercised
+
+  private static int getIntValue(int dictId) {
+    return dictId * 7919 - 100000;
+  }
+
+  private static long getLongValue(int dictId) {
+    return (long) getIntValue(dictId) * Integer.MAX_VALUE;
+  }
+
+  private static float getFloatValue(int dictId) {
+    return getIntValue(dictId) / 3f;
+  }
+
+  private static double getDoubleValue(int dictId) {
+    return getIntValue(dictId) / 3.0;
+  }
+
+  private static String getStringValue(int dictId) {
+    return "value_" + getIntValue(dictId);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.aggregation.function;
+
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class PercentileAggregationFunctionTest {
+  private static final int NUM_VALUES = 1000;
+  private static final int MAX_EXACT_VALUES = 2500;
+
+  @Test
+  public void testDowngradeToSketch() {
+    PercentileAggregationFunction function = new PercentileAggregationFunction(50, MAX_EXACT_VALUES);
+
+    // Under the limit, values should be kept
+    Object intermediateResult = function.merge(getValueList(0), getValueList(NUM_VALUES / 2));
+    Assert.assertTrue(intermediateResult instanceof DoubleArrayList);
+    Assert.assertEquals(((DoubleArrayList) intermediateResult).size(), 2 * NUM_VALUES);
+    Assert.assertEquals(function.extractFinalResult(intermediateResult), 750.0);
+
+    // Over the limit, values should be converted into a sketch
+    intermediateResult = function.merge(intermediateResult, getValueList(NUM_VALUES));
+    Assert.assertTrue(intermediateResult instanceof DoublesSketch);
+    Assert.assertEquals(((DoublesSketch) intermediateResult).getN(), 3 * NUM_VALUES);
+
+    // Merging values into a sketch
+    intermediateResult = function.merge(intermediateResult, getValueList(NUM_VALUES));
+    Assert.assertTrue(intermediateResult instanceof DoublesSketch);
+    Assert.assertEquals(((DoublesSketch) intermediateResult).getN(), 4 * NUM_VALUES);
+
+    // Merging a sketch into values
+    intermediateResult = function.merge(getValueList(0), intermediateResult);
+    Assert.assertTrue(intermediateResult instanceof DoublesSketch);
+    Assert.assertEquals(((DoublesSketch) intermediateResult).getN(), 5 * NUM_VALUES);
+
+    // Values in [0, 500) and [1500, 2000) twice, [500, 1500) 3 times, median should be around 1000
+    Assert.assertEquals(function.extractFinalResult(intermediateResult), 1000.0, 50.0);
+  }
+
+  @Test
+  public void testDowngradeLargeValues() {
+    PercentileAggregationFunction function = new PercentileAggregationFunction(50, MAX_EXACT_VALUES);
+
+    // Large LONG values (beyond the float precision) should not lose precision when downgraded to a sketch
+    long baseValue = 1_000_000_000_000_000L;
+    Object intermediateResult = getValueList(0);
+    for (int i = 0; i < 3; i++) {
+      DoubleArrayList valueList = new DoubleArrayList(NUM_VALUES);
+      for (int j = 0; j < NUM_VALUES; j++) {
+        valueList.add(baseValue + i * NUM_VALUES + j);
+      }
+      intermediateResult = function.merge(intermediateResult, valueList);
+    }
+    Assert.assertTrue(intermediateResult instanceof DoublesSketch);
+    // Values in [0, 1000) and [baseValue, baseValue + 3000), median should be around baseValue + 1000
+    Assert.assertEquals(function.extractFinalResult(intermediateResult), (double) (baseValue + 1000), 100.0);
+  }
+
+  @Test
+  public void testNoLimit() {
+    PercentileAggregationFunction function = new PercentileAggregationFunction(50);
+    Object intermediateResult = getValueList(0);
+    for (int i = 0; i < 10; i++) {
+      intermediateResult = function.merge(intermediateResult, getValueList(0));
+    }
+    Assert.assertTrue(intermediateResult instanceof DoubleArrayList);
+    Assert.assertEquals(((DoubleArrayList) intermediateResult).size(), 11 * NUM_VALUES);
+  }
+
+  /**
+   * Returns a value list with NUM_VALUES consecutive values starting from the given value.
+   */
+  private static DoubleArrayList getValueList(int startValue) {
+    DoubleArrayList valueList = new DoubleArrayList(NUM_VALUES);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      valueList.add(startValue + i);
+    }
+    return valueList;
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.reduce;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.ServerInstance;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.core.common.datatable.DataTableBuilder;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+public class BrokerReduceServiceTest {
+  private static final int NUM_SERVERS = 4;
+  private static final int NUM_ROWS_PER_SERVER = 40_000;
+  private static final int NUM_GROUPS = 60_000;
+  private static final String QUERY =
+      "SELECT SUM(metric) FROM testTable GROUP BY key ORDER BY SUM(metric) DESC, key TOP 1000";
+
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(NUM_SERVERS);
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Test
+  public void testParallelGroupByReduce() {
+    BrokerRequest brokerRequest = getBrokerRequest();
+    Map<ServerInstance, DataTable> dataTableMap = getDataTableMap(NUM_SERVERS);
+
+    BrokerResponseNative expected = new BrokerReduceService().reduceOnDataTable(brokerRequest, dataTableMap, null);
+    BrokerResponseNative actual = new BrokerReduceService(_executorService, NUM_SERVERS)
+        .reduceOnDataTable(brokerRequest, dataTableMap, null);
+    assertSameRows(actual, expected);
+  }
+
+  @Test
+  public void testReduceTasksBoundedByMaxParallelism() {
+    BrokerRequest brokerRequest = getBrokerRequest();
+    // More data tables than the max parallelism
+    int numServers = 4 * NUM_SERVERS;
+    int maxParallelism = 2;
+    Map<ServerInstance, DataTable> dataTableMap = getDataTableMap(numServers);
+
+    ThreadPoolExecutor executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(NUM_SERVERS);
+    try {
+      BrokerResponseNative expected = new BrokerReduceService().reduceOnDataTable(brokerRequest, dataTableMap, null);
+      BrokerResponseNative actual = new BrokerReduceService(executorService, maxParallelism)
+          .reduceOnDataTable(brokerRequest, dataTableMap, null);
+      assertSameRows(actual, expected);
+
+      // One extraction and one merge task per partition
+      Assert.assertEquals(executorService.getTaskCount(), 2 * maxParallelism);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void testReduceTimeout()
+      throws Exception {
+    BrokerRequest brokerRequest = getBrokerRequest();
+    Map<ServerInstance, DataTable> dataTableMap = getDataTableMap(NUM_SERVERS);
+
+    // Occupy the only reduce thread so that the reduce tasks cannot finish in time
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    CountDownLatch latch = new CountDownLatch(1);
+    executorService.submit(() -> {
+      latch.await();
+      return null;
+    });
+    try {
+      new BrokerReduceService(executorService, NUM_SERVERS).reduceOnDataTable(brokerRequest, dataTableMap, 100L, null);
+      Assert.fail("Reduce should time out");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getCause() instanceof TimeoutException);
+    } finally {
+      latch.countDown();
+      executorService.shutdown();
+    }
+  }
+
+  private static BrokerRequest getBrokerRequest() {
+    BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest(QUERY);
+    Map<String, String> queryOptions = new HashMap<>();
+    queryOptions.put(QueryOptionKey.GROUP_BY_MODE, Request.SQL);
+    queryOptions.put(QueryOptionKey.RESPONSE_FORMAT, Request.SQL);
+    brokerRequest.setQueryOptions(queryOptions);
+    return brokerRequest;
+  }
+
+  private static Map<ServerInstance, DataTable> getDataTableMap(int numServers) {
+    DataSchema dataSchema = new DataSchema(new String[]{"key", "sum(metric)"},
+        new ColumnDataType[]{ColumnDataType.STRING, ColumnDataType.DOUBLE});
+    Map<ServerInstance, DataTable> dataTableMap = new LinkedHashMap<>();
+    for (int i = 0; i < numServers; i++) {
+      DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema);
+      for (int j = 0; j < NUM_ROWS_PER_SERVER; j++) {
+        dataTableBuilder.startRow();
+        dataTableBuilder.setColumn(0, "key" + (j * 7 + i) % NUM_GROUPS);
+        dataTableBuilder.setColumn(1, (double) ((j * 31 + i * 17) % 1000));
+        dataTableBuilder.finishRow();
+      }
+      dataTableMap.put(new ServerInstance("localhost:" + i), dataTableBuilder.build());
+    }
+    return dataTableMap;
+  }
+
+  private static void assertSameRows(BrokerResponseNative actual, BrokerResponseNative expected) {
+    List<Serializable[]> expectedRows = expected.getResultTable().getRows();
+    List<Serializable[]> actualRows = actual.getResultTable().getRows();
+    Assert.assertEquals(expectedRows.size(), 1000);
+    Assert.assertEquals(actualRows.size(), expectedRows.size());
+    for (int i = 0; i < expectedRows.size(); i++) {
+      Assert.assertEquals(actualRows.get(i), expectedRows.get(i));
+    }
+  }
+}
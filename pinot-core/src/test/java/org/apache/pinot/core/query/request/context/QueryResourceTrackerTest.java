@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.request.context;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.core.query.scheduler.AbstractSchedulerGroup;
+import org.apache.pinot.core.query.scheduler.SchedulerGroupAccountant;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class QueryResourceTrackerTest {
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final long CPU_TIME_TO_BURN_NS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  @Test
+  public void testStartEndThread() {
+    QueryResourceTracker resourceTracker = new QueryResourceTracker();
+    SchedulerGroupAccountant schedulerGroup = new TestSchedulerGroup();
+    resourceTracker.setSchedulerGroup(schedulerGroup);
+
+    assertTrue(resourceTracker.startThread());
+    burnCpu();
+    // Usage of the running thread is included
+    long cpuTimeNs = resourceTracker.getCpuTimeNs();
+    assertUsedAtLeast(cpuTimeNs, CPU_TIME_TO_BURN_NS);
+    // Nothing is charged until the thread ends or the CPU time is charged explicitly
+    assertEquals(schedulerGroup.getCpuTimeNs(), 0);
+    resourceTracker.endThread();
+    assertTrue(resourceTracker.getCpuTimeNs() >= cpuTimeNs);
+    assertEquals(schedulerGroup.getCpuTimeNs(), resourceTracker.getCpuTimeNs());
+
+    // Ending a thread that is not tracked should be no-op
+    cpuTimeNs = resourceTracker.getCpuTimeNs();
+    burnCpu();
+    resourceTracker.endThread();
+    assertEquals(resourceTracker.getCpuTimeNs(), cpuTimeNs);
+    assertEquals(schedulerGroup.getCpuTimeNs(), cpuTimeNs);
+  }
+
+  @Test
+  public void testNestedThread()
+      throws Exception {
+    QueryResourceTracker resourceTracker = new QueryResourceTracker();
+    SchedulerGroupAccountant schedulerGroup = new TestSchedulerGroup();
+    resourceTracker.setSchedulerGroup(schedulerGroup);
+
+    assertTrue(resourceTracker.startThread());
+    long threadStartCpuTimeNs = getCurrentThreadCpuTimeNs();
+    // Same thread should only be tracked once
+    assertFalse(resourceTracker.startThread());
+    // Tasks executed on the thread already tracked should not end the tracking of the thread
+    ExecutorService executorService = resourceTracker.trackExecutorService(MoreExecutors.newDirectExecutorService());
+    executorService.submit(QueryResourceTrackerTest::burnCpu).get();
+    burnCpu();
+    resourceTracker.endThread();
+    long threadCpuTimeNs = getCurrentThreadCpuTimeNs() - threadStartCpuTimeNs;
+
+    // Usage of the thread should only be counted once
+    long cpuTimeNs = resourceTracker.getCpuTimeNs();
+    assertUsedAtLeast(cpuTimeNs, 2 * CPU_TIME_TO_BURN_NS);
+    assertTrue(cpuTimeNs <= threadCpuTimeNs + TimeUnit.MILLISECONDS.toNanos(1));
+    assertEquals(schedulerGroup.getCpuTimeNs(), cpuTimeNs);
+  }
+
+  @Test
+  public void testTrackExecutorService()
+      throws Exception {
+    QueryResourceTracker resourceTracker = new QueryResourceTracker();
+    SchedulerGroupAccountant schedulerGroup = new TestSchedulerGroup();
+    resourceTracker.setSchedulerGroup(schedulerGroup);
+
+    int numTasks = 4;
+    ExecutorService workers = Executors.newFixedThreadPool(numTasks);
+    try {
+      ExecutorService executorService = resourceTracker.trackExecutorService(workers);
+      for (int i = 0; i < numTasks; i++) {
+        executorService.submit(QueryResourceTrackerTest::burnCpu).get();
+      }
+    } finally {
+      workers.shutdown();
+    }
+    // The tracking of a worker thread ends after its task completes
+    assertTrue(workers.awaitTermination(10_000L, TimeUnit.MILLISECONDS));
+
+    // Usage of all the worker threads should be added to the query and charged to the scheduler group
+    long cpuTimeNs = resourceTracker.getCpuTimeNs();
+    assertUsedAtLeast(cpuTimeNs, numTasks * CPU_TIME_TO_BURN_NS);
+    assertEquals(schedulerGroup.getCpuTimeNs(), cpuTimeNs);
+  }
+
+  @Test
+  public void testChargeCpuTime() {
+    QueryResourceTracker resourceTracker = new QueryResourceTracker();
+    SchedulerGroupAccountant schedulerGroup = new TestSchedulerGroup();
+    resourceTracker.setSchedulerGroup(schedulerGroup);
+
+    assertTrue(resourceTracker.startThread());
+    burnCpu();
+    // CPU time of the running thread should be charged without waiting for the thread to end
+    resourceTracker.chargeCpuTime();
+    long chargedCpuTimeNs = schedulerGroup.getCpuTimeNs();
+    assertUsedAtLeast(chargedCpuTimeNs, CPU_TIME_TO_BURN_NS);
+    assertTrue(chargedCpuTimeNs <= resourceTracker.getCpuTimeNs());
+
+    burnCpu();
+    resourceTracker.chargeCpuTime();
+    assertUsedAtLeast(schedulerGroup.getCpuTimeNs() - chargedCpuTimeNs, CPU_TIME_TO_BURN_NS);
+
+    // Each interval should only be charged once
+    resourceTracker.endThread();
+    assertEquals(schedulerGroup.getCpuTimeNs(), resourceTracker.getCpuTimeNs());
+    resourceTracker.chargeCpuTime();
+    assertEquals(schedulerGroup.getCpuTimeNs(), resourceTracker.getCpuTimeNs());
+  }
+
+  /**
+   * Asserts the used CPU time when the thread CPU time measurement is enabled, or 0 otherwise.
+   */
+  private static void assertUsedAtLeast(long cpuTimeNs, long expectedCpuTimeNs) {
+    if (QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      assertTrue(cpuTimeNs >= expectedCpuTimeNs, "Expected at least " + expectedCpuTimeNs + "ns, got: " + cpuTimeNs);
+    } else {
+      assertEquals(cpuTimeNs, 0);
+    }
+  }
+
+  private static long getCurrentThreadCpuTimeNs() {
+    return QueryResourceTracker.isCpuTimeMeasurementEnabled() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+  }
+
+  private static void burnCpu() {
+    if (!QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      return;
+    }
+    long endCpuTimeNs = THREAD_MX_BEAN.getCurrentThreadCpuTime() + CPU_TIME_TO_BURN_NS;
+    while (THREAD_MX_BEAN.getCurrentThreadCpuTime() < endCpuTimeNs) {
+      // Busy loop
+    }
+  }
+
+  private static class TestSchedulerGroup extends AbstractSchedulerGroup {
+
+    TestSchedulerGroup() {
+      super("testGroup");
+    }
+
+    @Override
+    public int compareTo(SchedulerGroupAccountant o) {
+      return 0;
+    }
+  }
+}
@@ -37,6 +37,8 @@ import org.testng.annotations.Test;
 
 import static org.apache.pinot.core.query.scheduler.TestHelper.createQueryRequest;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 
@@ -205,6 +207,22 @@ public class MultiLevelPriorityQueueTest {
     sleepForQueueWakeup(queue);
   }
 
+  @Test
+  public void testRemove()
+      throws OutOfCapacityException {
+    MultiLevelPriorityQueue queue = createQueue();
+    SchedulerQueryContext queryOne = createQueryRequest(groupOne, metrics);
+    SchedulerQueryContext queryTwo = createQueryRequest(groupTwo, metrics);
+    queue.put(queryOne);
+    queue.put(queryTwo);
+
+    assertNull(queue.remove("unknown"));
+    assertSame(queue.remove(queryTwo.getQueryRequest().getQueryId()), queryTwo);
+    assertNull(queue.remove(queryTwo.getQueryRequest().getQueryId()));
+    assertTrue(groupFactory.groupMap.get(groupTwo).isEmpty());
+    assertSame(queue.take(), queryOne);
+  }
+
   private MultiLevelPriorityQueue createQueue() {
     PropertiesConfiguration conf = new PropertiesConfiguration();
     return createQueue(conf, new UnboundedResourceManager(conf));
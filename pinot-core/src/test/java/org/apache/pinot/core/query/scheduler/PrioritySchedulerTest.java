@@ -38,16 +38,19 @@ import javax.annotation.Nonnull;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.core.common.datatable.DataTableFactory;
 import org.apache.pinot.core.common.datatable.DataTableImplV2;
 import org.apache.pinot.core.data.manager.InstanceDataManager;
 import org.apache.pinot.core.query.executor.QueryExecutor;
+import org.apache.pinot.core.query.request.context.QueryResourceTracker;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.scheduler.resources.PolicyBasedResourceManager;
 import org.apache.pinot.core.query.scheduler.resources.ResourceLimitPolicy;
 import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
+import org.apache.pinot.util.TestUtils;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
@@ -64,10 +67,15 @@ public class PrioritySchedulerTest {
   private static CyclicBarrier startupBarrier;
   private static CyclicBarrier validationBarrier;
   private static CountDownLatch numQueries = new CountDownLatch(1);
+  // When set, queries keep using CPU until they get cancelled
+  private static boolean blockUntilCancelled = false;
+  private static volatile Thread runningQueryThread;
 
   @AfterMethod
   public void afterMethod() {
     useBarrier = false;
+    blockUntilCancelled = false;
+    runningQueryThread = null;
     startupBarrier = null;
     validationBarrier = null;
     numQueries = new CountDownLatch(1);
@@ -155,6 +163,117 @@ public class PrioritySchedulerTest {
     scheduler.stop();
   }
 
+  @Test
+  public void testCancelPendingQuery()
+      throws Exception {
+    TestPriorityScheduler scheduler = TestPriorityScheduler.create();
+    // Scheduler is not started so that the query stays in the queue
+    SchedulerQueryContext queryContext = createQueryRequest("1", metrics);
+    scheduler.getQueue().put(queryContext);
+    String queryId = queryContext.getQueryRequest().getQueryId();
+    long numCancelledQueries = metrics.getMeteredTableValue("1", ServerMeter.CANCELLED_QUERIES).count();
+
+    assertTrue(scheduler.cancel(queryId));
+    DataTable response = DataTableFactory.getDataTable(queryContext.getResultFuture().get());
+    assertTrue(response.getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_CANCELLATION_ERROR.getErrorCode()));
+    assertEquals(metrics.getMeteredTableValue("1", ServerMeter.CANCELLED_QUERIES).count(), numCancelledQueries + 1);
+    assertEquals(TestPriorityScheduler.groupFactory.groupMap.get("1").numPending(), 0);
+    // Cancelled query is no longer in the queue
+    assertFalse(scheduler.cancel(queryId));
+    scheduler.stop();
+  }
+
+  @Test
+  public void testCancelRunningQuery()
+      throws Exception {
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(ResourceLimitPolicy.THREADS_PER_QUERY_PCT, 50);
+    conf.setProperty(ResourceLimitPolicy.TABLE_THREADS_HARD_LIMIT, 40);
+    conf.setProperty(ResourceLimitPolicy.TABLE_THREADS_SOFT_LIMIT, 20);
+    useBarrier = true;
+    blockUntilCancelled = true;
+    startupBarrier = new CyclicBarrier(2);
+
+    TestPriorityScheduler scheduler = TestPriorityScheduler.create(conf);
+    int totalPermits = scheduler.getRunningQueriesSemaphore().availablePermits();
+    scheduler.start();
+    ServerQueryRequest queryRequest = createServerQueryRequest("1", metrics);
+    ListenableFuture<byte[]> result = scheduler.submit(queryRequest);
+    startupBarrier.await();
+    TestSchedulerGroup group = TestPriorityScheduler.groupFactory.groupMap.get("1");
+    assertEquals(group.numRunning(), 1);
+    assertEquals(group.getThreadsInUse(), 1);
+
+    assertTrue(scheduler.cancel(queryRequest.getQueryId()));
+    DataTable table = DataTableFactory.getDataTable(result.get());
+    assertTrue(table.getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_CANCELLATION_ERROR.getErrorCode()));
+    // The scheduler slot and the reserved threads should be released once the cancelled query returns
+    TestUtils.waitForCondition(aVoid -> group.numRunning() == 0 && group.getThreadsInUse() == 0
+            && group.totalReservedThreads() == 0
+            && scheduler.getRunningQueriesSemaphore().availablePermits() == totalPermits - 1, 5_000L,
+        "Failed to release the resources of the cancelled query");
+    assertFalse(scheduler.cancel(queryRequest.getQueryId()));
+    scheduler.stop();
+  }
+
+  @Test
+  public void testChargeCpuTimeOfRunningQuery()
+      throws Exception {
+    if (!QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      return;
+    }
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty("query.cpu.time.check.interval.ms", 10L);
+    useBarrier = true;
+    blockUntilCancelled = true;
+    startupBarrier = new CyclicBarrier(2);
+
+    TestPriorityScheduler scheduler = TestPriorityScheduler.create(conf);
+    scheduler.start();
+    ServerQueryRequest queryRequest = createServerQueryRequest("1", metrics);
+    ListenableFuture<byte[]> result = scheduler.submit(queryRequest);
+    startupBarrier.await();
+    TestSchedulerGroup group = TestPriorityScheduler.groupFactory.groupMap.get("1");
+
+    // The CPU time should be charged to the scheduler group while the query is still running
+    TestUtils.waitForCondition(aVoid -> group.getCpuTimeNs() > 0, 5_000L,
+        "Failed to charge the CPU time of the running query");
+    assertFalse(result.isDone());
+
+    assertTrue(scheduler.cancel(queryRequest.getQueryId()));
+    result.get();
+    scheduler.stop();
+  }
+
+  @Test
+  public void testCancelQueryExceedingCpuTime()
+      throws Exception {
+    if (!QueryResourceTracker.isCpuTimeMeasurementEnabled()) {
+      return;
+    }
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty("query.max.cpu.time.ms", 100L);
+    conf.setProperty("query.cpu.time.check.interval.ms", 10L);
+    blockUntilCancelled = true;
+
+    TestPriorityScheduler scheduler = TestPriorityScheduler.create(conf);
+    scheduler.start();
+    long numCancelledQueries = metrics.getMeteredTableValue("1", ServerMeter.CPU_TIME_LIMIT_EXCEEDED_QUERIES).count();
+    ListenableFuture<byte[]> result = scheduler.submit(createServerQueryRequest("1", metrics));
+
+    // The query never finishes by itself, so it can only return after getting cancelled for using too much CPU time
+    DataTable table = DataTableFactory.getDataTable(result.get(10_000L, TimeUnit.MILLISECONDS));
+    assertTrue(table.getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_CANCELLATION_ERROR.getErrorCode()));
+    long cpuTimeNs = Long.parseLong(table.getMetadata().get(DataTable.THREAD_CPU_TIME_NS_METADATA_KEY));
+    assertTrue(cpuTimeNs > TimeUnit.MILLISECONDS.toNanos(100L));
+    assertEquals(metrics.getMeteredTableValue("1", ServerMeter.CPU_TIME_LIMIT_EXCEEDED_QUERIES).count(),
+        numCancelledQueries + 1);
+    scheduler.stop();
+  }
+
   @Test
   public void testMultiThreaded()
       throws InterruptedException {
@@ -296,6 +415,9 @@ public class PrioritySchedulerTest {
     @Nonnull
     @Override
     public DataTable processQuery(@Nonnull ServerQueryRequest queryRequest, @Nonnull ExecutorService executorService) {
+      if (blockUntilCancelled) {
+        runningQueryThread = Thread.currentThread();
+      }
       if (useBarrier) {
         try {
           startupBarrier.await();
@@ -305,6 +427,14 @@ public class PrioritySchedulerTest {
       }
       DataTableImplV2 result = new DataTableImplV2();
       result.getMetadata().put("table", queryRequest.getTableNameWithType());
+      if (blockUntilCancelled) {
+        while (!Thread.currentThread().isInterrupted()) {
+          // Busy loop
+        }
+        runningQueryThread = null;
+        result.addException(QueryException.QUERY_CANCELLATION_ERROR);
+        return result;
+      }
       if (useBarrier) {
         try {
           validationBarrier.await();
@@ -316,6 +446,16 @@ public class PrioritySchedulerTest {
       return result;
     }
 
+    @Override
+    public boolean cancelQuery(String queryId) {
+      Thread thread = runningQueryThread;
+      if (thread == null) {
+        return false;
+      }
+      thread.interrupt();
+      return true;
+    }
+
     @Override
     public void setTableTimeoutMs(@Nonnull String tableNameWithType, long timeOutMs) {
     }
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.scheduler.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.scheduler.SchedulerGroup;
+import org.apache.pinot.core.query.scheduler.SchedulerQueryContext;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class WorkloadResourceManagerTest {
+
+  @Test
+  public void testWorkloads() {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(ResourceManager.QUERY_RUNNER_CONFIG_KEY, 2);
+    config.setProperty(ResourceManager.QUERY_WORKER_CONFIG_KEY, 5);
+    config.setProperty(WorkloadResourceManager.WORKLOADS_CONFIG_KEY, "interactive,batch");
+    config.setProperty("workload.interactive.tables", "dashboard1,dashboard2_OFFLINE");
+    config.setProperty("workload.interactive.max_pending_queries", 100);
+    config.setProperty("workload.batch.tables", "exports");
+    config.setProperty("workload.batch.runner_threads", 1);
+    config.setProperty("workload.batch.worker_threads", 2);
+    config.setProperty("workload.batch.max_concurrent_segments", 10);
+
+    WorkloadResourceManager rm = new WorkloadResourceManager(config);
+    try {
+      // Table mapping with or without type
+      assertEquals(rm.getWorkload("dashboard1_OFFLINE").getName(), "interactive");
+      assertEquals(rm.getWorkload("dashboard1_REALTIME").getName(), "interactive");
+      assertEquals(rm.getWorkload("dashboard2_OFFLINE").getName(), "interactive");
+      assertNull(rm.getWorkload("dashboard2_REALTIME"));
+      assertEquals(rm.getWorkload("exports_OFFLINE").getName(), "batch");
+      assertNull(rm.getWorkload("other_OFFLINE"));
+
+      assertEquals(rm.getMaxConcurrentQueries(), 3);
+      assertEquals(rm.getMaxPendingQueries("interactive"), 100);
+      assertEquals(rm.getMaxPendingQueries("batch"), -1);
+      assertEquals(rm.getMaxPendingQueries("other_OFFLINE"), -1);
+
+      // Dedicated query runners for the batch workload only
+      assertSame(rm.getQueryRunners(getQuery("dashboard1_OFFLINE", 1)), rm.getQueryRunners());
+      assertNotSame(rm.getQueryRunners(getQuery("exports_OFFLINE", 1)), rm.getQueryRunners());
+
+      // Concurrent segments budget
+      SchedulerGroup batchGroup = getGroup("batch", getQuery("exports_OFFLINE", 8));
+      assertTrue(rm.canSchedule(batchGroup));
+      QueryExecutorService executorService = rm.getExecutorService(getQuery("exports_OFFLINE", 4), batchGroup);
+      // Only runner thread of the batch workload is busy
+      assertFalse(rm.canSchedule(batchGroup));
+      executorService.releaseWorkers();
+      assertTrue(rm.canSchedule(batchGroup));
+
+      // Shared runner threads are not affected by the batch workload
+      SchedulerGroup otherGroup = getGroup("other_OFFLINE", getQuery("other_OFFLINE", 1));
+      executorService = rm.getExecutorService(getQuery("exports_OFFLINE", 4), batchGroup);
+      assertTrue(rm.canSchedule(otherGroup));
+      QueryExecutorService otherExecutorService1 = rm.getExecutorService(getQuery("other_OFFLINE", 1), otherGroup);
+      QueryExecutorService otherExecutorService2 = rm.getExecutorService(getQuery("other_OFFLINE", 1), otherGroup);
+      assertFalse(rm.canSchedule(otherGroup));
+      otherExecutorService1.releaseWorkers();
+      otherExecutorService2.releaseWorkers();
+      executorService.releaseWorkers();
+      assertTrue(rm.canSchedule(otherGroup));
+    } finally {
+      rm.stop();
+    }
+  }
+
+  @Test
+  public void testSegmentsBudget() {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(ResourceManager.QUERY_RUNNER_CONFIG_KEY, 4);
+    config.setProperty(ResourceManager.QUERY_WORKER_CONFIG_KEY, 4);
+    config.setProperty(WorkloadResourceManager.WORKLOADS_CONFIG_KEY, "batch");
+    config.setProperty("workload.batch.tables", "exports");
+    config.setProperty("workload.batch.max_concurrent_segments", 10);
+
+    WorkloadResourceManager rm = new WorkloadResourceManager(config);
+    try {
+      List<QueryExecutorService> executorServices = new ArrayList<>();
+      // Queries larger than the budget can run alone
+      SchedulerGroup batchGroup = getGroup("batch", getQuery("exports_OFFLINE", 20));
+      assertTrue(rm.canSchedule(batchGroup));
+      executorServices.add(rm.getExecutorService(getQuery("exports_OFFLINE", 6), batchGroup));
+      assertFalse(rm.canSchedule(batchGroup));
+      batchGroup = getGroup("batch", getQuery("exports_OFFLINE", 4));
+      assertTrue(rm.canSchedule(batchGroup));
+      executorServices.add(rm.getExecutorService(getQuery("exports_OFFLINE", 4), batchGroup));
+      assertFalse(rm.canSchedule(batchGroup));
+      for (QueryExecutorService executorService : executorServices) {
+        executorService.releaseWorkers();
+      }
+      assertTrue(rm.canSchedule(batchGroup));
+    } finally {
+      rm.stop();
+    }
+  }
+
+  private static ServerQueryRequest getQuery(String tableNameWithType, int numSegments) {
+    ServerQueryRequest query = mock(ServerQueryRequest.class);
+    when(query.getTableNameWithType()).thenReturn(tableNameWithType);
+    List<String> segments = new ArrayList<>();
+    for (int i = 0; i < numSegments; i++) {
+      segments.add("segment" + i);
+    }
+    when(query.getSegmentsToQuery()).thenReturn(segments);
+    return query;
+  }
+
+  private static SchedulerGroup getGroup(String name, ServerQueryRequest nextQuery) {
+    SchedulerGroup group = mock(SchedulerGroup.class);
+    when(group.name()).thenReturn(name);
+    when(group.peekFirst()).thenReturn(new SchedulerQueryContext(nextQuery));
+    return group;
+  }
+}
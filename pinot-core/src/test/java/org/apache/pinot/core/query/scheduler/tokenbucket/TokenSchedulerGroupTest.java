@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.core.query.scheduler.tokenbucket;
 
+import java.util.concurrent.TimeUnit;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
@@ -128,6 +129,36 @@ public class TokenSchedulerGroupTest {
     assertEquals(group.getThreadsInUse(), 0);
   }
 
+  @Test
+  public void testCpuTimeAccounting() {
+    timeMillis = 100;
+    TokenSchedulerGroup group =
+        new TokenSchedulerGroup("testGroup", TestTokenSchedulerGroup.numTokensPerMs,
+            TestTokenSchedulerGroup.tokenLifetimeMs, true) {
+          @Override
+          public long currentTimeMillis() {
+            return timeMillis;
+          }
+        };
+    int availableTokens = group.getAvailableTokens();
+    assertEquals(availableTokens, TestTokenSchedulerGroup.numTokensPerMs * TestTokenSchedulerGroup.tokenLifetimeMs);
+
+    // threads in use have no effect with CPU time accounting
+    incrementThreads(group, 5);
+    timeMillis += 20;
+    assertEquals(group.getAvailableTokens(), availableTokens);
+
+    // tokens are deducted for the reported CPU time, fractions of millisecond are carried over
+    group.addCpuTime(TimeUnit.MILLISECONDS.toNanos(30));
+    assertEquals(group.getAvailableTokens(), availableTokens - 30);
+    group.addCpuTime(TimeUnit.MICROSECONDS.toNanos(500));
+    assertEquals(group.getAvailableTokens(), availableTokens - 30);
+    group.addCpuTime(TimeUnit.MICROSECONDS.toNanos(500));
+    assertEquals(group.getAvailableTokens(), availableTokens - 31);
+    assertEquals(group.getCpuTimeNs(), TimeUnit.MILLISECONDS.toNanos(31));
+    decrementThreads(group, 5);
+  }
+
   private void incrementThreads(TokenSchedulerGroup group, int nThreads) {
     for (int i = 0; i < nThreads; i++) {
       group.incrementThreads();
@@ -63,11 +63,11 @@ public class MutableDictionaryTest {
       try (BaseMutableDictionary dictionary = new IntOnHeapMutableDictionary()) {
         testSingleReaderSingleWriter(dictionary, FieldSpec.DataType.INT);
       }
-      try (BaseMutableDictionary dictionary = new IntOffHeapMutableDictionary(EST_CARDINALITY, 2000, _memoryManager,
+      try (BaseMutableDictionary dictionary = new IntOffHeapMutableDictionary(EST_CARDINALITY, _memoryManager,
           "intColumn")) {
         testSingleReaderSingleWriter(dictionary, FieldSpec.DataType.INT);
       }
-      try (BaseMutableDictionary dictionary = new StringOffHeapMutableDictionary(EST_CARDINALITY, 2000, _memoryManager,
+      try (BaseMutableDictionary dictionary = new StringOffHeapMutableDictionary(EST_CARDINALITY, _memoryManager,
           "stringColumn", 32)) {
         testSingleReaderSingleWriter(dictionary, FieldSpec.DataType.STRING);
       }
@@ -91,11 +91,11 @@ public class MutableDictionaryTest {
       try (BaseMutableDictionary dictionary = new IntOnHeapMutableDictionary()) {
         testMultiReadersSingleWriter(dictionary, FieldSpec.DataType.INT);
       }
-      try (BaseMutableDictionary dictionary = new IntOffHeapMutableDictionary(EST_CARDINALITY, 2000, _memoryManager,
+      try (BaseMutableDictionary dictionary = new IntOffHeapMutableDictionary(EST_CARDINALITY, _memoryManager,
           "intColumn")) {
         testMultiReadersSingleWriter(dictionary, FieldSpec.DataType.INT);
       }
-      try (BaseMutableDictionary dictionary = new StringOffHeapMutableDictionary(EST_CARDINALITY, 2000, _memoryManager,
+      try (BaseMutableDictionary dictionary = new StringOffHeapMutableDictionary(EST_CARDINALITY, _memoryManager,
           "stringColumn", 32)) {
         testMultiReadersSingleWriter(dictionary, FieldSpec.DataType.STRING);
       }
@@ -134,14 +134,10 @@ public class MutableDictionaryTest {
 
   @Test
   public void testOffHeapMutableDictionary() {
-    int[] maxOverflowSizes = {0, 2000};
-
     try {
       for (FieldSpec.DataType dataType : DATA_TYPES) {
-        for (int maxOverflowSize : maxOverflowSizes) {
-          try (BaseMutableDictionary dictionary = makeOffHeapDictionary(EST_CARDINALITY, maxOverflowSize, dataType)) {
-            testMutableDictionary(dictionary, dataType);
-          }
+        try (BaseMutableDictionary dictionary = makeOffHeapDictionary(EST_CARDINALITY, dataType)) {
+          testMutableDictionary(dictionary, dataType);
         }
       }
     } catch (Throwable t) {
@@ -149,6 +145,43 @@ public class MutableDictionaryTest {
     }
   }
 
+  @Test
+  public void testOffHeapStringDictionary()
+      throws Exception {
+    // Start with a small table so that it gets resized
+    try (StringOffHeapMutableDictionary dictionary = new StringOffHeapMutableDictionary(10, _memoryManager,
+        "stringColumn", 32)) {
+      // Include non-ASCII values which cannot be compared in place
+      String[] values = new String[]{"", "a", "ab", "\u00e4", "a\u00e4", "\u65e5\u672c", "\ud83d\ude00"};
+      int numValues = values.length;
+      for (int i = 0; i < numValues; i++) {
+        Assert.assertEquals(dictionary.index(values[i]), i);
+      }
+      for (int i = 0; i < numValues; i++) {
+        Assert.assertEquals(dictionary.index(values[i]), i);
+        Assert.assertEquals(dictionary.indexOf(values[i]), i);
+        Assert.assertEquals(dictionary.get(i), values[i]);
+      }
+      Assert.assertEquals(dictionary.indexOf("abc"), BaseMutableDictionary.NULL_VALUE_INDEX);
+      Assert.assertEquals(dictionary.indexOf("\u00e4\u00e4"), BaseMutableDictionary.NULL_VALUE_INDEX);
+
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        Assert.assertEquals(dictionary.index(Integer.toString(i)), numValues + i);
+      }
+      Assert.assertTrue(dictionary.getNumResizes() > 0);
+      // The tables replaced during resize are retained until close, so they should be counted as well
+      long liveTableSize = (long) dictionary.getNumSlots() * Long.BYTES;
+      Assert.assertTrue(dictionary.getOffHeapMemUsed() > liveTableSize);
+      Assert.assertTrue(dictionary.getOffHeapMemUsed() < 2 * liveTableSize);
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        Assert.assertEquals(dictionary.indexOf(Integer.toString(i)), numValues + i);
+      }
+      for (int i = 0; i < numValues; i++) {
+        Assert.assertEquals(dictionary.indexOf(values[i]), i);
+      }
+    }
+  }
+
   private void testMutableDictionary(BaseMutableDictionary dictionary, FieldSpec.DataType dataType) {
     Map<Object, Integer> valueToDictId = new HashMap<>();
     int numEntries = 0;
@@ -200,21 +233,20 @@ public class MutableDictionaryTest {
         dictionary.length());
   }
 
-  private BaseMutableDictionary makeOffHeapDictionary(int estCardinality, int maxOverflowSize,
-      FieldSpec.DataType dataType) {
+  private BaseMutableDictionary makeOffHeapDictionary(int estCardinality, FieldSpec.DataType dataType) {
     switch (dataType) {
       case INT:
-        return new IntOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "intColumn");
+        return new IntOffHeapMutableDictionary(estCardinality, _memoryManager, "intColumn");
       case LONG:
-        return new LongOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "longColumn");
+        return new LongOffHeapMutableDictionary(estCardinality, _memoryManager, "longColumn");
       case FLOAT:
-        return new FloatOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "floatColumn");
+        return new FloatOffHeapMutableDictionary(estCardinality, _memoryManager, "floatColumn");
       case DOUBLE:
-        return new DoubleOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "doubleColumn");
+        return new DoubleOffHeapMutableDictionary(estCardinality, _memoryManager, "doubleColumn");
       case STRING:
-        return new StringOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "stringColumn", 32);
+        return new StringOffHeapMutableDictionary(estCardinality, _memoryManager, "stringColumn", 32);
       case BYTES:
-        return new BytesOffHeapMutableDictionary(estCardinality, maxOverflowSize, _memoryManager, "bytesColumn", 32);
+        return new BytesOffHeapMutableDictionary(estCardinality, _memoryManager, "bytesColumn", 32);
       default:
         throw new UnsupportedOperationException("Unsupported data type: " + dataType);
     }
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.sortedindex;
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.pinot.common.data.FieldSpec;
+import org.apache.pinot.core.realtime.impl.dictionary.LongOnHeapMutableDictionary;
+import org.apache.pinot.core.realtime.impl.dictionary.StringOnHeapMutableDictionary;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class RealtimeSortedIndexTest {
+  private static final int NUM_VALUES = 1000;
+  private static final int MAX_VALUE = 300;
+  private static final Random RANDOM = new Random();
+
+  @Test
+  public void testLongValues() {
+    LongOnHeapMutableDictionary dictionary = new LongOnHeapMutableDictionary();
+    RealtimeSortedIndex sortedIndex = new RealtimeSortedIndex(dictionary, FieldSpec.DataType.LONG);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      sortedIndex.add(dictionary.index((long) RANDOM.nextInt(MAX_VALUE)));
+    }
+
+    String[][] ranges =
+        {{"*", "*"}, {"*", "100"}, {"100", "*"}, {"100", "200"}, {"200", "100"}, {"150", "150"}, {"-5", "1000"}};
+    for (String[] range : ranges) {
+      for (boolean includeLower : new boolean[]{true, false}) {
+        for (boolean includeUpper : new boolean[]{true, false}) {
+          IntSet expected = dictionary.getDictIdsInRange(range[0], range[1], includeLower, includeUpper);
+          IntSet actual = sortedIndex.getDictIdsInRange(range[0], range[1], includeLower, includeUpper);
+          Assert.assertEquals(actual, expected, Arrays.toString(range) + " " + includeLower + " " + includeUpper);
+        }
+      }
+    }
+
+    int[] sortedDictIds = sortedIndex.getSortedDictIds();
+    Assert.assertEquals(sortedDictIds.length, dictionary.length());
+    for (int i = 1; i < sortedDictIds.length; i++) {
+      Assert.assertTrue(dictionary.getLongValue(sortedDictIds[i - 1]) < dictionary.getLongValue(sortedDictIds[i]));
+    }
+  }
+
+  @Test
+  public void testStringValues() {
+    StringOnHeapMutableDictionary dictionary = new StringOnHeapMutableDictionary();
+    RealtimeSortedIndex sortedIndex = new RealtimeSortedIndex(dictionary, FieldSpec.DataType.STRING);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      sortedIndex.add(dictionary.index(Integer.toString(RANDOM.nextInt(MAX_VALUE))));
+    }
+
+    String[][] ranges = {{"*", "5"}, {"5", "*"}, {"10", "20"}, {"20", "10"}};
+    for (String[] range : ranges) {
+      for (boolean includeLower : new boolean[]{true, false}) {
+        for (boolean includeUpper : new boolean[]{true, false}) {
+          IntSet expected = dictionary.getDictIdsInRange(range[0], range[1], includeLower, includeUpper);
+          IntSet actual = sortedIndex.getDictIdsInRange(range[0], range[1], includeLower, includeUpper);
+          Assert.assertEquals(actual, expected, Arrays.toString(range) + " " + includeLower + " " + includeUpper);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.upsert;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class PartitionUpsertMetadataManagerTest {
+  private static final String TABLE_NAME = "testTable_REALTIME";
+
+  @Test
+  public void testUpsert() {
+    PartitionUpsertMetadataManager manager = new PartitionUpsertMetadataManager(TABLE_NAME, 0);
+
+    ValidDocIds validDocIds1 = new ValidDocIds();
+    manager.addSegment(1, validDocIds1);
+    manager.updateRecord(getPrimaryKey(0), 1, 0);
+    manager.updateRecord(getPrimaryKey(1), 1, 1);
+    manager.updateRecord(getPrimaryKey(0), 1, 2);
+    checkValidDocIds(validDocIds1, new int[]{1, 2});
+
+    // Newer segment invalidates the records in the older segment
+    ValidDocIds validDocIds2 = new ValidDocIds();
+    manager.addSegment(2, validDocIds2);
+    manager.updateRecord(getPrimaryKey(1), 2, 0);
+    manager.updateRecord(getPrimaryKey(2), 2, 1);
+    checkValidDocIds(validDocIds1, new int[]{2});
+    checkValidDocIds(validDocIds2, new int[]{0, 1});
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 3);
+
+    // Older segment loaded after the newer one should not override the newer records
+    ValidDocIds validDocIds0 = new ValidDocIds();
+    manager.addSegment(0, validDocIds0);
+    manager.updateRecord(getPrimaryKey(2), 0, 0);
+    manager.updateRecord(getPrimaryKey(3), 0, 1);
+    checkValidDocIds(validDocIds0, new int[]{1});
+    checkValidDocIds(validDocIds2, new int[]{0, 1});
+
+    // Replace segment 2 (e.g. consuming segment replaced by the committed one)
+    ValidDocIds newValidDocIds2 = new ValidDocIds();
+    manager.addSegment(2, newValidDocIds2);
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 2);
+    manager.updateRecord(getPrimaryKey(1), 2, 0);
+    manager.updateRecord(getPrimaryKey(2), 2, 1);
+    checkValidDocIds(newValidDocIds2, new int[]{0, 1});
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 4);
+
+    // Remove segment 2
+    manager.removeSegment(2);
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 2);
+    // Record for a removed segment should be ignored
+    manager.updateRecord(getPrimaryKey(4), 2, 2);
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 2);
+
+    // Remove segment 0, only the primary key still pointing to it should be removed
+    manager.removeSegment(0);
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 1);
+    checkValidDocIds(validDocIds1, new int[]{2});
+  }
+
+  @Test
+  public void testAddSegmentWithRecords() {
+    PartitionUpsertMetadataManager manager = new PartitionUpsertMetadataManager(TABLE_NAME, 0);
+
+    // Consuming segment
+    ValidDocIds consumingValidDocIds1 = new ValidDocIds();
+    manager.addSegment(1, consumingValidDocIds1);
+    manager.updateRecord(getPrimaryKey(0), 1, 0);
+    manager.updateRecord(getPrimaryKey(1), 1, 1);
+    manager.updateRecord(getPrimaryKey(2), 1, 2);
+    checkValidDocIds(consumingValidDocIds1, new int[]{0, 1, 2});
+
+    // Bootstrap an older segment loaded after the newer one
+    ValidDocIds validDocIds0 = new ValidDocIds();
+    manager.addSegment(0, validDocIds0, new PrimaryKey[]{getPrimaryKey(0), getPrimaryKey(3), getPrimaryKey(3)});
+    checkValidDocIds(validDocIds0, new int[]{2});
+    checkValidDocIds(consumingValidDocIds1, new int[]{0, 1, 2});
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 4);
+
+    // Replace the consuming segment with the committed one, which has the records in a different order, a duplicate
+    // record, a new primary key and a missing primary key
+    ValidDocIds validDocIds1 = new ValidDocIds();
+    manager.addSegment(1, validDocIds1,
+        new PrimaryKey[]{getPrimaryKey(1), getPrimaryKey(0), getPrimaryKey(4), getPrimaryKey(1)});
+    checkValidDocIds(validDocIds1, new int[]{1, 2, 3});
+    checkValidDocIds(validDocIds0, new int[]{2});
+    // The previous version of the segment should not be modified
+    checkValidDocIds(consumingValidDocIds1, new int[]{0, 1, 2});
+    // Primary key 2 is only in the previous version
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 4);
+
+    // Newer records should invalidate the records of the committed segment
+    ValidDocIds validDocIds2 = new ValidDocIds();
+    manager.addSegment(2, validDocIds2);
+    manager.updateRecord(getPrimaryKey(0), 2, 0);
+    manager.updateRecord(getPrimaryKey(2), 2, 1);
+    checkValidDocIds(validDocIds1, new int[]{2, 3});
+    checkValidDocIds(validDocIds2, new int[]{0, 1});
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 5);
+
+    // Remove the committed segment
+    manager.removeSegment(1);
+    Assert.assertEquals(manager.getNumPrimaryKeys(), 3);
+    checkValidDocIds(validDocIds0, new int[]{2});
+    checkValidDocIds(validDocIds2, new int[]{0, 1});
+  }
+
+  @Test
+  public void testValidDocIdsSnapshot() {
+    ValidDocIds validDocIds = new ValidDocIds();
+    validDocIds.add(1);
+    ImmutableRoaringBitmap snapshot = validDocIds.getSnapshot();
+    // Snapshot should be shared until the next update
+    Assert.assertSame(validDocIds.getSnapshot(), snapshot);
+
+    validDocIds.add(2);
+    Assert.assertEquals(snapshot.toArray(), new int[]{1});
+    Assert.assertEquals(validDocIds.getSnapshot().toArray(), new int[]{1, 2});
+    validDocIds.remove(1);
+    Assert.assertEquals(validDocIds.getSnapshot().toArray(), new int[]{2});
+  }
+
+  @Test
+  public void testPrimaryKey() {
+    Assert.assertEquals(new PrimaryKey(new Object[]{"a", 1}), new PrimaryKey(new Object[]{"a", 1}));
+    Assert.assertNotEquals(new PrimaryKey(new Object[]{"a", 1}), new PrimaryKey(new Object[]{"a", 2}));
+    // BYTES values should be compared by content
+    Assert.assertEquals(new PrimaryKey(new Object[]{new byte[]{1, 2}}), new PrimaryKey(new Object[]{new byte[]{1, 2}}));
+  }
+
+  private static PrimaryKey getPrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkValidDocIds(ValidDocIds validDocIds, int[] expectedDocIds) {
+    ImmutableRoaringBitmap snapshot = validDocIds.getSnapshot();
+    Assert.assertEquals(snapshot.toArray(), expectedDocIds);
+  }
+}
@@ -90,6 +90,7 @@ abstract class BaseStarTreeV2Test<R, A> {
   private static final int DIMENSION_CARDINALITY = 100;
   private static final String METRIC = "m";
   private static final String QUERY_FILTER = " WHERE d1 = 0 AND d2 < 10";
+  private static final String QUERY_EXPRESSION_FILTER = " WHERE d1 = 0 AND div(d2, 10) < 1";
   private static final String QUERY_GROUP_BY = " GROUP BY d2";
 
   private ValueAggregator _valueAggregator;
@@ -166,6 +167,8 @@ abstract class BaseStarTreeV2Test<R, A> {
     testQuery(baseQuery + QUERY_FILTER);
     testQuery(baseQuery + QUERY_GROUP_BY);
     testQuery(baseQuery + QUERY_FILTER + QUERY_GROUP_BY);
+    testQuery(baseQuery + QUERY_EXPRESSION_FILTER);
+    testQuery(baseQuery + QUERY_EXPRESSION_FILTER + QUERY_GROUP_BY);
   }
 
   @AfterClass
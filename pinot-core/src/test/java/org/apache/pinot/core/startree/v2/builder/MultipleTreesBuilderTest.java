@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.startree.v2.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.data.FieldSpec.DataType;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.data.GenericRow;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
+import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.core.segment.creator.impl.V1Constants;
+import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
+import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
+import org.apache.pinot.core.startree.v2.StarTreeV2;
+import org.apache.pinot.core.startree.v2.StarTreeV2Constants;
+import org.apache.pinot.core.startree.v2.StarTreeV2Constants.MetadataKey;
+import org.apache.pinot.core.startree.v2.builder.MultipleTreesBuilder.BuildMode;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests for {@link MultipleTreesBuilder} class:
+ * <ul>
+ *   <li>Star-trees built in parallel should be identical to the star-trees built one at a time</li>
+ *   <li>
+ *     Star-trees whose first dimension is the sorted column of the segment (only the records with the same first
+ *     dimension value are sorted) should be identical to the star-trees built from the same records not sorted
+ *   </li>
+ * </ul>
+ */
+public class MultipleTreesBuilderTest {
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+  private static final Random RANDOM = new Random(RANDOM_SEED);
+  private static final String ERROR_MESSAGE = "Random seed: " + RANDOM_SEED;
+
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "MultipleTreesBuilderTest");
+  private static final String SORTED_SEGMENT_NAME = "sortedSegment";
+  private static final String UNSORTED_SEGMENT_NAME = "unsortedSegment";
+
+  private static final int NUM_RECORDS = 10_000;
+  private static final String D1 = "d1";
+  private static final int D1_CARDINALITY = 10;
+  private static final String D2 = "d2";
+  private static final int D2_CARDINALITY = 50;
+  private static final String D3 = "d3";
+  private static final int D3_CARDINALITY = 100;
+  private static final String METRIC = "m";
+  private static final int MAX_METRIC_VALUE = 1000;
+
+  // NOTE: use aggregations that do not depend on the order of the records so that the results can be compared
+  private static final List<StarTreeV2BuilderConfig> BUILDER_CONFIGS = Arrays.asList(
+      getBuilderConfig(Arrays.asList(D1, D2, D3), AggregationFunctionType.SUM, 10),
+      getBuilderConfig(Arrays.asList(D2, D1), AggregationFunctionType.MAX, 1),
+      getBuilderConfig(Arrays.asList(D3, D2, D1), AggregationFunctionType.MIN, 100),
+      getBuilderConfig(Arrays.asList(D1, D3), AggregationFunctionType.SUM, 1));
+
+  private File _sortedIndexDir;
+  private File _unsortedIndexDir;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension(D1, DataType.INT)
+        .addSingleValueDimension(D2, DataType.INT).addSingleValueDimension(D3, DataType.INT)
+        .addMetric(METRIC, DataType.INT).build();
+
+    // Records sorted on d1
+    List<GenericRow> records = new ArrayList<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      Map<String, Object> fieldMap = new HashMap<>();
+      fieldMap.put(D1, i * D1_CARDINALITY / NUM_RECORDS);
+      fieldMap.put(D2, RANDOM.nextInt(D2_CARDINALITY));
+      fieldMap.put(D3, RANDOM.nextInt(D3_CARDINALITY));
+      fieldMap.put(METRIC, RANDOM.nextInt(MAX_METRIC_VALUE));
+      GenericRow record = new GenericRow();
+      record.init(fieldMap);
+      records.add(record);
+    }
+    _sortedIndexDir = buildSegment(schema, records, SORTED_SEGMENT_NAME);
+
+    // Same records not sorted on d1
+    List<GenericRow> shuffledRecords = new ArrayList<>(records);
+    Collections.shuffle(shuffledRecords, RANDOM);
+    _unsortedIndexDir = buildSegment(schema, shuffledRecords, UNSORTED_SEGMENT_NAME);
+
+    ImmutableSegment sortedSegment = ImmutableSegmentLoader.load(_sortedIndexDir, ReadMode.mmap);
+    ImmutableSegment unsortedSegment = ImmutableSegmentLoader.load(_unsortedIndexDir, ReadMode.mmap);
+    try {
+      assertTrue(sortedSegment.getDataSource(D1).getDataSourceMetadata().isSorted());
+      assertFalse(unsortedSegment.getDataSource(D1).getDataSourceMetadata().isSorted(), ERROR_MESSAGE);
+    } finally {
+      sortedSegment.destroy();
+      unsortedSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testParallelBuild()
+      throws Exception {
+    for (BuildMode buildMode : BuildMode.values()) {
+      File sequentialIndexDir = copySegment(_sortedIndexDir, "sequential");
+      File parallelIndexDir = copySegment(_sortedIndexDir, "parallel");
+      new MultipleTreesBuilder(BUILDER_CONFIGS, sequentialIndexDir, buildMode).build();
+      new MultipleTreesBuilder(BUILDER_CONFIGS, parallelIndexDir, buildMode, 3).build();
+
+      assertSameStarTrees(sequentialIndexDir, parallelIndexDir);
+      assertSameStarTreeMetadata(sequentialIndexDir, parallelIndexDir);
+
+      // Star-tree metadata should be in the order of the builder configs
+      ImmutableSegment segment = ImmutableSegmentLoader.load(parallelIndexDir, ReadMode.mmap);
+      try {
+        List<StarTreeV2> starTrees = segment.getStarTrees();
+        assertEquals(starTrees.size(), BUILDER_CONFIGS.size());
+        for (int i = 0; i < BUILDER_CONFIGS.size(); i++) {
+          StarTreeV2BuilderConfig builderConfig = BUILDER_CONFIGS.get(i);
+          assertEquals(starTrees.get(i).getMetadata().getDimensionsSplitOrder(),
+              builderConfig.getDimensionsSplitOrder());
+          assertEquals(starTrees.get(i).getMetadata().getFunctionColumnPairs(),
+              builderConfig.getFunctionColumnPairs());
+          assertEquals(starTrees.get(i).getMetadata().getMaxLeafRecords(), builderConfig.getMaxLeafRecords());
+        }
+      } finally {
+        segment.destroy();
+      }
+
+      FileUtils.deleteDirectory(sequentialIndexDir.getParentFile());
+      FileUtils.deleteDirectory(parallelIndexDir.getParentFile());
+    }
+  }
+
+  @Test
+  public void testFirstDimensionSorted()
+      throws Exception {
+    for (BuildMode buildMode : BuildMode.values()) {
+      // The first and the last star-trees have the sorted column as the first dimension
+      File sortedIndexDir = copySegment(_sortedIndexDir, "sorted");
+      File unsortedIndexDir = copySegment(_unsortedIndexDir, "unsorted");
+      new MultipleTreesBuilder(BUILDER_CONFIGS, sortedIndexDir, buildMode).build();
+      new MultipleTreesBuilder(BUILDER_CONFIGS, unsortedIndexDir, buildMode).build();
+
+      assertSameStarTrees(sortedIndexDir, unsortedIndexDir);
+
+      FileUtils.deleteDirectory(sortedIndexDir.getParentFile());
+      FileUtils.deleteDirectory(unsortedIndexDir.getParentFile());
+    }
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+
+  private static StarTreeV2BuilderConfig getBuilderConfig(List<String> dimensionsSplitOrder,
+      AggregationFunctionType functionType, int maxLeafRecords) {
+    return new StarTreeV2BuilderConfig.Builder().setDimensionsSplitOrder(dimensionsSplitOrder)
+        .setFunctionColumnPairs(new HashSet<>(Arrays
+            .asList(AggregationFunctionColumnPair.COUNT_STAR, new AggregationFunctionColumnPair(functionType, METRIC))))
+        .setMaxLeafRecords(maxLeafRecords).build();
+  }
+
+  private static File buildSegment(Schema schema, List<GenericRow> records, String segmentName)
+      throws Exception {
+    SegmentGeneratorConfig segmentGeneratorConfig = new SegmentGeneratorConfig(schema);
+    segmentGeneratorConfig.setOutDir(TEMP_DIR.getPath());
+    segmentGeneratorConfig.setSegmentName(segmentName);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(segmentGeneratorConfig, new GenericRowRecordReader(records, schema));
+    driver.build();
+    return new File(TEMP_DIR, segmentName);
+  }
+
+  private static File copySegment(File indexDir, String name)
+      throws IOException {
+    File destIndexDir = new File(new File(TEMP_DIR, name), indexDir.getName());
+    FileUtils.copyDirectory(indexDir, destIndexDir);
+    return destIndexDir;
+  }
+
+  private static void assertSameStarTrees(File indexDir1, File indexDir2)
+      throws IOException {
+    File segmentDir1 = SegmentDirectoryPaths.findSegmentDirectory(indexDir1);
+    File segmentDir2 = SegmentDirectoryPaths.findSegmentDirectory(indexDir2);
+    assertTrue(FileUtils.contentEquals(new File(segmentDir1, StarTreeV2Constants.INDEX_FILE_NAME),
+        new File(segmentDir2, StarTreeV2Constants.INDEX_FILE_NAME)), ERROR_MESSAGE);
+    assertTrue(FileUtils.contentEquals(new File(segmentDir1, StarTreeV2Constants.INDEX_MAP_FILE_NAME),
+        new File(segmentDir2, StarTreeV2Constants.INDEX_MAP_FILE_NAME)), ERROR_MESSAGE);
+  }
+
+  private static void assertSameStarTreeMetadata(File indexDir1, File indexDir2)
+      throws ConfigurationException {
+    Map<String, Object> starTreeMetadata1 = getStarTreeMetadata(indexDir1);
+    Map<String, Object> starTreeMetadata2 = getStarTreeMetadata(indexDir2);
+    assertEquals(starTreeMetadata1.get(MetadataKey.STAR_TREE_COUNT), Integer.toString(BUILDER_CONFIGS.size()));
+    assertEquals(starTreeMetadata2, starTreeMetadata1);
+  }
+
+  private static Map<String, Object> getStarTreeMetadata(File indexDir)
+      throws ConfigurationException {
+    PropertiesConfiguration metadataProperties = new PropertiesConfiguration(
+        new File(SegmentDirectoryPaths.findSegmentDirectory(indexDir), V1Constants.MetadataKeys.METADATA_FILE_NAME));
+    Map<String, Object> starTreeMetadata = new HashMap<>();
+    Iterator<String> keys = metadataProperties.getKeys(MetadataKey.STAR_TREE_PREFIX.substring(0,
+        MetadataKey.STAR_TREE_PREFIX.length() - 1));
+    while (keys.hasNext()) {
+      String key = keys.next();
+      starTreeMetadata.put(key, metadataProperties.getProperty(key));
+    }
+    return starTreeMetadata;
+  }
+}
@@ -32,6 +32,7 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -41,6 +42,7 @@ public class DummyServer implements Runnable {
   private final int _port;
   private final long _responseDelayMs;
   private final byte[] _responseBytes;
+  private final AtomicInteger _numRequestsReceived = new AtomicInteger();
 
   private volatile Channel _channel;
 
@@ -67,6 +69,7 @@ public class DummyServer implements Runnable {
                         @Override
                         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg)
                             throws Exception {
+                          _numRequestsReceived.incrementAndGet();
                           Thread.sleep(_responseDelayMs);
                           ctx.writeAndFlush(ctx.alloc().buffer(_responseBytes.length).writeBytes(_responseBytes),
                               ctx.voidPromise());
@@ -84,6 +87,10 @@ public class DummyServer implements Runnable {
     }
   }
 
+  public int getNumRequestsReceived() {
+    return _numRequestsReceived.get();
+  }
+
   public boolean isReady() {
     return _channel != null;
   }
@@ -21,11 +21,14 @@ package org.apache.pinot.core.transport;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
 import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.util.TestUtils;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -223,6 +226,150 @@ public class QueryRouterTest {
     Assert.assertTrue(System.currentTimeMillis() - startTimeMs < 1000);
   }
 
+  @Test
+  public void testHedgedRequest()
+      throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start a slow server and a fast server hosting the same segments
+    DummyServer slowServer = new DummyServer(TEST_PORT, 2_000L, responseBytes);
+    Thread slowServerThread = new Thread(slowServer);
+    slowServerThread.start();
+    int hedgeServerPort = TEST_PORT + 1;
+    String hedgeServerInstanceName = "Server_localhost_" + hedgeServerPort;
+    DummyServer fastServer = new DummyServer(hedgeServerPort, 0L, responseBytes);
+    Thread fastServerThread = new Thread(fastServer);
+    fastServerThread.start();
+    while (!slowServer.isReady() || !fastServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    // Slow server used to respond in 10ms
+    ServerRoutingStats serverRoutingStats = new ServerRoutingStats();
+    for (int i = 0; i < 16; i++) {
+      serverRoutingStats.recordRequestSubmitted(SERVER_INSTANCE_NAME);
+      serverRoutingStats.recordResponse(SERVER_INSTANCE_NAME, 10L);
+    }
+    Assert.assertEquals(serverRoutingStats.getLatencyP95Ms(SERVER_INSTANCE_NAME), 10L);
+
+    QueryRouter queryRouter =
+        new QueryRouter("testBroker", Mockito.mock(BrokerMetrics.class), serverRoutingStats, 1.0, 10L, false, false);
+    try {
+      long startTimeMs = System.currentTimeMillis();
+      AsyncQueryResponse asyncQueryResponse = queryRouter
+          .submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 5_000L,
+              (instanceName, tableType, segments) -> Collections.singletonList(hedgeServerInstanceName));
+      Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+      // Only the response from the hedge server should be kept
+      Assert.assertEquals(response.size(), 1);
+      Server hedgeServer = new Server(hedgeServerInstanceName, TableType.OFFLINE);
+      Assert.assertTrue(response.containsKey(hedgeServer));
+      Assert.assertNotNull(response.get(hedgeServer).getDataTable());
+      Assert.assertEquals(asyncQueryResponse.getNumHedgedRequests(), 1);
+      Assert.assertEquals(asyncQueryResponse.getNumHedgedResponsesUsed(), 1);
+      // Query should not wait for the slow server
+      Assert.assertTrue(System.currentTimeMillis() - startTimeMs < 2_000L);
+      // Request that lost to the hedged request should not be counted as an error of the slow server
+      Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(SERVER_INSTANCE_NAME), 0);
+      Assert.assertEquals(serverRoutingStats.getErrorRateEwma(SERVER_INSTANCE_NAME), 0.0);
+      Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(hedgeServerInstanceName), 0);
+    } finally {
+      queryRouter.shutDown();
+      slowServer.shutDown();
+      slowServerThread.join();
+      fastServer.shutDown();
+      fastServerThread.join();
+    }
+  }
+
+  @Test
+  public void testUnknownRequestTemplate()
+      throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    dataTable.addException(QueryException.UNKNOWN_REQUEST_TEMPLATE_ERROR);
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start a server that never knows the request template
+    DummyServer dummyServer = new DummyServer(TEST_PORT, 100L, responseBytes);
+    Thread thread = new Thread(dummyServer);
+    thread.start();
+    while (!dummyServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    BrokerMetrics brokerMetrics = Mockito.mock(BrokerMetrics.class);
+    QueryRouter queryRouter = new QueryRouter("testBroker", brokerMetrics, null, 0.0, 0L, false, true);
+    try {
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 5_000L);
+      Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+      Assert.assertEquals(response.size(), 1);
+      DataTable serverDataTable = response.get(OFFLINE_SERVER).getDataTable();
+      Assert.assertNotNull(serverDataTable);
+      Assert.assertTrue(serverDataTable.getMetadata()
+          .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.UNKNOWN_REQUEST_TEMPLATE_ERROR_CODE));
+      // The full query should be sent once after the unknown template error
+      Assert.assertEquals(dummyServer.getNumRequestsReceived(), 2);
+      Mockito.verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_REGISTERED, 1L);
+      Mockito.verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_UNKNOWN, 1L);
+
+      // The template should be registered again by the next query of the same shape
+      asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 5_000L);
+      Assert.assertNotNull(asyncQueryResponse.getResponse().get(OFFLINE_SERVER).getDataTable());
+      Assert.assertEquals(dummyServer.getNumRequestsReceived(), 4);
+      Mockito.verify(brokerMetrics, Mockito.times(2))
+          .addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_REGISTERED, 1L);
+      Mockito.verify(brokerMetrics, Mockito.times(2))
+          .addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_TEMPLATES_UNKNOWN, 1L);
+    } finally {
+      queryRouter.shutDown();
+      dummyServer.shutDown();
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testCancelTimedOutRequest()
+      throws Exception {
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Start a server that responds after the query times out
+    DummyServer dummyServer = new DummyServer(TEST_PORT, 1_000L, responseBytes);
+    Thread thread = new Thread(dummyServer);
+    thread.start();
+    while (!dummyServer.isReady()) {
+      Thread.sleep(100L);
+    }
+
+    BrokerMetrics brokerMetrics = Mockito.mock(BrokerMetrics.class);
+    QueryRouter queryRouter = new QueryRouter("testBroker", brokerMetrics, null, 0.0, 0L, true, false);
+    try {
+      AsyncQueryResponse asyncQueryResponse =
+          queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, ROUTING_TABLE, null, null, 100L);
+      Map<Server, ServerResponse> response = asyncQueryResponse.getResponse();
+      Assert.assertEquals(response.size(), 1);
+      Assert.assertNull(response.get(OFFLINE_SERVER).getDataTable());
+
+      // The cancel request should be sent to the server once the query times out
+      Mockito.verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.CANCELLED_SERVER_REQUESTS, 1L);
+      TestUtils.waitForCondition(aVoid -> dummyServer.getNumRequestsReceived() == 2, 5_000L,
+          "Failed to receive the cancel request");
+    } finally {
+      queryRouter.shutDown();
+      dummyServer.shutDown();
+      thread.join();
+    }
+  }
+
   @AfterClass
   public void tearDown() {
     _queryRouter.shutDown();
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.InstanceRequest;
+import org.apache.pinot.common.utils.CommonConstants.Helix.TableType;
+import org.apache.pinot.util.TestUtils;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ServerChannelsTest {
+  private static final int TEST_PORT = 12346;
+  private static final Server SERVER = new Server("Server_localhost_" + TEST_PORT, TableType.OFFLINE);
+  // Each request is about 1MB
+  private static final int NUM_SEGMENTS_PER_REQUEST = 1024;
+  private static final int SEGMENT_NAME_LENGTH = 1024;
+  // Way above the high watermark plus the socket buffers
+  private static final int MAX_NUM_REQUESTS = 1024;
+
+  @Test
+  public void testBackPressure()
+      throws Exception {
+    BrokerMetrics brokerMetrics = Mockito.mock(BrokerMetrics.class);
+    ServerChannels serverChannels = new ServerChannels(Mockito.mock(QueryRouter.class), brokerMetrics);
+    InstanceRequest instanceRequest = getLargeRequest();
+    Thread drainThread = null;
+    try (ServerSocket serverSocket = new ServerSocket(TEST_PORT)) {
+      // The first request establishes the connection, which is accepted but not read from
+      serverChannels.sendRequest(SERVER, instanceRequest);
+      try (Socket socket = serverSocket.accept()) {
+        // Keep sending until the pending bytes go above the high watermark
+        IllegalStateException rejection = null;
+        for (int i = 1; i < MAX_NUM_REQUESTS; i++) {
+          try {
+            serverChannels.sendRequest(SERVER, instanceRequest);
+          } catch (IllegalStateException e) {
+            rejection = e;
+            break;
+          }
+        }
+        Assert.assertNotNull(rejection, "Request should be rejected when the server does not read");
+        Assert.assertTrue(rejection.getMessage().contains("not writable"));
+        Mockito.verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_REJECTED, 1L);
+
+        // Once the server reads the pending bytes, the requests should be accepted again
+        InputStream inputStream = socket.getInputStream();
+        drainThread = new Thread(() -> {
+          byte[] buffer = new byte[64 * 1024];
+          try {
+            while (inputStream.read(buffer) >= 0) {
+              // Discard the requests
+            }
+          } catch (IOException e) {
+            // Socket closed
+          }
+        });
+        drainThread.start();
+        TestUtils.waitForCondition(aVoid -> {
+          try {
+            serverChannels.sendRequest(SERVER, instanceRequest);
+            return true;
+          } catch (IllegalStateException e) {
+            return false;
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }, 10_000L, "Failed to send request after the channel is drained");
+      }
+    } finally {
+      serverChannels.shutDown();
+      if (drainThread != null) {
+        drainThread.join();
+      }
+    }
+  }
+
+  private static InstanceRequest getLargeRequest() {
+    InstanceRequest instanceRequest = new InstanceRequest(123L, new BrokerRequest());
+    List<String> segments = new ArrayList<>(NUM_SEGMENTS_PER_REQUEST);
+    for (int i = 0; i < NUM_SEGMENTS_PER_REQUEST; i++) {
+      segments.add(StringUtils.repeat('a', SEGMENT_NAME_LENGTH - 5) + String.format("%05d", i));
+    }
+    instanceRequest.setSearchSegments(segments);
+    return instanceRequest;
+  }
+}
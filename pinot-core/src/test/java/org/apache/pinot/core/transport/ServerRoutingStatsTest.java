@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ServerRoutingStatsTest {
+  private static final String FAST_SERVER = "Server_fast_12345";
+  private static final String SLOW_SERVER = "Server_slow_12345";
+
+  @Test
+  public void testStats() {
+    ServerRoutingStats serverRoutingStats = new ServerRoutingStats();
+
+    serverRoutingStats.recordRequestSubmitted(FAST_SERVER);
+    serverRoutingStats.recordRequestSubmitted(FAST_SERVER);
+    Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(FAST_SERVER), 2);
+    serverRoutingStats.recordResponse(FAST_SERVER, 10L);
+    Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(FAST_SERVER), 1);
+    Assert.assertEquals(serverRoutingStats.getLatencyEwmaMs(FAST_SERVER), 10.0);
+    serverRoutingStats.recordResponse(FAST_SERVER, 20L);
+    Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(FAST_SERVER), 0);
+    Assert.assertEquals(serverRoutingStats.getLatencyEwmaMs(FAST_SERVER), 12.0, 1e-9);
+    Assert.assertEquals(serverRoutingStats.getErrorRateEwma(FAST_SERVER), 0.0);
+
+    serverRoutingStats.recordRequestSubmitted(SLOW_SERVER);
+    serverRoutingStats.recordError(SLOW_SERVER, 1000L);
+    Assert.assertEquals(serverRoutingStats.getNumInFlightRequests(SLOW_SERVER), 0);
+    Assert.assertTrue(serverRoutingStats.getErrorRateEwma(SLOW_SERVER) > 0.0);
+    Assert.assertTrue(serverRoutingStats.getScore(SLOW_SERVER) > serverRoutingStats.getScore(FAST_SERVER));
+
+    // In-flight requests should be penalized
+    double fastServerScore = serverRoutingStats.getScore(FAST_SERVER);
+    serverRoutingStats.recordRequestSubmitted(FAST_SERVER);
+    Assert.assertEquals(serverRoutingStats.getScore(FAST_SERVER), 8 * fastServerScore, 1e-9);
+  }
+
+  @Test
+  public void testSelectServer() {
+    ServerRoutingStats serverRoutingStats = new ServerRoutingStats();
+    serverRoutingStats.recordRequestSubmitted(FAST_SERVER);
+    serverRoutingStats.recordResponse(FAST_SERVER, 10L);
+    serverRoutingStats.recordRequestSubmitted(SLOW_SERVER);
+    serverRoutingStats.recordResponse(SLOW_SERVER, 1000L);
+
+    // With two servers, the better one should always be selected
+    List<String> servers = Arrays.asList(FAST_SERVER, SLOW_SERVER);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(serverRoutingStats.selectServer(servers, new HashMap<>()), FAST_SERVER);
+    }
+
+    // Single server should always be selected
+    List<String> singleServer = Arrays.asList(SLOW_SERVER);
+    Assert.assertEquals(serverRoutingStats.selectServer(singleServer, new HashMap<>()), SLOW_SERVER);
+  }
+}
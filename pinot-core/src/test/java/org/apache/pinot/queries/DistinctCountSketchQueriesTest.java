@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.queries;
+
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.UpdateSketch;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.data.DimensionFieldSpec;
+import org.apache.pinot.common.data.FieldSpec;
+import org.apache.pinot.common.data.MetricFieldSpec;
+import org.apache.pinot.common.data.Schema;
+import org.apache.pinot.common.response.broker.AggregationResult;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.GroupByResult;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.data.GenericRow;
+import org.apache.pinot.core.data.manager.SegmentDataManager;
+import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
+import org.apache.pinot.core.data.readers.RecordReader;
+import org.apache.pinot.core.indexsegment.IndexSegment;
+import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.operator.blocks.IntermediateResultsBlock;
+import org.apache.pinot.core.operator.query.AggregationGroupByOperator;
+import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.query.aggregation.function.DistinctCountHLLSketchAggregationFunction;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for DISTINCT_COUNT_THETA_SKETCH and DISTINCT_COUNT_HLL_SKETCH aggregation functions.
+ *
+ * <ul>
+ *   <li>
+ *     Generates a segment with 2 overlapping int columns, a pre-aggregated Theta sketch column, a pre-aggregated HLL
+ *     sketch column and a group-by column
+ *   </li>
+ *   <li>Runs aggregation and group-by queries (including set expressions) on the generated segment</li>
+ *   <li>
+ *     Compares the results with the exact distinct counts (Theta sketch is exact under the nominal entries, HLL sketch
+ *     is within a small error)
+ *   </li>
+ * </ul>
+ */
+public class DistinctCountSketchQueriesTest extends BaseQueriesTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "DistinctCountSketchQueriesTest");
+  private static final String TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+
+  private static final int NUM_ROWS = 2000;
+  private static final double HLL_DELTA = 0.05; // Allow 5% error for HLL sketch
+  private static final String INT_COLUMN_A = "intColumnA";
+  private static final String INT_COLUMN_B = "intColumnB";
+  private static final String THETA_SKETCH_COLUMN = "thetaSketchColumn";
+  private static final String HLL_SKETCH_COLUMN = "hllSketchColumn";
+  private static final String GROUP_BY_COLUMN = "groupByColumn";
+  private static final String[] GROUPS = new String[]{"G1", "G2", "G3"};
+
+  // Column A has values [0, 1000), column B has values [500, 1100)
+  private final Set<Integer> _valuesA = new HashSet<>();
+  private final Set<Integer> _valuesB = new HashSet<>();
+  private final Map<String, Set<Integer>> _groupValuesA = new HashMap<>();
+  private final Map<String, Set<Integer>> _groupValuesB = new HashMap<>();
+
+  private ImmutableSegment _indexSegment;
+  private List<SegmentDataManager> _segmentDataManagers;
+
+  @Override
+  protected String getFilter() {
+    return ""; // No filtering required for this test.
+  }
+
+  @Override
+  protected IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  protected List<SegmentDataManager> getSegmentDataManagers() {
+    return _segmentDataManagers;
+  }
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    buildSegment();
+    _indexSegment = ImmutableSegmentLoader.load(new File(INDEX_DIR, SEGMENT_NAME), ReadMode.mmap);
+    // Same segment twice so that the intermediate results are merged
+    _segmentDataManagers =
+        Arrays.asList(new ImmutableSegmentDataManager(_indexSegment), new ImmutableSegmentDataManager(_indexSegment));
+  }
+
+  private void buildSegment()
+      throws Exception {
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      HashMap<String, Object> valueMap = new HashMap<>();
+
+      int valueA = i % 1000;
+      int valueB = i % 600 + 500;
+      String group = GROUPS[i % GROUPS.length];
+      valueMap.put(INT_COLUMN_A, valueA);
+      valueMap.put(INT_COLUMN_B, valueB);
+      valueMap.put(GROUP_BY_COLUMN, group);
+      _valuesA.add(valueA);
+      _valuesB.add(valueB);
+      _groupValuesA.computeIfAbsent(group, k -> new HashSet<>()).add(valueA);
+      _groupValuesB.computeIfAbsent(group, k -> new HashSet<>()).add(valueB);
+
+      UpdateSketch thetaSketch = UpdateSketch.builder().build();
+      thetaSketch.update(valueA);
+      valueMap.put(THETA_SKETCH_COLUMN, thetaSketch.compact().toByteArray());
+
+      HllSketch hllSketch = new HllSketch(DistinctCountHLLSketchAggregationFunction.DEFAULT_LG_K,
+          DistinctCountHLLSketchAggregationFunction.DEFAULT_TGT_HLL_TYPE);
+      hllSketch.update(valueA);
+      valueMap.put(HLL_SKETCH_COLUMN, hllSketch.toCompactByteArray());
+
+      GenericRow genericRow = new GenericRow();
+      genericRow.init(valueMap);
+      rows.add(genericRow);
+    }
+
+    Schema schema = new Schema();
+    schema.addField(new DimensionFieldSpec(INT_COLUMN_A, FieldSpec.DataType.INT, true));
+    schema.addField(new DimensionFieldSpec(INT_COLUMN_B, FieldSpec.DataType.INT, true));
+    schema.addField(new MetricFieldSpec(THETA_SKETCH_COLUMN, FieldSpec.DataType.BYTES));
+    schema.addField(new MetricFieldSpec(HLL_SKETCH_COLUMN, FieldSpec.DataType.BYTES));
+    schema.addField(new DimensionFieldSpec(GROUP_BY_COLUMN, FieldSpec.DataType.STRING, true));
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setOutDir(INDEX_DIR.getPath());
+    config.setTableName(TABLE_NAME);
+    config.setSegmentName(SEGMENT_NAME);
+    config.setRawIndexCreationColumns(Arrays.asList(THETA_SKETCH_COLUMN, HLL_SKETCH_COLUMN));
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    try (RecordReader recordReader = new GenericRowRecordReader(rows, schema)) {
+      driver.init(config, recordReader);
+      driver.build();
+    }
+  }
+
+  @Test
+  public void testInnerSegmentAggregation() {
+    AggregationOperator aggregationOperator = getOperatorForQuery(getAggregationQuery());
+    IntermediateResultsBlock resultsBlock = aggregationOperator.nextBlock();
+    List<Object> aggregationResult = resultsBlock.getAggregationResult();
+    Assert.assertNotNull(aggregationResult);
+    Assert.assertEquals(aggregationResult.size(), 7);
+
+    // One sketch per distinct input expression of the set expression
+    assertThetaSketches((Sketch[]) aggregationResult.get(0), _valuesA);
+    assertThetaSketches((Sketch[]) aggregationResult.get(1), _valuesA, _valuesB);
+    assertThetaSketches((Sketch[]) aggregationResult.get(2), _valuesA, _valuesB);
+    assertThetaSketches((Sketch[]) aggregationResult.get(3), _valuesA, _valuesB);
+    assertThetaSketches((Sketch[]) aggregationResult.get(4), _valuesA);
+    Assert.assertEquals(((HllSketch) aggregationResult.get(5)).getEstimate(), _valuesA.size(),
+        HLL_DELTA * _valuesA.size());
+    Assert.assertEquals(((HllSketch) aggregationResult.get(6)).getEstimate(), _valuesA.size(),
+        HLL_DELTA * _valuesA.size());
+  }
+
+  @Test
+  public void testInterSegmentAggregation() {
+    BrokerResponseNative brokerResponse = getBrokerResponseForQuery(getAggregationQuery());
+    List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+    Assert.assertNotNull(aggregationResults);
+    Assert.assertEquals(aggregationResults.size(), 7);
+    long[] expectedResults = getExpectedResults(_valuesA, _valuesB);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(Long.parseLong((String) aggregationResults.get(i).getValue()), expectedResults[i]);
+    }
+    for (int i = 5; i < 7; i++) {
+      Assert.assertEquals(Long.parseLong((String) aggregationResults.get(i).getValue()), expectedResults[i],
+          HLL_DELTA * expectedResults[i]);
+    }
+  }
+
+  @Test
+  public void testInnerSegmentGroupBy() {
+    AggregationGroupByOperator groupByOperator = getOperatorForQuery(getGroupByQuery());
+    IntermediateResultsBlock resultsBlock = groupByOperator.nextBlock();
+    AggregationGroupByResult groupByResult = resultsBlock.getAggregationGroupByResult();
+    Assert.assertNotNull(groupByResult);
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupByResult.getGroupKeyIterator();
+    int numGroups = 0;
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      Set<Integer> valuesA = _groupValuesA.get(groupKey._stringKey);
+      Set<Integer> valuesB = _groupValuesB.get(groupKey._stringKey);
+      assertThetaSketches((Sketch[]) groupByResult.getResultForKey(groupKey, 0), valuesA);
+      assertThetaSketches((Sketch[]) groupByResult.getResultForKey(groupKey, 1), valuesA, valuesB);
+      assertThetaSketches((Sketch[]) groupByResult.getResultForKey(groupKey, 4), valuesA);
+      Assert.assertEquals(((HllSketch) groupByResult.getResultForKey(groupKey, 6)).getEstimate(), valuesA.size(),
+          HLL_DELTA * valuesA.size());
+      numGroups++;
+    }
+    Assert.assertEquals(numGroups, GROUPS.length);
+  }
+
+  @Test
+  public void testInterSegmentGroupBy() {
+    BrokerResponseNative brokerResponse = getBrokerResponseForQuery(getGroupByQuery());
+    List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+    Assert.assertNotNull(aggregationResults);
+    Assert.assertEquals(aggregationResults.size(), 7);
+    for (int i = 0; i < 7; i++) {
+      List<GroupByResult> groupByResults = aggregationResults.get(i).getGroupByResult();
+      Assert.assertEquals(groupByResults.size(), GROUPS.length);
+      for (GroupByResult groupByResult : groupByResults) {
+        String group = groupByResult.getGroup().get(0);
+        long expected = getExpectedResults(_groupValuesA.get(group), _groupValuesB.get(group))[i];
+        long actual = Long.parseLong((String) groupByResult.getValue());
+        if (i < 5) {
+          Assert.assertEquals(actual, expected);
+        } else {
+          Assert.assertEquals(actual, expected, HLL_DELTA * expected);
+        }
+      }
+    }
+  }
+
+  private String getAggregationQuery() {
+    return String.format(
+        "SELECT DISTINCTCOUNTTHETASKETCH(%1$s), DISTINCTCOUNTTHETASKETCH(setIntersect(%1$s, %2$s)), "
+            + "DISTINCTCOUNTTHETASKETCH(setUnion(%1$s, %2$s)), DISTINCTCOUNTTHETASKETCH(setDiff(%1$s, %2$s)), "
+            + "DISTINCTCOUNTTHETASKETCH(%3$s), DISTINCTCOUNTHLLSKETCH(%1$s), DISTINCTCOUNTHLLSKETCH(%4$s) FROM %5$s",
+        INT_COLUMN_A, INT_COLUMN_B, THETA_SKETCH_COLUMN, HLL_SKETCH_COLUMN, TABLE_NAME);
+  }
+
+  private String getGroupByQuery() {
+    return String.format("%s GROUP BY %s", getAggregationQuery(), GROUP_BY_COLUMN);
+  }
+
+  /**
+   * Returns the exact results for the queries in the order of {@link #getAggregationQuery()}.
+   */
+  private static long[] getExpectedResults(Set<Integer> valuesA, Set<Integer> valuesB) {
+    Set<Integer> intersection = new HashSet<>(valuesA);
+    intersection.retainAll(valuesB);
+    Set<Integer> union = new HashSet<>(valuesA);
+    union.addAll(valuesB);
+    Set<Integer> difference = new HashSet<>(valuesA);
+    difference.removeAll(valuesB);
+    return new long[]{valuesA.size(), intersection.size(), union.size(), difference.size(), valuesA.size(),
+        valuesA.size(), valuesA.size()};
+  }
+
+  @SafeVarargs
+  private static void assertThetaSketches(Sketch[] sketches, Set<Integer>... expectedValues) {
+    Assert.assertEquals(sketches.length, expectedValues.length);
+    for (int i = 0; i < sketches.length; i++) {
+      Assert.assertEquals(Math.round(sketches[i].getEstimate()), expectedValues[i].size());
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
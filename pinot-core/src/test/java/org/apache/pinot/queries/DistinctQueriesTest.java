@@ -46,6 +46,7 @@ import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
 import org.apache.pinot.core.operator.blocks.IntermediateResultsBlock;
 import org.apache.pinot.core.operator.query.AggregationOperator;
+import org.apache.pinot.core.plan.DocIdSetPlanNode;
 import org.apache.pinot.core.query.aggregation.DistinctTable;
 import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import org.apache.pinot.pql.parsers.Pql2Compiler;
@@ -295,6 +296,18 @@ public class DistinctQueriesTest extends BaseQueriesTest {
         query = "SELECT DISTINCT(STRING_COL1, STRING_COL2, INT_COL, LONG_COL) FROM DistinctTestTable";
         innerSegmentTestHelper(query, 10);
 
+        // The operator should stop scanning after the first block once the limit is reached
+        AggregationOperator aggregationOperator = getOperatorForQuery(query);
+        aggregationOperator.nextBlock();
+        Assert.assertEquals(aggregationOperator.getExecutionStatistics().getNumDocsScanned(),
+            DocIdSetPlanNode.MAX_DOC_PER_CALL);
+
+        // All the documents should be scanned when the limit is not reached
+        query = "SELECT DISTINCT(STRING_COL1, STRING_COL2, INT_COL, LONG_COL) FROM DistinctTestTable LIMIT 1000000";
+        aggregationOperator = getOperatorForQuery(query);
+        aggregationOperator.nextBlock();
+        Assert.assertEquals(aggregationOperator.getExecutionStatistics().getNumDocsScanned(), NUM_ROWS);
+
         // default: 10 unique rows should be returned
         query = "SELECT DISTINCT(add(INT_COL,LONG_COL)) FROM DistinctTestTable";
         innerSegmentTransformQueryTestHelper(query, 10, 1, new String[]{"add(INT_COL,LONG_COL)"},
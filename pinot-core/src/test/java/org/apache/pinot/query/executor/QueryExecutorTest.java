@@ -18,16 +18,25 @@
  */
 package org.apache.pinot.query.executor;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.yammer.metrics.core.MetricsRegistry;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.InstanceRequest;
 import org.apache.pinot.common.segment.ReadMode;
@@ -47,6 +56,7 @@ import org.apache.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import org.apache.pinot.pql.parsers.Pql2Compiler;
 import org.apache.pinot.segments.v1.creator.SegmentTestUtils;
+import org.apache.pinot.util.TestUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -154,6 +164,54 @@ public class QueryExecutorTest {
     Assert.assertEquals(instanceResponse.getDouble(0, 0), 0.0);
   }
 
+  @Test
+  public void testCancelQuery()
+      throws Exception {
+    String query = "SELECT COUNT(*) FROM " + TABLE_NAME;
+    InstanceRequest instanceRequest = new InstanceRequest(0L, COMPILER.compileToBrokerRequest(query));
+    instanceRequest.setSearchSegments(_segmentNames);
+    ServerQueryRequest queryRequest = getQueryRequest(instanceRequest);
+    String queryId = queryRequest.getQueryId();
+    long numCancelledQueries = _serverMetrics.getMeteredTableValue(TABLE_NAME, ServerMeter.CANCELLED_QUERIES).count();
+
+    // Block the only worker thread so that the per-segment jobs stay in the queue until the query gets cancelled
+    AtomicInteger numJobsRun = new AtomicInteger();
+    ThreadPoolExecutor workers =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+          @Override
+          protected void afterExecute(Runnable r, Throwable t) {
+            if (r instanceof Future && !((Future) r).isCancelled()) {
+              numJobsRun.incrementAndGet();
+            }
+          }
+        };
+    CountDownLatch workerBlocker = new CountDownLatch(1);
+    workers.execute(() -> Uninterruptibles.awaitUninterruptibly(workerBlocker));
+    ExecutorService queryRunner = Executors.newSingleThreadExecutor();
+    try {
+      Future<DataTable> responseFuture = queryRunner.submit(() -> _queryExecutor.processQuery(queryRequest, workers));
+      TestUtils.waitForCondition(aVoid -> !workers.getQueue().isEmpty(), 10_000L,
+          "Failed to submit the per-segment jobs");
+      Assert.assertTrue(_queryExecutor.cancelQuery(queryId));
+
+      DataTable instanceResponse = responseFuture.get(10_000L, TimeUnit.MILLISECONDS);
+      Assert.assertTrue(instanceResponse.getMetadata()
+          .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_CANCELLATION_ERROR.getErrorCode()));
+      Assert.assertEquals(_serverMetrics.getMeteredTableValue(TABLE_NAME, ServerMeter.CANCELLED_QUERIES).count(),
+          numCancelledQueries + 1);
+      // The query is no longer running, and its thread goes back to the pool without the interrupt flag
+      Assert.assertFalse(_queryExecutor.cancelQuery(queryId));
+      Assert.assertFalse(queryRunner.submit(() -> Thread.currentThread().isInterrupted()).get());
+    } finally {
+      workerBlocker.countDown();
+      workers.shutdown();
+      queryRunner.shutdownNow();
+    }
+    // None of the cancelled per-segment jobs should run
+    Assert.assertTrue(workers.awaitTermination(10_000L, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(numJobsRun.get(), 0);
+  }
+
   @AfterClass
   public void tearDown() {
     for (IndexSegment segment : _indexSegments) {
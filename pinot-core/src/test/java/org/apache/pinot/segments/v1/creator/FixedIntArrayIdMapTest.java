@@ -39,7 +39,6 @@ public class FixedIntArrayIdMapTest {
   private static final int NUM_ROWS = 10001;
   private static final int NUM_COLUMNS = 3;
   private static final int INITIAL_CARDINALITY = 23;
-  private static final int ON_HEAP_CACHE_SIZE = 10;
   private DirectMemoryManager _memoryManager;
   private Random _random;
   private IdMap<FixedIntArray> _idMap;
@@ -49,7 +48,7 @@ public class FixedIntArrayIdMapTest {
     _random = new Random(System.nanoTime());
     _memoryManager = new DirectMemoryManager(FixedIntArrayIdMapTest.class.getName());
 
-    _idMap = new FixedIntArrayOffHeapIdMap(INITIAL_CARDINALITY, ON_HEAP_CACHE_SIZE, NUM_COLUMNS, _memoryManager,
+    _idMap = new FixedIntArrayOffHeapIdMap(INITIAL_CARDINALITY, NUM_COLUMNS, _memoryManager,
         FixedIntArrayIdMapTest.class.getName());
   }
 
@@ -80,61 +80,13 @@ public class BenchmarkDictionary {
     }
   }
 
-  // Start with mid size, with overflow
+  // Start with mid size
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapMidSizeWithOverflow()
+  public int benchmarkOffHeapMidSize()
       throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY / 3, 1000,
-        _memoryManager, "longColumn")) {
-      int value = 0;
-      for (Long colValue : _colValues) {
-        value += dictionary.index(colValue);
-      }
-      return value;
-    }
-  }
-
-  // Start with max size, no overflow
-  @Benchmark
-  @BenchmarkMode(Mode.SampleTime)
-  @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapMidSizeWithoutOverflow()
-      throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY / 3, 0, _memoryManager,
-        "longColumn")) {
-      int value = 0;
-      for (Long colValue : _colValues) {
-        value += dictionary.index(colValue);
-      }
-      return value;
-    }
-  }
-
-  // Start with max size, with overflow
-  @Benchmark
-  @BenchmarkMode(Mode.SampleTime)
-  @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapPreSizeWithOverflow()
-      throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY, 1000, _memoryManager,
-        "longColumn")) {
-      int value = 0;
-      for (Long colValue : _colValues) {
-        value += dictionary.index(colValue);
-      }
-      return value;
-    }
-  }
-
-  // Start with max size, no overflow
-  @Benchmark
-  @BenchmarkMode(Mode.SampleTime)
-  @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapPreSizeWithoutOverflow()
-      throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY, 0, _memoryManager,
+    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY / 3, _memoryManager,
         "longColumn")) {
       int value = 0;
       for (Long colValue : _colValues) {
@@ -144,13 +96,13 @@ public class BenchmarkDictionary {
     }
   }
 
-  // Start with min size, and grow to full, no overflow
+  // Start with max size
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapMinSizeWithoutOverflow()
+  public int benchmarkOffHeapPreSize()
       throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(10000, 0, _memoryManager,
+    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(CARDINALITY, _memoryManager,
         "longColumn")) {
       int value = 0;
       for (Long colValue : _colValues) {
@@ -160,13 +112,13 @@ public class BenchmarkDictionary {
     }
   }
 
-  // Start with min size, and grow to full with overflow buffer
+  // Start with min size, and grow to full
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public int benchmarkOffHeapMinSizeWithOverflow()
+  public int benchmarkOffHeapMinSize()
       throws IOException {
-    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(10000, 1000, _memoryManager,
+    try (LongOffHeapMutableDictionary dictionary = new LongOffHeapMutableDictionary(10000, _memoryManager,
         "longColumn")) {
       int value = 0;
       for (Long colValue : _colValues) {
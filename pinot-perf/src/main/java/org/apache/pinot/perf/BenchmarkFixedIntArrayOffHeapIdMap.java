@@ -71,16 +71,16 @@ public class BenchmarkFixedIntArrayOffHeapIdMap {
       throws Exception {
   }
 
-  // Start with mid size, with overflow
+  // Start with mid size
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public IdMap<FixedIntArray> benchmarkOffHeapWithResizeWithCache()
+  public IdMap<FixedIntArray> benchmarkOffHeapWithResize()
       throws IOException {
     PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager("perfTest");
 
     IdMap<FixedIntArray> idMap =
-        new FixedIntArrayOffHeapIdMap(CARDINALITY / 10, 1000, NUM_COLUMNS, memoryManager, "perfTestWithCache");
+        new FixedIntArrayOffHeapIdMap(CARDINALITY / 10, NUM_COLUMNS, memoryManager, "perfTest");
 
     for (FixedIntArray value : _values) {
       idMap.put(value);
@@ -90,50 +90,15 @@ public class BenchmarkFixedIntArrayOffHeapIdMap {
     return idMap;
   }
 
-  // Start with max size, no cache
+  // Start with max size
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public IdMap<FixedIntArray> benchmarkOffHeapWithReSizeWithoutCache()
+  public IdMap<FixedIntArray> benchmarkOffHeapPreSize()
       throws IOException {
     PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager("perfTest");
 
     IdMap<FixedIntArray> idMap =
-        new FixedIntArrayOffHeapIdMap(CARDINALITY / 10, 0, NUM_COLUMNS, memoryManager, "perfTestWithCache");
-
-    for (FixedIntArray value : _values) {
-      idMap.put(value);
-    }
-
-    memoryManager.close();
-    return idMap;
-  }
-
-  @BenchmarkMode(Mode.SampleTime)
-  @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public IdMap<FixedIntArray> benchmarkOffHeapPreSizeWithCache()
-      throws IOException {
-    PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager("perfTest");
-
-    IdMap<FixedIntArray> idMap =
-        new FixedIntArrayOffHeapIdMap(CARDINALITY, 1000, NUM_COLUMNS, memoryManager, "perfTestWithCache");
-
-    for (FixedIntArray value : _values) {
-      idMap.put(value);
-    }
-
-    memoryManager.close();
-    return idMap;
-  }
-
-  // Start with max size, no cache
-  @BenchmarkMode(Mode.SampleTime)
-  @OutputTimeUnit(TimeUnit.MILLISECONDS)
-  public IdMap<FixedIntArray> benchmarkOffHeapPreSizeWithoutCache()
-      throws IOException {
-    PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager("perfTest");
-
-    IdMap<FixedIntArray> idMap =
-        new FixedIntArrayOffHeapIdMap(CARDINALITY, 0, NUM_COLUMNS, memoryManager, "perfTestWithCache");
+        new FixedIntArrayOffHeapIdMap(CARDINALITY, NUM_COLUMNS, memoryManager, "perfTest");
 
     for (FixedIntArray value : _values) {
       idMap.put(value);
@@ -34,8 +34,8 @@ public class BenchmarkOffHeapDictionaryMemory {
   final int _cardinality = 1_000_000;
   final int _nRows = 2_500_000;
   private final long[] _totalMem = new long[_nDivs + 1];
-  private final int[] _nBufs = new int[_nDivs + 1];
-  private final int[] _overflowSize = new int[_nDivs + 1];
+  private final int[] _numResizes = new int[_nDivs + 1];
+  private final long[] _numSlots = new long[_nDivs + 1];
   private PinotDataBufferMemoryManager _memoryManager;
 
   @Setup
@@ -61,9 +61,9 @@ public class BenchmarkOffHeapDictionaryMemory {
     }
   }
 
-  private BaseOffHeapMutableDictionary testMem(final int initialCardinality, final int maxOverflowSize) {
+  private BaseOffHeapMutableDictionary testMem(final int initialCardinality) {
     LongOffHeapMutableDictionary dictionary =
-        new LongOffHeapMutableDictionary(initialCardinality, maxOverflowSize, _memoryManager, "longColumn");
+        new LongOffHeapMutableDictionary(initialCardinality, _memoryManager, "longColumn");
     for (Long colValue : _colValues) {
       dictionary.index(colValue);
     }
@@ -72,40 +72,30 @@ public class BenchmarkOffHeapDictionaryMemory {
 
   private void addStats(BaseOffHeapMutableDictionary dictionary, int div) {
     _totalMem[div] += dictionary.getTotalOffHeapMemUsed();
-    _overflowSize[div] += dictionary.getNumberOfOveflowValues();
-    _nBufs[div] += dictionary.getNumberOfHeapBuffersUsed();
-
-    /*
-    System.out.println("Cardinality:" + actualCardinality + ",initialCardinality:" + initialCardinality +
-        ",OffHeapMem:" + dictionary.getTotalOffHeapMemUsed()/1024/1024 + "MB" +
-            ",NumBuffers=" + dictionary.getNumberOfHeapBuffersUsed() +
-            ",maxOverflowSize=" + maxOverflowSize +
-            ",actualOverflowSize=" + dictionary.getNumberOfOveflowValues() +
-            ",rowFills=" + Arrays.toString(dictionary.getRowFillCount())
-    );
-    */
+    _numResizes[div] += dictionary.getNumResizes();
+    _numSlots[div] += dictionary.getNumSlots();
   }
 
   private void printStats() {
     for (int div = 1; div < _nDivs; div++) {
       _totalMem[div] /= _nRuns;
-      _nBufs[div] /= _nRuns;
-      _overflowSize[div] /= _nRuns;
+      _numResizes[div] /= _nRuns;
+      _numSlots[div] /= _nRuns;
       System.out.println(
-          "Div=" + div + ",TotalMem:" + _totalMem[div] / 1024 / 1024 + "MB,_nBufs=" + _nBufs[div] + ",numOverflows="
-              + _overflowSize[div]);
+          "Div=" + div + ",TotalMem:" + _totalMem[div] / 1024 / 1024 + "MB,numResizes=" + _numResizes[div]
+              + ",numSlots=" + _numSlots[div]);
     }
   }
 
   private void clearStats() {
     for (int div = 1; div < _nDivs; div++) {
       _totalMem[div] = 0;
-      _nBufs[div] = 0;
-      _overflowSize[div] = 0;
+      _numResizes[div] = 0;
+      _numSlots[div] = 0;
     }
   }
 
-  private void testMem(final int maxOverflowSize)
+  private void testMem()
       throws Exception {
     clearStats();
 
@@ -113,7 +103,7 @@ public class BenchmarkOffHeapDictionaryMemory {
       setupValues(_cardinality, _nRows);
       for (int i = 0; i < _nRuns; i++) {
         int initialCardinality = _cardinality / div;
-        try (BaseOffHeapMutableDictionary dictionary = testMem(initialCardinality, maxOverflowSize)) {
+        try (BaseOffHeapMutableDictionary dictionary = testMem(initialCardinality)) {
           addStats(dictionary, div);
         }
       }
@@ -125,9 +115,11 @@ public class BenchmarkOffHeapDictionaryMemory {
   public static void main(String[] args)
       throws Exception {
     BenchmarkOffHeapDictionaryMemory benchmark = new BenchmarkOffHeapDictionaryMemory();
-    System.out.println("Results with overflow:");
-    benchmark.testMem(1000);
-    System.out.println("Results without overflow:");
-    benchmark.testMem(0);
+    benchmark.setUp();
+    try {
+      benchmark.testMem();
+    } finally {
+      benchmark.tearDown();
+    }
   }
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.broker.queryquota.HitCounter;
+import org.apache.pinot.broker.queryquota.SlidingWindowRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the per-table query quota check on the broker under high thread contention (all the threads hitting
+ * the same table).
+ */
+@State(Scope.Benchmark)
+@Threads(32)
+public class BenchmarkQueryQuotaRateLimiter {
+  @Param({"1000", "100000"})
+  private double _permitsPerSecond;
+
+  private RateLimiter _guavaRateLimiter;
+  private SlidingWindowRateLimiter _slidingWindowRateLimiter;
+  private HitCounter _hitCounter;
+
+  @Setup
+  public void setUp() {
+    _guavaRateLimiter = RateLimiter.create(_permitsPerSecond);
+    _slidingWindowRateLimiter = new SlidingWindowRateLimiter(_permitsPerSecond, 1000L, 10);
+    _hitCounter = new HitCounter(1);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean guavaRateLimiter() {
+    return _guavaRateLimiter.tryAcquire();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean slidingWindowRateLimiter() {
+    return _slidingWindowRateLimiter.tryAcquire();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int hitCounter() {
+    _hitCounter.hit();
+    return _hitCounter.getHitCount();
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    Options opt = new OptionsBuilder().include(BenchmarkQueryQuotaRateLimiter.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5)).warmupIterations(2).measurementTime(TimeValue.seconds(5))
+        .measurementIterations(3).forks(1).build();
+
+    new Runner(opt).run();
+  }
+}
@@ -66,7 +66,7 @@ public class BenchmarkStringDictionary {
   public void setUp() {
     _memoryManager = new DirectMemoryManager("");
     _offHeapDictionary =
-        new StringOffHeapMutableDictionary(CARDINALITY, CARDINALITY / 10, _memoryManager, null, _maxValueLength / 2);
+        new StringOffHeapMutableDictionary(CARDINALITY, _memoryManager, null, _maxValueLength / 2);
     _onHeapDictionary = new StringOnHeapMutableDictionary();
     String[] uniqueValues = new String[CARDINALITY];
     for (int i = 0; i < CARDINALITY; i++) {
@@ -120,7 +120,7 @@ public class BenchmarkStringDictionary {
   public int offHeapStringDictionaryWrite()
       throws IOException {
     try (StringOffHeapMutableDictionary offHeapDictionary = new StringOffHeapMutableDictionary(CARDINALITY,
-        CARDINALITY / 10, _memoryManager, null, _maxValueLength / 2)) {
+        _memoryManager, null, _maxValueLength / 2)) {
       int value = 0;
       for (String stringValue : _values) {
         value += offHeapDictionary.index(stringValue);
@@ -39,6 +39,9 @@ import org.apache.pinot.core.data.readers.GenericRowRecordReader;
 import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.realtime.impl.dictionary.StringOffHeapMutableDictionary;
 import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
@@ -137,6 +140,30 @@ public class StringDictionaryPerfTest {
     System.out.println("Total time for " + numLookups + " lookups: " + (System.currentTimeMillis() - start) + "ms");
   }
 
+  /**
+   * Measures the performance of off-heap mutable string dictionary lookups (as done while consuming) by performing the
+   * provided number of lookups to random value.
+   */
+  public void perfTestMutableDictionaryLookups(int numLookups)
+      throws Exception {
+    try (PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager(StringDictionaryPerfTest.class.getName());
+        StringOffHeapMutableDictionary dictionary = new StringOffHeapMutableDictionary(_dictLength, memoryManager,
+            COLUMN_NAME, MAX_STRING_LENGTH)) {
+      for (String inputString : _inputStrings) {
+        dictionary.index(inputString);
+      }
+
+      Random random = new Random(System.nanoTime());
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < numLookups; i++) {
+        dictionary.index(_inputStrings[random.nextInt(_dictLength)]);
+      }
+      System.out.println(
+          "Total time for " + numLookups + " mutable dictionary lookups: " + (System.currentTimeMillis() - start)
+              + "ms");
+    }
+  }
+
   /**
    * Measures the performance of string dictionary reads by performing the provided number of reads for random index.
    */
@@ -190,6 +217,7 @@ public class StringDictionaryPerfTest {
       int dictLength = Integer.valueOf(args[i]);
       StringDictionaryPerfTest test = new StringDictionaryPerfTest();
       test.buildSegment(dictLength);
+      test.perfTestMutableDictionaryLookups(numLookups);
       test.perfTestLookups(numLookups);
       stats[i + 1] = test.perfTestGetValues(numLookups);
     }
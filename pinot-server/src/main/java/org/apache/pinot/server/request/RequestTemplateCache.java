@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.server.request;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
+
+
+/**
+ * Request templates registered by the broker on a single connection.
+ * <p>The cache is bounded with the same LRU policy as the broker side, and the requests of a connection are processed
+ * in order, so both sides always evict the same templates.
+ */
+@NotThreadSafe
+public class RequestTemplateCache {
+  private final Map<Long, BrokerRequest> _templates =
+      new LinkedHashMap<Long, BrokerRequest>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BrokerRequest> eldest) {
+          return size() > BrokerRequestTemplate.MAX_NUM_TEMPLATES_PER_CONNECTION;
+        }
+      };
+
+  public void register(long templateId, BrokerRequest template) {
+    _templates.put(templateId, template);
+  }
+
+  @Nullable
+  public BrokerRequest get(long templateId) {
+    return _templates.get(templateId);
+  }
+
+  public int size() {
+    return _templates.size();
+  }
+}
@@ -18,14 +18,22 @@
  */
 package org.apache.pinot.server.request;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.exception.QueryException;
 import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.metrics.ServerQueryPhase;
+import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.InstanceRequest;
+import org.apache.pinot.common.response.ProcessingException;
 import org.apache.pinot.common.utils.BytesUtils;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
+import org.apache.pinot.core.common.datatable.DataTableImplV2;
 import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.scheduler.QueryScheduler;
 import org.apache.pinot.serde.SerDe;
@@ -48,8 +56,22 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
     this.serverMetrics = serverMetrics;
   }
 
+  /**
+   * Returns a handler for a new connection, which keeps the request templates registered on the connection.
+   */
+  public NettyServer.RequestHandler newConnectionHandler() {
+    RequestTemplateCache requestTemplateCache = new RequestTemplateCache();
+    return request -> processRequest(request, requestTemplateCache);
+  }
+
   @Override
   public ListenableFuture<byte[]> processRequest(byte[] request) {
+    return processRequest(request, null);
+  }
+
+  @VisibleForTesting
+  ListenableFuture<byte[]> processRequest(byte[] request,
+      @Nullable RequestTemplateCache requestTemplateCache) {
     long queryArrivalTimeMs = System.currentTimeMillis();
     serverMetrics.addMeteredGlobalValue(ServerMeter.QUERIES, 1);
 
@@ -61,6 +83,34 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
       return Futures.immediateFuture(null);
     }
 
+    if (instanceRequest.isCancel()) {
+      return processCancelRequest(instanceRequest);
+    }
+
+    if (instanceRequest.isSetTemplateId()) {
+      BrokerRequest template = null;
+      if (requestTemplateCache != null) {
+        long templateId = instanceRequest.getTemplateId();
+        if (instanceRequest.getQuery().isSetQuerySource()) {
+          template = instanceRequest.getQuery();
+          requestTemplateCache.register(templateId, template);
+        } else {
+          template = requestTemplateCache.get(templateId);
+        }
+      }
+      if (template == null) {
+        LOGGER.error("Unknown request template: {} for requestId: {}", instanceRequest.getTemplateId(),
+            instanceRequest.getRequestId());
+        serverMetrics.addMeteredGlobalValue(ServerMeter.UNKNOWN_REQUEST_TEMPLATES, 1);
+        // The broker sends the full query again on this error
+        return getErrorResponse(instanceRequest.getRequestId(), QueryException
+            .getException(QueryException.UNKNOWN_REQUEST_TEMPLATE_ERROR,
+                "Unknown request template: " + instanceRequest.getTemplateId()));
+      }
+      instanceRequest.setQuery(
+          BrokerRequestTemplate.toBrokerRequest(template, instanceRequest.getTemplateFilterValues()));
+    }
+
     ServerQueryRequest queryRequest = new ServerQueryRequest(instanceRequest, serverMetrics, queryArrivalTimeMs);
     queryRequest.getTimerContext().startNewPhaseTimer(ServerQueryPhase.REQUEST_DESERIALIZATION, queryArrivalTimeMs)
         .stopAndRecord();
@@ -69,6 +119,39 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
     return queryScheduler.submit(queryRequest);
   }
 
+  /**
+   * Cancels the query previously sent by the broker. The response only carries the request id, and is ignored by the
+   * broker because the query is already done on the broker side.
+   */
+  private ListenableFuture<byte[]> processCancelRequest(InstanceRequest instanceRequest) {
+    long requestId = instanceRequest.getRequestId();
+    String brokerId = instanceRequest.getBrokerId() != null ? instanceRequest.getBrokerId() : "unknown";
+    String tableNameWithType = instanceRequest.getQuery().getQuerySource().getTableName();
+    boolean cancelled = queryScheduler.cancel(ServerQueryRequest.getQueryId(brokerId, requestId, tableNameWithType));
+    LOGGER.debug("Cancel requestId: {} from broker: {} for table: {}, cancelled: {}", requestId, brokerId,
+        tableNameWithType, cancelled);
+
+    return getErrorResponse(requestId, null);
+  }
+
+  /**
+   * Returns a response that only carries the request id and the exception if any.
+   */
+  private ListenableFuture<byte[]> getErrorResponse(long requestId, @Nullable ProcessingException exception) {
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    if (exception != null) {
+      dataTable.addException(exception);
+    }
+    try {
+      return Futures.immediateFuture(dataTable.toBytes());
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while serializing response for requestId: {}", requestId, e);
+      serverMetrics.addMeteredGlobalValue(ServerMeter.RESPONSE_SERIALIZATION_EXCEPTIONS, 1);
+      return Futures.immediateFuture(null);
+    }
+  }
+
   public void setScheduler(QueryScheduler scheduler) {
     Preconditions.checkNotNull(scheduler);
     LOGGER.info("Setting scheduler to {}", scheduler.name());
@@ -69,7 +69,7 @@ public class ServerInstance {
     _nettyServer = serverBuilder.buildNettyServer(new RequestHandlerFactory() {
       @Override
       public NettyServer.RequestHandler createNewRequestHandler() {
-        return _requestHandler;
+        return _requestHandler.newConnectionHandler();
       }
     });
 
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.common.utils.DataSize;
 import org.apache.pinot.core.data.manager.config.InstanceDataManagerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +76,22 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   // The metric ServerGauge.REALTIME_OFFHEAP_MEMORY_USED should indicate how much memory is needed.
   private static final String DIRECT_REALTIME_OFFHEAP_ALLOCATION = "realtime.alloc.offheap.direct";
 
+  // Desired on-disk size (e.g. '200M') of segments built from LLC consuming segments on this server.
+  // When set, the number of rows per consuming segment is adjusted per partition based on the size of the segments
+  // previously built on this server, instead of using the static row threshold.
+  private static final String REALTIME_SEGMENT_TARGET_SIZE = "realtime.segment.target.size";
+  // Memory budget (e.g. '16G') for all LLC consuming segments on this server.
+  // When set, the number of rows per consuming segment is capped so that the memory used by the consuming segments
+  // (as estimated from the segment stats history of each table) stays within the budget.
+  private static final String REALTIME_CONSUMING_MEMORY_BUDGET = "realtime.consuming.memory.budget";
+
+  // Key of how many LLC partitions can index fetched messages at the same time on this server, i.e. the number of
+  // threads of the shared indexing executor (fetches are not bounded).
+  // A value of <= 0 indicates unlimited (each partition indexes on its own consumer thread).
+  // On servers hosting a large number of partitions, bounding the consumption avoids all the consumer threads
+  // fighting for CPU during catch-up. Lagging partitions are favored over idle ones when scheduling consumption.
+  private static final String MAX_CONCURRENT_CONSUMERS = "realtime.max.concurrent.consumers";
+
   // Number of simultaneous segments that can be refreshed on one server.
   // Segment refresh works by loading the old as well as new versions of segments in memory, assigning
   // new incoming queries to use the new version. The old version is dropped when all the queries that
@@ -185,6 +202,21 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _instanceDataManagerConfiguration.getInt(MAX_PARALLEL_SEGMENT_BUILDS, 0);
   }
 
+  @Override
+  public long getRealtimeSegmentTargetSizeBytes() {
+    return DataSize.toBytes(_instanceDataManagerConfiguration.getString(REALTIME_SEGMENT_TARGET_SIZE, null));
+  }
+
+  @Override
+  public long getRealtimeConsumingMemoryBudgetBytes() {
+    return DataSize.toBytes(_instanceDataManagerConfiguration.getString(REALTIME_CONSUMING_MEMORY_BUDGET, null));
+  }
+
+  @Override
+  public int getMaxConcurrentConsumers() {
+    return _instanceDataManagerConfiguration.getInt(MAX_CONCURRENT_CONSUMERS, 0);
+  }
+
   @Override
   public String toString() {
     String configString = "";
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.server.request;
+
+import java.util.Random;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.QuerySource;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
+import org.apache.pinot.core.transport.RequestTemplateRegistry;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests that the broker side {@link RequestTemplateRegistry} and the server side {@link RequestTemplateCache} of a
+ * connection evict the same templates.
+ */
+public class RequestTemplateCacheTest {
+  private static final int MAX_NUM_TEMPLATES = BrokerRequestTemplate.MAX_NUM_TEMPLATES_PER_CONNECTION;
+  private static final int NUM_TEMPLATES = 3 * MAX_NUM_TEMPLATES;
+  private static final int NUM_REQUESTS = 100_000;
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+
+  private final BrokerRequest[] _templates = new BrokerRequest[NUM_TEMPLATES];
+
+  public RequestTemplateCacheTest() {
+    for (int i = 0; i < NUM_TEMPLATES; i++) {
+      BrokerRequest template = new BrokerRequest();
+      template.setQuerySource(new QuerySource().setTableName("table" + i));
+      _templates[i] = template;
+    }
+  }
+
+  @Test
+  public void testEvictionSymmetry() {
+    RequestTemplateRegistry registry = new RequestTemplateRegistry();
+    RequestTemplateCache cache = new RequestTemplateCache();
+    Random random = new Random(RANDOM_SEED);
+    int numRegistered = 0;
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      BrokerRequest template = nextTemplate(random);
+      Long templateId = registry.getTemplateId(template);
+      if (templateId == null) {
+        cache.register(registry.register(template), template);
+        numRegistered++;
+      } else {
+        assertSame(cache.get(templateId), template, "Random seed: " + RANDOM_SEED);
+      }
+      assertEquals(cache.size(), registry.size(), "Random seed: " + RANDOM_SEED);
+    }
+    // Both hits and evictions should happen
+    assertEquals(registry.size(), MAX_NUM_TEMPLATES);
+    assertTrue(numRegistered > MAX_NUM_TEMPLATES);
+  }
+
+  @Test
+  public void testEvictionSymmetryAfterLostRegistration() {
+    RequestTemplateRegistry registry = new RequestTemplateRegistry();
+    RequestTemplateCache cache = new RequestTemplateCache();
+    Random random = new Random(RANDOM_SEED);
+    int numUnknownTemplates = 0;
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      BrokerRequest template = nextTemplate(random);
+      Long templateId = registry.getTemplateId(template);
+      if (templateId == null) {
+        templateId = registry.register(template);
+        // The server fails to deserialize some requests registering the template
+        if (random.nextInt(100) != 0) {
+          cache.register(templateId, template);
+        }
+      } else {
+        BrokerRequest registeredTemplate = cache.get(templateId);
+        if (registeredTemplate == null) {
+          // Unknown template, the broker sends the full query and registers the template again with the next query
+          numUnknownTemplates++;
+          registry.unregister(template);
+        } else {
+          assertSame(registeredTemplate, template, "Random seed: " + RANDOM_SEED);
+        }
+      }
+    }
+    assertTrue(numUnknownTemplates > 0, "Random seed: " + RANDOM_SEED);
+
+    // After the lost registrations are all resolved, every template known by the broker is known by the server
+    for (int i = 0; i < NUM_TEMPLATES; i++) {
+      Long templateId = registry.getTemplateId(_templates[i]);
+      if (templateId != null && cache.get(templateId) == null) {
+        registry.unregister(_templates[i]);
+      }
+    }
+    for (int i = 0; i < NUM_TEMPLATES; i++) {
+      BrokerRequest template = _templates[i];
+      Long templateId = registry.getTemplateId(template);
+      if (templateId == null) {
+        cache.register(registry.register(template), template);
+      } else {
+        assertSame(cache.get(templateId), template, "Random seed: " + RANDOM_SEED);
+      }
+    }
+    for (int i = NUM_TEMPLATES - MAX_NUM_TEMPLATES; i < NUM_TEMPLATES; i++) {
+      Long templateId = registry.getTemplateId(_templates[i]);
+      assertNotNull(templateId);
+      assertSame(cache.get(templateId), _templates[i]);
+    }
+    assertNull(registry.getTemplateId(_templates[0]));
+    assertEquals(cache.size(), registry.size());
+  }
+
+  /**
+   * Returns a random template, with half of the requests on a hot set of templates that fits in the cache.
+   */
+  private BrokerRequest nextTemplate(Random random) {
+    if (random.nextBoolean()) {
+      return _templates[random.nextInt(MAX_NUM_TEMPLATES / 2)];
+    } else {
+      return _templates[random.nextInt(NUM_TEMPLATES)];
+    }
+  }
+}
@@ -24,7 +24,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.yammer.metrics.core.MetricsRegistry;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -34,11 +37,13 @@ import javax.annotation.Nonnull;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.request.InstanceRequest;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.common.utils.request.BrokerRequestTemplate;
 import org.apache.pinot.core.common.datatable.DataTableBuilder;
 import org.apache.pinot.core.common.datatable.DataTableFactory;
 import org.apache.pinot.core.common.datatable.DataTableImplV2;
@@ -54,7 +59,14 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 public class ScheduledRequestHandlerTest {
@@ -197,6 +209,89 @@ public class ScheduledRequestHandlerTest {
     Assert.assertEquals(responseDT.getInt(1, 1), 100);
   }
 
+  @Test
+  public void testRequestTemplate()
+      throws Exception {
+    List<ServerQueryRequest> queryRequests = new ArrayList<>();
+    QueryScheduler mockQueryScheduler = mock(QueryScheduler.class);
+    when(mockQueryScheduler.submit(any())).thenAnswer(invocation -> {
+      queryRequests.add(invocation.getArgument(0));
+      return Futures.immediateFuture(new byte[0]);
+    });
+    ScheduledRequestHandler handler = new ScheduledRequestHandler(mockQueryScheduler, serverMetrics);
+    RequestTemplateCache requestTemplateCache = new RequestTemplateCache();
+
+    Pql2Compiler compiler = new Pql2Compiler();
+    BrokerRequest brokerRequest1 =
+        compiler.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE foo = 'a' AND bar IN ('b', 'c')");
+    BrokerRequest brokerRequest2 =
+        compiler.compileToBrokerRequest("SELECT COUNT(*) FROM myTable_OFFLINE WHERE foo = 'd' AND bar IN ('e')");
+    BrokerRequestTemplate requestTemplate1 = BrokerRequestTemplate.fromBrokerRequest(brokerRequest1);
+    BrokerRequestTemplate requestTemplate2 = BrokerRequestTemplate.fromBrokerRequest(brokerRequest2);
+    Assert.assertEquals(requestTemplate1.getTemplate(), requestTemplate2.getTemplate());
+
+    // The first request registers the template
+    handler.processRequest(getSerializedInstanceRequest(
+        getTemplatedRequest(1, 5, requestTemplate1.getTemplate(), requestTemplate1.getFilterValues())),
+        requestTemplateCache).get();
+    Assert.assertEquals(requestTemplateCache.size(), 1);
+    // The second request only carries the template id and the filter values
+    handler.processRequest(getSerializedInstanceRequest(
+        getTemplatedRequest(2, 5, new BrokerRequest(), requestTemplate2.getFilterValues())), requestTemplateCache)
+        .get();
+
+    Assert.assertEquals(queryRequests.size(), 2);
+    Assert.assertEquals(queryRequests.get(0).getRequestId(), 1);
+    Assert.assertEquals(queryRequests.get(0).getBrokerRequest(), brokerRequest1);
+    Assert.assertEquals(queryRequests.get(0).getSegmentsToQuery(), Arrays.asList("segment1", "segment2"));
+    Assert.assertEquals(queryRequests.get(1).getRequestId(), 2);
+    Assert.assertEquals(queryRequests.get(1).getBrokerRequest(), brokerRequest2);
+    Assert.assertEquals(queryRequests.get(1).getSegmentsToQuery(), Arrays.asList("segment1", "segment2"));
+  }
+
+  @Test
+  public void testUnknownRequestTemplate()
+      throws Exception {
+    QueryScheduler mockQueryScheduler = mock(QueryScheduler.class);
+    ServerMetrics mockServerMetrics = mock(ServerMetrics.class);
+    ScheduledRequestHandler handler = new ScheduledRequestHandler(mockQueryScheduler, mockServerMetrics);
+
+    BrokerRequestTemplate requestTemplate = BrokerRequestTemplate
+        .fromBrokerRequest(new Pql2Compiler().compileToBrokerRequest("SELECT * FROM myTable_OFFLINE WHERE foo = 'a'"));
+    byte[] request = getSerializedInstanceRequest(
+        getTemplatedRequest(3, 7, new BrokerRequest(), requestTemplate.getFilterValues()));
+
+    // Template not registered on the connection
+    assertUnknownRequestTemplate(handler.processRequest(request, new RequestTemplateCache()), 3);
+    // Templates not supported without a connection handler
+    assertUnknownRequestTemplate(handler.processRequest(request), 3);
+
+    verify(mockServerMetrics, times(2)).addMeteredGlobalValue(ServerMeter.UNKNOWN_REQUEST_TEMPLATES, 1);
+    verify(mockServerMetrics, never())
+        .addMeteredGlobalValue(eq(ServerMeter.REQUEST_DESERIALIZATION_EXCEPTIONS), anyLong());
+    verify(mockQueryScheduler, never()).submit(any());
+  }
+
+  private void assertUnknownRequestTemplate(ListenableFuture<byte[]> responseFuture, long requestId)
+      throws Exception {
+    Assert.assertTrue(responseFuture.isDone());
+    DataTable dataTable = DataTableFactory.getDataTable(responseFuture.get());
+    Map<String, String> metadata = dataTable.getMetadata();
+    Assert.assertEquals(metadata.get(DataTable.REQUEST_ID_METADATA_KEY), Long.toString(requestId));
+    Assert.assertTrue(
+        metadata.containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.UNKNOWN_REQUEST_TEMPLATE_ERROR_CODE));
+  }
+
+  private InstanceRequest getTemplatedRequest(long requestId, long templateId, BrokerRequest query,
+      List<List<String>> filterValues) {
+    InstanceRequest request = new InstanceRequest(requestId, query);
+    request.setSearchSegments(Arrays.asList("segment1", "segment2"));
+    request.setBrokerId("broker");
+    request.setTemplateId(templateId);
+    request.setTemplateFilterValues(filterValues);
+    return request;
+  }
+
   private ListenableFuture<byte[]> serializeData(ListenableFuture<DataTable> dataTable) {
     return Futures.transform(dataTable, input -> {
       try {